@@ -0,0 +1,81 @@
+package com.biblioteca.benchmark;
+
+import com.biblioteca.entity.Livro;
+import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.service.LivroService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Busca de livros com filtros: a consulta LIKE de {@link LivroRepository#buscarComFiltros}
+ * e o caminho do serviço, que resolve os filtros textuais pelo índice de busca
+ *
+ * Os termos giram pelas palavras usadas nos títulos da massa sintética.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class BuscaLivrosBenchmark {
+
+    private static final Pageable PRIMEIRA_PAGINA = PageRequest.of(0, 20);
+
+    private LivroRepository livroRepository;
+    private LivroService livroService;
+    private int consulta;
+
+    @Setup(Level.Trial)
+    public void preparar(ContextoBenchmark contexto) {
+        livroRepository = contexto.bean(LivroRepository.class);
+        livroService = contexto.bean(LivroService.class);
+    }
+
+    @Benchmark
+    public Page<Livro> repositorioPorTitulo() {
+        return livroRepository.buscarComFiltros(proximaPalavra(), null, null, null, PRIMEIRA_PAGINA);
+    }
+
+    @Benchmark
+    public Page<Livro> repositorioPorTituloECategoria() {
+        return livroRepository.buscarComFiltros(proximaPalavra(), null, null, proximaCategoria(), PRIMEIRA_PAGINA);
+    }
+
+    @Benchmark
+    public Page<Livro> repositorioPorCategoria() {
+        return livroRepository.buscarComFiltros(null, null, null, proximaCategoria(), PRIMEIRA_PAGINA);
+    }
+
+    @Benchmark
+    public Page<Livro> servicoPorTitulo() {
+        return livroService.buscarComFiltros(null, proximaPalavra(), null, null, null, PRIMEIRA_PAGINA);
+    }
+
+    @Benchmark
+    public Page<Livro> servicoBuscaLivre() {
+        return livroService.buscarComFiltros(proximaPalavra(), null, null, null, null, PRIMEIRA_PAGINA);
+    }
+
+    private String proximaPalavra() {
+        return GeradorDadosSinteticos.PALAVRAS[consulta++ % GeradorDadosSinteticos.PALAVRAS.length];
+    }
+
+    private String proximaCategoria() {
+        return GeradorDadosSinteticos.CATEGORIAS[consulta++ % GeradorDadosSinteticos.CATEGORIAS.length];
+    }
+}
@@ -0,0 +1,186 @@
+package com.biblioteca.benchmark;
+
+import com.biblioteca.dto.EmprestimoDTO;
+import com.biblioteca.dto.LivroDTO;
+import com.biblioteca.entity.Livro;
+import com.biblioteca.exception.CheckoutRejeitadoException;
+import com.biblioteca.exception.MotivoRejeicao;
+import com.biblioteca.service.EmprestimoService;
+import com.biblioteca.service.LivroService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Disputa de centenas de threads pelas cópias de um único título
+ *
+ * O grupo {@code disputa} tem 190 threads que emprestam e devolvem o livro 1 (cada uma com seu
+ * usuário) e 10 que editam o mesmo livro a partir de uma leitura que os checkouts tornam
+ * desatualizada (distribuição alterável com {@code -tg}). Sem a versão, a edição gravaria as
+ * cópias disponíveis lidas antes dos débitos e o título passaria a emprestar mais cópias do que
+ * tem. Ao fim de cada iteração, com as threads paradas, o estoque é conferido contra os
+ * empréstimos em aberto; qualquer diferença interrompe o benchmark. Os contadores auxiliares
+ * trazem a vazão de empréstimos, recusas e edições, e a taxa de conflitos refeitos pela
+ * retentativa é impressa no fim de cada iteração.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcorrenciaLivroBenchmark {
+
+    private static final long LIVRO_DISPUTADO = 1L;
+
+    @Param("20")
+    public int copias;
+
+    private EmprestimoService emprestimoService;
+    private LivroService livroService;
+    private JdbcTemplate jdbcTemplate;
+    private MeterRegistry meterRegistry;
+    private final AtomicLong proximoUsuario = new AtomicLong();
+    private double conflitosAntes;
+
+    @Setup(Level.Trial)
+    public void preparar(ContextoBenchmark contexto) {
+        emprestimoService = contexto.bean(EmprestimoService.class);
+        livroService = contexto.bean(LivroService.class);
+        jdbcTemplate = contexto.bean(JdbcTemplate.class);
+        meterRegistry = contexto.bean(MeterRegistry.class);
+
+        // Título com poucas cópias e nenhum empréstimo em aberto: a maior parte dos pedidos disputa o estoque
+        Livro livro = livroService.buscarPorId(LIVRO_DISPUTADO);
+        livroService.atualizar(LIVRO_DISPUTADO, paraDTO(livro, copias, copias));
+    }
+
+    @Setup(Level.Iteration)
+    public void marcarConflitos() {
+        conflitosAntes = conflitosRefeitos();
+    }
+
+    @TearDown(Level.Iteration)
+    public void conferirEstoque() {
+        Livro livro = livroService.buscarPorId(LIVRO_DISPUTADO);
+        Integer emAberto = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM emprestimos WHERE livro_id = ? AND status IN ('ATIVO', 'ATRASADO')",
+                Integer.class, LIVRO_DISPUTADO);
+        if (livro.getCopiasDisponiveis() < 0 || livro.getCopiasDisponiveis() + emAberto != livro.getCopiasTotais()) {
+            throw new IllegalStateException("Estoque divergente: " + livro.getCopiasDisponiveis() + " disponíveis, "
+                    + emAberto + " em aberto, " + livro.getCopiasTotais() + " no total");
+        }
+        System.out.printf("%nEstoque conferido: %d disponíveis, %d em aberto; conflitos refeitos na iteração: %.0f%n",
+                livro.getCopiasDisponiveis(), emAberto, conflitosRefeitos() - conflitosAntes);
+    }
+
+    @Benchmark
+    @Group("disputa")
+    @GroupThreads(190)
+    public void emprestarEDevolver(Leitor leitor, Desfechos desfechos) {
+        try {
+            Long id = emprestimoService.criar(EmprestimoDTO.builder()
+                    .usuarioId(leitor.usuarioId)
+                    .livroId(LIVRO_DISPUTADO)
+                    .build()).getId();
+            emprestimoService.devolver(id);
+            desfechos.emprestimos++;
+        } catch (CheckoutRejeitadoException recusa) {
+            if (recusa.getMotivo() != MotivoRejeicao.SEM_COPIAS) {
+                throw recusa;
+            }
+            desfechos.semCopias++;
+        } catch (ConcurrencyFailureException conflito) {
+            desfechos.conflitosEsgotados++;
+        }
+    }
+
+    @Benchmark
+    @Group("disputa")
+    @GroupThreads(10)
+    public void editarTitulo(Desfechos desfechos) {
+        Livro lido = livroService.buscarPorId(LIVRO_DISPUTADO);
+        try {
+            livroService.atualizar(LIVRO_DISPUTADO, paraDTO(lido, lido.getCopiasDisponiveis(), lido.getCopiasTotais()));
+            desfechos.edicoes++;
+        } catch (ConcurrencyFailureException conflito) {
+            desfechos.edicoesRecusadas++;
+        }
+    }
+
+    private double conflitosRefeitos() {
+        return meterRegistry.find("biblioteca.conflitos").tag("desfecho", "refeito").counters().stream()
+                .mapToDouble(Counter::count)
+                .sum();
+    }
+
+    private static LivroDTO paraDTO(Livro livro, int disponiveis, int totais) {
+        return LivroDTO.builder()
+                .titulo(livro.getTitulo())
+                .autor(livro.getAutor())
+                .isbn(livro.getIsbn())
+                .descricao(livro.getDescricao())
+                .categoria(livro.getCategoria())
+                .copiasDisponiveis(disponiveis)
+                .copiasTotais(totais)
+                .versao(livro.getVersao())
+                .build();
+    }
+
+    /**
+     * Usuário próprio de cada thread, entre os que não têm empréstimos em aberto na massa gerada
+     */
+    @State(Scope.Thread)
+    public static class Leitor {
+        private long usuarioId;
+
+        @Setup(Level.Trial)
+        public void escolher(ConcorrenciaLivroBenchmark benchmark) {
+            do {
+                usuarioId = benchmark.proximoUsuario.incrementAndGet();
+            } while (GeradorDadosSinteticos.temEmprestimosEmAberto(usuarioId));
+        }
+    }
+
+    /**
+     * Desfechos por thread, somados pelo JMH e reportados como vazão (por segundo)
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Desfechos {
+        public long emprestimos;
+        public long semCopias;
+        public long conflitosEsgotados;
+        public long edicoes;
+        public long edicoesRecusadas;
+
+        @Setup(Level.Iteration)
+        public void zerar() {
+            emprestimos = 0;
+            semCopias = 0;
+            conflitosEsgotados = 0;
+            edicoes = 0;
+            edicoesRecusadas = 0;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.biblioteca.benchmark;
+
+import com.biblioteca.BibliotecaOnlineApplication;
+import com.biblioteca.benchmark.GeradorDadosSinteticos.Volumes;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Aplicação completa (sem servidor web) sobre um H2 em memória com massa sintética
+ *
+ * Cada fork do JMH migra o banco, gera a massa com {@link GeradorDadosSinteticos} e só então
+ * sobe o contexto Spring, para que ranking, índice de busca, estatísticas por categoria e a
+ * varredura de atrasos partam dos dados gerados. Os volumes são parâmetros do JMH
+ * (ex.: {@code -p livros=100000 -p usuarios=50000 -p emprestimos=5000000}).
+ */
+@State(Scope.Benchmark)
+public class ContextoBenchmark {
+
+    private static final String URL = "jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1";
+    private static final long SEMENTE = 20240118L;
+
+    @Param("10000")
+    public int livros;
+
+    @Param("5000")
+    public int usuarios;
+
+    @Param("200000")
+    public int emprestimos;
+
+    /**
+     * Liga ou desliga as métricas da aplicação, para medir o custo delas ({@code -p metricas=true,false})
+     */
+    @Param("true")
+    public boolean metricas;
+
+    /**
+     * Nível de log de com.biblioteca ({@code -p log=INFO,DEBUG}); {@code padrao} mantém os níveis do
+     * application.properties, inclusive o do SQL do Hibernate. O log vai para target/jmh-aplicacao.log.
+     */
+    @Param("WARN")
+    public String log;
+
+    private ConfigurableApplicationContext contexto;
+
+    @Setup(Level.Trial)
+    public void iniciar() throws SQLException {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(URL, "sa", "");
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration/comum", "classpath:db/migration/h2")
+                .load()
+                .migrate();
+        GeradorDadosSinteticos.gerar(dataSource, new Volumes(livros, usuarios, emprestimos), SEMENTE);
+
+        contexto = new SpringApplicationBuilder(BibliotecaOnlineApplication.class)
+                .web(WebApplicationType.NONE)
+                .run(argumentos());
+    }
+
+    private String[] argumentos() {
+        List<String> argumentos = new ArrayList<>(List.of(
+                "--spring.datasource.url=" + URL,
+                "--spring.main.banner-mode=off",
+                "--biblioteca.metricas.habilitadas=" + metricas,
+                "--spring.profiles.active=log-arquivo",
+                "--logging.file.name=target/jmh-aplicacao.log",
+                "--logging.level.root=WARN"));
+        if (!"padrao".equals(log)) {
+            argumentos.add("--logging.level.com.biblioteca=" + log);
+            argumentos.add("--logging.level.org.hibernate.SQL=WARN");
+        }
+        return argumentos.toArray(String[]::new);
+    }
+
+    @TearDown(Level.Trial)
+    public void encerrar() {
+        if (contexto != null) {
+            contexto.close();
+        }
+    }
+
+    public <T> T bean(Class<T> tipo) {
+        return contexto.getBean(tipo);
+    }
+}
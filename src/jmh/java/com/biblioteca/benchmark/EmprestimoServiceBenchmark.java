@@ -0,0 +1,94 @@
+package com.biblioteca.benchmark;
+
+import com.biblioteca.dto.EmprestimoDTO;
+import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.service.EmprestimoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Checkout e devolução pelo serviço (transação, motor de checkout, índices em memória e eventos)
+ *
+ * Usuários e livros são percorridos em rodízio entre os que não têm empréstimos em aberto na
+ * massa gerada, então nenhum pedido é recusado. Em {@link #criar} cada empréstimo é devolvido logo
+ * após a invocação, fora da medição: acumulados até o fim da iteração, os empréstimos em aberto
+ * esgotariam o limite dos usuários e as cópias dos livros, e os checkouts passariam a ser recusados.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class EmprestimoServiceBenchmark {
+
+    private EmprestimoService emprestimoService;
+    private Rodizio usuarios;
+    private Rodizio livros;
+    private Long abertoNaInvocacao;
+
+    @Setup(Level.Trial)
+    public void preparar(ContextoBenchmark contexto) {
+        emprestimoService = contexto.bean(EmprestimoService.class);
+        usuarios = new Rodizio(contexto.usuarios);
+        livros = new Rodizio(contexto.livros);
+    }
+
+    @TearDown(Level.Invocation)
+    public void devolverAberto() {
+        if (abertoNaInvocacao != null) {
+            emprestimoService.devolver(abertoNaInvocacao);
+            abertoNaInvocacao = null;
+        }
+    }
+
+    @Benchmark
+    public Emprestimo criar() {
+        Emprestimo emprestimo = emprestimoService.criar(proximoPedido());
+        abertoNaInvocacao = emprestimo.getId();
+        return emprestimo;
+    }
+
+    @Benchmark
+    public Emprestimo criarEDevolver() {
+        return emprestimoService.devolver(emprestimoService.criar(proximoPedido()).getId());
+    }
+
+    private EmprestimoDTO proximoPedido() {
+        return EmprestimoDTO.builder()
+                .usuarioId(usuarios.proximo())
+                .livroId(livros.proximo())
+                .build();
+    }
+
+    /**
+     * Percorre em ciclo os IDs de 1 a N sem empréstimos em aberto na massa gerada
+     */
+    private static final class Rodizio {
+        private final int total;
+        private long atual;
+
+        private Rodizio(int total) {
+            this.total = total;
+        }
+
+        private long proximo() {
+            do {
+                atual = atual % total + 1;
+            } while (GeradorDadosSinteticos.temEmprestimosEmAberto(atual));
+            return atual;
+        }
+    }
+}
@@ -0,0 +1,281 @@
+package com.biblioteca.benchmark;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Gerador de massa de dados sintética para os benchmarks
+ *
+ * Grava livros, usuários e empréstimos por JDBC em lotes, direto nas tabelas criadas pelas
+ * migrações, com sementes fixas (a mesma configuração gera sempre os mesmos dados). O histórico
+ * cobre um ano de empréstimos devolvidos; os empréstimos em aberto ficam só com os usuários e
+ * livros de ID múltiplo de 10, metade deles já vencida (a varredura de atrasos os marca como
+ * ATRASADO na inicialização). Os demais usuários e livros ficam livres para os benchmarks de
+ * checkout, sem recusas por limite, atraso ou falta de cópias.
+ */
+@Slf4j
+public final class GeradorDadosSinteticos {
+
+    private static final int LINHAS_POR_LOTE = 1000;
+    private static final int DIAS_HISTORICO = 365;
+    private static final int DIAS_EMPRESTIMO = 14;
+    private static final int LIMITE_EMPRESTIMOS = 5;
+
+    private static final String SQL_EMPRESTIMO = "INSERT INTO emprestimos (id, livro_id, usuario_id, data_emprestimo, " +
+            "data_devolucao_prevista, data_devolucao_real, status, data_criacao, data_atualizacao) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    static final String[] CATEGORIAS = {
+            "Programação", "Romance", "Ficção Científica", "História", "Filosofia", "Matemática",
+            "Física", "Química", "Biologia", "Direito", "Economia", "Administração", "Psicologia",
+            "Poesia", "Biografia", "Arte", "Música", "Geografia", "Medicina", "Engenharia"
+    };
+
+    static final String[] PALAVRAS = {
+            "algoritmos", "sistemas", "dados", "memória", "cidade", "noite", "mar", "tempo", "viagem",
+            "guerra", "jardim", "segredo", "ciência", "estrutura", "arquitetura", "código", "rede",
+            "sombra", "caminho", "montanha", "rio", "história", "teoria", "prática", "mundo", "estrela"
+    };
+
+    private static final String[] NOMES = {
+            "Ana", "Bruno", "Carla", "Daniel", "Eduarda", "Felipe", "Gabriela", "Henrique", "Isabela",
+            "João", "Larissa", "Marcos", "Natália", "Otávio", "Paula", "Rafael", "Sofia", "Tiago"
+    };
+
+    private static final String[] SOBRENOMES = {
+            "Silva", "Santos", "Oliveira", "Souza", "Lima", "Pereira", "Costa", "Almeida", "Ferreira",
+            "Rodrigues", "Gomes", "Martins", "Araújo", "Barbosa", "Ribeiro", "Carvalho"
+    };
+
+    private static final String[] TIPOS_USUARIO = {"ALUNO", "PROFESSOR", "VISITANTE", "FUNCIONARIO"};
+
+    private GeradorDadosSinteticos() {
+    }
+
+    /**
+     * Quantidades de livros, usuários e empréstimos (em aberto + histórico) a gerar
+     */
+    public record Volumes(int livros, int usuarios, int emprestimos) {
+    }
+
+    /**
+     * Indica se o livro ou usuário pode ter empréstimos em aberto na massa gerada
+     */
+    public static boolean temEmprestimosEmAberto(long id) {
+        return id % 10 == 0;
+    }
+
+    /**
+     * Grava a massa de dados num banco recém-migrado (tabelas vazias)
+     */
+    public static void gerar(DataSource dataSource, Volumes volumes, long semente) throws SQLException {
+        long inicio = System.nanoTime();
+        Random aleatorio = new Random(semente);
+        LocalDate hoje = LocalDate.now();
+        Timestamp agora = Timestamp.valueOf(LocalDateTime.now());
+
+        // Os empréstimos em aberto são planejados antes dos livros para descontar as cópias emprestadas
+        int[] emprestadas = new int[volumes.livros() + 1];
+        int[] copiasTotais = new int[volumes.livros() + 1];
+        for (int livro = 1; livro <= volumes.livros(); livro++) {
+            copiasTotais[livro] = temEmprestimosEmAberto(livro) ? 1 + aleatorio.nextInt(5) : 2 + aleatorio.nextInt(4);
+        }
+        List<long[]> emAberto = planejarEmAberto(volumes, aleatorio, emprestadas, copiasTotais);
+
+        try (Connection conexao = dataSource.getConnection()) {
+            conexao.setAutoCommit(false);
+            gravarLivros(conexao, volumes.livros(), aleatorio, copiasTotais, emprestadas, agora);
+            gravarUsuarios(conexao, volumes.usuarios(), aleatorio, agora);
+            long id = gravarEmAberto(conexao, emAberto, hoje, aleatorio, agora);
+            contarEmAberto(conexao);
+            id = gravarHistorico(conexao, id, volumes.emprestimos() - emAberto.size(), volumes, hoje, aleatorio, agora);
+            reiniciarSequencias(conexao, volumes, id);
+            conexao.commit();
+        }
+        log.info("Massa sintética gerada: {} livro(s), {} usuário(s), {} empréstimo(s) ({} em aberto) em {} ms",
+                volumes.livros(), volumes.usuarios(), volumes.emprestimos(), emAberto.size(),
+                (System.nanoTime() - inicio) / 1_000_000);
+    }
+
+    /**
+     * Escolhe até dois empréstimos em aberto para cada usuário de ID múltiplo de 10
+     * @return pares {usuarioId, livroId}
+     */
+    private static List<long[]> planejarEmAberto(Volumes volumes, Random aleatorio, int[] emprestadas,
+                                                 int[] copiasTotais) {
+        List<long[]> planejados = new ArrayList<>();
+        int livrosReservados = volumes.livros() / 10;
+        if (livrosReservados == 0) {
+            return planejados;
+        }
+        for (long usuario = 10; usuario <= volumes.usuarios(); usuario += 10) {
+            int quantidade = aleatorio.nextInt(3);
+            for (int i = 0; i < quantidade && planejados.size() < volumes.emprestimos(); i++) {
+                int livro = 10 * (1 + aleatorio.nextInt(livrosReservados));
+                if (emprestadas[livro] < copiasTotais[livro]) {
+                    emprestadas[livro]++;
+                    planejados.add(new long[]{usuario, livro});
+                }
+            }
+        }
+        return planejados;
+    }
+
+    private static void gravarLivros(Connection conexao, int livros, Random aleatorio, int[] copiasTotais,
+                                     int[] emprestadas, Timestamp agora) throws SQLException {
+        String sql = "INSERT INTO livros (id, titulo, autor, isbn, descricao, categoria, cópias_disponíveis, " +
+                "cópias_totais, data_criacao, data_atualizacao) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement insercao = conexao.prepareStatement(sql)) {
+            for (int id = 1; id <= livros; id++) {
+                String titulo = capitalizar(sortear(PALAVRAS, aleatorio)) + " e " + sortear(PALAVRAS, aleatorio) + " " + id;
+                insercao.setLong(1, id);
+                insercao.setString(2, titulo);
+                insercao.setString(3, sortear(NOMES, aleatorio) + " " + sortear(SOBRENOMES, aleatorio));
+                insercao.setString(4, String.format("978-%010d", id));
+                insercao.setString(5, "Livro sintético sobre " + sortear(PALAVRAS, aleatorio));
+                insercao.setString(6, sortear(CATEGORIAS, aleatorio));
+                insercao.setInt(7, copiasTotais[id] - emprestadas[id]);
+                insercao.setInt(8, copiasTotais[id]);
+                insercao.setTimestamp(9, agora);
+                insercao.setTimestamp(10, agora);
+                adicionar(conexao, insercao, id);
+            }
+            insercao.executeBatch();
+        }
+    }
+
+    private static void gravarUsuarios(Connection conexao, int usuarios, Random aleatorio, Timestamp agora)
+            throws SQLException {
+        String sql = "INSERT INTO usuarios (id, nome, email, telefone, endereco, tipo_usuario, limite_emprestimos, " +
+                "ativo, data_criacao, data_atualizacao) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+        try (PreparedStatement insercao = conexao.prepareStatement(sql)) {
+            for (int id = 1; id <= usuarios; id++) {
+                insercao.setLong(1, id);
+                insercao.setString(2, sortear(NOMES, aleatorio) + " " + sortear(SOBRENOMES, aleatorio));
+                insercao.setString(3, "usuario" + id + "@benchmark.local");
+                insercao.setString(4, null);
+                insercao.setString(5, null);
+                insercao.setString(6, sortear(TIPOS_USUARIO, aleatorio));
+                insercao.setInt(7, LIMITE_EMPRESTIMOS);
+                insercao.setBoolean(8, true);
+                insercao.setTimestamp(9, agora);
+                insercao.setTimestamp(10, agora);
+                adicionar(conexao, insercao, id);
+            }
+            insercao.executeBatch();
+        }
+    }
+
+    /**
+     * Grava os empréstimos em aberto, emprestados nos últimos 30 dias (metade já vencida)
+     * @return último ID usado
+     */
+    private static long gravarEmAberto(Connection conexao, List<long[]> emAberto, LocalDate hoje, Random aleatorio,
+                                       Timestamp agora) throws SQLException {
+        long id = 0;
+        try (PreparedStatement insercao = conexao.prepareStatement(SQL_EMPRESTIMO)) {
+            for (long[] par : emAberto) {
+                LocalDate emprestimo = hoje.minusDays(aleatorio.nextInt(2 * DIAS_EMPRESTIMO));
+                preencherEmprestimo(insercao, ++id, par[1], par[0], emprestimo, null, "ATIVO", agora);
+                adicionar(conexao, insercao, id);
+            }
+            insercao.executeBatch();
+        }
+        return id;
+    }
+
+    /**
+     * Acerta o contador de empréstimos em aberto de cada usuário (como a migração V10)
+     */
+    private static void contarEmAberto(Connection conexao) throws SQLException {
+        try (Statement comando = conexao.createStatement()) {
+            comando.executeUpdate("UPDATE usuarios SET emprestimos_em_aberto = (SELECT COUNT(*) FROM emprestimos e " +
+                    "WHERE e.usuario_id = usuarios.id AND e.status IN ('ATIVO', 'ATRASADO'))");
+        }
+    }
+
+    /**
+     * Grava o histórico de empréstimos devolvidos (e alguns cancelados) do último ano
+     * @return último ID usado
+     */
+    private static long gravarHistorico(Connection conexao, long ultimoId, int quantidade, Volumes volumes,
+                                        LocalDate hoje, Random aleatorio, Timestamp agora) throws SQLException {
+        long id = ultimoId;
+        try (PreparedStatement insercao = conexao.prepareStatement(SQL_EMPRESTIMO)) {
+            for (int i = 0; i < quantidade; i++) {
+                LocalDate emprestimo = hoje.minusDays(1 + aleatorio.nextInt(DIAS_HISTORICO));
+                boolean cancelado = aleatorio.nextInt(50) == 0;
+                LocalDate devolucao = cancelado ? null : min(emprestimo.plusDays(aleatorio.nextInt(DIAS_EMPRESTIMO + 7)), hoje);
+                preencherEmprestimo(insercao, ++id, 1 + aleatorio.nextInt(volumes.livros()),
+                        1 + aleatorio.nextInt(volumes.usuarios()), emprestimo, devolucao,
+                        cancelado ? "CANCELADO" : "DEVOLVIDO", agora);
+                adicionar(conexao, insercao, id);
+                if (id % 1_000_000 == 0) {
+                    log.info("{} empréstimo(s) gravado(s)", id);
+                }
+            }
+            insercao.executeBatch();
+        }
+        return id;
+    }
+
+    private static void preencherEmprestimo(PreparedStatement insercao, long id, long livroId, long usuarioId,
+                                            LocalDate emprestimo, LocalDate devolucao, String status,
+                                            Timestamp agora) throws SQLException {
+        insercao.setLong(1, id);
+        insercao.setLong(2, livroId);
+        insercao.setLong(3, usuarioId);
+        insercao.setDate(4, Date.valueOf(emprestimo));
+        insercao.setDate(5, Date.valueOf(emprestimo.plusDays(DIAS_EMPRESTIMO)));
+        insercao.setDate(6, devolucao != null ? Date.valueOf(devolucao) : null);
+        insercao.setString(7, status);
+        insercao.setTimestamp(8, agora);
+        insercao.setTimestamp(9, agora);
+    }
+
+    /**
+     * Ajusta identidades e sequências para continuarem depois dos IDs gravados (como V5 e V6)
+     */
+    private static void reiniciarSequencias(Connection conexao, Volumes volumes, long ultimoEmprestimo)
+            throws SQLException {
+        try (Statement comando = conexao.createStatement()) {
+            comando.execute("ALTER TABLE livros ALTER COLUMN id RESTART WITH " + (volumes.livros() + 1));
+            comando.execute("ALTER TABLE usuarios ALTER COLUMN id RESTART WITH " + (volumes.usuarios() + 1));
+            comando.execute("ALTER TABLE emprestimos ALTER COLUMN id RESTART WITH " + (ultimoEmprestimo + 1));
+            comando.execute("ALTER SEQUENCE livros_seq RESTART WITH " + (volumes.livros() + 50));
+            comando.execute("ALTER SEQUENCE emprestimos_seq RESTART WITH " + (ultimoEmprestimo + 50));
+        }
+    }
+
+    private static void adicionar(Connection conexao, PreparedStatement insercao, long linha) throws SQLException {
+        insercao.addBatch();
+        if (linha % LINHAS_POR_LOTE == 0) {
+            insercao.executeBatch();
+            conexao.commit();
+        }
+    }
+
+    private static String sortear(String[] valores, Random aleatorio) {
+        return valores[aleatorio.nextInt(valores.length)];
+    }
+
+    private static String capitalizar(String palavra) {
+        return Character.toUpperCase(palavra.charAt(0)) + palavra.substring(1);
+    }
+
+    private static LocalDate min(LocalDate a, LocalDate b) {
+        return a.isBefore(b) ? a : b;
+    }
+}
@@ -0,0 +1,66 @@
+package com.biblioteca.benchmark;
+
+import com.biblioteca.dto.LivroResposta;
+import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.service.LivroService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Custo fixo das métricas por chamada, em operações baratas o bastante para que ele apareça
+ *
+ * {@link #servicoLivroEmCache} passa só pela observação do serviço (o livro vem do cache do
+ * catálogo, sem transação nem consulta); {@link #repositorioCopiasDisponiveis} é uma consulta de
+ * uma linha, com o timer do Spring Data e a contagem de linhas. Comparar com
+ * {@code -p metricas=true,false}: a diferença entre os dois é o custo por chamada.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class MetricasBenchmark {
+
+    private static final int LIVROS_CONSULTADOS = 100;
+
+    private LivroService livroService;
+    private LivroRepository livroRepository;
+    private long livroId;
+
+    @Setup(Level.Trial)
+    public void preparar(ContextoBenchmark contexto) {
+        livroService = contexto.bean(LivroService.class);
+        livroRepository = contexto.bean(LivroRepository.class);
+    }
+
+    @Benchmark
+    public LivroResposta servicoLivroEmCache() {
+        return livroService.consultarPorId(proximoLivro());
+    }
+
+    @Benchmark
+    public Optional<Integer> repositorioCopiasDisponiveis() {
+        return livroRepository.buscarCopiasDisponiveis(proximoLivro());
+    }
+
+    /**
+     * Gira entre poucos livros para que todos fiquem no cache após o aquecimento
+     */
+    private long proximoLivro() {
+        livroId = livroId % LIVROS_CONSULTADOS + 1;
+        return livroId;
+    }
+}
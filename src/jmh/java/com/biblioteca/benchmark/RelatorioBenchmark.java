@@ -0,0 +1,103 @@
+package com.biblioteca.benchmark;
+
+import com.biblioteca.service.RelatorioService;
+import com.biblioteca.service.RelatorioService.FormatoExportacao;
+import com.biblioteca.service.RelatorioService.LivroComContagemDTO;
+import com.biblioteca.service.RelatorioService.LivroEmprestadoDTO;
+import com.biblioteca.service.RelatorioService.LivroPorCategoriaDTO;
+import com.biblioteca.service.RelatorioService.RelatorioAtividadeDTO;
+import com.biblioteca.service.RelatorioService.UsuarioEmprestimosDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Relatórios calculados direto pelo {@link RelatorioService}, sem o cache de resultados
+ * por versão dos dados (cada invocação refaz consultas e agregações)
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Thread)
+public class RelatorioBenchmark {
+
+    private RelatorioService relatorioService;
+    private LocalDate hoje;
+
+    @Setup(Level.Trial)
+    public void preparar(ContextoBenchmark contexto) {
+        relatorioService = contexto.bean(RelatorioService.class);
+        hoje = LocalDate.now();
+    }
+
+    @Benchmark
+    public List<LivroComContagemDTO> maisEmprestadosHistorico() {
+        return relatorioService.relatorioLivrosMaisEmprestados(20, null);
+    }
+
+    @Benchmark
+    public List<LivroComContagemDTO> maisEmprestados30Dias() {
+        return relatorioService.relatorioLivrosMaisEmprestados(20, 30);
+    }
+
+    /**
+     * Janela maior que a retenção do ranking em memória: agregação no banco
+     */
+    @Benchmark
+    public List<LivroComContagemDTO> maisEmprestados730Dias() {
+        return relatorioService.relatorioLivrosMaisEmprestados(20, 730);
+    }
+
+    @Benchmark
+    public List<LivroEmprestadoDTO> livrosEmprestados() {
+        return relatorioService.relatorioLivrosEmprestados();
+    }
+
+    @Benchmark
+    public void exportarLivrosEmprestadosCsv() throws IOException {
+        relatorioService.exportarLivrosEmprestados(OutputStream.nullOutputStream(), FormatoExportacao.CSV);
+    }
+
+    @Benchmark
+    public void exportarLivrosEmprestadosNdjson() throws IOException {
+        relatorioService.exportarLivrosEmprestados(OutputStream.nullOutputStream(), FormatoExportacao.NDJSON);
+    }
+
+    @Benchmark
+    public Page<UsuarioEmprestimosDTO> emprestimosPorUsuario() {
+        return relatorioService.relatorioEmprestimosPorUsuario(PageRequest.of(0, 20));
+    }
+
+    @Benchmark
+    public List<LivroPorCategoriaDTO> livrosPorCategoria() {
+        return relatorioService.relatorioLivrosPorCategoria(false);
+    }
+
+    @Benchmark
+    public List<LivroPorCategoriaDTO> livrosPorCategoriaComLivros() {
+        return relatorioService.relatorioLivrosPorCategoria(true);
+    }
+
+    @Benchmark
+    public RelatorioAtividadeDTO atividadeUltimos30Dias() {
+        return relatorioService.relatorioAtividadePeriodo(hoje.minusDays(30), hoje);
+    }
+}
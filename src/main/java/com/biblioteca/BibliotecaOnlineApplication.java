@@ -6,7 +6,9 @@ import io.swagger.v3.oas.models.info.Info;
 import io.swagger.v3.oas.models.info.License;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Classe principal da aplicação Biblioteca Online
@@ -22,6 +24,8 @@ import org.springframework.context.annotation.Bean;
  * @version 1.0.0
  */
 @SpringBootApplication
+@EnableCaching
+@EnableScheduling
 public class BibliotecaOnlineApplication {
 
     public static void main(String[] args) {
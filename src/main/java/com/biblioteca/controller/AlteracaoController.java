@@ -0,0 +1,67 @@
+package com.biblioteca.controller;
+
+import com.biblioteca.dto.AlteracaoAcervo;
+import com.biblioteca.exception.CapacidadeEsgotadaException;
+import com.biblioteca.service.TransmissaoAlteracoes;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.List;
+
+/**
+ * Controlador do fluxo de alterações de empréstimos e de estoque (server-sent events)
+ */
+@RestController
+@RequestMapping("/alteracoes")
+@RequiredArgsConstructor
+@Tag(name = "Alterações", description = "Fluxo de alterações de empréstimos e de estoque, em vez de consultas periódicas")
+public class AlteracaoController {
+
+    /**
+     * Maior número de livros aceitos no filtro de uma assinatura
+     */
+    private static final int MAXIMO_LIVROS_FILTRO = 1000;
+
+    private final TransmissaoAlteracoes transmissaoAlteracoes;
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Acompanhar alterações",
+            description = "Server-sent events com cada empréstimo criado, devolvido, renovado ou removido e cada "
+                    + "variação de cópias disponíveis, após o commit. O id do evento é a sequência da alteração. "
+                    + "Cliente que não acompanha o ritmo recebe DESCARTADO e a conexão é encerrada")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Fluxo aberto; o primeiro evento é CONECTADO",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            schema = @Schema(implementation = AlteracaoAcervo.class))),
+            @ApiResponse(responseCode = "400", description = "Filtro com mais de 1000 livros (sem corpo)"),
+            @ApiResponse(responseCode = "503", description = "Limite de assinantes atingido (sem corpo, com Retry-After)")
+    })
+    public ResponseEntity<SseEmitter> acompanhar(
+            @Parameter(description = "IDs dos livros acompanhados (todos, se omitido)")
+            @RequestParam(required = false) List<Long> livros) {
+        // Recusas sem corpo: o erro em JSON do GerenciadorExcecoes não é aceito por quem pede text/event-stream
+        if (livros != null && livros.size() > MAXIMO_LIVROS_FILTRO) {
+            return ResponseEntity.badRequest().build();
+        }
+        try {
+            return ResponseEntity.ok(transmissaoAlteracoes.assinar(livros));
+        } catch (CapacidadeEsgotadaException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        }
+    }
+}
@@ -1,7 +1,10 @@
 package com.biblioteca.controller;
 
 import com.biblioteca.dto.EmprestimoDTO;
-import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.dto.EmprestimoResposta;
+import com.biblioteca.dto.PaginaCursor;
+import com.biblioteca.dto.ResultadoLoteEmprestimos;
+import com.biblioteca.mapper.EmprestimoMapper;
 import com.biblioteca.service.EmprestimoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -33,18 +36,31 @@ import java.util.List;
 public class EmprestimoController {
 
     private final EmprestimoService emprestimoService;
+    private final EmprestimoMapper emprestimoMapper;
 
     @PostMapping
     @Operation(summary = "Criar novo empréstimo", description = "Registra um novo empréstimo de livro para um usuário")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Empréstimo criado com sucesso",
-                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Emprestimo.class))),
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = EmprestimoResposta.class))),
             @ApiResponse(responseCode = "400", description = "Dados inválidos ou limite excedido"),
             @ApiResponse(responseCode = "404", description = "Livro ou usuário não encontrado"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
-    public ResponseEntity<Emprestimo> criar(@Valid @RequestBody EmprestimoDTO dto) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(emprestimoService.criar(dto));
+    public ResponseEntity<EmprestimoResposta> criar(@Valid @RequestBody EmprestimoDTO dto) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(emprestimoMapper.paraResposta(emprestimoService.criar(dto)));
+    }
+
+    @PostMapping("/lote")
+    @Operation(summary = "Criar empréstimos em lote",
+            description = "Registra até 5000 empréstimos numa única transação, com o desfecho de cada pedido e a vazão obtida")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lote processado; pedidos recusados trazem o motivo",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResultadoLoteEmprestimos.class))),
+            @ApiResponse(responseCode = "400", description = "Lote vazio ou acima do tamanho máximo")
+    })
+    public ResponseEntity<ResultadoLoteEmprestimos> criarLote(@RequestBody List<EmprestimoDTO> pedidos) {
+        return ResponseEntity.ok(emprestimoService.criarLote(pedidos));
     }
 
     @PatchMapping("/{id}/devolver")
@@ -54,8 +70,8 @@ public class EmprestimoController {
             @ApiResponse(responseCode = "404", description = "Empréstimo não encontrado"),
             @ApiResponse(responseCode = "400", description = "Empréstimo não está ativo")
     })
-    public ResponseEntity<Emprestimo> devolver(@PathVariable Long id) {
-        return ResponseEntity.ok(emprestimoService.devolver(id));
+    public ResponseEntity<EmprestimoResposta> devolver(@PathVariable Long id) {
+        return ResponseEntity.ok(emprestimoMapper.paraResposta(emprestimoService.devolver(id)));
     }
 
     @PatchMapping("/{id}/renovar")
@@ -65,8 +81,8 @@ public class EmprestimoController {
             @ApiResponse(responseCode = "404", description = "Empréstimo não encontrado"),
             @ApiResponse(responseCode = "400", description = "Empréstimo não pode ser renovado")
     })
-    public ResponseEntity<Emprestimo> renovar(@PathVariable Long id) {
-        return ResponseEntity.ok(emprestimoService.renovar(id));
+    public ResponseEntity<EmprestimoResposta> renovar(@PathVariable Long id) {
+        return ResponseEntity.ok(emprestimoMapper.paraResposta(emprestimoService.renovar(id)));
     }
 
     @GetMapping("/{id}")
@@ -75,26 +91,56 @@ public class EmprestimoController {
             @ApiResponse(responseCode = "200", description = "Empréstimo encontrado"),
             @ApiResponse(responseCode = "404", description = "Empréstimo não encontrado")
     })
-    public ResponseEntity<Emprestimo> buscarPorId(@PathVariable Long id) {
-        return ResponseEntity.ok(emprestimoService.buscarPorId(id));
+    public ResponseEntity<EmprestimoResposta> buscarPorId(@PathVariable Long id) {
+        return ResponseEntity.ok(emprestimoMapper.paraResposta(emprestimoService.buscarPorId(id)));
     }
 
     @GetMapping("/ativos")
-    @Operation(summary = "Listar empréstimos ativos", description = "Lista todos os empréstimos pendentes de devolução")
+    @Operation(summary = "Listar empréstimos ativos", description = "Lista os empréstimos no prazo (status ATIVO); os vencidos estão em atrasados")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de empréstimos ativos")
     })
-    public ResponseEntity<Page<Emprestimo>> listarAtivos(Pageable pageable) {
-        return ResponseEntity.ok(emprestimoService.listarAtivos(pageable));
+    public ResponseEntity<Page<EmprestimoResposta>> listarAtivos(Pageable pageable) {
+        return ResponseEntity.ok(emprestimoService.listarAtivos(pageable).map(emprestimoMapper::paraResposta));
+    }
+
+    @GetMapping("/ativos/cursor")
+    @Operation(summary = "Listar empréstimos ativos por cursor",
+            description = "Paginação por cursor (dataEmprestimo e ID, do mais recente ao mais antigo), sem contagem total")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de empréstimos ativos"),
+            @ApiResponse(responseCode = "400", description = "Cursor ou tamanho inválido")
+    })
+    public ResponseEntity<PaginaCursor<EmprestimoResposta>> listarAtivosPorCursor(
+            @Parameter(description = "Cursor devolvido na página anterior (vazio na primeira)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade de empréstimos por página (1 a 100)")
+            @RequestParam(defaultValue = "20") int tamanho) {
+        return ResponseEntity.ok(emprestimoService.listarAtivosPorCursor(cursor, tamanho).map(emprestimoMapper::paraResposta));
     }
 
     @GetMapping("/atrasados")
-    @Operation(summary = "Listar empréstimos atrasados", description = "Lista empréstimos com data de devolução vencida")
+    @Operation(summary = "Listar empréstimos atrasados", description = "Lista empréstimos com status ATRASADO, marcados pela varredura diária de atrasos")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de empréstimos atrasados")
     })
-    public ResponseEntity<Page<Emprestimo>> listarAtrasados(Pageable pageable) {
-        return ResponseEntity.ok(emprestimoService.listarAtrasados(pageable));
+    public ResponseEntity<Page<EmprestimoResposta>> listarAtrasados(Pageable pageable) {
+        return ResponseEntity.ok(emprestimoService.listarAtrasados(pageable).map(emprestimoMapper::paraResposta));
+    }
+
+    @GetMapping("/atrasados/cursor")
+    @Operation(summary = "Listar empréstimos atrasados por cursor",
+            description = "Paginação por cursor (dataEmprestimo e ID, do mais recente ao mais antigo), sem contagem total")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de empréstimos atrasados"),
+            @ApiResponse(responseCode = "400", description = "Cursor ou tamanho inválido")
+    })
+    public ResponseEntity<PaginaCursor<EmprestimoResposta>> listarAtrasadosPorCursor(
+            @Parameter(description = "Cursor devolvido na página anterior (vazio na primeira)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade de empréstimos por página (1 a 100)")
+            @RequestParam(defaultValue = "20") int tamanho) {
+        return ResponseEntity.ok(emprestimoService.listarAtrasadosPorCursor(cursor, tamanho).map(emprestimoMapper::paraResposta));
     }
 
     @GetMapping("/usuario/{usuarioId}")
@@ -103,12 +149,31 @@ public class EmprestimoController {
             @ApiResponse(responseCode = "200", description = "Lista de empréstimos do usuário"),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado")
     })
-    public ResponseEntity<Page<Emprestimo>> listarPorUsuario(
+    public ResponseEntity<Page<EmprestimoResposta>> listarPorUsuario(
             @PathVariable Long usuarioId,
             @Parameter(description = "Status do empréstimo")
             @RequestParam(required = false) String status,
             Pageable pageable) {
-        return ResponseEntity.ok(emprestimoService.listarPorUsuario(usuarioId, status, pageable));
+        return ResponseEntity.ok(emprestimoService.listarPorUsuario(usuarioId, status, pageable).map(emprestimoMapper::paraResposta));
+    }
+
+    @GetMapping("/usuario/{usuarioId}/cursor")
+    @Operation(summary = "Empréstimos de um usuário por cursor",
+            description = "Paginação por cursor (dataEmprestimo e ID, do mais recente ao mais antigo), sem contagem total")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de empréstimos do usuário"),
+            @ApiResponse(responseCode = "400", description = "Cursor ou tamanho inválido")
+    })
+    public ResponseEntity<PaginaCursor<EmprestimoResposta>> listarPorUsuarioPorCursor(
+            @PathVariable Long usuarioId,
+            @Parameter(description = "Status do empréstimo")
+            @RequestParam(required = false) String status,
+            @Parameter(description = "Cursor devolvido na página anterior (vazio na primeira)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade de empréstimos por página (1 a 100)")
+            @RequestParam(defaultValue = "20") int tamanho) {
+        return ResponseEntity.ok(emprestimoService.listarPorUsuarioPorCursor(usuarioId, status, cursor, tamanho)
+                .map(emprestimoMapper::paraResposta));
     }
 
     @GetMapping("/livro/{livroId}")
@@ -117,10 +182,26 @@ public class EmprestimoController {
             @ApiResponse(responseCode = "200", description = "Lista de empréstimos do livro"),
             @ApiResponse(responseCode = "404", description = "Livro não encontrado")
     })
-    public ResponseEntity<Page<Emprestimo>> listarPorLivro(
+    public ResponseEntity<Page<EmprestimoResposta>> listarPorLivro(
             @PathVariable Long livroId,
             Pageable pageable) {
-        return ResponseEntity.ok(emprestimoService.listarPorLivro(livroId, pageable));
+        return ResponseEntity.ok(emprestimoService.listarPorLivro(livroId, pageable).map(emprestimoMapper::paraResposta));
+    }
+
+    @GetMapping("/livro/{livroId}/cursor")
+    @Operation(summary = "Empréstimos de um livro por cursor",
+            description = "Paginação por cursor (dataEmprestimo e ID, do mais recente ao mais antigo), sem contagem total")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de empréstimos do livro"),
+            @ApiResponse(responseCode = "400", description = "Cursor ou tamanho inválido")
+    })
+    public ResponseEntity<PaginaCursor<EmprestimoResposta>> listarPorLivroPorCursor(
+            @PathVariable Long livroId,
+            @Parameter(description = "Cursor devolvido na página anterior (vazio na primeira)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade de empréstimos por página (1 a 100)")
+            @RequestParam(defaultValue = "20") int tamanho) {
+        return ResponseEntity.ok(emprestimoService.listarPorLivroPorCursor(livroId, cursor, tamanho).map(emprestimoMapper::paraResposta));
     }
 
     @GetMapping("/periodo")
@@ -128,13 +209,33 @@ public class EmprestimoController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de empréstimos no período")
     })
-    public ResponseEntity<Page<Emprestimo>> listarPorPeriodo(
+    public ResponseEntity<Page<EmprestimoResposta>> listarPorPeriodo(
             @Parameter(description = "Data inicial (YYYY-MM-DD)")
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
             @Parameter(description = "Data final (YYYY-MM-DD)")
             @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
             Pageable pageable) {
-        return ResponseEntity.ok(emprestimoService.listarPorPeriodo(dataInicio, dataFim, pageable));
+        return ResponseEntity.ok(emprestimoService.listarPorPeriodo(dataInicio, dataFim, pageable).map(emprestimoMapper::paraResposta));
+    }
+
+    @GetMapping("/periodo/cursor")
+    @Operation(summary = "Empréstimos por período por cursor",
+            description = "Paginação por cursor (dataEmprestimo e ID, do mais recente ao mais antigo), sem contagem total")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Página de empréstimos no período"),
+            @ApiResponse(responseCode = "400", description = "Cursor ou tamanho inválido")
+    })
+    public ResponseEntity<PaginaCursor<EmprestimoResposta>> listarPorPeriodoPorCursor(
+            @Parameter(description = "Data inicial (YYYY-MM-DD)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
+            @Parameter(description = "Data final (YYYY-MM-DD)")
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataFim,
+            @Parameter(description = "Cursor devolvido na página anterior (vazio na primeira)")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Quantidade de empréstimos por página (1 a 100)")
+            @RequestParam(defaultValue = "20") int tamanho) {
+        return ResponseEntity.ok(emprestimoService.listarPorPeriodoPorCursor(dataInicio, dataFim, cursor, tamanho)
+                .map(emprestimoMapper::paraResposta));
     }
 
     @GetMapping("/usuario/{usuarioId}/historico")
@@ -143,7 +244,7 @@ public class EmprestimoController {
             @ApiResponse(responseCode = "200", description = "Histórico de empréstimos retornado"),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado")
     })
-    public ResponseEntity<List<Emprestimo>> obterHistorico(
+    public ResponseEntity<List<EmprestimoResposta>> obterHistorico(
             @PathVariable Long usuarioId,
             @Parameter(description = "Data inicial (YYYY-MM-DD)")
             @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate dataInicio,
@@ -153,17 +254,17 @@ public class EmprestimoController {
         LocalDate inicio = dataInicio != null ? dataInicio : LocalDate.now().minusYears(1);
         LocalDate fim = dataFim != null ? dataFim : LocalDate.now();
         
-        return ResponseEntity.ok(emprestimoService.obterHistoricoUsuario(usuarioId, inicio, fim));
+        return ResponseEntity.ok(emprestimoMapper.paraResposta(emprestimoService.obterHistoricoUsuario(usuarioId, inicio, fim)));
     }
 
     @GetMapping("/usuario/{usuarioId}/ativos")
-    @Operation(summary = "Empréstimos ativos de um usuário", description = "Lista apenas os empréstimos ativos de um usuário")
+    @Operation(summary = "Empréstimos ativos de um usuário", description = "Lista os empréstimos em aberto (ATIVO e ATRASADO) de um usuário")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de empréstimos ativos do usuário"),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado")
     })
-    public ResponseEntity<List<Emprestimo>> obterEmprestimosAtivos(@PathVariable Long usuarioId) {
-        return ResponseEntity.ok(emprestimoService.obterEmprestimosAtivosDoUsuario(usuarioId));
+    public ResponseEntity<List<EmprestimoResposta>> obterEmprestimosAtivos(@PathVariable Long usuarioId) {
+        return ResponseEntity.ok(emprestimoMapper.paraResposta(emprestimoService.obterEmprestimosAtivosDoUsuario(usuarioId)));
     }
 
     @DeleteMapping("/{id}")
@@ -1,7 +1,10 @@
 package com.biblioteca.controller;
 
 import com.biblioteca.dto.LivroDTO;
-import com.biblioteca.entity.Livro;
+import com.biblioteca.dto.LivroResposta;
+import com.biblioteca.dto.ResultadoImportacaoCatalogo;
+import com.biblioteca.mapper.LivroMapper;
+import com.biblioteca.service.ImportacaoCatalogoService;
 import com.biblioteca.service.LivroService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -12,12 +15,16 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.InputStream;
 import java.util.List;
 
 /**
@@ -29,18 +36,40 @@ import java.util.List;
 @Tag(name = "Livros", description = "API para gerenciar livros da biblioteca")
 public class LivroController {
 
+    private static final String TEXT_CSV = "text/csv";
+
     private final LivroService livroService;
+    private final LivroMapper livroMapper;
+    private final ImportacaoCatalogoService importacaoCatalogoService;
 
     @PostMapping
     @Operation(summary = "Criar novo livro", description = "Cadastra um novo livro na biblioteca")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Livro criado com sucesso",
-                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Livro.class))),
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = LivroResposta.class))),
             @ApiResponse(responseCode = "400", description = "Dados inválidos ou livro duplicado"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
-    public ResponseEntity<Livro> criar(@Valid @RequestBody LivroDTO dto) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(livroService.criar(dto));
+    public ResponseEntity<LivroResposta> criar(@Valid @RequestBody LivroDTO dto) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(livroMapper.paraResposta(livroService.criar(dto)));
+    }
+
+    @PostMapping(value = "/importacao", consumes = {TEXT_CSV, MediaType.APPLICATION_NDJSON_VALUE})
+    @Operation(summary = "Importar catálogo",
+            description = "Importa livros em massa de um CSV (cabeçalho com titulo, autor, isbn, descricao, categoria, " +
+                    "copiasDisponiveis, copiasTotais) ou NDJSON (um livro por linha), lidos em streaming. " +
+                    "ISBNs novos são inseridos; ISBNs já cadastrados têm título, autor, descrição e categoria atualizados")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Importação concluída; linhas recusadas trazem o motivo",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ResultadoImportacaoCatalogo.class))),
+            @ApiResponse(responseCode = "400", description = "CSV vazio ou sem as colunas obrigatórias")
+    })
+    public ResponseEntity<ResultadoImportacaoCatalogo> importar(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String tipo,
+            InputStream arquivo) {
+        ImportacaoCatalogoService.Formato formato = MediaType.parseMediaType(tipo).isCompatibleWith(MediaType.APPLICATION_NDJSON)
+                ? ImportacaoCatalogoService.Formato.NDJSON : ImportacaoCatalogoService.Formato.CSV;
+        return ResponseEntity.ok(importacaoCatalogoService.importar(arquivo, formato));
     }
 
     @PutMapping("/{id}")
@@ -50,10 +79,10 @@ public class LivroController {
             @ApiResponse(responseCode = "404", description = "Livro não encontrado"),
             @ApiResponse(responseCode = "400", description = "Dados inválidos")
     })
-    public ResponseEntity<Livro> atualizar(
+    public ResponseEntity<LivroResposta> atualizar(
             @PathVariable Long id,
             @Valid @RequestBody LivroDTO dto) {
-        return ResponseEntity.ok(livroService.atualizar(id, dto));
+        return ResponseEntity.ok(livroMapper.paraResposta(livroService.atualizar(id, dto)));
     }
 
     @GetMapping("/{id}")
@@ -62,8 +91,8 @@ public class LivroController {
             @ApiResponse(responseCode = "200", description = "Livro encontrado"),
             @ApiResponse(responseCode = "404", description = "Livro não encontrado")
     })
-    public ResponseEntity<Livro> buscarPorId(@PathVariable Long id) {
-        return ResponseEntity.ok(livroService.buscarPorId(id));
+    public ResponseEntity<LivroResposta> buscarPorId(@PathVariable Long id) {
+        return ResponseEntity.ok(livroService.consultarPorId(id));
     }
 
     @GetMapping("/isbn/{isbn}")
@@ -72,8 +101,8 @@ public class LivroController {
             @ApiResponse(responseCode = "200", description = "Livro encontrado"),
             @ApiResponse(responseCode = "404", description = "Livro não encontrado")
     })
-    public ResponseEntity<Livro> buscarPorIsbn(@PathVariable String isbn) {
-        return ResponseEntity.ok(livroService.buscarPorIsbn(isbn));
+    public ResponseEntity<LivroResposta> buscarPorIsbn(@PathVariable String isbn) {
+        return ResponseEntity.ok(livroService.consultarPorIsbn(isbn));
     }
 
     @GetMapping
@@ -81,10 +110,12 @@ public class LivroController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de livros retornada com sucesso")
     })
-    public ResponseEntity<Page<Livro>> listar(
-            @Parameter(description = "Filtro por título (parcial)")
+    public ResponseEntity<Page<LivroResposta>> listar(
+            @Parameter(description = "Busca livre em título, autor, categoria e descrição (ordenada por relevância, tolera acentos e erros de digitação)")
+            @RequestParam(required = false) String q,
+            @Parameter(description = "Filtro por título (parcial, ignora acentos)")
             @RequestParam(required = false) String titulo,
-            @Parameter(description = "Filtro por autor (parcial)")
+            @Parameter(description = "Filtro por autor (parcial, ignora acentos)")
             @RequestParam(required = false) String autor,
             @Parameter(description = "Filtro por ISBN (exato)")
             @RequestParam(required = false) String isbn,
@@ -92,10 +123,10 @@ public class LivroController {
             @RequestParam(required = false) String categoria,
             @ParameterObject Pageable pageable) {
         
-        if (titulo != null || autor != null || isbn != null || categoria != null) {
-            return ResponseEntity.ok(livroService.buscarComFiltros(titulo, autor, isbn, categoria, pageable));
+        if (q != null || titulo != null || autor != null || isbn != null || categoria != null) {
+            return ResponseEntity.ok(livroService.buscarComFiltros(q, titulo, autor, isbn, categoria, pageable).map(livroMapper::paraResposta));
         }
-        return ResponseEntity.ok(livroService.listarTodos(pageable));
+        return ResponseEntity.ok(livroService.listarTodos(pageable).map(livroMapper::paraResposta));
     }
 
     @GetMapping("/disponíveis")
@@ -103,8 +134,8 @@ public class LivroController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de livros disponíveis")
     })
-    public ResponseEntity<Page<Livro>> listarDisponiveis(Pageable pageable) {
-        return ResponseEntity.ok(livroService.buscarDisponiveis(pageable));
+    public ResponseEntity<Page<LivroResposta>> listarDisponiveis(Pageable pageable) {
+        return ResponseEntity.ok(livroService.buscarDisponiveis(pageable).map(livroMapper::paraResposta));
     }
 
     @GetMapping("/mais-emprestados")
@@ -112,8 +143,8 @@ public class LivroController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista dos 20 livros mais emprestados")
     })
-    public ResponseEntity<List<Livro>> obterTop20MaisEmprestados() {
-        return ResponseEntity.ok(livroService.obterTop20MaisEmprestados());
+    public ResponseEntity<List<LivroResposta>> obterTop20MaisEmprestados() {
+        return ResponseEntity.ok(livroMapper.paraResposta(livroService.obterTop20MaisEmprestados()));
     }
 
     @DeleteMapping("/{id}")
@@ -1,22 +1,38 @@
 package com.biblioteca.controller;
 
+import com.biblioteca.dto.SolicitacaoRelatorio;
+import com.biblioteca.dto.TrabalhoRelatorio;
 import com.biblioteca.service.RelatorioService;
+import com.biblioteca.service.RelatorioTrabalhoService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Controlador REST para geração de relatórios
- * Utiliza Java Streams para processamento eficiente
+ * Utiliza Java Streams para processamento eficiente; os GETs reaproveitam o resultado
+ * enquanto os dados de que o relatório depende não mudam
  */
 @RestController
 @RequestMapping("/relatorios")
@@ -25,15 +41,22 @@ import java.util.List;
 public class RelatorioController {
 
     private final RelatorioService relatorioService;
+    private final RelatorioTrabalhoService relatorioTrabalhoService;
 
     @GetMapping("/top-20-livros-emprestados")
-    @Operation(summary = "Top 20 livros mais emprestados", 
-            description = "Retorna os 20 livros mais emprestados da biblioteca usando Streams")
+    @Operation(summary = "Livros mais emprestados",
+            description = "Retorna os livros mais emprestados da biblioteca (20 por padrão), " +
+                    "opcionalmente restritos aos últimos dias")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Relatório gerado com sucesso")
+            @ApiResponse(responseCode = "200", description = "Relatório gerado com sucesso"),
+            @ApiResponse(responseCode = "400", description = "Limite ou janela inválidos")
     })
-    public ResponseEntity<List<RelatorioService.LivroComContagemDTO>> relatorio20LivrosMaisEmprestados() {
-        return ResponseEntity.ok(relatorioService.relatorio20LivrosMaisEmprestados());
+    public ResponseEntity<List<RelatorioService.LivroComContagemDTO>> relatorioLivrosMaisEmprestados(
+            @Parameter(description = "Tamanho do ranking (1 a 100)")
+            @RequestParam(defaultValue = "20") int limite,
+            @Parameter(description = "Considerar apenas empréstimos dos últimos N dias (ex.: 30, 90)")
+            @RequestParam(required = false) Integer dias) {
+        return ResponseEntity.ok(relatorioTrabalhoService.livrosMaisEmprestados(limite, dias));
     }
 
     @GetMapping("/livros-emprestados")
@@ -43,27 +66,65 @@ public class RelatorioController {
             @ApiResponse(responseCode = "200", description = "Relatório gerado com sucesso")
     })
     public ResponseEntity<List<RelatorioService.LivroEmprestadoDTO>> relatorioLivrosEmprestados() {
-        return ResponseEntity.ok(relatorioService.relatorioLivrosEmprestados());
+        return ResponseEntity.ok(relatorioTrabalhoService.livrosEmprestados());
+    }
+
+    @GetMapping("/livros-emprestados/exportar")
+    @Operation(summary = "Exportar livros emprestados (streaming)", 
+            description = "Exporta os livros emprestados em NDJSON ou CSV, escritos diretamente na resposta " +
+                    "à medida que são lidos do banco, ordenados pela data de devolução prevista")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Exportação iniciada")
+    })
+    public ResponseEntity<StreamingResponseBody> exportarLivrosEmprestados(
+            @Parameter(description = "Formato de saída (NDJSON ou CSV)")
+            @RequestParam(defaultValue = "NDJSON") RelatorioService.FormatoExportacao formato) {
+
+        boolean csv = formato == RelatorioService.FormatoExportacao.CSV;
+        MediaType tipo = csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.parseMediaType("application/x-ndjson");
+        String arquivo = csv ? "livros-emprestados.csv" : "livros-emprestados.ndjson";
+
+        return ResponseEntity.ok()
+                .contentType(tipo)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + arquivo + "\"")
+                .body(saida -> relatorioService.exportarLivrosEmprestados(saida, formato));
     }
 
     @GetMapping("/emprestimos-por-usuario")
     @Operation(summary = "Empréstimos por usuário", 
-            description = "Resumo de empréstimos agrupado por usuário")
+            description = "Resumo de empréstimos agrupado por usuário, paginado. Ordenações aceitas: " +
+                    "totalEmprestimos, emprestimosAtivos, emprestimosDevolvidos, emprestimosAtrasados, usuarioNome, usuarioId")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Relatório gerado com sucesso")
+            @ApiResponse(responseCode = "200", description = "Relatório gerado com sucesso"),
+            @ApiResponse(responseCode = "400", description = "Ordenação não suportada")
     })
-    public ResponseEntity<List<RelatorioService.UsuarioEmprestimosDTO>> relatorioEmprestimosPorUsuario() {
-        return ResponseEntity.ok(relatorioService.relatorioEmprestimosPorUsuario());
+    public ResponseEntity<Page<RelatorioService.UsuarioEmprestimosDTO>> relatorioEmprestimosPorUsuario(
+            @ParameterObject
+            @PageableDefault(size = 20, sort = "totalEmprestimos", direction = Sort.Direction.DESC) Pageable pageable) {
+        return ResponseEntity.ok(relatorioTrabalhoService.emprestimosPorUsuario(pageable));
     }
 
     @GetMapping("/livros-por-categoria")
     @Operation(summary = "Livros por categoria", 
-            description = "Relatório com estatísticas de livros agrupados por categoria")
+            description = "Relatório com estatísticas de livros agrupados por categoria. " +
+                    "A lista de livros de cada categoria só é incluída com incluirLivros=true")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Relatório gerado com sucesso")
     })
-    public ResponseEntity<List<RelatorioService.LivroPorCategoriaDTO>> relatorioLivrosPorCategoria() {
-        return ResponseEntity.ok(relatorioService.relatorioLivrosPorCategoria());
+    public ResponseEntity<List<RelatorioService.LivroPorCategoriaDTO>> relatorioLivrosPorCategoria(
+            @Parameter(description = "Incluir a lista de livros de cada categoria")
+            @RequestParam(defaultValue = "false") boolean incluirLivros) {
+        return ResponseEntity.ok(relatorioTrabalhoService.livrosPorCategoria(incluirLivros));
+    }
+
+    @PostMapping("/livros-por-categoria/reconstruir")
+    @Operation(summary = "Reconstruir estatísticas por categoria",
+            description = "Recalcula as estatísticas por categoria a partir da tabela de livros")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Estatísticas reconstruídas com sucesso")
+    })
+    public ResponseEntity<Map<String, Integer>> reconstruirEstatisticasCategoria() {
+        return ResponseEntity.ok(Map.of("categorias", relatorioService.reconstruirEstatisticasCategoria()));
     }
 
     @GetMapping("/atividade-periodo")
@@ -81,6 +142,39 @@ public class RelatorioController {
         LocalDate inicio = dataInicio != null ? dataInicio : LocalDate.now().minusMonths(1);
         LocalDate fim = dataFim != null ? dataFim : LocalDate.now();
         
-        return ResponseEntity.ok(relatorioService.relatorioAtividadePeriodo(inicio, fim));
+        return ResponseEntity.ok(relatorioTrabalhoService.atividadePeriodo(inicio, fim));
+    }
+
+    @PostMapping("/trabalhos")
+    @Operation(summary = "Submeter relatório em segundo plano",
+            description = "Calcula o relatório num executor limitado e devolve o trabalho. Se o resultado já estiver " +
+                    "guardado para a versão atual dos dados, o trabalho volta concluído (200) com o resultado; " +
+                    "senão volta em andamento (202) com o endereço para consulta em Location")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Resultado reaproveitado"),
+            @ApiResponse(responseCode = "202", description = "Trabalho aceito"),
+            @ApiResponse(responseCode = "400", description = "Tipo ou parâmetros inválidos"),
+            @ApiResponse(responseCode = "503", description = "Fila de relatórios cheia")
+    })
+    public ResponseEntity<TrabalhoRelatorio> submeterTrabalho(@RequestBody SolicitacaoRelatorio solicitacao) {
+        TrabalhoRelatorio trabalho = relatorioTrabalhoService.submeter(solicitacao);
+        if (trabalho.situacao() != TrabalhoRelatorio.Situacao.EM_ANDAMENTO) {
+            return ResponseEntity.ok(trabalho);
+        }
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .location(ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}").buildAndExpand(trabalho.id()).toUri())
+                .body(trabalho);
+    }
+
+    @GetMapping("/trabalhos/{id}")
+    @Operation(summary = "Consultar trabalho de relatório",
+            description = "Situação do trabalho e, quando concluído, o resultado. Trabalhos ficam disponíveis " +
+                    "por biblioteca.relatorios.retencao-minutos")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Trabalho encontrado"),
+            @ApiResponse(responseCode = "404", description = "Trabalho inexistente ou expirado")
+    })
+    public ResponseEntity<TrabalhoRelatorio> consultarTrabalho(@PathVariable String id) {
+        return ResponseEntity.ok(relatorioTrabalhoService.consultar(id));
     }
 }
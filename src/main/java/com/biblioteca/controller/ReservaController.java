@@ -0,0 +1,97 @@
+package com.biblioteca.controller;
+
+import com.biblioteca.dto.ReservaDTO;
+import com.biblioteca.dto.ReservaResposta;
+import com.biblioteca.entity.Reserva;
+import com.biblioteca.mapper.ReservaMapper;
+import com.biblioteca.service.ReservaService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Controlador REST para a fila de reservas dos livros sem cópias disponíveis
+ */
+@RestController
+@RequestMapping("/reservas")
+@RequiredArgsConstructor
+@Tag(name = "Reservas", description = "API para a fila de reservas dos livros esgotados")
+public class ReservaController {
+
+    private final ReservaService reservaService;
+    private final ReservaMapper reservaMapper;
+
+    @PostMapping
+    @Operation(summary = "Reservar livro",
+            description = "Coloca o usuário no fim da fila de um livro sem cópias; a próxima cópia devolvida vira empréstimo dele")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Reserva criada, com a posição na fila",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = ReservaResposta.class))),
+            @ApiResponse(responseCode = "400", description = "Livro com cópias disponíveis, usuário inativo ou já na fila"),
+            @ApiResponse(responseCode = "404", description = "Livro ou usuário não encontrado")
+    })
+    public ResponseEntity<ReservaResposta> reservar(@Valid @RequestBody ReservaDTO dto) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(paraResposta(reservaService.reservar(dto)));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "Buscar reserva por ID", description = "Retorna a reserva e, enquanto aguarda, a posição na fila")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reserva encontrada"),
+            @ApiResponse(responseCode = "404", description = "Reserva não encontrada")
+    })
+    public ResponseEntity<ReservaResposta> buscarPorId(@PathVariable Long id) {
+        return ResponseEntity.ok(paraResposta(reservaService.buscarPorId(id)));
+    }
+
+    @PatchMapping("/{id}/cancelar")
+    @Operation(summary = "Cancelar reserva", description = "Tira da fila uma reserva que ainda aguarda")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Reserva cancelada"),
+            @ApiResponse(responseCode = "404", description = "Reserva não encontrada"),
+            @ApiResponse(responseCode = "400", description = "Reserva já atendida, recusada ou cancelada")
+    })
+    public ResponseEntity<ReservaResposta> cancelar(@PathVariable Long id) {
+        return ResponseEntity.ok(reservaMapper.paraResposta(reservaService.cancelar(id)));
+    }
+
+    @GetMapping("/livro/{livroId}")
+    @Operation(summary = "Fila de um livro", description = "Reservas que aguardam o livro, na ordem de atendimento")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Fila do livro (vazia se ninguém aguarda)")
+    })
+    public ResponseEntity<List<ReservaResposta>> listarFila(@PathVariable Long livroId) {
+        List<Reserva> fila = reservaService.listarFila(livroId);
+        List<ReservaResposta> respostas = new ArrayList<>(fila.size());
+        for (int i = 0; i < fila.size(); i++) {
+            respostas.add(reservaMapper.paraResposta(fila.get(i), i + 1));
+        }
+        return ResponseEntity.ok(respostas);
+    }
+
+    @GetMapping("/usuario/{usuarioId}")
+    @Operation(summary = "Reservas de um usuário", description = "Lista as reservas do usuário, da mais recente para a mais antiga")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Lista de reservas do usuário")
+    })
+    public ResponseEntity<Page<ReservaResposta>> listarPorUsuario(@PathVariable Long usuarioId, Pageable pageable) {
+        return ResponseEntity.ok(reservaService.listarPorUsuario(usuarioId, pageable).map(this::paraResposta));
+    }
+
+    private ReservaResposta paraResposta(Reserva reserva) {
+        return reservaMapper.paraResposta(reserva, reservaService.posicao(reserva));
+    }
+}
@@ -1,7 +1,8 @@
 package com.biblioteca.controller;
 
 import com.biblioteca.dto.UsuarioDTO;
-import com.biblioteca.entity.Usuario;
+import com.biblioteca.dto.UsuarioResposta;
+import com.biblioteca.mapper.UsuarioMapper;
 import com.biblioteca.service.UsuarioService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -28,17 +29,18 @@ import org.springframework.web.bind.annotation.*;
 public class UsuarioController {
 
     private final UsuarioService usuarioService;
+    private final UsuarioMapper usuarioMapper;
 
     @PostMapping
     @Operation(summary = "Criar novo usuário", description = "Registra um novo usuário na biblioteca")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Usuário criado com sucesso",
-                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = Usuario.class))),
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = UsuarioResposta.class))),
             @ApiResponse(responseCode = "400", description = "Dados inválidos ou email duplicado"),
             @ApiResponse(responseCode = "500", description = "Erro interno do servidor")
     })
-    public ResponseEntity<Usuario> criar(@Valid @RequestBody UsuarioDTO dto) {
-        return ResponseEntity.status(HttpStatus.CREATED).body(usuarioService.criar(dto));
+    public ResponseEntity<UsuarioResposta> criar(@Valid @RequestBody UsuarioDTO dto) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(usuarioMapper.paraResposta(usuarioService.criar(dto)));
     }
 
     @PutMapping("/{id}")
@@ -48,10 +50,10 @@ public class UsuarioController {
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado"),
             @ApiResponse(responseCode = "400", description = "Dados inválidos")
     })
-    public ResponseEntity<Usuario> atualizar(
+    public ResponseEntity<UsuarioResposta> atualizar(
             @PathVariable Long id,
             @Valid @RequestBody UsuarioDTO dto) {
-        return ResponseEntity.ok(usuarioService.atualizar(id, dto));
+        return ResponseEntity.ok(usuarioMapper.paraResposta(usuarioService.atualizar(id, dto)));
     }
 
     @GetMapping("/{id}")
@@ -60,8 +62,8 @@ public class UsuarioController {
             @ApiResponse(responseCode = "200", description = "Usuário encontrado"),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado")
     })
-    public ResponseEntity<Usuario> buscarPorId(@PathVariable Long id) {
-        return ResponseEntity.ok(usuarioService.buscarPorId(id));
+    public ResponseEntity<UsuarioResposta> buscarPorId(@PathVariable Long id) {
+        return ResponseEntity.ok(usuarioService.consultarPorId(id));
     }
 
     @GetMapping("/email/{email}")
@@ -70,8 +72,8 @@ public class UsuarioController {
             @ApiResponse(responseCode = "200", description = "Usuário encontrado"),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado")
     })
-    public ResponseEntity<Usuario> buscarPorEmail(@PathVariable String email) {
-        return ResponseEntity.ok(usuarioService.buscarPorEmail(email));
+    public ResponseEntity<UsuarioResposta> buscarPorEmail(@PathVariable String email) {
+        return ResponseEntity.ok(usuarioService.consultarPorEmail(email));
     }
 
     @GetMapping
@@ -79,7 +81,7 @@ public class UsuarioController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de usuários retornada com sucesso")
     })
-    public ResponseEntity<Page<Usuario>> listar(
+    public ResponseEntity<Page<UsuarioResposta>> listar(
             @Parameter(description = "Filtro por nome (parcial)")
             @RequestParam(required = false) String nome,
             @Parameter(description = "Filtro por tipo de usuário")
@@ -87,12 +89,12 @@ public class UsuarioController {
             Pageable pageable) {
         
         if (nome != null) {
-            return ResponseEntity.ok(usuarioService.buscarPorNome(nome, pageable));
+            return ResponseEntity.ok(usuarioService.buscarPorNome(nome, pageable).map(usuarioMapper::paraResposta));
         }
         if (tipo != null) {
-            return ResponseEntity.ok(usuarioService.buscarPorTipo(tipo, pageable));
+            return ResponseEntity.ok(usuarioService.buscarPorTipo(tipo, pageable).map(usuarioMapper::paraResposta));
         }
-        return ResponseEntity.ok(usuarioService.listarTodos(pageable));
+        return ResponseEntity.ok(usuarioService.listarTodos(pageable).map(usuarioMapper::paraResposta));
     }
 
     @GetMapping("/ativos")
@@ -100,8 +102,8 @@ public class UsuarioController {
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Lista de usuários ativos")
     })
-    public ResponseEntity<Page<Usuario>> listarAtivos(Pageable pageable) {
-        return ResponseEntity.ok(usuarioService.listarAtivos(pageable));
+    public ResponseEntity<Page<UsuarioResposta>> listarAtivos(Pageable pageable) {
+        return ResponseEntity.ok(usuarioService.listarAtivos(pageable).map(usuarioMapper::paraResposta));
     }
 
     @PatchMapping("/{id}/ativar")
@@ -110,8 +112,8 @@ public class UsuarioController {
             @ApiResponse(responseCode = "200", description = "Usuário ativado com sucesso"),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado")
     })
-    public ResponseEntity<Usuario> ativar(@PathVariable Long id) {
-        return ResponseEntity.ok(usuarioService.ativar(id));
+    public ResponseEntity<UsuarioResposta> ativar(@PathVariable Long id) {
+        return ResponseEntity.ok(usuarioMapper.paraResposta(usuarioService.ativar(id)));
     }
 
     @PatchMapping("/{id}/desativar")
@@ -120,8 +122,8 @@ public class UsuarioController {
             @ApiResponse(responseCode = "200", description = "Usuário desativado com sucesso"),
             @ApiResponse(responseCode = "404", description = "Usuário não encontrado")
     })
-    public ResponseEntity<Usuario> desativar(@PathVariable Long id) {
-        return ResponseEntity.ok(usuarioService.desativar(id));
+    public ResponseEntity<UsuarioResposta> desativar(@PathVariable Long id) {
+        return ResponseEntity.ok(usuarioMapper.paraResposta(usuarioService.desativar(id)));
     }
 
     @DeleteMapping("/{id}")
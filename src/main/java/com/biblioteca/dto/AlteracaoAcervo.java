@@ -0,0 +1,39 @@
+package com.biblioteca.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+
+/**
+ * Alteração de empréstimos ou de estoque enviada aos assinantes de {@code GET /alteracoes}
+ * Cada tipo preenche só os campos que lhe dizem respeito.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record AlteracaoAcervo(
+        @Schema(description = "Tipo da alteração", example = "ESTOQUE_ALTERADO",
+                allowableValues = {"CONECTADO", "EMPRESTIMO_CRIADO", "EMPRESTIMO_DEVOLVIDO", "EMPRESTIMO_RENOVADO",
+                        "EMPRESTIMO_REMOVIDO", "ESTOQUE_ALTERADO", "DESCARTADO"}) String tipo,
+        @Schema(description = "ID do livro", example = "1") Long livroId,
+        @Schema(description = "ID do empréstimo", example = "42") Long emprestimoId,
+        @Schema(description = "ID do usuário", example = "7") Long usuarioId,
+        @Schema(description = "Variação das cópias disponíveis", example = "-1") Integer variacaoCopias,
+        @Schema(description = "Cópias disponíveis no envio, pelo livro-razão (nulo se o livro não está em memória)",
+                example = "2") Integer copiasDisponiveis,
+        LocalDate dataEmprestimo,
+        LocalDate dataDeVolucaoPrevista) {
+
+    public static AlteracaoAcervo emprestimo(String tipo, Long emprestimoId, Long livroId, Long usuarioId,
+                                             LocalDate dataEmprestimo, LocalDate dataDeVolucaoPrevista) {
+        return new AlteracaoAcervo(tipo, livroId, emprestimoId, usuarioId, null, null,
+                dataEmprestimo, dataDeVolucaoPrevista);
+    }
+
+    public static AlteracaoAcervo estoque(Long livroId, int variacao, Integer copiasDisponiveis) {
+        return new AlteracaoAcervo("ESTOQUE_ALTERADO", livroId, null, null, variacao, copiasDisponiveis, null, null);
+    }
+
+    public static AlteracaoAcervo controle(String tipo) {
+        return new AlteracaoAcervo(tipo, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,35 @@
+package com.biblioteca.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Representação de um Empréstimo nas respostas da API
+ * Livro e usuário aparecem resumidos, sem as coleções de empréstimos.
+ */
+public record EmprestimoResposta(
+        @Schema(description = "ID do empréstimo", example = "1") Long id,
+        LivroResumo livro,
+        UsuarioResumo usuario,
+        @Schema(description = "Data do empréstimo", example = "2026-01-15") LocalDate dataEmprestimo,
+        @Schema(description = "Data prevista de devolução", example = "2026-01-29") LocalDate dataDeVolucaoPrevista,
+        @Schema(description = "Data efetiva de devolução") LocalDate dataDeVolucaoReal,
+        @Schema(description = "Status do empréstimo", example = "ATIVO") String status,
+        @Schema(description = "Observações") String observacoes,
+        LocalDateTime dataCriacao,
+        LocalDateTime dataAtualizacao) {
+
+    /**
+     * Dados do livro emprestado
+     */
+    public record LivroResumo(Long id, String titulo, String autor, String isbn) {
+    }
+
+    /**
+     * Dados do usuário que pegou o livro
+     */
+    public record UsuarioResumo(Long id, String nome, String email) {
+    }
+}
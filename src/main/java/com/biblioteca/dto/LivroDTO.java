@@ -47,4 +47,8 @@ public class LivroDTO {
     @Positive(message = "Cópias totais deve ser positivo")
     @Schema(description = "Número total de cópias", example = "10")
     private Integer copiasTotais;
+
+    @Schema(description = "Versão do livro lida pelo cliente; na atualização, se informada e o livro tiver mudado desde então, a operação é recusada (409)",
+            example = "3")
+    private Long versao;
 }
@@ -0,0 +1,23 @@
+package com.biblioteca.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * Representação de um Livro nas respostas da API
+ */
+public record LivroResposta(
+        @Schema(description = "ID do livro", example = "1") Long id,
+        @Schema(description = "Título do livro", example = "Clean Code") String titulo,
+        @Schema(description = "Autor do livro", example = "Robert C. Martin") String autor,
+        @Schema(description = "ISBN do livro", example = "978-0-13-235088-4") String isbn,
+        @Schema(description = "Descrição do livro") String descricao,
+        @Schema(description = "Categoria do livro", example = "Tecnologia") String categoria,
+        @Schema(description = "Cópias disponíveis", example = "3") Integer copiasDisponiveis,
+        @Schema(description = "Total de cópias", example = "5") Integer copiasTotais,
+        @Schema(description = "Cópias emprestadas", example = "2") Integer copiasEmprestadas,
+        LocalDateTime dataCriacao,
+        LocalDateTime dataAtualizacao,
+        @Schema(description = "Versão do livro, a devolver na atualização", example = "3") Long versao) {
+}
@@ -0,0 +1,24 @@
+package com.biblioteca.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Página de uma listagem por cursor (sem total de elementos)
+ * Para obter a página seguinte, repita a requisição com {@code cursor=proximoCursor}.
+ */
+public record PaginaCursor<T>(
+        List<T> conteudo,
+        @Schema(description = "Cursor opaco da próxima página (nulo na última)", example = "MjAyNi0wMS0xNTo0Mg")
+        String proximoCursor,
+        @Schema(description = "Indica se há mais elementos após esta página") boolean temMais) {
+
+    /**
+     * Converte o conteúdo mantendo o cursor
+     */
+    public <R> PaginaCursor<R> map(Function<? super T, ? extends R> conversor) {
+        return new PaginaCursor<>(conteudo.stream().<R>map(conversor).toList(), proximoCursor, temMais);
+    }
+}
@@ -0,0 +1,26 @@
+package com.biblioteca.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO para criar uma Reserva
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ReservaDTO {
+
+    @NotNull(message = "ID do livro é obrigatório")
+    @Schema(description = "ID do livro sem cópias disponíveis", example = "1")
+    private Long livroId;
+
+    @NotNull(message = "ID do usuário é obrigatório")
+    @Schema(description = "ID do usuário que aguarda o livro", example = "1")
+    private Long usuarioId;
+}
@@ -0,0 +1,21 @@
+package com.biblioteca.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * Representação de uma Reserva nas respostas da API
+ */
+public record ReservaResposta(
+        @Schema(description = "ID da reserva", example = "1") Long id,
+        @Schema(description = "ID do livro aguardado", example = "1") Long livroId,
+        @Schema(description = "ID do usuário", example = "1") Long usuarioId,
+        @Schema(description = "Status da reserva", example = "AGUARDANDO",
+                allowableValues = {"AGUARDANDO", "ATENDIDA", "CANCELADA", "RECUSADA"}) String status,
+        @Schema(description = "Posição na fila do livro (somente em AGUARDANDO)", example = "3") Integer posicao,
+        @Schema(description = "Motivo da recusa na vez do usuário", example = "LIMITE_ATINGIDO") String motivo,
+        @Schema(description = "Empréstimo criado com a cópia devolvida", example = "42") Long emprestimoId,
+        LocalDateTime dataCriacao,
+        LocalDateTime dataAtualizacao) {
+}
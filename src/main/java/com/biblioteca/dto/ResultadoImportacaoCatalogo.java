@@ -0,0 +1,27 @@
+package com.biblioteca.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Resultado de uma importação de catálogo: contagens, vazão e as primeiras linhas recusadas
+ */
+public record ResultadoImportacaoCatalogo(
+        @Schema(description = "Linhas de dados lidas (sem o cabeçalho)", example = "1000000") long linhasLidas,
+        @Schema(description = "Livros novos inseridos", example = "998500") long inseridos,
+        @Schema(description = "Livros já cadastrados cujos dados descritivos foram atualizados", example = "1200") long atualizados,
+        @Schema(description = "Linhas recusadas (inválidas, ISBN repetido no arquivo ou lote recusado pelo banco)", example = "300") long rejeitados,
+        @Schema(description = "Tempo total da importação em milissegundos", example = "95000") long duracaoMs,
+        @Schema(description = "Linhas processadas por segundo", example = "10526.3") double linhasPorSegundo,
+        @Schema(description = "Primeiras linhas recusadas (no máximo 100)") List<Erro> erros) {
+
+    /**
+     * Linha recusada e o motivo
+     */
+    public record Erro(
+            @Schema(description = "Linha do arquivo (0 quando a leitura do arquivo foi interrompida)", example = "42") long linha,
+            @Schema(description = "ISBN informado na linha", example = "978-0-13-235088-4") String isbn,
+            @Schema(description = "Motivo da recusa", example = "ISBN repetido no arquivo") String mensagem) {
+    }
+}
@@ -0,0 +1,39 @@
+package com.biblioteca.dto;
+
+import com.biblioteca.exception.MotivoRejeicao;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.List;
+
+/**
+ * Resultado de um checkout em lote: um item por empréstimo pedido, na ordem do pedido,
+ * e os números de vazão do processamento
+ */
+public record ResultadoLoteEmprestimos(
+        @Schema(description = "Empréstimos pedidos", example = "2000") int recebidos,
+        @Schema(description = "Empréstimos criados", example = "1950") int criados,
+        @Schema(description = "Empréstimos recusados", example = "50") int rejeitados,
+        @Schema(description = "Tempo de processamento em milissegundos (validação, reservas e INSERTs)", example = "480") long duracaoMs,
+        @Schema(description = "Empréstimos pedidos processados por segundo", example = "4166.7") double itensPorSegundo,
+        List<Item> itens) {
+
+    /**
+     * Desfecho de um empréstimo do lote
+     */
+    public record Item(
+            @Schema(description = "Posição do empréstimo no pedido (a partir de 0)", example = "0") int indice,
+            Long livroId,
+            Long usuarioId,
+            @Schema(description = "ID do empréstimo criado (nulo se recusado)", example = "101") Long emprestimoId,
+            @Schema(description = "Motivo da recusa (nulo se criado)") MotivoRejeicao motivo,
+            @Schema(description = "Descrição da recusa") String mensagem) {
+
+        public static Item criado(int indice, Long livroId, Long usuarioId, Long emprestimoId) {
+            return new Item(indice, livroId, usuarioId, emprestimoId, null, null);
+        }
+
+        public static Item rejeitado(int indice, Long livroId, Long usuarioId, MotivoRejeicao motivo) {
+            return new Item(indice, livroId, usuarioId, null, motivo, motivo.getMensagem());
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.biblioteca.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.util.Map;
+
+/**
+ * Pedido de geração assíncrona de um relatório
+ */
+public record SolicitacaoRelatorio(
+        @Schema(description = "Relatório a gerar", example = "TOP_LIVROS") Tipo tipo,
+        @Schema(description = "Parâmetros do relatório (os ausentes assumem o valor padrão do GET correspondente)",
+                example = "{\"limite\": \"10\", \"dias\": \"30\"}") Map<String, String> parametros) {
+
+    /**
+     * Relatórios disponíveis e os parâmetros aceitos por cada um
+     */
+    public enum Tipo {
+        /** limite (20), dias (todo o histórico) */
+        TOP_LIVROS,
+        /** sem parâmetros */
+        LIVROS_EMPRESTADOS,
+        /** pagina (0), tamanho (20), ordenacao ("totalEmprestimos,desc"; vários campos separados por ";") */
+        EMPRESTIMOS_POR_USUARIO,
+        /** incluirLivros (false) */
+        LIVROS_POR_CATEGORIA,
+        /** dataInicio (um mês atrás), dataFim (hoje), no formato AAAA-MM-DD */
+        ATIVIDADE_PERIODO
+    }
+}
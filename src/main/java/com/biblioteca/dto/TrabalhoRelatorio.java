@@ -0,0 +1,38 @@
+package com.biblioteca.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Situação de um trabalho de relatório e, quando concluído, o resultado
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record TrabalhoRelatorio(
+        @Schema(description = "Identificador do trabalho", example = "3f1c2a9e-7b4d-4f6a-9c1e-2d5b8a7e6f10") String id,
+        SolicitacaoRelatorio.Tipo tipo,
+        @Schema(description = "Parâmetros efetivos, com os valores padrão preenchidos") Map<String, String> parametros,
+        Situacao situacao,
+        @Schema(description = "Versão dos dados usada no cálculo", example = "42") long versaoDados,
+        @Schema(description = "Resultado reaproveitado de um cálculo anterior com a mesma versão dos dados") boolean doCache,
+        LocalDateTime solicitadoEm,
+        LocalDateTime concluidoEm,
+        @Schema(description = "Tempo entre a solicitação e a conclusão em milissegundos", example = "35") Long duracaoMs,
+        @Schema(description = "Motivo da falha") String erro,
+        @Schema(description = "Resultado, no mesmo formato do GET correspondente") Object resultado) {
+
+    /**
+     * Estados de um trabalho
+     */
+    public enum Situacao {
+        EM_ANDAMENTO,
+        CONCLUIDO,
+        FALHOU,
+        /**
+         * Concluído, mas o resultado já saiu do cache (limite de linhas ou retenção)
+         */
+        DESCARTADO
+    }
+}
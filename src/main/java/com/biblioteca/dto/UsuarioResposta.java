@@ -0,0 +1,21 @@
+package com.biblioteca.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.time.LocalDateTime;
+
+/**
+ * Representação de um Usuário nas respostas da API
+ */
+public record UsuarioResposta(
+        @Schema(description = "ID do usuário", example = "1") Long id,
+        @Schema(description = "Nome do usuário", example = "João Silva") String nome,
+        @Schema(description = "Email do usuário", example = "joao.silva@example.com") String email,
+        @Schema(description = "Telefone do usuário") String telefone,
+        @Schema(description = "Endereço do usuário") String endereco,
+        @Schema(description = "Tipo de usuário", example = "ALUNO") String tipoUsuario,
+        @Schema(description = "Usuário ativo", example = "true") Boolean ativo,
+        @Schema(description = "Limite de empréstimos simultâneos", example = "5") Integer limiteEmprestimos,
+        LocalDateTime dataCriacao,
+        LocalDateTime dataAtualizacao) {
+}
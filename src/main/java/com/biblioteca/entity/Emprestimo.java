@@ -15,6 +15,10 @@ import java.time.LocalDateTime;
  * @version 1.0
  */
 @Entity
+@NamedEntityGraph(name = Emprestimo.GRAFO_LIVRO_E_USUARIO, attributeNodes = {
+        @NamedAttributeNode("livro"),
+        @NamedAttributeNode("usuario")
+})
 @Table(name = "emprestimos")
 @Data
 @NoArgsConstructor
@@ -22,24 +26,35 @@ import java.time.LocalDateTime;
 @Builder
 public class Emprestimo {
 
+    /**
+     * Grafo que carrega livro e usuário junto com o empréstimo (listagens e respostas da API)
+     */
+    public static final String GRAFO_LIVRO_E_USUARIO = "Emprestimo.livroEUsuario";
+
     /**
      * Identificador único do empréstimo
+     * Gerado por sequência (reservada em blocos de 50) para permitir INSERTs em lote pelo JDBC
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "emprestimos_seq")
+    @SequenceGenerator(name = "emprestimos_seq", sequenceName = "emprestimos_seq", allocationSize = 50)
     private Long id;
 
     /**
      * Relacionamento com Livro emprestado
      */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "livro_id", nullable = false)
     private Livro livro;
 
     /**
      * Relacionamento com Usuário que pegou o livro
      */
-    @ManyToOne(fetch = FetchType.EAGER)
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "usuario_id", nullable = false)
     private Usuario usuario;
 
@@ -65,6 +80,7 @@ public class Emprestimo {
 
     /**
      * Status do empréstimo (ATIVO, DEVOLVIDO, ATRASADO, CANCELADO)
+     * ATIVO passa a ATRASADO pela varredura diária de atrasos (VarreduraAtrasos)
      */
     @Column(name = "status", nullable = false, length = 20)
     private String status;
@@ -87,6 +103,14 @@ public class Emprestimo {
     @Column(name = "data_atualizacao")
     private LocalDateTime dataAtualizacao;
 
+    /**
+     * Versão para o bloqueio otimista: devolução, renovação e varredura de atrasos
+     * concorrentes não se sobrescrevem (a marcação em massa também incrementa a versão)
+     */
+    @Version
+    @Column(name = "versao", nullable = false)
+    private Long versao;
+
     /**
      * Método chamado automaticamente antes de persistir a entidade
      */
@@ -104,12 +128,21 @@ public class Emprestimo {
         dataAtualizacao = LocalDateTime.now();
     }
 
+    /**
+     * Verifica se o livro ainda não foi devolvido (status ATIVO ou ATRASADO)
+     */
+    public boolean estaEmAberto() {
+        return "ATIVO".equals(status) || "ATRASADO".equals(status);
+    }
+
     /**
      * Verifica se o empréstimo está em atraso
-     * @return true se a data de devolução prevista já passou e o livro não foi devolvido
+     * @return true se já foi marcado como ATRASADO ou se, ainda ATIVO, a data de devolução
+     * prevista já passou (antes da varredura do dia alcançá-lo)
      */
     public boolean estaAtrasado() {
-        return "ATIVO".equals(status) && LocalDate.now().isAfter(dataDeVolucaoPrevista);
+        return "ATRASADO".equals(status)
+                || ("ATIVO".equals(status) && LocalDate.now().isAfter(dataDeVolucaoPrevista));
     }
 
     /**
@@ -0,0 +1,53 @@
+package com.biblioteca.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+import java.time.LocalDateTime;
+
+/**
+ * Estatísticas consolidadas do acervo por categoria.
+ * Mantidas incrementalmente pelas operações de livros e de estoque,
+ * evitando a leitura de todo o catálogo no relatório por categoria.
+ *
+ * @author Biblioteca Online
+ * @version 1.0
+ */
+@Entity
+@Table(name = "estatisticas_categoria")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EstatisticaCategoria {
+
+    /**
+     * Nome da categoria (livros sem categoria são agrupados em "Sem Categoria")
+     */
+    @Id
+    @Column(name = "categoria", length = 100)
+    private String categoria;
+
+    /**
+     * Quantidade de livros cadastrados na categoria
+     */
+    @Column(name = "total_livros", nullable = false)
+    private Long totalLivros;
+
+    /**
+     * Soma das cópias disponíveis dos livros da categoria
+     */
+    @Column(name = "copias_disponiveis", nullable = false)
+    private Long copiasDisponiveis;
+
+    /**
+     * Soma das cópias totais dos livros da categoria
+     */
+    @Column(name = "copias_totais", nullable = false)
+    private Long copiasTotais;
+
+    /**
+     * Data da última atualização
+     */
+    @Column(name = "data_atualizacao")
+    private LocalDateTime dataAtualizacao;
+}
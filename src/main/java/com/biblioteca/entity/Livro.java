@@ -1,5 +1,7 @@
 package com.biblioteca.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
@@ -19,13 +21,16 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Livro {
 
     /**
      * Identificador único do livro
+     * Gerado por sequência (reservada em blocos de 50) para permitir INSERTs em lote pelo JDBC
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "livros_seq")
+    @SequenceGenerator(name = "livros_seq", sequenceName = "livros_seq", allocationSize = 50)
     private Long id;
 
     /**
@@ -83,8 +88,20 @@ public class Livro {
     private LocalDateTime dataAtualizacao;
 
     /**
-     * Relacionamento com empréstimos
+     * Versão para o bloqueio otimista: uma gravação sobre uma leitura desatualizada é recusada
+     * Incrementada também pelo débito e crédito de cópias em massa do repositório.
      */
+    @JsonIgnore
+    @Version
+    @Column(name = "versao", nullable = false)
+    private Long versao;
+
+    /**
+     * Relacionamento com empréstimos (carregado sob demanda e fora da serialização JSON)
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "livro", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Emprestimo> emprestimos = new HashSet<>();
 
@@ -0,0 +1,100 @@
+package com.biblioteca.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Entidade que representa a Reserva de um livro sem cópias disponíveis.
+ * O usuário entra na fila do livro e recebe a próxima cópia devolvida, na ordem das reservas.
+ */
+@Entity
+@Table(name = "reservas")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Reserva {
+
+    /**
+     * Identificador único da reserva (também a ordem na fila do livro)
+     */
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    /**
+     * Livro aguardado
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "livro_id", nullable = false)
+    private Livro livro;
+
+    /**
+     * Usuário que aguarda o livro
+     */
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "usuario_id", nullable = false)
+    private Usuario usuario;
+
+    /**
+     * Status da reserva (AGUARDANDO, ATENDIDA, CANCELADA, RECUSADA)
+     * RECUSADA: na vez do usuário, o checkout não foi permitido (ver motivo)
+     */
+    @Column(name = "status", nullable = false, length = 20)
+    private String status;
+
+    /**
+     * Motivo da recusa do checkout na vez do usuário (nome de MotivoRejeicao)
+     */
+    @Column(name = "motivo", length = 30)
+    private String motivo;
+
+    /**
+     * Empréstimo criado com a cópia devolvida, quando a reserva é atendida
+     */
+    @Column(name = "emprestimo_id")
+    private Long emprestimoId;
+
+    /**
+     * Data de criação da reserva
+     */
+    @Column(name = "data_criacao", nullable = false, updatable = false)
+    private LocalDateTime dataCriacao;
+
+    /**
+     * Data da última atualização da reserva
+     */
+    @Column(name = "data_atualizacao")
+    private LocalDateTime dataAtualizacao;
+
+    /**
+     * Versão para o bloqueio otimista: atendimento e cancelamento concorrentes não se sobrescrevem
+     */
+    @Version
+    @Column(name = "versao", nullable = false)
+    private Long versao;
+
+    @PrePersist
+    protected void onCreate() {
+        dataCriacao = LocalDateTime.now();
+        dataAtualizacao = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        dataAtualizacao = LocalDateTime.now();
+    }
+
+    /**
+     * Verifica se a reserva ainda está na fila
+     */
+    public boolean estaAguardando() {
+        return "AGUARDANDO".equals(status);
+    }
+}
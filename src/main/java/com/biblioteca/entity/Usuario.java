@@ -1,5 +1,7 @@
 package com.biblioteca.entity;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import jakarta.persistence.*;
 import lombok.*;
 import java.time.LocalDateTime;
@@ -19,6 +21,7 @@ import java.util.Set;
 @NoArgsConstructor
 @AllArgsConstructor
 @Builder
+@JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Usuario {
 
     /**
@@ -83,8 +86,11 @@ public class Usuario {
     private LocalDateTime dataAtualizacao;
 
     /**
-     * Relacionamento com empréstimos
+     * Relacionamento com empréstimos (carregado sob demanda e fora da serialização JSON)
      */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    @ToString.Exclude
     @OneToMany(mappedBy = "usuario", cascade = CascadeType.ALL, orphanRemoval = true)
     private Set<Emprestimo> emprestimos = new HashSet<>();
 
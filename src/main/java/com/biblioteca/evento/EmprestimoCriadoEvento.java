@@ -0,0 +1,17 @@
+package com.biblioteca.evento;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Evento publicado quando um empréstimo é criado
+ * Consumidores devem reagir somente após o commit da transação que o publicou.
+ */
+@Value
+public class EmprestimoCriadoEvento {
+    Long emprestimoId;
+    Long livroId;
+    Long usuarioId;
+    LocalDate dataEmprestimo;
+}
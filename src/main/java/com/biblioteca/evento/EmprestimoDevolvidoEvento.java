@@ -0,0 +1,14 @@
+package com.biblioteca.evento;
+
+import lombok.Value;
+
+/**
+ * Evento publicado quando um empréstimo é devolvido
+ * Consumidores devem reagir somente após o commit da transação que o publicou.
+ */
+@Value
+public class EmprestimoDevolvidoEvento {
+    Long emprestimoId;
+    Long livroId;
+    Long usuarioId;
+}
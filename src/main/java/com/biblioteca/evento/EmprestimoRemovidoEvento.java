@@ -0,0 +1,18 @@
+package com.biblioteca.evento;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Evento publicado quando um empréstimo é excluído
+ * Consumidores devem reagir somente após o commit da transação que o publicou.
+ */
+@Value
+public class EmprestimoRemovidoEvento {
+    Long emprestimoId;
+    Long livroId;
+    Long usuarioId;
+    LocalDate dataEmprestimo;
+    String status;
+}
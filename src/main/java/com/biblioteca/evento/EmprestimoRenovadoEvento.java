@@ -0,0 +1,17 @@
+package com.biblioteca.evento;
+
+import lombok.Value;
+
+import java.time.LocalDate;
+
+/**
+ * Evento publicado quando um empréstimo é renovado
+ * Consumidores devem reagir somente após o commit da transação que o publicou.
+ */
+@Value
+public class EmprestimoRenovadoEvento {
+    Long emprestimoId;
+    Long livroId;
+    Long usuarioId;
+    LocalDate dataDeVolucaoPrevista;
+}
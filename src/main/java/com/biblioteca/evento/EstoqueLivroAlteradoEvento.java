@@ -0,0 +1,14 @@
+package com.biblioteca.evento;
+
+import lombok.Value;
+
+/**
+ * Evento publicado quando as cópias disponíveis de um livro mudam (checkout, devolução
+ * ao estoque ou edição do livro)
+ * Consumidores devem reagir somente após o commit da transação que o publicou.
+ */
+@Value
+public class EstoqueLivroAlteradoEvento {
+    Long livroId;
+    int variacao;
+}
@@ -0,0 +1,18 @@
+package com.biblioteca.evento;
+
+import lombok.Value;
+
+/**
+ * Evento publicado quando uma reserva sai da fila: atendida com a cópia devolvida,
+ * recusada na vez do usuário ou cancelada
+ * Consumidores devem reagir somente após o commit da transação que o publicou.
+ */
+@Value
+public class ReservaEncerradaEvento {
+    Long reservaId;
+    Long livroId;
+    Long usuarioId;
+    String status;
+    String motivo;
+    Long emprestimoId;
+}
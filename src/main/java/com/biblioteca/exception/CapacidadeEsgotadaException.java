@@ -0,0 +1,11 @@
+package com.biblioteca.exception;
+
+/**
+ * Exceção lançada quando um executor limitado não aceita mais trabalho (fila cheia)
+ */
+public class CapacidadeEsgotadaException extends RuntimeException {
+
+    public CapacidadeEsgotadaException(String mensagem) {
+        super(mensagem);
+    }
+}
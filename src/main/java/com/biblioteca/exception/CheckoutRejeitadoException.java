@@ -0,0 +1,18 @@
+package com.biblioteca.exception;
+
+/**
+ * Exceção lançada quando um empréstimo é recusado por uma regra de negócio do checkout
+ */
+public class CheckoutRejeitadoException extends ExcecaoNegocioException {
+
+    private final MotivoRejeicao motivo;
+
+    public CheckoutRejeitadoException(MotivoRejeicao motivo) {
+        super(motivo.getMensagem());
+        this.motivo = motivo;
+    }
+
+    public MotivoRejeicao getMotivo() {
+        return motivo;
+    }
+}
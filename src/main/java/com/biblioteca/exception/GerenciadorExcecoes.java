@@ -1,5 +1,7 @@
 package com.biblioteca.exception;
 
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -29,6 +31,20 @@ public class GerenciadorExcecoes {
         return new ResponseEntity<>(resposta, HttpStatus.NOT_FOUND);
     }
 
+    @ExceptionHandler(CheckoutRejeitadoException.class)
+    public ResponseEntity<Map<String, Object>> tratarCheckoutRejeitado(
+            CheckoutRejeitadoException ex, WebRequest request) {
+        
+        Map<String, Object> resposta = criarRespostaErro(
+            HttpStatus.BAD_REQUEST,
+            ex.getMessage(),
+            request
+        );
+        resposta.put("motivo", ex.getMotivo());
+        
+        return new ResponseEntity<>(resposta, HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(ExcecaoNegocioException.class)
     public ResponseEntity<Map<String, Object>> tratarExcecaoNegocio(
             ExcecaoNegocioException ex, WebRequest request) {
@@ -42,6 +58,34 @@ public class GerenciadorExcecoes {
         return new ResponseEntity<>(resposta, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(CapacidadeEsgotadaException.class)
+    public ResponseEntity<Map<String, Object>> tratarCapacidadeEsgotada(
+            CapacidadeEsgotadaException ex, WebRequest request) {
+        
+        Map<String, Object> resposta = criarRespostaErro(
+            HttpStatus.SERVICE_UNAVAILABLE,
+            ex.getMessage(),
+            request
+        );
+        
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "5")
+                .body(resposta);
+    }
+
+    @ExceptionHandler(ConcurrencyFailureException.class)
+    public ResponseEntity<Map<String, Object>> tratarConflitoConcorrencia(
+            ConcurrencyFailureException ex, WebRequest request) {
+        
+        Map<String, Object> resposta = criarRespostaErro(
+            HttpStatus.CONFLICT,
+            "O registro foi alterado por outra operação; consulte-o novamente e repita a operação",
+            request
+        );
+        
+        return new ResponseEntity<>(resposta, HttpStatus.CONFLICT);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<Map<String, Object>> tratarExcecaoGeral(
             Exception ex, WebRequest request) {
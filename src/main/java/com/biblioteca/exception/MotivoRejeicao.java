@@ -0,0 +1,25 @@
+package com.biblioteca.exception;
+
+/**
+ * Motivos pelos quais um empréstimo pode ser recusado no checkout
+ */
+public enum MotivoRejeicao {
+
+    USUARIO_INATIVO("Usuário não está ativo"),
+    SEM_COPIAS("Sem cópias disponíveis do livro"),
+    LIMITE_ATINGIDO("Usuário atingiu o limite de empréstimos simultâneos"),
+    EMPRESTIMO_EM_ATRASO("Usuário possui empréstimo em atraso"),
+    DADOS_INCOMPLETOS("ID do livro e ID do usuário são obrigatórios"),
+    LIVRO_NAO_ENCONTRADO("Livro não encontrado"),
+    USUARIO_NAO_ENCONTRADO("Usuário não encontrado");
+
+    private final String mensagem;
+
+    MotivoRejeicao(String mensagem) {
+        this.mensagem = mensagem;
+    }
+
+    public String getMensagem() {
+        return mensagem;
+    }
+}
@@ -0,0 +1,48 @@
+package com.biblioteca.log;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Amostragem das linhas DEBUG dos loggers do caminho quente (checkout, devolução, estoque)
+ *
+ * Com DEBUG ligado, cada empréstimo gera várias linhas; o filtro deixa passar em média uma
+ * a cada {@code razao} e recusa as demais antes de a mensagem ser montada. Roda antes da
+ * verificação de nível, então só compara o nível e o nome do logger; os outros níveis, os
+ * outros loggers e as consultas {@code isDebugEnabled()} seguem sem alteração.
+ * Configurado no {@code logback-spring.xml}.
+ */
+public class AmostragemDebug extends TurboFilter {
+
+    private final Set<String> loggers = new HashSet<>();
+    private int razao = 1;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (level != Level.DEBUG || format == null || razao <= 1 || !loggers.contains(logger.getName())) {
+            return FilterReply.NEUTRAL;
+        }
+        return ThreadLocalRandom.current().nextInt(razao) == 0 ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    /**
+     * Logger cujas linhas DEBUG são amostradas (um elemento {@code <logger>} por nome)
+     */
+    public void addLogger(String nome) {
+        loggers.add(nome.trim());
+    }
+
+    /**
+     * Passa em média uma linha DEBUG a cada {@code razao} (1 desliga a amostragem)
+     */
+    public void setRazao(int razao) {
+        this.razao = razao;
+    }
+}
@@ -0,0 +1,24 @@
+package com.biblioteca.mapper;
+
+import com.biblioteca.dto.EmprestimoResposta;
+import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.entity.Livro;
+import com.biblioteca.entity.Usuario;
+import org.mapstruct.Mapper;
+
+import java.util.List;
+
+/**
+ * Converte empréstimos nas representações de resposta da API
+ */
+@Mapper(componentModel = "spring")
+public interface EmprestimoMapper {
+
+    EmprestimoResposta paraResposta(Emprestimo emprestimo);
+
+    List<EmprestimoResposta> paraResposta(List<Emprestimo> emprestimos);
+
+    EmprestimoResposta.LivroResumo paraResumo(Livro livro);
+
+    EmprestimoResposta.UsuarioResumo paraResumo(Usuario usuario);
+}
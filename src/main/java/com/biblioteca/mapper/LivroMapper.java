@@ -0,0 +1,18 @@
+package com.biblioteca.mapper;
+
+import com.biblioteca.dto.LivroResposta;
+import com.biblioteca.entity.Livro;
+import org.mapstruct.Mapper;
+
+import java.util.List;
+
+/**
+ * Converte livros nas representações de resposta da API
+ */
+@Mapper(componentModel = "spring")
+public interface LivroMapper {
+
+    LivroResposta paraResposta(Livro livro);
+
+    List<LivroResposta> paraResposta(List<Livro> livros);
+}
@@ -0,0 +1,29 @@
+package com.biblioteca.mapper;
+
+import com.biblioteca.dto.ReservaResposta;
+import com.biblioteca.entity.Reserva;
+import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
+
+/**
+ * Converte reservas nas representações de resposta da API
+ * A posição na fila vem da fila em memória e é informada pelo controlador.
+ */
+@Mapper(componentModel = "spring")
+public interface ReservaMapper {
+
+    @Mapping(target = "livroId", source = "livro.id")
+    @Mapping(target = "usuarioId", source = "usuario.id")
+    @Mapping(target = "posicao", ignore = true)
+    ReservaResposta paraResposta(Reserva reserva);
+
+    @Mapping(target = "id", source = "reserva.id")
+    @Mapping(target = "livroId", source = "reserva.livro.id")
+    @Mapping(target = "usuarioId", source = "reserva.usuario.id")
+    @Mapping(target = "status", source = "reserva.status")
+    @Mapping(target = "motivo", source = "reserva.motivo")
+    @Mapping(target = "emprestimoId", source = "reserva.emprestimoId")
+    @Mapping(target = "dataCriacao", source = "reserva.dataCriacao")
+    @Mapping(target = "dataAtualizacao", source = "reserva.dataAtualizacao")
+    ReservaResposta paraResposta(Reserva reserva, Integer posicao);
+}
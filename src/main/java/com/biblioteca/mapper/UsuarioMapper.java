@@ -0,0 +1,14 @@
+package com.biblioteca.mapper;
+
+import com.biblioteca.dto.UsuarioResposta;
+import com.biblioteca.entity.Usuario;
+import org.mapstruct.Mapper;
+
+/**
+ * Converte usuários nas representações de resposta da API
+ */
+@Mapper(componentModel = "spring")
+public interface UsuarioMapper {
+
+    UsuarioResposta paraResposta(Usuario usuario);
+}
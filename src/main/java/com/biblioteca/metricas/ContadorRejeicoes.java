@@ -0,0 +1,36 @@
+package com.biblioteca.metricas;
+
+import com.biblioteca.exception.MotivoRejeicao;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Checkouts recusados, por motivo ({@code biblioteca.checkout.rejeicoes}, tag {@code motivo})
+ *
+ * Os contadores de todos os motivos são registrados na criação, então a série de cada
+ * motivo existe (com zero) antes da primeira recusa.
+ */
+@Component
+public class ContadorRejeicoes {
+
+    static final String METRICA = "biblioteca.checkout.rejeicoes";
+
+    private final Map<MotivoRejeicao, Counter> contadores = new EnumMap<>(MotivoRejeicao.class);
+
+    public ContadorRejeicoes(MeterRegistry meterRegistry) {
+        for (MotivoRejeicao motivo : MotivoRejeicao.values()) {
+            contadores.put(motivo, Counter.builder(METRICA)
+                    .description("Empréstimos recusados no checkout (unitário e em lote)")
+                    .tag("motivo", motivo.name())
+                    .register(meterRegistry));
+        }
+    }
+
+    public void registrar(MotivoRejeicao motivo) {
+        contadores.get(motivo).increment();
+    }
+}
@@ -0,0 +1,110 @@
+package com.biblioteca.metricas;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * Linhas devolvidas (ou alteradas) por método de repositório
+ *
+ * O tempo de cada método já é medido pelo Spring Boot no timer
+ * {@code spring.data.repository.invocations} (tags {@code repository}, {@code method},
+ * {@code state} e {@code exception}); aqui se acrescenta o resumo
+ * {@code biblioteca.repositorio.linhas} com as tags {@code repositorio} e {@code metodo}
+ * para os métodos declarados nos repositórios da aplicação. Listas e páginas contam os
+ * elementos, Optional e entidades contam 0 ou 1 e métodos {@code @Modifying} contam as
+ * linhas alteradas. Streams e consultas escalares (contagens, somas, existência) não são contados.
+ */
+@Aspect
+@Component
+@ConditionalOnProperty(name = "biblioteca.metricas.habilitadas", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class MetricasRepositorios {
+
+    static final String METRICA = "biblioteca.repositorio.linhas";
+    private static final String PACOTE_REPOSITORIOS = "com.biblioteca.repository";
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Resumo de cada método, registrado na primeira chamada (vazio quando o retorno não é contável)
+     */
+    private final Map<Method, Optional<Medidor>> medidores = new ConcurrentHashMap<>();
+
+    @Around("execution(* com.biblioteca.repository.*Repository.*(..))")
+    public Object contar(ProceedingJoinPoint chamada) throws Throwable {
+        Object resultado = chamada.proceed();
+
+        Optional<Medidor> medidor = medidores.computeIfAbsent(
+                ((MethodSignature) chamada.getSignature()).getMethod(), this::criarMedidor);
+        if (medidor.isPresent()) {
+            long linhas = medidor.get().modificacao() ? ((Number) resultado).longValue() : contarLinhas(resultado);
+            if (linhas >= 0) {
+                medidor.get().resumo().record(linhas);
+            }
+        }
+        return resultado;
+    }
+
+    private Optional<Medidor> criarMedidor(Method metodo) {
+        // Métodos herdados do Spring Data (findById, save...) não têm o repositório na assinatura
+        if (!metodo.getDeclaringClass().getPackageName().equals(PACOTE_REPOSITORIOS)) {
+            return Optional.empty();
+        }
+        Class<?> retorno = metodo.getReturnType();
+        boolean modificacao = metodo.isAnnotationPresent(Modifying.class);
+        boolean contavel = modificacao
+                ? retorno == int.class || retorno == long.class || retorno == Integer.class || retorno == Long.class
+                : !retorno.isPrimitive() && retorno != void.class && !Number.class.isAssignableFrom(retorno)
+                        && retorno != Boolean.class && !Stream.class.isAssignableFrom(retorno);
+        if (!contavel) {
+            return Optional.empty();
+        }
+        return Optional.of(new Medidor(modificacao, DistributionSummary.builder(METRICA)
+                .description("Linhas devolvidas (ou alteradas, em métodos @Modifying) por chamada ao repositório")
+                .baseUnit("linhas")
+                .tag("repositorio", metodo.getDeclaringClass().getSimpleName())
+                .tag("metodo", metodo.getName())
+                .register(meterRegistry)));
+    }
+
+    /**
+     * @return elementos do resultado, ou -1 quando o tipo em tempo de execução não é contável
+     */
+    private static long contarLinhas(Object resultado) {
+        if (resultado == null) {
+            return 0;
+        }
+        if (resultado instanceof Collection<?> colecao) {
+            return colecao.size();
+        }
+        if (resultado instanceof Slice<?> pagina) {
+            return pagina.getNumberOfElements();
+        }
+        if (resultado instanceof Optional<?> opcional) {
+            return opcional.isPresent() ? 1 : 0;
+        }
+        if (resultado instanceof Number || resultado instanceof Boolean || resultado instanceof Stream<?>) {
+            return -1;
+        }
+        return 1;
+    }
+
+    private record Medidor(boolean modificacao, DistributionSummary resumo) {
+    }
+}
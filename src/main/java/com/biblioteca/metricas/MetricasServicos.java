@@ -0,0 +1,93 @@
+package com.biblioteca.metricas;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tempo e contagem das chamadas aos métodos públicos dos serviços de empréstimos, livros,
+ * usuários, relatórios e reservas
+ *
+ * Timer {@code biblioteca.servico} com as tags {@code classe}, {@code metodo} e
+ * {@code resultado} ({@code sucesso} ou o nome simples da exceção lançada). Os timers de cada
+ * método ficam guardados, então a chamada não consulta o registro de métricas. A ordem mais
+ * alta coloca a medição por fora da transação do serviço: o tempo inclui o commit.
+ * Chamadas internas de um serviço a ele mesmo não passam pelo proxy e não são medidas.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ConditionalOnProperty(name = "biblioteca.metricas.habilitadas", havingValue = "true", matchIfMissing = true)
+@RequiredArgsConstructor
+public class MetricasServicos {
+
+    static final String METRICA = "biblioteca.servico";
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<Method, Medicao> medicoes = new ConcurrentHashMap<>();
+
+    @Around("execution(public * com.biblioteca.service.EmprestimoService.*(..))"
+            + " || execution(public * com.biblioteca.service.LivroService.*(..))"
+            + " || execution(public * com.biblioteca.service.UsuarioService.*(..))"
+            + " || execution(public * com.biblioteca.service.RelatorioService.*(..))"
+            + " || execution(public * com.biblioteca.service.ReservaService.*(..))")
+    public Object medir(ProceedingJoinPoint chamada) throws Throwable {
+        Medicao medicao = medicoes.computeIfAbsent(((MethodSignature) chamada.getSignature()).getMethod(),
+                metodo -> new Medicao(metodo, meterRegistry));
+        long inicio = System.nanoTime();
+        try {
+            Object resultado = chamada.proceed();
+            medicao.sucesso.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            return resultado;
+        } catch (Throwable erro) {
+            medicao.falha(erro).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            throw erro;
+        }
+    }
+
+    /**
+     * Timers de um método: o de sucesso, criado junto, e um por tipo de exceção, criado na primeira falha
+     */
+    private static final class Medicao {
+
+        private final String classe;
+        private final String metodo;
+        private final MeterRegistry meterRegistry;
+        private final Timer sucesso;
+        private final Map<Class<?>, Timer> falhas = new ConcurrentHashMap<>();
+
+        private Medicao(Method metodo, MeterRegistry meterRegistry) {
+            this.classe = metodo.getDeclaringClass().getSimpleName();
+            this.metodo = metodo.getName();
+            this.meterRegistry = meterRegistry;
+            this.sucesso = timer("sucesso");
+        }
+
+        private Timer falha(Throwable erro) {
+            return falhas.computeIfAbsent(erro.getClass(), tipo -> timer(tipo.getSimpleName()));
+        }
+
+        private Timer timer(String resultado) {
+            return Timer.builder(METRICA)
+                    .description("Chamadas aos serviços de empréstimos, livros, usuários, relatórios e reservas")
+                    .tag("classe", classe)
+                    .tag("metodo", metodo)
+                    .tag("resultado", resultado)
+                    .register(meterRegistry);
+        }
+    }
+}
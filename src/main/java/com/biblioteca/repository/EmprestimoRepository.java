@@ -1,15 +1,29 @@
 package com.biblioteca.repository;
 
 import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.repository.projecao.ContagemEmprestimosLivro;
+import com.biblioteca.repository.projecao.EmprestimosPorUsuarioLinha;
+import com.biblioteca.repository.projecao.LivroEmprestadoLinha;
+import com.biblioteca.repository.projecao.VencimentoAtivoLinha;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * Repositório JPA para operações de Empréstimo
@@ -17,31 +31,71 @@ import java.util.List;
 @Repository
 public interface EmprestimoRepository extends JpaRepository<Emprestimo, Long> {
 
+    /**
+     * Status dos empréstimos em aberto (livro ainda não devolvido): no prazo ou já atrasado
+     */
+    String EM_ABERTO = "('ATIVO', 'ATRASADO')";
+
+    /**
+     * Empréstimos em aberto com livro e usuário, ordenados pela data de devolução prevista
+     */
+    String CONSULTA_LIVROS_EMPRESTADOS = "SELECT e.id AS emprestimoId, l.id AS livroId, l.titulo AS livroTitulo, " +
+            "l.autor AS livroAutor, l.isbn AS livroIsbn, u.id AS usuarioId, u.nome AS usuarioNome, " +
+            "u.email AS usuarioEmail, e.dataEmprestimo AS dataEmprestimo, " +
+            "e.dataDeVolucaoPrevista AS dataDeVolucaoPrevista " +
+            "FROM Emprestimo e JOIN e.livro l JOIN e.usuario u WHERE e.status IN " + EM_ABERTO +
+            " ORDER BY e.dataDeVolucaoPrevista ASC, e.id ASC";
+
+    /**
+     * Busca empréstimo por ID já com livro e usuário
+     */
+    @Override
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
+    Optional<Emprestimo> findById(Long id);
+
+    /**
+     * Indica se o livro possui empréstimos registrados
+     */
+    boolean existsByLivroId(Long livroId);
+
+    /**
+     * Indica se o usuário possui empréstimos registrados
+     */
+    boolean existsByUsuarioId(Long usuarioId);
+
     /**
      * Busca empréstimos ativos de um usuário
      */
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
     Page<Emprestimo> findByUsuarioIdAndStatusOrderByDataEmprestimoDesc(Long usuarioId, String status, Pageable pageable);
 
     /**
      * Busca empréstimos de um livro
      */
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
     Page<Emprestimo> findByLivroIdOrderByDataEmprestimoDesc(Long livroId, Pageable pageable);
 
     /**
      * Busca empréstimos ativos
      */
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
     Page<Emprestimo> findByStatusOrderByDataEmprestimoDesc(String status, Pageable pageable);
 
     /**
-     * Busca empréstimos atrasados
+     * Busca empréstimos atrasados (status gravado pela varredura de atrasos)
+     * O status, constante aqui, abre o ORDER BY: o H2 só lê um índice já ordenado quando a
+     * ordenação começa pela primeira coluna dele, (status, data_devolucao_prevista, id).
+     * O PostgreSQL descarta a coluna constante da ordenação.
      */
-    @Query("SELECT e FROM Emprestimo e WHERE e.status = 'ATIVO' AND e.dataDeVolucaoPrevista < CURRENT_DATE " +
-            "ORDER BY e.dataDeVolucaoPrevista ASC")
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
+    @Query("SELECT e FROM Emprestimo e WHERE e.status = 'ATRASADO' " +
+            "ORDER BY e.status ASC, e.dataDeVolucaoPrevista ASC, e.id ASC")
     Page<Emprestimo> buscarEmprestimosAtrasados(Pageable pageable);
 
     /**
      * Busca empréstimos entre datas
      */
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
     @Query("SELECT e FROM Emprestimo e WHERE e.dataEmprestimo BETWEEN :dataInicio AND :dataFim " +
             "ORDER BY e.dataEmprestimo DESC")
     Page<Emprestimo> findByDataEmprestimoEntre(
@@ -53,6 +107,7 @@ public interface EmprestimoRepository extends JpaRepository<Emprestimo, Long> {
     /**
      * Busca empréstimos de um usuário entre datas
      */
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
     @Query("SELECT e FROM Emprestimo e WHERE e.usuario.id = :usuarioId " +
             "AND e.dataEmprestimo BETWEEN :dataInicio AND :dataFim " +
             "ORDER BY e.dataEmprestimo DESC")
@@ -62,14 +117,151 @@ public interface EmprestimoRepository extends JpaRepository<Emprestimo, Long> {
             @Param("dataFim") LocalDate dataFim
     );
 
+    /**
+     * Condição de continuação das listagens por cursor (ordem dataEmprestimo DESC, id DESC)
+     */
+    String APOS_CURSOR = "(e.dataEmprestimo < :dataCursor OR (e.dataEmprestimo = :dataCursor AND e.id < :idCursor))";
+
+    /**
+     * Empréstimos com o status informado, a partir do cursor (sem contagem total)
+     */
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
+    @Query("SELECT e FROM Emprestimo e WHERE e.status = :status AND " + APOS_CURSOR +
+            " ORDER BY e.dataEmprestimo DESC, e.id DESC")
+    Slice<Emprestimo> buscarPorStatusAposCursor(
+            @Param("status") String status,
+            @Param("dataCursor") LocalDate dataCursor,
+            @Param("idCursor") Long idCursor,
+            Pageable pageable
+    );
+
+    /**
+     * IDs dos empréstimos ainda ATIVO vencidos antes da data informada, em ordem de ID
+     * (um lote da varredura de atrasos)
+     */
+    @Query("SELECT e.id FROM Emprestimo e WHERE e.status = 'ATIVO' AND e.dataDeVolucaoPrevista < :hoje " +
+            "ORDER BY e.id ASC")
+    List<Long> buscarIdsVencidosAtivos(@Param("hoje") LocalDate hoje, Pageable pageable);
+
+    /**
+     * Marca como ATRASADO os empréstimos informados que continuam ATIVO (incrementa a versão)
+     * @return quantidade de empréstimos alterados
+     */
+    @Modifying
+    @Query("UPDATE Emprestimo e SET e.status = 'ATRASADO', e.dataAtualizacao = :agora, e.versao = e.versao + 1 " +
+            "WHERE e.id IN :ids AND e.status = 'ATIVO'")
+    int marcarAtrasados(@Param("ids") Collection<Long> ids, @Param("agora") LocalDateTime agora);
+
+    /**
+     * Empréstimos de um usuário (status opcional), a partir do cursor (sem contagem total)
+     */
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
+    @Query("SELECT e FROM Emprestimo e WHERE e.usuario.id = :usuarioId " +
+            "AND (:status IS NULL OR e.status = :status) AND " + APOS_CURSOR +
+            " ORDER BY e.dataEmprestimo DESC, e.id DESC")
+    Slice<Emprestimo> buscarPorUsuarioAposCursor(
+            @Param("usuarioId") Long usuarioId,
+            @Param("status") String status,
+            @Param("dataCursor") LocalDate dataCursor,
+            @Param("idCursor") Long idCursor,
+            Pageable pageable
+    );
+
+    /**
+     * Empréstimos de um livro, a partir do cursor (sem contagem total)
+     */
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
+    @Query("SELECT e FROM Emprestimo e WHERE e.livro.id = :livroId AND " + APOS_CURSOR +
+            " ORDER BY e.dataEmprestimo DESC, e.id DESC")
+    Slice<Emprestimo> buscarPorLivroAposCursor(
+            @Param("livroId") Long livroId,
+            @Param("dataCursor") LocalDate dataCursor,
+            @Param("idCursor") Long idCursor,
+            Pageable pageable
+    );
+
+    /**
+     * Empréstimos entre datas, a partir do cursor (sem contagem total)
+     */
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
+    @Query("SELECT e FROM Emprestimo e WHERE e.dataEmprestimo BETWEEN :dataInicio AND :dataFim AND " +
+            APOS_CURSOR + " ORDER BY e.dataEmprestimo DESC, e.id DESC")
+    Slice<Emprestimo> buscarPorPeriodoAposCursor(
+            @Param("dataInicio") LocalDate dataInicio,
+            @Param("dataFim") LocalDate dataFim,
+            @Param("dataCursor") LocalDate dataCursor,
+            @Param("idCursor") Long idCursor,
+            Pageable pageable
+    );
+
     /**
      * Conta empréstimos ativos de um usuário
      */
     Long countByUsuarioIdAndStatus(Long usuarioId, String status);
 
     /**
-     * Busca empréstimos ativos que não foram devolvidos
+     * Busca os empréstimos em aberto do usuário (ativos e atrasados)
      */
-    @Query("SELECT e FROM Emprestimo e WHERE e.status = 'ATIVO' AND e.usuario.id = :usuarioId")
+    @EntityGraph(Emprestimo.GRAFO_LIVRO_E_USUARIO)
+    @Query("SELECT e FROM Emprestimo e WHERE e.status IN " + EM_ABERTO + " AND e.usuario.id = :usuarioId")
     List<Emprestimo> findEmprestimosAtivosDoUsuario(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * Busca os IDs e as datas de devolução prevista dos empréstimos em aberto de um usuário
+     */
+    @Query("SELECT e.id AS id, e.usuario.id AS usuarioId, e.dataDeVolucaoPrevista AS vencimento FROM Emprestimo e " +
+            "WHERE e.status IN " + EM_ABERTO + " AND e.usuario.id = :usuarioId")
+    List<VencimentoAtivoLinha> buscarVencimentosAtivosDoUsuario(@Param("usuarioId") Long usuarioId);
+
+    /**
+     * IDs e datas de devolução prevista dos empréstimos em aberto de vários usuários
+     */
+    @Query("SELECT e.id AS id, e.usuario.id AS usuarioId, e.dataDeVolucaoPrevista AS vencimento FROM Emprestimo e " +
+            "WHERE e.status IN " + EM_ABERTO + " AND e.usuario.id IN :usuarioIds")
+    List<VencimentoAtivoLinha> buscarVencimentosAtivosDosUsuarios(@Param("usuarioIds") Collection<Long> usuarioIds);
+
+    /**
+     * Lista os empréstimos em aberto como projeção, já ordenados pelo banco
+     */
+    @Query(CONSULTA_LIVROS_EMPRESTADOS)
+    List<LivroEmprestadoLinha> buscarLivrosEmprestados();
+
+    /**
+     * Percorre os empréstimos em aberto com cursor somente-avanço (deve ser consumido
+     * dentro de uma transação e fechado ao final)
+     */
+    @Query(CONSULTA_LIVROS_EMPRESTADOS)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    Stream<LivroEmprestadoLinha> percorrerLivrosEmprestados();
+
+    /**
+     * Agrega os empréstimos por usuário no banco (totais por status)
+     */
+    @Query(value = "SELECT u.id AS usuarioId, u.nome AS usuarioNome, u.email AS usuarioEmail, " +
+            "u.tipoUsuario AS usuarioTipo, COUNT(e.id) AS totalEmprestimos, " +
+            "SUM(CASE WHEN e.status = 'DEVOLVIDO' THEN 1 ELSE 0 END) AS emprestimosDevolvidos, " +
+            "SUM(CASE WHEN e.status = 'ATIVO' THEN 1 ELSE 0 END) AS emprestimosAtivos, " +
+            "SUM(CASE WHEN e.status = 'ATRASADO' THEN 1 ELSE 0 END) AS emprestimosAtrasados " +
+            "FROM Emprestimo e JOIN e.usuario u " +
+            "GROUP BY u.id, u.nome, u.email, u.tipoUsuario",
+            countQuery = "SELECT COUNT(DISTINCT e.usuario.id) FROM Emprestimo e")
+    Page<EmprestimosPorUsuarioLinha> agregarEmprestimosPorUsuario(Pageable pageable);
+
+    /**
+     * Quantidade de empréstimos (em aberto e devolvidos) de cada livro em todo o histórico
+     */
+    @Query("SELECT e.livro.id AS livroId, COUNT(e.id) AS quantidade FROM Emprestimo e " +
+            "WHERE e.status IN ('ATIVO', 'ATRASADO', 'DEVOLVIDO') GROUP BY e.livro.id")
+    List<ContagemEmprestimosLivro> contarEmprestimosPorLivro();
+
+    /**
+     * Quantidade de empréstimos (em aberto e devolvidos) de cada livro por dia, a partir de uma data
+     */
+    @Query("SELECT e.livro.id AS livroId, e.dataEmprestimo AS dia, COUNT(e.id) AS quantidade FROM Emprestimo e " +
+            "WHERE e.status IN ('ATIVO', 'ATRASADO', 'DEVOLVIDO') AND e.dataEmprestimo >= :desde " +
+            "GROUP BY e.livro.id, e.dataEmprestimo")
+    List<ContagemEmprestimosLivro> contarEmprestimosPorLivroEDia(@Param("desde") LocalDate desde);
 }
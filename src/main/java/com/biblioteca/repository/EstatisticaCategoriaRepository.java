@@ -0,0 +1,82 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.entity.EstatisticaCategoria;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repositório JPA para as estatísticas consolidadas por categoria
+ */
+@Repository
+public interface EstatisticaCategoriaRepository extends JpaRepository<EstatisticaCategoria, String> {
+
+    /**
+     * Categoria usada para livros sem categoria
+     */
+    String SEM_CATEGORIA = "Sem Categoria";
+
+    /**
+     * Soma os deltas informados aos totais da categoria em um único UPDATE
+     * @return quantidade de linhas atualizadas (0 se a categoria ainda não existe)
+     */
+    @Modifying
+    @Query("UPDATE EstatisticaCategoria e SET e.totalLivros = e.totalLivros + :livros, " +
+            "e.copiasTotais = e.copiasTotais + :copiasTotais, " +
+            "e.copiasDisponiveis = e.copiasDisponiveis + :copiasDisponiveis, e.dataAtualizacao = :agora " +
+            "WHERE e.categoria = :categoria")
+    int somar(@Param("categoria") String categoria, @Param("livros") long livros,
+              @Param("copiasTotais") long copiasTotais, @Param("copiasDisponiveis") long copiasDisponiveis,
+              @Param("agora") LocalDateTime agora);
+
+    /**
+     * Cria a linha zerada da categoria, se ainda não existir, na transação corrente (H2)
+     * @return 1 se a linha foi criada, 0 se já existia
+     */
+    @Modifying
+    @Query(value = "MERGE INTO estatisticas_categoria e USING (VALUES (CAST(:categoria AS VARCHAR(100)))) AS n(categoria) " +
+            "ON e.categoria = n.categoria WHEN NOT MATCHED THEN " +
+            "INSERT (categoria, total_livros, copias_totais, copias_disponiveis, data_atualizacao) " +
+            "VALUES (n.categoria, 0, 0, 0, :agora)",
+            nativeQuery = true)
+    int criarSeAusenteH2(@Param("categoria") String categoria, @Param("agora") LocalDateTime agora);
+
+    /**
+     * Cria a linha zerada da categoria, se ainda não existir, na transação corrente (PostgreSQL)
+     * A criação simultânea por outra transação espera o commit dela e não gera erro.
+     * @return 1 se a linha foi criada, 0 se já existia
+     */
+    @Modifying
+    @Query(value = "INSERT INTO estatisticas_categoria (categoria, total_livros, copias_totais, copias_disponiveis, " +
+            "data_atualizacao) VALUES (:categoria, 0, 0, 0, :agora) ON CONFLICT (categoria) DO NOTHING",
+            nativeQuery = true)
+    int criarSeAusentePostgres(@Param("categoria") String categoria, @Param("agora") LocalDateTime agora);
+
+    /**
+     * Categorias com ao menos um livro, em ordem alfabética
+     */
+    @Query("SELECT e FROM EstatisticaCategoria e WHERE e.totalLivros > 0 ORDER BY e.categoria")
+    List<EstatisticaCategoria> listarComLivros();
+
+    /**
+     * Recalcula todas as categorias a partir da tabela de livros
+     */
+    @Modifying
+    @Query("INSERT INTO EstatisticaCategoria (categoria, totalLivros, copiasTotais, copiasDisponiveis, dataAtualizacao) " +
+            "SELECT COALESCE(l.categoria, '" + SEM_CATEGORIA + "'), COUNT(l), " +
+            "SUM(l.copiasTotais), SUM(l.copiasDisponiveis), :agora " +
+            "FROM Livro l GROUP BY COALESCE(l.categoria, '" + SEM_CATEGORIA + "')")
+    int recalcularTodas(@Param("agora") LocalDateTime agora);
+
+    /**
+     * Remove todas as estatísticas em um único DELETE
+     */
+    @Modifying
+    @Query("DELETE FROM EstatisticaCategoria e")
+    int removerTodas();
+}
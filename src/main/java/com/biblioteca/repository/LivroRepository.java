@@ -1,13 +1,23 @@
 package com.biblioteca.repository;
 
 import com.biblioteca.entity.Livro;
+import com.biblioteca.repository.projecao.CategoriaDoLivro;
+import com.biblioteca.repository.projecao.LivroIsbnLinha;
+import com.biblioteca.repository.projecao.LivroMaisEmprestadoLinha;
+import com.biblioteca.repository.projecao.LivroResumoLinha;
+import com.biblioteca.repository.projecao.LivroTextoLinha;
+import com.biblioteca.repository.projecao.SaldoLivro;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -43,15 +53,18 @@ public interface LivroRepository extends JpaRepository<Livro, Long> {
     Page<Livro> findByCopiasDisponiveisGreaterThan(Integer quantidade, Pageable pageable);
 
     /**
-     * Busca os 20 livros mais emprestados usando Stream
+     * Ranking dos livros mais emprestados com a contagem calculada na mesma consulta
+     * O tamanho do ranking vem do Pageable; sem data inicial, considera todo o histórico
      */
-    @Query(value = "SELECT l.* FROM livros l " +
-            "JOIN emprestimos e ON l.id = e.livro_id " +
-            "WHERE e.status IN ('ATIVO', 'DEVOLVIDO') " +
-            "GROUP BY l.id " +
-            "ORDER BY COUNT(e.id) DESC " +
-            "LIMIT 20", nativeQuery = true)
-    List<Livro> findTop20MaisEmprestados();
+    @Query("SELECT l.id AS id, l.titulo AS titulo, l.autor AS autor, l.isbn AS isbn, l.categoria AS categoria, " +
+            "l.copiasDisponiveis AS copiasDisponiveis, l.copiasTotais AS copiasTotais, " +
+            "COUNT(e.id) AS quantidadeEmprestimos " +
+            "FROM Emprestimo e JOIN e.livro l " +
+            "WHERE e.status IN ('ATIVO', 'ATRASADO', 'DEVOLVIDO') " +
+            "AND (:desde IS NULL OR e.dataEmprestimo >= :desde) " +
+            "GROUP BY l.id, l.titulo, l.autor, l.isbn, l.categoria, l.copiasDisponiveis, l.copiasTotais " +
+            "ORDER BY COUNT(e.id) DESC, l.id ASC")
+    List<LivroMaisEmprestadoLinha> buscarMaisEmprestados(@Param("desde") LocalDate desde, Pageable pageable);
 
     /**
      * Busca livros por múltiplos critérios
@@ -68,4 +81,126 @@ public interface LivroRepository extends JpaRepository<Livro, Long> {
             @Param("categoria") String categoria,
             Pageable pageable
     );
+
+    /**
+     * Busca livros pelos IDs informados, com paginação e ordenação do Pageable
+     */
+    Page<Livro> findByIdIn(Collection<Long> ids, Pageable pageable);
+
+    /**
+     * Busca textual no PostgreSQL (extensões pg_trgm e unaccent, índices das migrações V4 e V11)
+     * Título e autor usam ILIKE (atendido pelos índices GIN de trigramas); a busca livre combina
+     * semelhança de trigramas em título, autor e categoria com texto completo em português na
+     * descrição. Os dois lados passam por {@code sem_acentos}, como no índice em memória.
+     * Retorna no máximo {@code limite} IDs, em ordem de relevância.
+     */
+    @Query(value = "SELECT l.id FROM livros l WHERE " +
+            "(CAST(:titulo AS text) IS NULL OR sem_acentos(l.titulo) ILIKE CONCAT('%', sem_acentos(CAST(:titulo AS text)), '%')) AND " +
+            "(CAST(:autor AS text) IS NULL OR sem_acentos(l.autor) ILIKE CONCAT('%', sem_acentos(CAST(:autor AS text)), '%')) AND " +
+            "(CAST(:isbn AS text) IS NULL OR l.isbn = CAST(:isbn AS text)) AND " +
+            "(CAST(:categoria AS text) IS NULL OR l.categoria = CAST(:categoria AS text)) AND " +
+            "(CAST(:q AS text) IS NULL " +
+            " OR sem_acentos(l.titulo) % sem_acentos(CAST(:q AS text)) OR sem_acentos(l.autor) % sem_acentos(CAST(:q AS text)) " +
+            " OR sem_acentos(l.categoria) % sem_acentos(CAST(:q AS text)) " +
+            " OR to_tsvector('portuguese', sem_acentos(COALESCE(l.descricao, ''))) @@ plainto_tsquery('portuguese', sem_acentos(CAST(:q AS text)))) " +
+            "ORDER BY CASE WHEN CAST(:q AS text) IS NULL THEN 0 ELSE " +
+            " 3 * similarity(sem_acentos(l.titulo), sem_acentos(CAST(:q AS text))) " +
+            " + 2 * similarity(sem_acentos(l.autor), sem_acentos(CAST(:q AS text))) " +
+            " + similarity(sem_acentos(COALESCE(l.categoria, '')), sem_acentos(CAST(:q AS text))) " +
+            " + ts_rank(to_tsvector('portuguese', sem_acentos(COALESCE(l.descricao, ''))), " +
+            "   plainto_tsquery('portuguese', sem_acentos(CAST(:q AS text)))) " +
+            "END DESC, l.id LIMIT :limite",
+            nativeQuery = true)
+    List<Long> buscarIdsPorTextoPostgres(
+            @Param("q") String q,
+            @Param("titulo") String titulo,
+            @Param("autor") String autor,
+            @Param("isbn") String isbn,
+            @Param("categoria") String categoria,
+            @Param("limite") int limite
+    );
+
+    /**
+     * Campos textuais de todos os livros, para montar o índice de busca em memória
+     */
+    @Query("SELECT l.id AS id, l.titulo AS titulo, l.autor AS autor, l.descricao AS descricao, " +
+            "l.categoria AS categoria, l.isbn AS isbn FROM Livro l")
+    List<LivroTextoLinha> listarTextos();
+
+    /**
+     * IDs dos livros com os ISBNs informados (sem carregar as entidades)
+     */
+    @Query("SELECT l.id AS id, l.isbn AS isbn FROM Livro l WHERE l.isbn IN :isbns")
+    List<LivroIsbnLinha> buscarIdsPorIsbn(@Param("isbns") Collection<String> isbns);
+
+    /**
+     * Atualiza só os dados de catálogo do livro com o ISBN informado
+     * Não confere a versão nem toca nas cópias, que checkouts e devoluções alteram em paralelo;
+     * incrementa a versão para que uma edição lida antes da importação seja recusada.
+     * @return número de linhas atualizadas (0 se o ISBN não está mais cadastrado)
+     */
+    @Modifying
+    @Query("UPDATE Livro l SET l.titulo = :titulo, l.autor = :autor, l.descricao = :descricao, " +
+            "l.categoria = :categoria, l.dataAtualizacao = :agora, l.versao = l.versao + 1 WHERE l.isbn = :isbn")
+    int atualizarCatalogo(@Param("isbn") String isbn, @Param("titulo") String titulo, @Param("autor") String autor,
+                          @Param("descricao") String descricao, @Param("categoria") String categoria,
+                          @Param("agora") LocalDateTime agora);
+
+    /**
+     * ISBNs de todos os livros cadastrados (sem carregar as entidades)
+     */
+    @Query("SELECT l.isbn FROM Livro l")
+    List<String> listarIsbns();
+
+    /**
+     * Busca apenas o número de cópias disponíveis de um livro
+     */
+    @Query("SELECT l.copiasDisponiveis FROM Livro l WHERE l.id = :id")
+    Optional<Integer> buscarCopiasDisponiveis(@Param("id") Long id);
+
+    /**
+     * Versão atual de um livro (muda a cada edição, checkout e devolução)
+     */
+    @Query("SELECT l.versao FROM Livro l WHERE l.id = :id")
+    Optional<Long> buscarVersao(@Param("id") Long id);
+
+    /**
+     * Cópias disponíveis de vários livros numa única consulta
+     */
+    @Query("SELECT l.id AS id, l.copiasDisponiveis AS copiasDisponiveis FROM Livro l WHERE l.id IN :ids")
+    List<SaldoLivro> buscarSaldos(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Debita cópias disponíveis somente se houver saldo suficiente
+     * Incrementa a versão: uma edição do livro lida antes do débito é recusada no commit.
+     * @return número de linhas atualizadas (0 se não havia saldo)
+     */
+    @Modifying
+    @Query("UPDATE Livro l SET l.copiasDisponiveis = l.copiasDisponiveis - :quantidade, l.dataAtualizacao = :agora, " +
+            "l.versao = l.versao + 1 " +
+            "WHERE l.id = :id AND l.copiasDisponiveis >= :quantidade")
+    int debitarCopias(@Param("id") Long id, @Param("quantidade") int quantidade, @Param("agora") LocalDateTime agora);
+
+    /**
+     * Credita cópias disponíveis somente se não exceder o total de cópias (incrementa a versão)
+     * @return número de linhas atualizadas (0 se todas as cópias já estavam disponíveis)
+     */
+    @Modifying
+    @Query("UPDATE Livro l SET l.copiasDisponiveis = l.copiasDisponiveis + :quantidade, l.dataAtualizacao = :agora, " +
+            "l.versao = l.versao + 1 " +
+            "WHERE l.id = :id AND l.copiasDisponiveis + :quantidade <= l.copiasTotais")
+    int creditarCopias(@Param("id") Long id, @Param("quantidade") int quantidade, @Param("agora") LocalDateTime agora);
+
+    /**
+     * Categoria atual de cada livro informado
+     */
+    @Query("SELECT l.id AS id, l.categoria AS categoria FROM Livro l WHERE l.id IN :ids")
+    List<CategoriaDoLivro> buscarCategorias(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Resumo de todos os livros (sem carregar as entidades), ordenado por título
+     */
+    @Query("SELECT l.id AS id, l.titulo AS titulo, l.autor AS autor, l.isbn AS isbn, l.categoria AS categoria " +
+            "FROM Livro l ORDER BY l.titulo, l.id")
+    List<LivroResumoLinha> listarResumos();
 }
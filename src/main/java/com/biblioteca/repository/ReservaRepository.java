@@ -0,0 +1,40 @@
+package com.biblioteca.repository;
+
+import com.biblioteca.entity.Reserva;
+import com.biblioteca.repository.projecao.EsperaReservaLinha;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+/**
+ * Repositório JPA para operações de Reserva
+ */
+@Repository
+public interface ReservaRepository extends JpaRepository<Reserva, Long> {
+
+    /**
+     * Reservas que aguardam na fila, por livro e na ordem de chegada (carga da fila em memória)
+     */
+    @Query("SELECT r.id AS id, r.livro.id AS livroId, r.usuario.id AS usuarioId FROM Reserva r " +
+            "WHERE r.status = 'AGUARDANDO' ORDER BY r.livro.id, r.id")
+    List<EsperaReservaLinha> buscarEsperas();
+
+    /**
+     * Reservas de um usuário, da mais recente para a mais antiga
+     */
+    Page<Reserva> findByUsuarioIdOrderByIdDesc(Long usuarioId, Pageable pageable);
+
+    /**
+     * Verifica se o livro tem reservas (em qualquer status)
+     */
+    boolean existsByLivroId(Long livroId);
+
+    /**
+     * Verifica se o usuário tem reservas (em qualquer status)
+     */
+    boolean existsByUsuarioId(Long usuarioId);
+}
@@ -1,11 +1,18 @@
 package com.biblioteca.repository;
 
 import com.biblioteca.entity.Usuario;
+import com.biblioteca.repository.projecao.CadastroElegibilidade;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -33,4 +40,44 @@ public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
      * Busca usuários ativos
      */
     Page<Usuario> findByAtivoTrue(Pageable pageable);
+
+    /**
+     * Busca apenas os dados que definem a elegibilidade do usuário para empréstimos
+     */
+    @Query("SELECT u.id AS id, u.ativo AS ativo, COALESCE(u.limiteEmprestimos, 5) AS limite FROM Usuario u WHERE u.id = :id")
+    Optional<CadastroElegibilidade> buscarCadastroElegibilidade(@Param("id") Long id);
+
+    /**
+     * Dados de elegibilidade de vários usuários numa única consulta
+     */
+    @Query("SELECT u.id AS id, u.ativo AS ativo, COALESCE(u.limiteEmprestimos, 5) AS limite FROM Usuario u WHERE u.id IN :ids")
+    List<CadastroElegibilidade> buscarCadastrosElegibilidade(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Conta novos empréstimos em aberto do usuário somente se ele puder recebê-los: ativo,
+     * dentro do limite e sem empréstimos vencidos antes de hoje
+     *
+     * O UPDATE trava a linha do usuário, e o limite é conferido de novo na versão travada.
+     * Assim, checkouts simultâneos em instâncias diferentes não passam do limite, mesmo que o
+     * índice em memória de cada uma ainda não conheça os empréstimos das outras.
+     * @return número de linhas atualizadas (0 se alguma regra recusou)
+     */
+    @Modifying
+    @Query(value = "UPDATE usuarios SET emprestimos_em_aberto = emprestimos_em_aberto + :quantidade " +
+            "WHERE id = :usuarioId AND ativo = TRUE " +
+            "AND emprestimos_em_aberto + :quantidade <= COALESCE(limite_emprestimos, 5) " +
+            "AND NOT EXISTS (SELECT 1 FROM emprestimos e WHERE e.usuario_id = :usuarioId " +
+            "AND e.status IN ('ATIVO', 'ATRASADO') AND e.data_devolucao_prevista < :hoje)",
+            nativeQuery = true)
+    int contarAberturas(@Param("usuarioId") Long usuarioId, @Param("quantidade") int quantidade,
+                        @Param("hoje") LocalDate hoje);
+
+    /**
+     * Desconta um empréstimo encerrado (devolução ou exclusão) do contador do usuário
+     */
+    @Modifying
+    @Query(value = "UPDATE usuarios SET emprestimos_em_aberto = emprestimos_em_aberto - 1 " +
+            "WHERE id = :usuarioId AND emprestimos_em_aberto > 0",
+            nativeQuery = true)
+    int contarEncerramento(@Param("usuarioId") Long usuarioId);
 }
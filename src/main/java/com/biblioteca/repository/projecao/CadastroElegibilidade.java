@@ -0,0 +1,13 @@
+package com.biblioteca.repository.projecao;
+
+/**
+ * Projeção com os dados cadastrais do usuário que definem se ele pode emprestar
+ */
+public interface CadastroElegibilidade {
+
+    Long getId();
+
+    Boolean getAtivo();
+
+    Integer getLimite();
+}
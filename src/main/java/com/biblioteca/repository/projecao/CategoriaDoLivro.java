@@ -0,0 +1,11 @@
+package com.biblioteca.repository.projecao;
+
+/**
+ * Projeção com o ID e a categoria de um livro
+ */
+public interface CategoriaDoLivro {
+
+    Long getId();
+
+    String getCategoria();
+}
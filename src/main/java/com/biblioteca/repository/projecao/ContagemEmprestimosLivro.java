@@ -0,0 +1,18 @@
+package com.biblioteca.repository.projecao;
+
+import java.time.LocalDate;
+
+/**
+ * Projeção com a quantidade de empréstimos de um livro, opcionalmente por dia
+ */
+public interface ContagemEmprestimosLivro {
+
+    Long getLivroId();
+
+    /**
+     * Dia do empréstimo (nulo nas contagens de todo o histórico)
+     */
+    LocalDate getDia();
+
+    Long getQuantidade();
+}
@@ -0,0 +1,23 @@
+package com.biblioteca.repository.projecao;
+
+/**
+ * Projeção com os totais de empréstimos de um usuário, agregados pelo banco
+ */
+public interface EmprestimosPorUsuarioLinha {
+
+    Long getUsuarioId();
+
+    String getUsuarioNome();
+
+    String getUsuarioEmail();
+
+    String getUsuarioTipo();
+
+    Long getTotalEmprestimos();
+
+    Long getEmprestimosDevolvidos();
+
+    Long getEmprestimosAtivos();
+
+    Long getEmprestimosAtrasados();
+}
@@ -0,0 +1,13 @@
+package com.biblioteca.repository.projecao;
+
+/**
+ * Projeção de uma reserva que aguarda na fila de um livro
+ */
+public interface EsperaReservaLinha {
+
+    Long getId();
+
+    Long getLivroId();
+
+    Long getUsuarioId();
+}
@@ -0,0 +1,30 @@
+package com.biblioteca.repository.projecao;
+
+import java.time.LocalDate;
+
+/**
+ * Projeção de um empréstimo ativo com os dados do livro e do usuário
+ * usada pelo relatório de livros emprestados
+ */
+public interface LivroEmprestadoLinha {
+
+    Long getEmprestimoId();
+
+    Long getLivroId();
+
+    String getLivroTitulo();
+
+    String getLivroAutor();
+
+    String getLivroIsbn();
+
+    Long getUsuarioId();
+
+    String getUsuarioNome();
+
+    String getUsuarioEmail();
+
+    LocalDate getDataEmprestimo();
+
+    LocalDate getDataDeVolucaoPrevista();
+}
@@ -0,0 +1,11 @@
+package com.biblioteca.repository.projecao;
+
+/**
+ * Projeção com o ID e o ISBN de um livro
+ */
+public interface LivroIsbnLinha {
+
+    Long getId();
+
+    String getIsbn();
+}
@@ -0,0 +1,23 @@
+package com.biblioteca.repository.projecao;
+
+/**
+ * Projeção de um livro com a quantidade de empréstimos contada pelo banco
+ */
+public interface LivroMaisEmprestadoLinha {
+
+    Long getId();
+
+    String getTitulo();
+
+    String getAutor();
+
+    String getIsbn();
+
+    String getCategoria();
+
+    Integer getCopiasDisponiveis();
+
+    Integer getCopiasTotais();
+
+    Long getQuantidadeEmprestimos();
+}
@@ -0,0 +1,17 @@
+package com.biblioteca.repository.projecao;
+
+/**
+ * Projeção com os dados resumidos de um livro e sua categoria
+ */
+public interface LivroResumoLinha {
+
+    Long getId();
+
+    String getTitulo();
+
+    String getAutor();
+
+    String getIsbn();
+
+    String getCategoria();
+}
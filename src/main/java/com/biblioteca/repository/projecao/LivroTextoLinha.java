@@ -0,0 +1,19 @@
+package com.biblioteca.repository.projecao;
+
+/**
+ * Projeção com os campos textuais de um livro usados pelo índice de busca
+ */
+public interface LivroTextoLinha {
+
+    Long getId();
+
+    String getTitulo();
+
+    String getAutor();
+
+    String getDescricao();
+
+    String getCategoria();
+
+    String getIsbn();
+}
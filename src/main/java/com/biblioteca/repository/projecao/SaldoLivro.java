@@ -0,0 +1,11 @@
+package com.biblioteca.repository.projecao;
+
+/**
+ * Projeção com o ID e as cópias disponíveis de um livro
+ */
+public interface SaldoLivro {
+
+    Long getId();
+
+    Integer getCopiasDisponiveis();
+}
@@ -0,0 +1,15 @@
+package com.biblioteca.repository.projecao;
+
+import java.time.LocalDate;
+
+/**
+ * Projeção com o ID, o usuário e a data de devolução prevista de um empréstimo ativo
+ */
+public interface VencimentoAtivoLinha {
+
+    Long getId();
+
+    Long getUsuarioId();
+
+    LocalDate getVencimento();
+}
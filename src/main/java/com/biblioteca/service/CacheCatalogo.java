@@ -0,0 +1,71 @@
+package com.biblioteca.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache das respostas de consulta de livros e usuários (Caffeine, via Spring Cache)
+ *
+ * Guarda as representações imutáveis da API por ID, ISBN e email. Tamanho máximo, TTL e
+ * estatísticas vêm de {@code spring.cache.caffeine.spec}; acertos e faltas são publicados
+ * pelo Actuator em {@code cache.gets}. Os serviços removem as entradas alteradas após o
+ * commit. Um carregamento que concorreu com uma remoção pode ter lido o valor antigo: um
+ * contador de remoções, conferido depois de guardar, descarta esse valor (o carregamento
+ * fica fora do cache, sem JDBC dentro do {@code compute} do Caffeine).
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheCatalogo {
+
+    public static final String LIVROS = "livros";
+    public static final String LIVROS_POR_ISBN = "livrosPorIsbn";
+    public static final String USUARIOS = "usuarios";
+    public static final String USUARIOS_POR_EMAIL = "usuariosPorEmail";
+
+    private final CacheManager cacheManager;
+    private final AtomicLong remocoes = new AtomicLong();
+
+    /**
+     * Retorna o valor em cache ou o carrega e guarda (exceções do carregamento não são guardadas)
+     */
+    public <T> T obter(String nome, Object chave, Class<T> tipo, Supplier<T> carregar) {
+        Cache cache = cache(nome);
+        T valor = cache.get(chave, tipo);
+        if (valor != null) {
+            return valor;
+        }
+        long geracao = remocoes.get();
+        valor = carregar.get();
+        cache.putIfAbsent(chave, valor);
+        if (remocoes.get() != geracao) {
+            // Uma remoção correu durante a leitura: o valor guardado pode ser anterior a ela
+            cache.evict(chave);
+        }
+        return valor;
+    }
+
+    /**
+     * Remove as chaves informadas após o commit da transação corrente (chaves nulas são ignoradas)
+     */
+    public void removerAposCommit(String nome, Object... chaves) {
+        Cache cache = cache(nome);
+        SincronizacaoTransacao.aposCommit(() -> {
+            remocoes.incrementAndGet();
+            for (Object chave : chaves) {
+                if (chave != null) {
+                    cache.evict(chave);
+                }
+            }
+        });
+    }
+
+    private Cache cache(String nome) {
+        return Objects.requireNonNull(cacheManager.getCache(nome), () -> "Cache não configurado: " + nome);
+    }
+}
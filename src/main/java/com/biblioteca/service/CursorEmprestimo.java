@@ -0,0 +1,55 @@
+package com.biblioteca.service;
+
+import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.exception.ExcecaoNegocioException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Posição de uma listagem de empréstimos por cursor: o último (dataEmprestimo, id) entregue
+ * As listagens seguem a ordem dataEmprestimo DESC, id DESC e continuam a partir dos
+ * empréstimos estritamente anteriores a esta posição. O cursor é exposto ao cliente
+ * como texto opaco em Base64 URL-safe.
+ */
+public record CursorEmprestimo(LocalDate dataEmprestimo, Long id) {
+
+    /**
+     * Posição anterior a qualquer empréstimo (primeira página)
+     */
+    public static final CursorEmprestimo INICIO = new CursorEmprestimo(LocalDate.of(9999, 12, 31), Long.MAX_VALUE);
+
+    /**
+     * Posição logo após o empréstimo informado
+     */
+    public static CursorEmprestimo depoisDe(Emprestimo emprestimo) {
+        return new CursorEmprestimo(emprestimo.getDataEmprestimo(), emprestimo.getId());
+    }
+
+    /**
+     * Interpreta o cursor recebido do cliente; nulo ou vazio indica a primeira página
+     */
+    public static CursorEmprestimo decodificar(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return INICIO;
+        }
+        try {
+            String texto = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separador = texto.lastIndexOf(':');
+            return new CursorEmprestimo(LocalDate.parse(texto.substring(0, separador)),
+                    Long.parseLong(texto.substring(separador + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ExcecaoNegocioException("Cursor inválido: " + cursor, e);
+        }
+    }
+
+    /**
+     * Texto opaco a ser devolvido ao cliente
+     */
+    public String codificar() {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((dataEmprestimo + ":" + id).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,16 +1,24 @@
 package com.biblioteca.service;
 
 import com.biblioteca.dto.EmprestimoDTO;
+import com.biblioteca.dto.PaginaCursor;
+import com.biblioteca.dto.ResultadoLoteEmprestimos;
 import com.biblioteca.entity.Emprestimo;
-import com.biblioteca.entity.Livro;
-import com.biblioteca.entity.Usuario;
+import com.biblioteca.evento.EmprestimoCriadoEvento;
+import com.biblioteca.evento.EmprestimoDevolvidoEvento;
+import com.biblioteca.evento.EmprestimoRemovidoEvento;
+import com.biblioteca.evento.EmprestimoRenovadoEvento;
 import com.biblioteca.exception.ExcecaoNegocioException;
 import com.biblioteca.exception.RecursoNaoEncontradoException;
 import com.biblioteca.repository.EmprestimoRepository;
+import com.biblioteca.service.VersaoDados.Dominio;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
@@ -30,93 +38,153 @@ import java.util.List;
 @Transactional
 public class EmprestimoService {
 
-    private static final int DIAS_EMPRESTIMO_PADRAO = 14;
+    static final int DIAS_EMPRESTIMO_PADRAO = 14;
+
+    /**
+     * Maior página aceita nas listagens por cursor
+     */
+    static final int TAMANHO_MAXIMO_PAGINA_CURSOR = 100;
+
+    /**
+     * Maior número de empréstimos aceito num checkout em lote
+     */
+    static final int TAMANHO_MAXIMO_LOTE = 5000;
 
     private final EmprestimoRepository emprestimoRepository;
     private final LivroService livroService;
-    private final UsuarioService usuarioService;
+    private final MotorCheckout motorCheckout;
+    private final ReservaService reservaService;
+    private final IndiceElegibilidadeUsuario indiceElegibilidade;
+    private final VersaoDados versaoDados;
+    private final ApplicationEventPublisher eventos;
 
     /**
      * Cria um novo empréstimo
      */
+    @RetentarEmConflito
     public Emprestimo criar(EmprestimoDTO dto) {
-        log.info("Criando novo empréstimo para usuário ID: {} e livro ID: {}", 
-                dto.getUsuarioId(), dto.getLivroId());
-
-        // Valida e busca entidades
-        Livro livro = livroService.buscarPorId(dto.getLivroId());
-        Usuario usuario = usuarioService.buscarPorId(dto.getUsuarioId());
-
-        // Validações de negócio
-        validarEmprestimo(livro, usuario);
-
-        LocalDate dataEmprestimo = dto.getDataEmprestimo() != null ? 
-                dto.getDataEmprestimo() : LocalDate.now();
-
-        Emprestimo emprestimo = Emprestimo.builder()
-                .livro(livro)
-                .usuario(usuario)
-                .dataEmprestimo(dataEmprestimo)
-                .dataDeVolucaoPrevista(dataEmprestimo.plusDays(DIAS_EMPRESTIMO_PADRAO))
-                .status("ATIVO")
-                .observacoes(dto.getObservacoes())
-                .dataCriacao(LocalDateTime.now())
-                .dataAtualizacao(LocalDateTime.now())
-                .build();
-
-        // Reduz cópias disponíveis do livro
-        livroService.reservarCopia(livro.getId());
-
-        Emprestimo novoEmprestimo = emprestimoRepository.save(emprestimo);
-        log.info("Empréstimo criado com sucesso: ID {}", novoEmprestimo.getId());
+        log.debug("Criando novo empréstimo para usuário ID: {} e livro ID: {}", dto.getUsuarioId(), dto.getLivroId());
+
+        // Validações e reserva da cópia são feitas pelo motor de checkout
+        Emprestimo novoEmprestimo = motorCheckout.efetuar(dto);
+        eventos.publishEvent(new EmprestimoCriadoEvento(novoEmprestimo.getId(), dto.getLivroId(),
+                dto.getUsuarioId(), novoEmprestimo.getDataEmprestimo()));
+        // Registrado depois do evento: a versão só muda quando o ranking em memória já foi atualizado
+        versaoDados.registrarAlteracaoAposCommit(Dominio.EMPRESTIMOS, Dominio.LIVROS);
+        log.debug("Empréstimo criado com sucesso: ID {}", novoEmprestimo.getId());
         return novoEmprestimo;
     }
 
+    /**
+     * Cria vários empréstimos numa única transação (ex.: retiradas de início de semestre)
+     * Pedidos recusados não impedem os demais; o resultado traz o desfecho de cada um.
+     */
+    public ResultadoLoteEmprestimos criarLote(List<EmprestimoDTO> pedidos) {
+        if (pedidos == null || pedidos.isEmpty()) {
+            throw new ExcecaoNegocioException("O lote deve conter ao menos um empréstimo");
+        }
+        if (pedidos.size() > TAMANHO_MAXIMO_LOTE) {
+            throw new ExcecaoNegocioException("O lote aceita no máximo " + TAMANHO_MAXIMO_LOTE + " empréstimos");
+        }
+        log.info("Processando lote de {} empréstimo(s)", pedidos.size());
+
+        long inicio = System.nanoTime();
+        List<ResultadoLoteEmprestimos.Item> itens = motorCheckout.efetuarLote(pedidos);
+        long duracaoNanos = System.nanoTime() - inicio;
+
+        int criados = 0;
+        for (ResultadoLoteEmprestimos.Item item : itens) {
+            if (item.emprestimoId() != null) {
+                criados++;
+                LocalDate dataEmprestimo = pedidos.get(item.indice()).getDataEmprestimo();
+                eventos.publishEvent(new EmprestimoCriadoEvento(item.emprestimoId(), item.livroId(), item.usuarioId(),
+                        dataEmprestimo != null ? dataEmprestimo : LocalDate.now()));
+            }
+        }
+
+        if (criados > 0) {
+            versaoDados.registrarAlteracaoAposCommit(Dominio.EMPRESTIMOS, Dominio.LIVROS);
+        }
+
+        long duracaoMs = duracaoNanos / 1_000_000;
+        double itensPorSegundo = duracaoNanos > 0 ? pedidos.size() * 1_000_000_000.0 / duracaoNanos : 0;
+        log.info("Lote processado: {} criado(s), {} recusado(s) em {} ms ({} itens/s)",
+                criados, itens.size() - criados, duracaoMs, Math.round(itensPorSegundo));
+        return new ResultadoLoteEmprestimos(pedidos.size(), criados, itens.size() - criados, duracaoMs,
+                Math.round(itensPorSegundo * 10) / 10.0, itens);
+    }
+
     /**
      * Devolve um livro emprestado
+     * Devoluções concorrentes do mesmo empréstimo colidem na versão: a que perde é refeita e
+     * encontra o empréstimo já devolvido, então a cópia é creditada uma única vez.
+     * Se o livro tiver fila de reservas, a cópia é emprestada ao primeiro dela (ReservaService).
      */
+    @RetentarEmConflito
     public Emprestimo devolver(Long id) {
-        log.info("Processando devolução de empréstimo: {}", id);
+        log.debug("Processando devolução de empréstimo: {}", id);
 
         Emprestimo emprestimo = buscarPorId(id);
 
-        if (!"ATIVO".equals(emprestimo.getStatus())) {
-            throw new ExcecaoNegocioException("Empréstimo não está ativo");
+        if (!emprestimo.estaEmAberto()) {
+            throw new ExcecaoNegocioException("Empréstimo não está em aberto");
         }
 
         emprestimo.setDataDeVolucaoReal(LocalDate.now());
         emprestimo.setStatus("DEVOLVIDO");
         emprestimo.setDataAtualizacao(LocalDateTime.now());
 
-        // Aumenta cópias disponíveis do livro
-        livroService.liberarCopia(emprestimo.getLivro().getId());
+        // Publicado antes da entrega: após o commit, a devolução é vista antes do empréstimo da reserva
+        Long livroId = emprestimo.getLivro().getId();
+        eventos.publishEvent(new EmprestimoDevolvidoEvento(id, livroId, emprestimo.getUsuario().getId()));
+
+        // A cópia vai direto para o primeiro da fila de reservas; sem fila, volta ao estoque
+        boolean entregueAReserva = reservaService.entregarCopiaDevolvida(livroId).isPresent();
+        if (!entregueAReserva) {
+            livroService.liberarCopia(livroId);
+            // Reserva que entrou na fila depois da tentativa de entrega recebe a cópia do estoque
+            reservaService.atenderFilaAposCommit(livroId);
+        }
 
         Emprestimo emprestimoAtualizado = emprestimoRepository.save(emprestimo);
-        log.info("Livro devolvido com sucesso: Empréstimo ID {}", emprestimoAtualizado.getId());
+        indiceElegibilidade.registrarEncerramento(emprestimo.getUsuario().getId(), id);
+        if (entregueAReserva) {
+            versaoDados.registrarAlteracaoAposCommit(Dominio.EMPRESTIMOS, Dominio.LIVROS);
+        } else {
+            versaoDados.registrarAlteracaoAposCommit(Dominio.EMPRESTIMOS);
+        }
+        log.debug("Livro devolvido com sucesso: Empréstimo ID {}", emprestimoAtualizado.getId());
         return emprestimoAtualizado;
     }
 
     /**
      * Renova um empréstimo ativo
      */
+    @RetentarEmConflito
     public Emprestimo renovar(Long id) {
-        log.info("Renovando empréstimo: {}", id);
+        log.debug("Renovando empréstimo: {}", id);
 
         Emprestimo emprestimo = buscarPorId(id);
 
-        if (!"ATIVO".equals(emprestimo.getStatus())) {
-            throw new ExcecaoNegocioException("Empréstimo não está ativo e não pode ser renovado");
-        }
-
         if (emprestimo.estaAtrasado()) {
             throw new ExcecaoNegocioException("Empréstimo está atrasado e não pode ser renovado");
         }
 
-        emprestimo.setDataDeVolucaoPrevista(emprestimo.getDataDeVolucaoPrevista().plusDays(DIAS_EMPRESTIMO_PADRAO));
+        if (!"ATIVO".equals(emprestimo.getStatus())) {
+            throw new ExcecaoNegocioException("Empréstimo não está ativo e não pode ser renovado");
+        }
+
+        LocalDate vencimentoAnterior = emprestimo.getDataDeVolucaoPrevista();
+        emprestimo.setDataDeVolucaoPrevista(vencimentoAnterior.plusDays(DIAS_EMPRESTIMO_PADRAO));
         emprestimo.setDataAtualizacao(LocalDateTime.now());
 
         Emprestimo emprestimoAtualizado = emprestimoRepository.save(emprestimo);
-        log.info("Empréstimo renovado com sucesso: ID {}", emprestimoAtualizado.getId());
+        indiceElegibilidade.registrarRenovacaoAposCommit(
+                emprestimo.getUsuario().getId(), id, emprestimo.getDataDeVolucaoPrevista());
+        eventos.publishEvent(new EmprestimoRenovadoEvento(id, emprestimo.getLivro().getId(),
+                emprestimo.getUsuario().getId(), emprestimo.getDataDeVolucaoPrevista()));
+        versaoDados.registrarAlteracaoAposCommit(Dominio.EMPRESTIMOS);
+        log.debug("Empréstimo renovado com sucesso: ID {}", emprestimoAtualizado.getId());
         return emprestimoAtualizado;
     }
 
@@ -134,7 +202,7 @@ public class EmprestimoService {
     }
 
     /**
-     * Lista empréstimos ativos com paginação
+     * Lista empréstimos ativos (no prazo) com paginação; os vencidos são listados em atrasados
      */
     @Transactional(readOnly = true)
     public Page<Emprestimo> listarAtivos(Pageable pageable) {
@@ -161,7 +229,7 @@ public class EmprestimoService {
     }
 
     /**
-     * Lista empréstimos atrasados
+     * Lista empréstimos atrasados (status ATRASADO)
      */
     @Transactional(readOnly = true)
     public Page<Emprestimo> listarAtrasados(Pageable pageable) {
@@ -178,6 +246,57 @@ public class EmprestimoService {
         return emprestimoRepository.findByDataEmprestimoEntre(dataInicio, dataFim, pageable);
     }
 
+    /**
+     * Lista empréstimos ativos por cursor (sem contagem total)
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursor<Emprestimo> listarAtivosPorCursor(String cursor, int tamanho) {
+        CursorEmprestimo posicao = CursorEmprestimo.decodificar(cursor);
+        return paginaCursor(emprestimoRepository.buscarPorStatusAposCursor(
+                "ATIVO", posicao.dataEmprestimo(), posicao.id(), primeiraPagina(tamanho)));
+    }
+
+    /**
+     * Lista empréstimos atrasados por cursor (sem contagem total)
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursor<Emprestimo> listarAtrasadosPorCursor(String cursor, int tamanho) {
+        CursorEmprestimo posicao = CursorEmprestimo.decodificar(cursor);
+        return paginaCursor(emprestimoRepository.buscarPorStatusAposCursor(
+                "ATRASADO", posicao.dataEmprestimo(), posicao.id(), primeiraPagina(tamanho)));
+    }
+
+    /**
+     * Lista empréstimos de um usuário por cursor (sem contagem total)
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursor<Emprestimo> listarPorUsuarioPorCursor(Long usuarioId, String status, String cursor, int tamanho) {
+        CursorEmprestimo posicao = CursorEmprestimo.decodificar(cursor);
+        return paginaCursor(emprestimoRepository.buscarPorUsuarioAposCursor(
+                usuarioId, status, posicao.dataEmprestimo(), posicao.id(), primeiraPagina(tamanho)));
+    }
+
+    /**
+     * Lista empréstimos de um livro por cursor (sem contagem total)
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursor<Emprestimo> listarPorLivroPorCursor(Long livroId, String cursor, int tamanho) {
+        CursorEmprestimo posicao = CursorEmprestimo.decodificar(cursor);
+        return paginaCursor(emprestimoRepository.buscarPorLivroAposCursor(
+                livroId, posicao.dataEmprestimo(), posicao.id(), primeiraPagina(tamanho)));
+    }
+
+    /**
+     * Lista empréstimos entre datas por cursor (sem contagem total)
+     */
+    @Transactional(readOnly = true)
+    public PaginaCursor<Emprestimo> listarPorPeriodoPorCursor(LocalDate dataInicio, LocalDate dataFim,
+                                                              String cursor, int tamanho) {
+        CursorEmprestimo posicao = CursorEmprestimo.decodificar(cursor);
+        return paginaCursor(emprestimoRepository.buscarPorPeriodoAposCursor(
+                dataInicio, dataFim, posicao.dataEmprestimo(), posicao.id(), primeiraPagina(tamanho)));
+    }
+
     /**
      * Obtém histórico de empréstimos de um usuário
      */
@@ -189,7 +308,7 @@ public class EmprestimoService {
     }
 
     /**
-     * Obtém empréstimos ativos de um usuário
+     * Obtém empréstimos em aberto (ativos e atrasados) de um usuário
      */
     @Transactional(readOnly = true)
     public List<Emprestimo> obterEmprestimosAtivosDoUsuario(Long usuarioId) {
@@ -204,38 +323,30 @@ public class EmprestimoService {
         log.info("Deletando empréstimo com ID: {}", id);
         Emprestimo emprestimo = buscarPorId(id);
         emprestimoRepository.delete(emprestimo);
+        eventos.publishEvent(new EmprestimoRemovidoEvento(id, emprestimo.getLivro().getId(),
+                emprestimo.getUsuario().getId(), emprestimo.getDataEmprestimo(), emprestimo.getStatus()));
+        if (emprestimo.estaEmAberto()) {
+            indiceElegibilidade.registrarEncerramento(emprestimo.getUsuario().getId(), id);
+        }
+        versaoDados.registrarAlteracaoAposCommit(Dominio.EMPRESTIMOS);
         log.info("Empréstimo deletado com sucesso: ID {}", id);
     }
 
     /**
-     * Valida se um empréstimo pode ser realizado
+     * Página inicial do tamanho pedido; a posição vem do cursor, não do offset
      */
-    private void validarEmprestimo(Livro livro, Usuario usuario) {
-        // Valida se o usuário está ativo
-        if (!usuario.getAtivo()) {
-            throw new ExcecaoNegocioException("Usuário não está ativo");
-        }
-
-        // Valida se há cópias disponíveis
-        if (livro.getCopiasDisponiveis() <= 0) {
-            throw new ExcecaoNegocioException("Sem cópias disponíveis do livro");
-        }
-
-        // Valida limite de empréstimos do usuário
-        Long emprestimosAtivos = emprestimoRepository.countByUsuarioIdAndStatus(usuario.getId(), "ATIVO");
-        if (emprestimosAtivos >= usuario.getLimiteEmprestimos()) {
-            throw new ExcecaoNegocioException("Usuário atingiu o limite de empréstimos simultâneos");
+    private static Pageable primeiraPagina(int tamanho) {
+        if (tamanho < 1 || tamanho > TAMANHO_MAXIMO_PAGINA_CURSOR) {
+            throw new ExcecaoNegocioException("Tamanho da página deve estar entre 1 e " + TAMANHO_MAXIMO_PAGINA_CURSOR);
         }
+        return PageRequest.ofSize(tamanho);
+    }
 
-        // Valida se o usuário tem empréstimos atrasados
-        Page<Emprestimo> emprestimoAtrasado = emprestimoRepository.buscarEmprestimosAtrasados(
-                org.springframework.data.domain.PageRequest.of(0, 1)
-        );
-        if (emprestimoAtrasado.hasContent()) {
-            Emprestimo atrasado = emprestimoAtrasado.getContent().get(0);
-            if (atrasado.getUsuario().getId().equals(usuario.getId())) {
-                throw new ExcecaoNegocioException("Usuário possui empréstimo em atraso");
-            }
-        }
+    private static PaginaCursor<Emprestimo> paginaCursor(Slice<Emprestimo> fatia) {
+        List<Emprestimo> conteudo = fatia.getContent();
+        String proximoCursor = fatia.hasNext()
+                ? CursorEmprestimo.depoisDe(conteudo.get(conteudo.size() - 1)).codificar()
+                : null;
+        return new PaginaCursor<>(conteudo, proximoCursor, fatia.hasNext());
     }
 }
@@ -0,0 +1,253 @@
+package com.biblioteca.service;
+
+import com.biblioteca.entity.EstatisticaCategoria;
+import com.biblioteca.entity.Livro;
+import com.biblioteca.repository.EstatisticaCategoriaRepository;
+import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.repository.projecao.CategoriaDoLivro;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.jdbc.DatabaseDriver;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Serviço que mantém as estatísticas por categoria (tabela estatisticas_categoria)
+ *
+ * Inclusões, alterações e exclusões de livros ajustam a categoria na mesma transação
+ * da operação. Variações de estoque (empréstimos e devoluções) são acumuladas em memória
+ * por livro após o commit e consolidadas só pelo agendamento, para que o checkout não
+ * dispute a linha da categoria. {@link #reconstruir()} recalcula tudo a partir da tabela
+ * de livros.
+ */
+@Service
+@Slf4j
+public class EstatisticaCategoriaService {
+
+    private static final int IDS_POR_CONSULTA = 500;
+
+    private final EstatisticaCategoriaRepository estatisticaRepository;
+    private final LivroRepository livroRepository;
+    private final VersaoDados versaoDados;
+    private final TransactionTemplate transacaoIsolada;
+    private final boolean bancoPostgres;
+
+    /**
+     * Variações de cópias disponíveis já confirmadas e ainda não consolidadas, por livro
+     */
+    private final ConcurrentHashMap<Long, Integer> variacoesPendentes = new ConcurrentHashMap<>();
+
+    /**
+     * Impede a reconstrução enquanto houver variação confirmada no banco e ainda não acumulada,
+     * ou consolidação em andamento
+     * Sem ela, uma variação confirmada antes do recálculo, mas acumulada depois de a reconstrução
+     * limpar as pendentes, seria contada duas vezes: pelo recálculo e pela consolidação seguinte.
+     * O mesmo vale para uma consolidação que retirou as pendentes antes da limpeza e soma depois.
+     */
+    private final ReadWriteLock reconstrucao = new ReentrantReadWriteLock();
+
+    public EstatisticaCategoriaService(EstatisticaCategoriaRepository estatisticaRepository,
+                                       LivroRepository livroRepository,
+                                       VersaoDados versaoDados,
+                                       PlatformTransactionManager transactionManager,
+                                       @Value("${spring.datasource.url}") String urlBanco) {
+        this.estatisticaRepository = estatisticaRepository;
+        this.livroRepository = livroRepository;
+        this.versaoDados = versaoDados;
+        this.transacaoIsolada = new TransactionTemplate(transactionManager);
+        this.transacaoIsolada.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        // Mesmo critério do {vendor} das migrações do Flyway
+        this.bancoPostgres = DatabaseDriver.fromJdbcUrl(urlBanco) == DatabaseDriver.POSTGRESQL;
+    }
+
+    /**
+     * Soma um livro recém-criado à sua categoria
+     */
+    public void registrarInclusao(Livro livro) {
+        somar(livro.getCategoria(), 1, livro.getCopiasTotais(), livro.getCopiasDisponiveis());
+    }
+
+    /**
+     * Move os valores anteriores do livro para os novos (a categoria pode ter mudado)
+     * @param copiasDisponiveisAnteriores valor lido do banco, que já inclui as variações pendentes
+     */
+    public void registrarAlteracao(String categoriaAnterior, int copiasTotaisAnteriores,
+                                   int copiasDisponiveisAnteriores, Livro livro) {
+        int pendente = retirarPendente(livro.getId());
+        somar(categoriaAnterior, -1, -copiasTotaisAnteriores, pendente - copiasDisponiveisAnteriores);
+        somar(livro.getCategoria(), 1, livro.getCopiasTotais(), livro.getCopiasDisponiveis());
+    }
+
+    /**
+     * Retira um livro excluído da sua categoria
+     */
+    public void registrarExclusao(Livro livro) {
+        int pendente = retirarPendente(livro.getId());
+        somar(livro.getCategoria(), -1, -livro.getCopiasTotais(), pendente - livro.getCopiasDisponiveis());
+    }
+
+    /**
+     * Acumula uma variação de cópias disponíveis do livro após o commit da transação corrente
+     */
+    public void registrarVariacaoEstoqueAposCommit(Long livroId, int variacao) {
+        SincronizacaoTransacao.aposCommitComTrava(reconstrucao.readLock(), () -> acumular(livroId, variacao));
+    }
+
+    /**
+     * Lista as categorias com livros
+     * O estoque pode estar até um intervalo de consolidação atrás: consolidar aqui abriria uma
+     * segunda transação (REQUIRES_NEW) dentro da transação somente leitura do relatório, e cada
+     * leitura prenderia duas conexões do pool.
+     */
+    public List<EstatisticaCategoria> listar() {
+        return estatisticaRepository.listarComLivros();
+    }
+
+    /**
+     * Grava nas categorias as variações de estoque acumuladas em memória
+     */
+    @Scheduled(fixedDelayString = "${biblioteca.estatisticas.intervalo-consolidacao-ms:5000}")
+    public void consolidarPendentes() {
+        if (variacoesPendentes.isEmpty()) {
+            return;
+        }
+        reconstrucao.readLock().lock();
+        try {
+            consolidar();
+        } finally {
+            reconstrucao.readLock().unlock();
+        }
+    }
+
+    private void consolidar() {
+        Map<Long, Integer> retiradas = new HashMap<>();
+        for (Long livroId : variacoesPendentes.keySet()) {
+            Integer variacao = variacoesPendentes.remove(livroId);
+            if (variacao != null) {
+                retiradas.put(livroId, variacao);
+            }
+        }
+        if (retiradas.isEmpty()) {
+            return;
+        }
+
+        try {
+            transacaoIsolada.executeWithoutResult(status -> {
+                Map<String, Long> porCategoria = new HashMap<>();
+                List<Long> ids = new ArrayList<>(retiradas.keySet());
+                for (int inicio = 0; inicio < ids.size(); inicio += IDS_POR_CONSULTA) {
+                    List<Long> lote = ids.subList(inicio, Math.min(inicio + IDS_POR_CONSULTA, ids.size()));
+                    for (CategoriaDoLivro livro : livroRepository.buscarCategorias(lote)) {
+                        porCategoria.merge(normalizar(livro.getCategoria()), (long) retiradas.get(livro.getId()), Long::sum);
+                    }
+                }
+                boolean alterou = false;
+                for (Map.Entry<String, Long> categoria : porCategoria.entrySet()) {
+                    if (categoria.getValue() != 0) {
+                        somar(categoria.getKey(), 0, 0, categoria.getValue());
+                        alterou = true;
+                    }
+                }
+                if (alterou) {
+                    // Relatórios calculados entre o checkout e esta consolidação ficam em cache sob a
+                    // versão atual; sem a nova versão, continuariam servindo o estoque anterior
+                    versaoDados.registrarAlteracaoAposCommit(VersaoDados.Dominio.LIVROS);
+                }
+                log.debug("Consolidadas variações de estoque de {} livro(s) em {} categoria(s)",
+                        retiradas.size(), porCategoria.size());
+            });
+        } catch (RuntimeException e) {
+            retiradas.forEach(this::acumular);
+            throw e;
+        }
+    }
+
+    /**
+     * Recalcula todas as categorias a partir da tabela de livros
+     * @return quantidade de categorias gravadas
+     */
+    public int reconstruir() {
+        Integer categorias;
+        reconstrucao.writeLock().lock();
+        try {
+            categorias = transacaoIsolada.execute(status -> {
+                // O recálculo lê o estoque do banco, que já contém as variações pendentes; as
+                // confirmadas depois dele só são acumuladas depois que a trava for liberada
+                variacoesPendentes.clear();
+                estatisticaRepository.removerTodas();
+                int gravadas = estatisticaRepository.recalcularTodas(LocalDateTime.now());
+                versaoDados.registrarAlteracaoAposCommit(VersaoDados.Dominio.LIVROS);
+                return gravadas;
+            });
+        } finally {
+            reconstrucao.writeLock().unlock();
+        }
+        log.info("Estatísticas por categoria reconstruídas: {} categoria(s)", categorias);
+        return categorias != null ? categorias : 0;
+    }
+
+    /**
+     * Reconstrói as estatísticas ao iniciar a aplicação
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reconstruirAoIniciar() {
+        reconstruir();
+    }
+
+    private void somar(String categoria, long livros, long copiasTotais, long copiasDisponiveis) {
+        String chave = normalizar(categoria);
+        LocalDateTime agora = LocalDateTime.now();
+        if (estatisticaRepository.somar(chave, livros, copiasTotais, copiasDisponiveis, agora) == 0) {
+            garantirCategoria(chave, agora);
+            estatisticaRepository.somar(chave, livros, copiasTotais, copiasDisponiveis, agora);
+        }
+    }
+
+    /**
+     * Cria a linha zerada da categoria na transação de quem chamou, se ainda não existir
+     * Uma transação própria prenderia uma segunda conexão do pool durante a de quem chamou.
+     * No PostgreSQL, a criação simultânea da mesma categoria espera a outra transação e não
+     * gera erro; no H2, banco de desenvolvimento, ela ainda pode falhar por chave duplicada.
+     */
+    private void garantirCategoria(String categoria, LocalDateTime agora) {
+        if (bancoPostgres) {
+            estatisticaRepository.criarSeAusentePostgres(categoria, agora);
+        } else {
+            estatisticaRepository.criarSeAusenteH2(categoria, agora);
+        }
+    }
+
+    /**
+     * Retira a variação pendente do livro, devolvendo-a se a transação sofrer rollback
+     */
+    private int retirarPendente(Long livroId) {
+        Integer pendente = variacoesPendentes.remove(livroId);
+        if (pendente == null) {
+            return 0;
+        }
+        SincronizacaoTransacao.aposRollback(() -> acumular(livroId, pendente));
+        return pendente;
+    }
+
+    private void acumular(Long livroId, int variacao) {
+        variacoesPendentes.merge(livroId, variacao, (atual, nova) -> atual + nova == 0 ? null : atual + nova);
+    }
+
+    private static String normalizar(String categoria) {
+        return categoria != null ? categoria : EstatisticaCategoriaRepository.SEM_CATEGORIA;
+    }
+}
@@ -0,0 +1,190 @@
+package com.biblioteca.service;
+
+import com.biblioteca.repository.ReservaRepository;
+import com.biblioteca.repository.projecao.EsperaReservaLinha;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Filas em memória das reservas de cada livro, em ordem de chegada
+ *
+ * Cada livro com reservas tem uma fila ({@link ArrayDeque}: entrada no fim e retirada do
+ * início em O(1)) e o conjunto dos usuários que aguardam, que recusa a segunda reserva do
+ * mesmo usuário sem consultar o banco. Livros sem fila não ocupam memória, então a devolução
+ * de um título sem reservas custa uma consulta ao mapa.
+ *
+ * A tabela reservas é a cópia persistente: as reservas em AGUARDANDO são recarregadas na
+ * inicialização. Novas reservas entram na fila após o commit; a retirada feita por uma
+ * devolução volta ao início da fila se a transação sofrer rollback. Cancelamentos são
+ * aplicados após o commit e percorrem a fila do livro (O(tamanho da fila)).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class FilaReservas {
+
+    private final ReservaRepository reservaRepository;
+
+    private final ConcurrentHashMap<Long, Fila> filas = new ConcurrentHashMap<>();
+
+    /**
+     * Marca o usuário como aguardando o livro, se ainda não estiver (desfeito em caso de rollback)
+     * @return false se o usuário já aguarda o livro
+     */
+    public boolean reservarLugar(Long livroId, Long usuarioId) {
+        Fila fila = filas.computeIfAbsent(livroId, id -> new Fila());
+        synchronized (fila) {
+            if (!fila.usuarios.add(usuarioId)) {
+                return false;
+            }
+        }
+        SincronizacaoTransacao.aposRollback(() -> {
+            synchronized (fila) {
+                fila.usuarios.remove(usuarioId);
+            }
+        });
+        return true;
+    }
+
+    /**
+     * Coloca a reserva no fim da fila do livro após o commit da transação corrente
+     */
+    public void enfileirarAposCommit(Long livroId, Long reservaId, Long usuarioId) {
+        SincronizacaoTransacao.aposCommit(() -> {
+            Fila fila = filas.computeIfAbsent(livroId, id -> new Fila());
+            synchronized (fila) {
+                fila.usuarios.add(usuarioId);
+                fila.esperas.addLast(new Espera(reservaId, usuarioId));
+            }
+        });
+    }
+
+    /**
+     * Retira a primeira reserva da fila do livro (volta ao início se a transação sofrer rollback)
+     * @return a reserva retirada, ou null se ninguém aguarda o livro
+     */
+    public Espera retirar(Long livroId) {
+        Fila fila = filas.get(livroId);
+        if (fila == null) {
+            return null;
+        }
+        Espera espera;
+        synchronized (fila) {
+            espera = fila.esperas.pollFirst();
+            if (espera == null) {
+                return null;
+            }
+            fila.usuarios.remove(espera.usuarioId());
+        }
+        SincronizacaoTransacao.aposRollback(() -> {
+            synchronized (fila) {
+                fila.usuarios.add(espera.usuarioId());
+                fila.esperas.addFirst(espera);
+            }
+        });
+        return espera;
+    }
+
+    /**
+     * Tira a reserva da fila do livro após o commit da transação corrente (cancelamento)
+     */
+    public void removerAposCommit(Long livroId, Long reservaId, Long usuarioId) {
+        SincronizacaoTransacao.aposCommit(() -> {
+            Fila fila = filas.get(livroId);
+            if (fila == null) {
+                return;
+            }
+            synchronized (fila) {
+                if (fila.esperas.removeIf(espera -> espera.reservaId().equals(reservaId))) {
+                    fila.usuarios.remove(usuarioId);
+                }
+            }
+        });
+    }
+
+    /**
+     * Indica se alguma reserva aguarda o livro
+     */
+    public boolean temEspera(Long livroId) {
+        Fila fila = filas.get(livroId);
+        if (fila == null) {
+            return false;
+        }
+        synchronized (fila) {
+            return !fila.esperas.isEmpty();
+        }
+    }
+
+    /**
+     * Posição da reserva na fila do livro, a partir de 1
+     * @return a posição, ou null se a reserva não está na fila
+     */
+    public Integer posicao(Long livroId, Long reservaId) {
+        Fila fila = filas.get(livroId);
+        if (fila == null) {
+            return null;
+        }
+        synchronized (fila) {
+            int posicao = 1;
+            for (Espera espera : fila.esperas) {
+                if (espera.reservaId().equals(reservaId)) {
+                    return posicao;
+                }
+                posicao++;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reservas que aguardam o livro, na ordem da fila
+     */
+    public List<Espera> listar(Long livroId) {
+        Fila fila = filas.get(livroId);
+        if (fila == null) {
+            return List.of();
+        }
+        synchronized (fila) {
+            return new ArrayList<>(fila.esperas);
+        }
+    }
+
+    /**
+     * Recarrega todas as filas a partir das reservas em AGUARDANDO
+     */
+    @PostConstruct
+    public void carregar() {
+        filas.clear();
+        int reservas = 0;
+        for (EsperaReservaLinha linha : reservaRepository.buscarEsperas()) {
+            Fila fila = filas.computeIfAbsent(linha.getLivroId(), id -> new Fila());
+            fila.usuarios.add(linha.getUsuarioId());
+            fila.esperas.addLast(new Espera(linha.getId(), linha.getUsuarioId()));
+            reservas++;
+        }
+        log.info("Filas de reservas carregadas: {} reserva(s) em {} livro(s)", reservas, filas.size());
+    }
+
+    /**
+     * Reserva que aguarda na fila de um livro
+     */
+    public record Espera(Long reservaId, Long usuarioId) {
+    }
+
+    /**
+     * Fila de um livro e os usuários que nela aguardam (ou têm reserva em gravação)
+     */
+    private static final class Fila {
+        private final ArrayDeque<Espera> esperas = new ArrayDeque<>();
+        private final Set<Long> usuarios = new HashSet<>();
+    }
+}
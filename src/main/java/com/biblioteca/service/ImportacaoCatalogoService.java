@@ -0,0 +1,413 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.LivroDTO;
+import com.biblioteca.dto.ResultadoImportacaoCatalogo;
+import com.biblioteca.entity.Livro;
+import com.biblioteca.exception.ExcecaoNegocioException;
+import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.repository.projecao.LivroIsbnLinha;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Importação de catálogo em massa (CSV ou NDJSON) em três estágios encadeados por filas limitadas,
+ * cada um numa thread virtual:
+ * <ol>
+ *   <li>leitura: interpreta o arquivo em streaming, sem carregá-lo inteiro</li>
+ *   <li>validação: aplica as regras do {@link LivroDTO} e descarta ISBNs repetidos no arquivo</li>
+ *   <li>gravação: grava lotes de {@code biblioteca.importacao.tamanho-lote} linhas, cada lote em sua transação</li>
+ * </ol>
+ * Os ISBNs já cadastrados são carregados uma única vez: ISBN novo vira INSERT (agrupado pelo
+ * {@code hibernate.jdbc.batch_size}) e ISBN existente atualiza título, autor, descrição e categoria.
+ * O estoque de livros já cadastrados não é alterado pela importação.
+ */
+@Service
+@Slf4j
+public class ImportacaoCatalogoService {
+
+    /**
+     * Formatos aceitos na importação
+     */
+    public enum Formato { CSV, NDJSON }
+
+    static final int MAXIMO_ERROS_DETALHADOS = 100;
+
+    private static final int CAPACIDADE_FILA_LINHAS = 10_000;
+    private static final int CAPACIDADE_FILA_LOTES = 4;
+    private static final Linha FIM_LINHAS = new Linha(-1, null, null);
+    private static final List<String> COLUNAS_OBRIGATORIAS =
+            List.of("titulo", "autor", "isbn", "copiasdisponiveis", "copiastotais");
+
+    private final LivroRepository livroRepository;
+    private final EstatisticaCategoriaService estatisticaCategoriaService;
+    private final IndiceBuscaLivros indiceBuscaLivros;
+    private final CacheCatalogo cacheCatalogo;
+    private final VersaoDados versaoDados;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    private final TransactionTemplate transacao;
+    private final int tamanhoLote;
+
+    public ImportacaoCatalogoService(LivroRepository livroRepository,
+                                     EstatisticaCategoriaService estatisticaCategoriaService,
+                                     IndiceBuscaLivros indiceBuscaLivros,
+                                     CacheCatalogo cacheCatalogo,
+                                     VersaoDados versaoDados,
+                                     Validator validator,
+                                     ObjectMapper objectMapper,
+                                     PlatformTransactionManager transactionManager,
+                                     @Value("${biblioteca.importacao.tamanho-lote:1000}") int tamanhoLote) {
+        this.livroRepository = livroRepository;
+        this.estatisticaCategoriaService = estatisticaCategoriaService;
+        this.indiceBuscaLivros = indiceBuscaLivros;
+        this.cacheCatalogo = cacheCatalogo;
+        this.versaoDados = versaoDados;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    /**
+     * Importa o catálogo lido da entrada
+     * @throws ExcecaoNegocioException se o cabeçalho do CSV não tiver as colunas obrigatórias
+     */
+    public ResultadoImportacaoCatalogo importar(InputStream entrada, Formato formato) {
+        long inicio = System.nanoTime();
+        BufferedReader leitor = new BufferedReader(new InputStreamReader(entrada, StandardCharsets.UTF_8));
+        Leitura leitura;
+        try {
+            leitura = formato == Formato.CSV ? leituraCsv(leitor) : leituraNdjson(leitor);
+        } catch (IOException e) {
+            throw new ExcecaoNegocioException("Não foi possível ler o arquivo: " + e.getMessage());
+        }
+
+        Importacao importacao = new Importacao(new HashSet<>(livroRepository.listarIsbns()));
+        log.info("Importação de catálogo ({}) iniciada; {} ISBN(s) já cadastrados", formato, importacao.existentes.size());
+
+        BlockingQueue<Linha> linhas = new ArrayBlockingQueue<>(CAPACIDADE_FILA_LINHAS);
+        BlockingQueue<List<Linha>> lotes = new ArrayBlockingQueue<>(CAPACIDADE_FILA_LOTES);
+        try (ExecutorService estagios = Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("importacao-catalogo-", 0).factory())) {
+            estagios.submit(() -> ler(leitura, leitor, linhas, importacao));
+            estagios.submit(() -> validar(linhas, lotes, importacao));
+            estagios.submit(() -> gravar(lotes, importacao));
+        }
+
+        if (importacao.inseridos.get() + importacao.atualizados.get() > 0) {
+            estatisticaCategoriaService.reconstruir();
+        }
+
+        long duracaoNanos = System.nanoTime() - inicio;
+        long lidas = importacao.linhasLidas.get();
+        double linhasPorSegundo = duracaoNanos > 0 ? lidas * 1_000_000_000.0 / duracaoNanos : 0;
+        log.info("Importação de catálogo concluída: {} linha(s), {} inserido(s), {} atualizado(s), {} recusada(s) em {} ms ({} linhas/s)",
+                lidas, importacao.inseridos.get(), importacao.atualizados.get(), importacao.rejeitados.get(),
+                duracaoNanos / 1_000_000, Math.round(linhasPorSegundo));
+        return new ResultadoImportacaoCatalogo(lidas, importacao.inseridos.get(), importacao.atualizados.get(),
+                importacao.rejeitados.get(), duracaoNanos / 1_000_000, Math.round(linhasPorSegundo * 10) / 10.0,
+                List.copyOf(importacao.erros));
+    }
+
+    /**
+     * Estágio 1: lê o arquivo e publica as linhas interpretadas
+     */
+    private void ler(Leitura leitura, BufferedReader leitor, BlockingQueue<Linha> linhas, Importacao importacao) {
+        try (leitor) {
+            leitura.publicar(linhas);
+        } catch (IOException | RuntimeException e) {
+            log.warn("Leitura do catálogo interrompida: {}", e.getMessage());
+            importacao.registrarErro(new ResultadoImportacaoCatalogo.Erro(0, null, "Leitura interrompida: " + e.getMessage()));
+        } finally {
+            colocar(linhas, FIM_LINHAS);
+        }
+    }
+
+    private Leitura leituraCsv(BufferedReader leitor) throws IOException {
+        LeitorCsv csv = new LeitorCsv(leitor);
+        List<String> cabecalho = csv.proximoRegistro();
+        if (cabecalho == null) {
+            throw new ExcecaoNegocioException("Arquivo CSV vazio");
+        }
+        Map<String, Integer> colunas = new HashMap<>();
+        for (int i = 0; i < cabecalho.size(); i++) {
+            String nome = cabecalho.get(i).replace("\uFEFF", "");
+            colunas.put(IndiceBuscaLivros.normalizar(nome).replace(" ", ""), i);
+        }
+        List<String> ausentes = COLUNAS_OBRIGATORIAS.stream().filter(c -> !colunas.containsKey(c)).toList();
+        if (!ausentes.isEmpty()) {
+            throw new ExcecaoNegocioException("Colunas obrigatórias ausentes no cabeçalho do CSV: " + ausentes);
+        }
+
+        return linhas -> {
+            for (List<String> campos = csv.proximoRegistro(); campos != null; campos = csv.proximoRegistro()) {
+                colocar(linhas, paraLinha(csv.getLinhaDoRegistro(), campos, colunas));
+            }
+        };
+    }
+
+    private static Linha paraLinha(long numero, List<String> campos, Map<String, Integer> colunas) {
+        LivroDTO dto = LivroDTO.builder()
+                .titulo(campo(campos, colunas, "titulo"))
+                .autor(campo(campos, colunas, "autor"))
+                .isbn(campo(campos, colunas, "isbn"))
+                .descricao(campo(campos, colunas, "descricao"))
+                .categoria(campo(campos, colunas, "categoria"))
+                .build();
+        try {
+            dto.setCopiasDisponiveis(inteiro(campo(campos, colunas, "copiasdisponiveis")));
+            dto.setCopiasTotais(inteiro(campo(campos, colunas, "copiastotais")));
+        } catch (NumberFormatException e) {
+            return new Linha(numero, dto, "Número de cópias inválido");
+        }
+        return new Linha(numero, dto, null);
+    }
+
+    private Leitura leituraNdjson(BufferedReader leitor) {
+        return linhas -> {
+            long numero = 0;
+            for (String texto = leitor.readLine(); texto != null; texto = leitor.readLine()) {
+                numero++;
+                if (texto.isBlank()) {
+                    continue;
+                }
+                try {
+                    LivroDTO dto = objectMapper.readValue(texto, LivroDTO.class);
+                    colocar(linhas, new Linha(numero, dto, dto == null ? "Linha sem objeto JSON" : null));
+                } catch (JsonProcessingException e) {
+                    colocar(linhas, new Linha(numero, null, "JSON inválido: " + e.getOriginalMessage()));
+                }
+            }
+        };
+    }
+
+    /**
+     * Estágio 2: valida as linhas, descarta ISBNs repetidos no arquivo e agrupa em lotes
+     */
+    private void validar(BlockingQueue<Linha> linhas, BlockingQueue<List<Linha>> lotes, Importacao importacao) {
+        Set<String> vistos = new HashSet<>();
+        List<Linha> lote = new ArrayList<>(tamanhoLote);
+        try {
+            for (Linha linha = retirar(linhas); linha != FIM_LINHAS; linha = retirar(linhas)) {
+                importacao.linhasLidas.incrementAndGet();
+                String erro;
+                try {
+                    erro = linha.erro() != null ? linha.erro() : validar(linha.dto());
+                } catch (RuntimeException e) {
+                    erro = "Linha inválida: " + e.getMessage();
+                }
+                if (erro == null && !vistos.add(linha.dto().getIsbn())) {
+                    erro = "ISBN repetido no arquivo";
+                }
+                if (erro != null) {
+                    importacao.rejeitar(linha, erro);
+                    continue;
+                }
+                lote.add(linha);
+                if (lote.size() == tamanhoLote) {
+                    colocar(lotes, lote);
+                    lote = new ArrayList<>(tamanhoLote);
+                }
+            }
+            if (!lote.isEmpty()) {
+                colocar(lotes, lote);
+            }
+        } finally {
+            // Lote vazio sinaliza o fim para o estágio de gravação
+            colocar(lotes, List.of());
+        }
+    }
+
+    private String validar(LivroDTO dto) {
+        Set<ConstraintViolation<LivroDTO>> violacoes = validator.validate(dto);
+        if (!violacoes.isEmpty()) {
+            return violacoes.stream().map(ConstraintViolation::getMessage).sorted().collect(Collectors.joining("; "));
+        }
+        if (dto.getCopiasDisponiveis() > dto.getCopiasTotais()) {
+            return "Cópias disponíveis não pode ser maior que cópias totais";
+        }
+        return null;
+    }
+
+    /**
+     * Estágio 3: grava cada lote em sua própria transação
+     */
+    private void gravar(BlockingQueue<List<Linha>> lotes, Importacao importacao) {
+        for (List<Linha> lote = retirar(lotes); !lote.isEmpty(); lote = retirar(lotes)) {
+            List<Linha> atual = lote;
+            try {
+                Integer atualizados = transacao.execute(status -> gravarLote(atual, importacao.existentes));
+                int totalAtualizados = atualizados != null ? atualizados : 0;
+                importacao.atualizados.addAndGet(totalAtualizados);
+                importacao.inseridos.addAndGet(atual.size() - totalAtualizados);
+                log.debug("Lote de {} livro(s) gravado na importação de catálogo", atual.size());
+            } catch (RuntimeException e) {
+                // Ex.: ISBN cadastrado por outra requisição depois da carga inicial
+                log.warn("Lote da importação recusado pelo banco (linhas {} a {}): {}",
+                        atual.get(0).numero(), atual.get(atual.size() - 1).numero(), e.getMessage());
+                for (Linha linha : atual) {
+                    importacao.rejeitar(linha, "Lote recusado pelo banco");
+                }
+            }
+        }
+    }
+
+    /**
+     * Insere os ISBNs novos e atualiza os já cadastrados
+     * A atualização é um UPDATE por ISBN só das colunas de catálogo: gravar a entidade inteira
+     * sobrescreveria as cópias disponíveis e falharia na versão a cada checkout concorrente.
+     * @return quantidade de livros atualizados
+     */
+    private int gravarLote(List<Linha> lote, Set<String> existentes) {
+        LocalDateTime agora = LocalDateTime.now();
+        List<String> isbnsCadastrados = lote.stream().map(linha -> linha.dto().getIsbn()).filter(existentes::contains).toList();
+        Map<String, Long> cadastrados = isbnsCadastrados.isEmpty() ? Map.of()
+                : livroRepository.buscarIdsPorIsbn(isbnsCadastrados).stream()
+                        .collect(Collectors.toMap(LivroIsbnLinha::getIsbn, LivroIsbnLinha::getId));
+
+        List<Livro> novos = new ArrayList<>();
+        List<Livro> alterados = new ArrayList<>();
+        for (Linha linha : lote) {
+            LivroDTO dto = linha.dto();
+            Long id = cadastrados.get(dto.getIsbn());
+            if (id == null) {
+                novos.add(Livro.builder()
+                        .titulo(dto.getTitulo())
+                        .autor(dto.getAutor())
+                        .isbn(dto.getIsbn())
+                        .descricao(dto.getDescricao())
+                        .categoria(dto.getCategoria())
+                        .copiasDisponiveis(dto.getCopiasDisponiveis())
+                        .copiasTotais(dto.getCopiasTotais())
+                        .dataCriacao(agora)
+                        .dataAtualizacao(agora)
+                        .build());
+            } else {
+                livroRepository.atualizarCatalogo(dto.getIsbn(), dto.getTitulo(), dto.getAutor(),
+                        dto.getDescricao(), dto.getCategoria(), agora);
+                // Só para o índice de busca e o cache: a entidade gerenciada não é tocada
+                alterados.add(Livro.builder()
+                        .id(id)
+                        .titulo(dto.getTitulo())
+                        .autor(dto.getAutor())
+                        .isbn(dto.getIsbn())
+                        .descricao(dto.getDescricao())
+                        .categoria(dto.getCategoria())
+                        .build());
+            }
+        }
+        livroRepository.saveAll(novos);
+
+        for (Livro livro : novos) {
+            indiceBuscaLivros.indexarAposCommit(livro);
+        }
+        for (Livro livro : alterados) {
+            indiceBuscaLivros.indexarAposCommit(livro);
+        }
+        if (!alterados.isEmpty()) {
+            cacheCatalogo.removerAposCommit(CacheCatalogo.LIVROS, alterados.stream().map(Livro::getId).toArray());
+            cacheCatalogo.removerAposCommit(CacheCatalogo.LIVROS_POR_ISBN, alterados.stream().map(Livro::getIsbn).toArray());
+        }
+        versaoDados.registrarAlteracaoAposCommit(VersaoDados.Dominio.LIVROS);
+        return alterados.size();
+    }
+
+    private static String campo(List<String> campos, Map<String, Integer> colunas, String nome) {
+        Integer indice = colunas.get(nome);
+        if (indice == null || indice >= campos.size()) {
+            return null;
+        }
+        String valor = campos.get(indice).trim();
+        return valor.isEmpty() ? null : valor;
+    }
+
+    private static Integer inteiro(String valor) {
+        return valor != null ? Integer.valueOf(valor) : null;
+    }
+
+    private static <T> void colocar(BlockingQueue<T> fila, T item) {
+        try {
+            fila.put(item);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importação interrompida", e);
+        }
+    }
+
+    private static <T> T retirar(BlockingQueue<T> fila) {
+        try {
+            return fila.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Importação interrompida", e);
+        }
+    }
+
+    /**
+     * Estágio de leitura de um formato: publica cada linha do arquivo na fila
+     */
+    @FunctionalInterface
+    private interface Leitura {
+        void publicar(BlockingQueue<Linha> linhas) throws IOException;
+    }
+
+    /**
+     * Linha interpretada do arquivo (com o erro de leitura, se houver)
+     */
+    private record Linha(long numero, LivroDTO dto, String erro) {
+    }
+
+    /**
+     * Estado compartilhado pelos estágios de uma importação
+     */
+    private static final class Importacao {
+        private final Set<String> existentes;
+        private final AtomicLong linhasLidas = new AtomicLong();
+        private final AtomicLong inseridos = new AtomicLong();
+        private final AtomicLong atualizados = new AtomicLong();
+        private final AtomicLong rejeitados = new AtomicLong();
+        private final List<ResultadoImportacaoCatalogo.Erro> erros = new ArrayList<>();
+
+        private Importacao(Set<String> existentes) {
+            this.existentes = existentes;
+        }
+
+        private void rejeitar(Linha linha, String mensagem) {
+            rejeitados.incrementAndGet();
+            registrarErro(new ResultadoImportacaoCatalogo.Erro(linha.numero(),
+                    linha.dto() != null ? linha.dto().getIsbn() : null, mensagem));
+        }
+
+        private synchronized void registrarErro(ResultadoImportacaoCatalogo.Erro erro) {
+            if (erros.size() < MAXIMO_ERROS_DETALHADOS) {
+                erros.add(erro);
+            }
+        }
+    }
+}
@@ -0,0 +1,444 @@
+package com.biblioteca.service;
+
+import com.biblioteca.entity.Livro;
+import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.repository.projecao.LivroTextoLinha;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido em memória para a busca textual de livros
+ *
+ * Título, autor e categoria são quebrados em trigramas e a descrição em palavras,
+ * sempre após remover acentos e caixa ("Ação" e "acao" são equivalentes). Os filtros
+ * por título e autor continuam sendo "contém": os trigramas selecionam os candidatos e
+ * o texto normalizado confirma. A busca livre ({@code q}) ordena por semelhança de
+ * trigramas, com peso maior para título e autor, o que tolera erros de digitação.
+ *
+ * O índice é montado na inicialização e atualizado após o commit das gravações do
+ * {@link LivroService}. Com várias instâncias, a recarga periódica
+ * ({@code biblioteca.busca.recarga-cron}) incorpora as alterações feitas pelas demais.
+ *
+ * Com {@code biblioteca.busca.motor=postgres} nada é mantido em memória e a busca é
+ * delegada ao PostgreSQL (pg_trgm, unaccent e texto completo em português).
+ *
+ * Os dois motores devolvem no máximo {@code biblioteca.busca.maximo-resultados} IDs, os mais
+ * relevantes: a lista vira parâmetros de um {@code IN} quando a página é ordenada, e o
+ * PostgreSQL não aceita mais de 32.767 parâmetros por comando.
+ */
+@Component
+@Slf4j
+public class IndiceBuscaLivros {
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern NAO_ALFANUMERICO = Pattern.compile("[^a-z0-9]+");
+
+    /**
+     * Fração mínima dos trigramas da busca livre que um campo precisa conter
+     */
+    private static final double SEMELHANCA_MINIMA = 0.5;
+
+    private static final String CAMPO_TITULO = "t:";
+    private static final String CAMPO_AUTOR = "a:";
+    private static final String CAMPO_CATEGORIA = "c:";
+    private static final String CAMPO_DESCRICAO = "d:";
+
+    private final LivroRepository livroRepository;
+    private final boolean motorPostgres;
+    private final int maximoResultados;
+
+    private volatile Indice indice = new Indice();
+
+    /**
+     * Alterações aplicadas ao índice contra a troca do índice (leitura: alterações; escrita: troca)
+     */
+    private final ReadWriteLock trocaIndice = new ReentrantReadWriteLock();
+
+    /**
+     * Alterações recebidas desde o início da recarga em andamento (nulo fora de recarga)
+     */
+    private ConcurrentLinkedQueue<Alteracao> alteracoesDuranteRecarga;
+
+    public IndiceBuscaLivros(LivroRepository livroRepository,
+                             @Value("${biblioteca.busca.motor:memoria}") String motor,
+                             @Value("${biblioteca.busca.maximo-resultados:10000}") int maximoResultados) {
+        this.livroRepository = livroRepository;
+        this.motorPostgres = "postgres".equalsIgnoreCase(motor);
+        this.maximoResultados = maximoResultados;
+    }
+
+    /**
+     * Busca os IDs dos livros que atendem aos filtros, em ordem de relevância
+     * Sem busca livre, a ordem é a do ID. A lista é cortada em {@code biblioteca.busca.maximo-resultados}.
+     * @param q busca livre em título, autor, categoria e descrição (opcional)
+     * @param titulo trecho do título (opcional)
+     * @param autor trecho do autor (opcional)
+     * @param isbn ISBN exato (opcional)
+     * @param categoria categoria exata (opcional)
+     */
+    public List<Long> buscar(String q, String titulo, String autor, String isbn, String categoria) {
+        if (motorPostgres) {
+            return livroRepository.buscarIdsPorTextoPostgres(q, titulo, autor, isbn, categoria, maximoResultados);
+        }
+        Indice atual = indice;
+        String tituloNormalizado = normalizar(titulo);
+        String autorNormalizado = normalizar(autor);
+
+        Set<Long> candidatos = null;
+        if (!tituloNormalizado.isEmpty()) {
+            candidatos = intersectar(candidatos, candidatosPorTrecho(atual, CAMPO_TITULO, tituloNormalizado));
+        }
+        if (!autorNormalizado.isEmpty()) {
+            candidatos = intersectar(candidatos, candidatosPorTrecho(atual, CAMPO_AUTOR, autorNormalizado));
+        }
+
+        Map<Long, Double> relevancia = null;
+        String qNormalizado = normalizar(q);
+        if (!qNormalizado.isEmpty()) {
+            relevancia = pontuar(atual, qNormalizado);
+            candidatos = intersectar(candidatos, relevancia.keySet());
+        }
+        if (candidatos == null) {
+            candidatos = atual.documentos.keySet();
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (Long id : candidatos) {
+            Documento documento = atual.documentos.get(id);
+            if (documento != null
+                    && documento.titulo.contains(tituloNormalizado)
+                    && documento.autor.contains(autorNormalizado)
+                    && (isbn == null || isbn.equals(documento.isbn))
+                    && (categoria == null || categoria.equals(documento.categoriaOriginal))) {
+                ids.add(id);
+            }
+        }
+
+        if (relevancia != null) {
+            Map<Long, Double> pontuacao = relevancia;
+            ids.sort(Comparator.comparingDouble((Long id) -> pontuacao.get(id)).reversed()
+                    .thenComparing(Comparator.naturalOrder()));
+        } else {
+            ids.sort(Comparator.naturalOrder());
+        }
+        return ids.size() > maximoResultados ? ids.subList(0, maximoResultados) : ids;
+    }
+
+    /**
+     * Indexa (ou reindexa) o livro após o commit da transação corrente
+     */
+    public void indexarAposCommit(Livro livro) {
+        if (motorPostgres) {
+            return;
+        }
+        Documento documento = new Documento(livro.getId(), livro.getTitulo(), livro.getAutor(),
+                livro.getDescricao(), livro.getCategoria(), livro.getIsbn());
+        SincronizacaoTransacao.aposCommit(() -> aplicar(new Alteracao(livro.getId(), documento)));
+    }
+
+    /**
+     * Retira o livro do índice após o commit da transação corrente
+     */
+    public void removerAposCommit(Long livroId) {
+        if (motorPostgres) {
+            return;
+        }
+        SincronizacaoTransacao.aposCommit(() -> aplicar(new Alteracao(livroId, null)));
+    }
+
+    /**
+     * Monta o índice a partir da tabela de livros
+     * As alterações confirmadas enquanto a tabela é lida são reaplicadas ao índice novo antes da
+     * troca. Reaplicar é idempotente (indexar substitui o documento, remover o retira), então a
+     * alteração que a leitura já viu não muda o resultado.
+     */
+    @PostConstruct
+    public synchronized void carregar() {
+        if (motorPostgres) {
+            log.info("Busca de livros delegada ao PostgreSQL; índice em memória desativado");
+            return;
+        }
+        ConcurrentLinkedQueue<Alteracao> alteracoes = new ConcurrentLinkedQueue<>();
+        trocaIndice.writeLock().lock();
+        try {
+            alteracoesDuranteRecarga = alteracoes;
+        } finally {
+            trocaIndice.writeLock().unlock();
+        }
+
+        Indice novo = new Indice();
+        try {
+            for (LivroTextoLinha livro : livroRepository.listarTextos()) {
+                novo.indexar(new Documento(livro.getId(), livro.getTitulo(), livro.getAutor(),
+                        livro.getDescricao(), livro.getCategoria(), livro.getIsbn()));
+            }
+        } catch (RuntimeException e) {
+            trocaIndice.writeLock().lock();
+            try {
+                alteracoesDuranteRecarga = null;
+            } finally {
+                trocaIndice.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int reaplicadas;
+        trocaIndice.writeLock().lock();
+        try {
+            reaplicadas = alteracoes.size();
+            for (Alteracao alteracao : alteracoes) {
+                alteracao.aplicarEm(novo);
+            }
+            indice = novo;
+            alteracoesDuranteRecarga = null;
+        } finally {
+            trocaIndice.writeLock().unlock();
+        }
+        log.info("Índice de busca carregado: {} livro(s), {} termo(s), {} alteração(ões) reaplicada(s)",
+                novo.documentos.size(), novo.postagens.size(), reaplicadas);
+    }
+
+    /**
+     * Recarga periódica opcional (desativada por padrão)
+     */
+    @Scheduled(cron = "${biblioteca.busca.recarga-cron:-}")
+    public void recarregarPeriodicamente() {
+        carregar();
+    }
+
+    /**
+     * Aplica a alteração ao índice em uso e a guarda para a recarga em andamento, se houver
+     */
+    private void aplicar(Alteracao alteracao) {
+        trocaIndice.readLock().lock();
+        try {
+            alteracao.aplicarEm(indice);
+            if (alteracoesDuranteRecarga != null) {
+                alteracoesDuranteRecarga.add(alteracao);
+            }
+        } finally {
+            trocaIndice.readLock().unlock();
+        }
+    }
+
+    /**
+     * Remove acentos, converte para minúsculas e troca pontuação por espaço simples
+     */
+    static String normalizar(String texto) {
+        if (texto == null) {
+            return "";
+        }
+        String semAcentos = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        return NAO_ALFANUMERICO.matcher(semAcentos.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static Set<String> termos(Documento documento) {
+        Set<String> termos = new HashSet<>();
+        adicionarTrigramas(termos, CAMPO_TITULO, documento.titulo);
+        adicionarTrigramas(termos, CAMPO_AUTOR, documento.autor);
+        adicionarTrigramas(termos, CAMPO_CATEGORIA, documento.categoria);
+        for (String palavra : documento.descricao.split(" ")) {
+            if (!palavra.isEmpty()) {
+                termos.add(CAMPO_DESCRICAO + palavra);
+            }
+        }
+        return termos;
+    }
+
+    /**
+     * Trigramas do texto com um espaço de cada lado (palavras curtas também geram trigramas)
+     */
+    private static void adicionarTrigramas(Set<String> destino, String campo, String texto) {
+        if (texto.isEmpty()) {
+            return;
+        }
+        String preenchido = " " + texto + " ";
+        for (int i = 0; i + 3 <= preenchido.length(); i++) {
+            destino.add(campo + preenchido.substring(i, i + 3));
+        }
+    }
+
+    /**
+     * Candidatos que contêm todos os trigramas do trecho; trechos curtos percorrem os documentos
+     */
+    private static Set<Long> candidatosPorTrecho(Indice atual, String campo, String trecho) {
+        if (trecho.length() < 3) {
+            return null;
+        }
+        Set<Long> candidatos = null;
+        for (int i = 0; i + 3 <= trecho.length(); i++) {
+            Set<Long> ids = atual.postagens.get(campo + trecho.substring(i, i + 3));
+            if (ids == null) {
+                return Set.of();
+            }
+            candidatos = intersectar(candidatos, ids);
+            if (candidatos.isEmpty()) {
+                return candidatos;
+            }
+        }
+        return candidatos;
+    }
+
+    /**
+     * Pontua os livros pela fração de trigramas da busca presentes em cada campo
+     * Título pesa 3, autor 2 e categoria 1; cada palavra encontrada na descrição soma 0,5.
+     */
+    private static Map<Long, Double> pontuar(Indice atual, String q) {
+        Set<String> trigramas = new LinkedHashSet<>();
+        adicionarTrigramas(trigramas, "", q);
+
+        Map<Long, int[]> ocorrencias = new HashMap<>();
+        String[] campos = {CAMPO_TITULO, CAMPO_AUTOR, CAMPO_CATEGORIA};
+        for (int campo = 0; campo < campos.length; campo++) {
+            for (String trigrama : trigramas) {
+                Set<Long> ids = atual.postagens.get(campos[campo] + trigrama);
+                if (ids != null) {
+                    for (Long id : ids) {
+                        ocorrencias.computeIfAbsent(id, i -> new int[campos.length + 1])[campo]++;
+                    }
+                }
+            }
+        }
+        for (String palavra : q.split(" ")) {
+            Set<Long> ids = atual.postagens.get(CAMPO_DESCRICAO + palavra);
+            if (ids != null) {
+                for (Long id : ids) {
+                    ocorrencias.computeIfAbsent(id, i -> new int[campos.length + 1])[campos.length]++;
+                }
+            }
+        }
+
+        double total = trigramas.size();
+        double[] pesos = {3.0, 2.0, 1.0};
+        Map<Long, Double> relevancia = new HashMap<>();
+        ocorrencias.forEach((id, contagem) -> {
+            double melhorSemelhanca = 0;
+            double pontuacao = 0.5 * contagem[campos.length];
+            for (int campo = 0; campo < campos.length; campo++) {
+                double semelhanca = contagem[campo] / total;
+                melhorSemelhanca = Math.max(melhorSemelhanca, semelhanca);
+                if (semelhanca >= SEMELHANCA_MINIMA) {
+                    pontuacao += pesos[campo] * semelhanca;
+                }
+            }
+            if (melhorSemelhanca >= SEMELHANCA_MINIMA || contagem[campos.length] > 0) {
+                relevancia.put(id, pontuacao);
+            }
+        });
+        return relevancia;
+    }
+
+    private static Set<Long> intersectar(Set<Long> atual, Set<Long> outro) {
+        if (outro == null) {
+            return atual;
+        }
+        if (atual == null) {
+            return new HashSet<>(outro);
+        }
+        Set<Long> resultado = new HashSet<>();
+        Set<Long> menor = atual.size() <= outro.size() ? atual : outro;
+        Set<Long> maior = menor == atual ? outro : atual;
+        for (Long id : menor) {
+            if (maior.contains(id)) {
+                resultado.add(id);
+            }
+        }
+        return resultado;
+    }
+
+    /**
+     * Documentos e listas invertidas; substituídos por inteiro a cada recarga
+     */
+    private static final class Indice {
+        private final ConcurrentHashMap<Long, Documento> documentos = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<String, Set<Long>> postagens = new ConcurrentHashMap<>();
+
+        private void indexar(Documento documento) {
+            Documento anterior = documentos.put(documento.id, documento);
+            if (anterior != null) {
+                desindexarTermos(anterior);
+            }
+            // A inclusão acontece dentro do compute: fora dele, uma remoção concorrente poderia
+            // descartar o conjunto que acabou de esvaziar e levar a postagem junto
+            for (String termo : termos(documento)) {
+                postagens.compute(termo, (t, ids) -> {
+                    Set<Long> destino = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                    destino.add(documento.id);
+                    return destino;
+                });
+            }
+        }
+
+        private void remover(Long livroId) {
+            Documento anterior = documentos.remove(livroId);
+            if (anterior != null) {
+                desindexarTermos(anterior);
+            }
+        }
+
+        private void desindexarTermos(Documento documento) {
+            for (String termo : termos(documento)) {
+                postagens.computeIfPresent(termo, (t, ids) -> {
+                    ids.remove(documento.id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+    }
+
+    /**
+     * Inclusão ou edição (com o documento) ou exclusão (documento nulo) de um livro
+     */
+    private record Alteracao(Long livroId, Documento documento) {
+        private void aplicarEm(Indice destino) {
+            if (documento != null) {
+                destino.indexar(documento);
+            } else {
+                destino.remover(livroId);
+            }
+        }
+    }
+
+    /**
+     * Campos de um livro já normalizados para a busca
+     */
+    private static final class Documento {
+        private final Long id;
+        private final String titulo;
+        private final String autor;
+        private final String descricao;
+        private final String categoria;
+        private final String categoriaOriginal;
+        private final String isbn;
+
+        private Documento(Long id, String titulo, String autor, String descricao, String categoria, String isbn) {
+            this.id = Objects.requireNonNull(id);
+            this.titulo = normalizar(titulo);
+            this.autor = normalizar(autor);
+            this.descricao = normalizar(descricao);
+            this.categoria = normalizar(categoria);
+            this.categoriaOriginal = categoria;
+            this.isbn = isbn;
+        }
+    }
+}
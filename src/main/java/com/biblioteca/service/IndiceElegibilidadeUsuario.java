@@ -0,0 +1,306 @@
+package com.biblioteca.service;
+
+import com.biblioteca.exception.MotivoRejeicao;
+import com.biblioteca.exception.RecursoNaoEncontradoException;
+import com.biblioteca.repository.EmprestimoRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.repository.projecao.CadastroElegibilidade;
+import com.biblioteca.repository.projecao.VencimentoAtivoLinha;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Índice em memória da elegibilidade de cada usuário para novos empréstimos
+ *
+ * Guarda por usuário o status ativo, o limite de empréstimos simultâneos e, para cada
+ * empréstimo em aberto, o ID e a data de devolução prevista. Como o atraso é avaliado contra
+ * as datas guardadas, a virada do dia não exige recálculo. A verificação custa
+ * O(limite do usuário), independente do total de empréstimos da biblioteca.
+ *
+ * Cada usuário é carregado do banco na primeira consulta, fora de qualquer bloqueio
+ * (sem JDBC dentro de {@code computeIfAbsent}, o que fixaria a thread virtual na portadora).
+ * Reservas são desfeitas em caso de rollback; devoluções, renovações e alterações
+ * cadastrais só são aplicadas após o commit. Um contador de alterações descarta cargas
+ * que tenham concorrido com uma delas. Devolução e renovação localizam o empréstimo pelo ID:
+ * uma carga que já não vê o empréstimo devolvido não perde outro de mesmo vencimento.
+ *
+ * O índice é por instância. O limite entre instâncias é garantido pelo banco, no UPDATE
+ * condicional de {@code UsuarioRepository.contarAberturas}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class IndiceElegibilidadeUsuario {
+
+    private final UsuarioRepository usuarioRepository;
+    private final EmprestimoRepository emprestimoRepository;
+
+    private final ConcurrentHashMap<Long, Situacao> situacoes = new ConcurrentHashMap<>();
+    private final AtomicLong alteracoes = new AtomicLong();
+
+    /**
+     * Verifica se o usuário pode emprestar e, se puder, reserva a vaga do novo empréstimo
+     * A vaga recebe o ID do empréstimo por {@link Vaga#vincular(Long)} depois do INSERT.
+     * @param vencimento data de devolução prevista do novo empréstimo
+     * @param hoje data de referência para avaliar atrasos
+     * @return a vaga reservada, ou a recusa com o motivo
+     */
+    public Vaga reservar(Long usuarioId, LocalDate vencimento, LocalDate hoje) {
+        Situacao situacao = obterSituacao(usuarioId);
+        Vaga vaga;
+        synchronized (situacao) {
+            MotivoRejeicao motivo = avaliar(situacao, hoje);
+            if (motivo != null) {
+                return Vaga.recusada(motivo);
+            }
+            vaga = new Vaga(situacao, vencimento);
+            situacao.vagas.add(vaga);
+        }
+
+        SincronizacaoTransacao.aposRollback(vaga::liberar);
+        return vaga;
+    }
+
+    /**
+     * Motivo pelo qual o banco recusou um empréstimo que o índice aceitou
+     *
+     * O índice desta instância estava atrás do banco (outra instância emprestou ou o cadastro
+     * mudou). O usuário é descartado e recarregado, e o motivo vem da situação relida; se ela
+     * ainda permitir o empréstimo, a vaga foi tomada por um checkout simultâneo: limite atingido.
+     */
+    public MotivoRejeicao diagnosticarRecusa(Long usuarioId, LocalDate hoje) {
+        alteracoes.incrementAndGet();
+        situacoes.remove(usuarioId);
+        Situacao situacao = obterSituacao(usuarioId);
+        synchronized (situacao) {
+            MotivoRejeicao motivo = avaliar(situacao, hoje);
+            return motivo != null ? motivo : MotivoRejeicao.LIMITE_ATINGIDO;
+        }
+    }
+
+    /**
+     * Carrega em duas consultas os usuários ainda ausentes do índice (checkout em lote)
+     * @return os IDs informados que correspondem a usuários existentes
+     */
+    public Set<Long> carregar(Collection<Long> usuarioIds) {
+        List<Long> ausentes = usuarioIds.stream().filter(id -> !situacoes.containsKey(id)).toList();
+        if (!ausentes.isEmpty()) {
+            long geracao = alteracoes.get();
+            Map<Long, List<VencimentoAtivoLinha>> abertos = new HashMap<>();
+            for (VencimentoAtivoLinha linha : emprestimoRepository.buscarVencimentosAtivosDosUsuarios(ausentes)) {
+                abertos.computeIfAbsent(linha.getUsuarioId(), id -> new ArrayList<>()).add(linha);
+            }
+            for (CadastroElegibilidade cadastro : usuarioRepository.buscarCadastrosElegibilidade(ausentes)) {
+                instalar(cadastro.getId(), new Situacao(Boolean.TRUE.equals(cadastro.getAtivo()),
+                        cadastro.getLimite(), abertos.getOrDefault(cadastro.getId(), List.of())), geracao);
+            }
+            log.debug("{} usuário(s) carregado(s) no índice de elegibilidade em lote", ausentes.size());
+        }
+        Set<Long> existentes = new HashSet<>();
+        for (Long id : usuarioIds) {
+            if (situacoes.containsKey(id)) {
+                existentes.add(id);
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * Encerra um empréstimo em aberto do usuário (devolução ou exclusão): desconta-o do contador
+     * do usuário no banco, na transação corrente, e o remove do índice após o commit
+     */
+    public void registrarEncerramento(Long usuarioId, Long emprestimoId) {
+        usuarioRepository.contarEncerramento(usuarioId);
+        SincronizacaoTransacao.aposCommit(() -> {
+            alteracoes.incrementAndGet();
+            Situacao situacao = situacoes.get(usuarioId);
+            if (situacao != null) {
+                synchronized (situacao) {
+                    situacao.vagas.removeIf(vaga -> emprestimoId.equals(vaga.emprestimoId));
+                }
+            }
+        });
+    }
+
+    /**
+     * Substitui a data de devolução de um empréstimo renovado após o commit
+     */
+    public void registrarRenovacaoAposCommit(Long usuarioId, Long emprestimoId, LocalDate novoVencimento) {
+        SincronizacaoTransacao.aposCommit(() -> {
+            alteracoes.incrementAndGet();
+            Situacao situacao = situacoes.get(usuarioId);
+            if (situacao != null) {
+                synchronized (situacao) {
+                    for (Vaga vaga : situacao.vagas) {
+                        if (emprestimoId.equals(vaga.emprestimoId)) {
+                            vaga.vencimento = novoVencimento;
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Atualiza status ativo e limite do usuário após o commit
+     */
+    public void atualizarCadastroAposCommit(Long usuarioId, Boolean ativo, Integer limite) {
+        SincronizacaoTransacao.aposCommit(() -> {
+            alteracoes.incrementAndGet();
+            Situacao situacao = situacoes.get(usuarioId);
+            if (situacao != null) {
+                synchronized (situacao) {
+                    situacao.ativo = Boolean.TRUE.equals(ativo);
+                    situacao.limite = limite != null ? limite : 5;
+                }
+            }
+        });
+    }
+
+    /**
+     * Descarta o usuário do índice após o commit
+     */
+    public void removerAposCommit(Long usuarioId) {
+        SincronizacaoTransacao.aposCommit(() -> {
+            alteracoes.incrementAndGet();
+            situacoes.remove(usuarioId);
+        });
+    }
+
+    private static MotivoRejeicao avaliar(Situacao situacao, LocalDate hoje) {
+        if (!situacao.ativo) {
+            return MotivoRejeicao.USUARIO_INATIVO;
+        }
+        if (situacao.vagas.size() >= situacao.limite) {
+            return MotivoRejeicao.LIMITE_ATINGIDO;
+        }
+        for (Vaga vaga : situacao.vagas) {
+            if (vaga.vencimento.isBefore(hoje)) {
+                return MotivoRejeicao.EMPRESTIMO_EM_ATRASO;
+            }
+        }
+        return null;
+    }
+
+    private Situacao obterSituacao(Long usuarioId) {
+        Situacao situacao = situacoes.get(usuarioId);
+        if (situacao != null) {
+            return situacao;
+        }
+        long geracao = alteracoes.get();
+        CadastroElegibilidade cadastro = usuarioRepository.buscarCadastroElegibilidade(usuarioId)
+                .orElseThrow(() -> new RecursoNaoEncontradoException("Usuário não encontrado com ID: " + usuarioId));
+        List<VencimentoAtivoLinha> abertos = emprestimoRepository.buscarVencimentosAtivosDoUsuario(usuarioId);
+        log.debug("Usuário ID {} carregado no índice de elegibilidade com {} empréstimo(s) em aberto",
+                usuarioId, abertos.size());
+        return instalar(usuarioId, new Situacao(Boolean.TRUE.equals(cadastro.getAtivo()), cadastro.getLimite(),
+                abertos), geracao);
+    }
+
+    /**
+     * Publica a situação lida do banco, a menos que outra já tenha sido publicada; se alguma
+     * alteração foi aplicada durante a leitura, a situação é usada só por quem a leu
+     */
+    private Situacao instalar(Long usuarioId, Situacao carregada, long geracao) {
+        Situacao existente = situacoes.putIfAbsent(usuarioId, carregada);
+        if (existente != null) {
+            return existente;
+        }
+        if (alteracoes.get() != geracao) {
+            situacoes.remove(usuarioId, carregada);
+        }
+        return carregada;
+    }
+
+    /**
+     * Empréstimo em aberto de um usuário no índice, ou a recusa de um novo empréstimo
+     *
+     * Vagas reservadas pelo checkout ainda não têm ID; recebem-no depois do INSERT, na mesma
+     * transação, antes que qualquer devolução possa procurá-las.
+     */
+    public static final class Vaga {
+        private final Situacao situacao;
+        private final MotivoRejeicao recusa;
+        private LocalDate vencimento;
+        private Long emprestimoId;
+
+        private Vaga(Situacao situacao, LocalDate vencimento) {
+            this.situacao = situacao;
+            this.recusa = null;
+            this.vencimento = vencimento;
+        }
+
+        private Vaga(MotivoRejeicao recusa) {
+            this.situacao = null;
+            this.recusa = recusa;
+        }
+
+        private static Vaga recusada(MotivoRejeicao recusa) {
+            return new Vaga(recusa);
+        }
+
+        /**
+         * Motivo da recusa, ou vazio se a vaga foi reservada
+         */
+        public Optional<MotivoRejeicao> recusa() {
+            return Optional.ofNullable(recusa);
+        }
+
+        /**
+         * Associa a vaga ao empréstimo inserido
+         */
+        public void vincular(Long emprestimoId) {
+            synchronized (situacao) {
+                this.emprestimoId = emprestimoId;
+            }
+        }
+
+        /**
+         * Devolve a vaga de um empréstimo que não chegou a ser criado
+         */
+        public void liberar() {
+            synchronized (situacao) {
+                // Por identidade: outra vaga do mesmo usuário pode ter o mesmo vencimento
+                for (Iterator<Vaga> vagas = situacao.vagas.iterator(); vagas.hasNext(); ) {
+                    if (vagas.next() == this) {
+                        vagas.remove();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Situação de um usuário no índice (protegida pelo próprio monitor)
+     */
+    private static final class Situacao {
+        private boolean ativo;
+        private int limite;
+        private final List<Vaga> vagas = new ArrayList<>();
+
+        private Situacao(boolean ativo, int limite, List<VencimentoAtivoLinha> abertos) {
+            this.ativo = ativo;
+            this.limite = limite;
+            for (VencimentoAtivoLinha aberto : abertos) {
+                Vaga vaga = new Vaga(this, aberto.getVencimento());
+                vaga.emprestimoId = aberto.getId();
+                vagas.add(vaga);
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package com.biblioteca.service;
+
+import com.biblioteca.exception.RecursoNaoEncontradoException;
+import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.repository.projecao.SaldoLivro;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Livro-razão em memória das cópias disponíveis de cada livro.
+ *
+ * Mantém um contador atômico por livro (carregado sob demanda da tabela livros)
+ * e faz o decremento condicional "somente se positivo" sem locks. Títulos sem
+ * estoque são rejeitados aqui, sem ida ao banco; a gravação continua sendo feita
+ * pelo UPDATE condicional de {@link LivroRepository}, que é a fonte da verdade.
+ *
+ * Reservas são desfeitas automaticamente se a transação sofrer rollback e
+ * liberações só são creditadas após o commit.
+ *
+ * Saldos são lidos do banco fora de qualquer bloqueio (nada de JDBC dentro de
+ * {@code computeIfAbsent}, que fixaria a thread virtual na portadora); um contador de
+ * invalidações descarta leituras que tenham concorrido com uma invalidação.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerDisponibilidade {
+
+    private final LivroRepository livroRepository;
+
+    private final ConcurrentHashMap<Long, AtomicInteger> saldos = new ConcurrentHashMap<>();
+    private final AtomicLong invalidacoes = new AtomicLong();
+
+    /**
+     * Tenta reservar uma cópia do livro (decrementa somente se houver saldo)
+     * @return true se a cópia foi reservada no livro-razão
+     */
+    public boolean tentarReservar(Long livroId) {
+        AtomicInteger saldo = obterSaldo(livroId);
+        int atual;
+        do {
+            atual = saldo.get();
+            if (atual <= 0) {
+                return false;
+            }
+        } while (!saldo.compareAndSet(atual, atual - 1));
+
+        SincronizacaoTransacao.aposRollback(() -> saldo.incrementAndGet());
+        return true;
+    }
+
+    /**
+     * Reserva até {@code quantidade} cópias do livro de uma só vez (checkout em lote)
+     * @return quantas cópias foram reservadas (pode ser menor que o pedido, ou zero)
+     */
+    public int reservarAte(Long livroId, int quantidade) {
+        AtomicInteger saldo = obterSaldo(livroId);
+        int atual;
+        int reservadas;
+        do {
+            atual = saldo.get();
+            reservadas = Math.min(Math.max(atual, 0), quantidade);
+            if (reservadas == 0) {
+                return 0;
+            }
+        } while (!saldo.compareAndSet(atual, atual - reservadas));
+
+        int total = reservadas;
+        SincronizacaoTransacao.aposRollback(() -> saldo.addAndGet(total));
+        return reservadas;
+    }
+
+    /**
+     * Devolve imediatamente cópias reservadas que não chegaram a ser usadas
+     * (o estorno é desfeito se a transação sofrer rollback, junto com a reserva)
+     */
+    public void estornar(Long livroId, int quantidade) {
+        AtomicInteger saldo = saldos.get(livroId);
+        if (saldo == null || quantidade <= 0) {
+            return;
+        }
+        saldo.addAndGet(quantidade);
+        SincronizacaoTransacao.aposRollback(() -> saldo.addAndGet(-quantidade));
+    }
+
+    /**
+     * Carrega numa única consulta os saldos dos livros ainda ausentes do livro-razão
+     * @return os IDs informados que correspondem a livros existentes
+     */
+    public Set<Long> carregar(Collection<Long> livroIds) {
+        List<Long> ausentes = livroIds.stream().filter(id -> !saldos.containsKey(id)).toList();
+        if (!ausentes.isEmpty()) {
+            long geracao = invalidacoes.get();
+            for (SaldoLivro linha : livroRepository.buscarSaldos(ausentes)) {
+                instalar(linha.getId(), linha.getCopiasDisponiveis(), geracao);
+            }
+            log.debug("{} saldo(s) carregado(s) no livro-razão em lote", ausentes.size());
+        }
+        Set<Long> existentes = new HashSet<>();
+        for (Long id : livroIds) {
+            if (saldos.containsKey(id)) {
+                existentes.add(id);
+            }
+        }
+        return existentes;
+    }
+
+    /**
+     * Credita uma cópia devolvida ao livro-razão após o commit da transação corrente
+     */
+    public void creditarAposCommit(Long livroId) {
+        SincronizacaoTransacao.aposCommit(() -> {
+            AtomicInteger saldo = saldos.get(livroId);
+            if (saldo != null) {
+                saldo.incrementAndGet();
+            }
+        });
+    }
+
+    /**
+     * Soma ao livro-razão, após o commit, a variação que uma edição gravou nas cópias disponíveis
+     * A edição confere a versão do livro, então a variação é exata em relação ao saldo que ela
+     * substituiu. Descartar o saldo e recarregá-lo perderia as reservas e os créditos dos checkouts
+     * e devoluções em andamento, e o livro-razão ficaria à frente do banco.
+     */
+    public void ajustarAposCommit(Long livroId, int variacao) {
+        if (variacao == 0) {
+            return;
+        }
+        SincronizacaoTransacao.aposCommit(() -> {
+            AtomicInteger saldo = saldos.get(livroId);
+            if (saldo != null) {
+                saldo.addAndGet(variacao);
+            }
+        });
+    }
+
+    /**
+     * Descarta o saldo em memória de um livro após o commit, forçando recarga do banco
+     */
+    public void invalidarAposCommit(Long livroId) {
+        SincronizacaoTransacao.aposCommit(() -> invalidar(livroId));
+    }
+
+    /**
+     * Descarta imediatamente o saldo em memória de um livro
+     */
+    public void invalidar(Long livroId) {
+        invalidacoes.incrementAndGet();
+        saldos.remove(livroId);
+    }
+
+    /**
+     * Retorna o saldo conhecido de um livro, carregando do banco se necessário
+     */
+    public int consultar(Long livroId) {
+        return obterSaldo(livroId).get();
+    }
+
+    /**
+     * Retorna o saldo em memória de um livro sem ir ao banco (nulo se ainda não carregado)
+     */
+    public Integer consultarEmMemoria(Long livroId) {
+        AtomicInteger saldo = saldos.get(livroId);
+        return saldo != null ? saldo.get() : null;
+    }
+
+    private AtomicInteger obterSaldo(Long livroId) {
+        AtomicInteger saldo = saldos.get(livroId);
+        if (saldo != null) {
+            return saldo;
+        }
+        long geracao = invalidacoes.get();
+        Integer copias = livroRepository.buscarCopiasDisponiveis(livroId)
+                .orElseThrow(() -> new RecursoNaoEncontradoException("Livro não encontrado com ID: " + livroId));
+        log.debug("Saldo do livro ID {} carregado no livro-razão: {}", livroId, copias);
+        return instalar(livroId, copias, geracao);
+    }
+
+    /**
+     * Publica o saldo lido do banco, a menos que outro já tenha sido publicado; se houve
+     * invalidação durante a leitura, o saldo é usado só por quem o leu e não fica no mapa
+     */
+    private AtomicInteger instalar(Long livroId, int copias, long geracao) {
+        AtomicInteger carregado = new AtomicInteger(copias);
+        AtomicInteger existente = saldos.putIfAbsent(livroId, carregado);
+        if (existente != null) {
+            return existente;
+        }
+        if (invalidacoes.get() != geracao) {
+            saldos.remove(livroId, carregado);
+        }
+        return carregado;
+    }
+}
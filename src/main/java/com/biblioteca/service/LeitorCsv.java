@@ -0,0 +1,102 @@
+package com.biblioteca.service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Leitor de CSV em streaming (RFC 4180): campos entre aspas podem conter separador,
+ * quebra de linha e aspas duplicadas ({@code ""}). Linhas em branco são ignoradas.
+ * O separador é vírgula ou ponto e vírgula, conforme o que predominar no cabeçalho.
+ */
+final class LeitorCsv {
+
+    private static final int LIMITE_CABECALHO = 64 * 1024;
+
+    private final BufferedReader entrada;
+    private final char separador;
+    private long linha = 1;
+    private long linhaDoRegistro;
+
+    LeitorCsv(BufferedReader entrada) throws IOException {
+        this.entrada = entrada;
+        this.separador = detectarSeparador(entrada);
+    }
+
+    /**
+     * Lê o próximo registro
+     * @return os campos do registro, ou null no fim da entrada
+     */
+    List<String> proximoRegistro() throws IOException {
+        int c = entrada.read();
+        while (c == '\r' || c == '\n') {
+            if (c == '\n') {
+                linha++;
+            }
+            c = entrada.read();
+        }
+        if (c == -1) {
+            return null;
+        }
+        linhaDoRegistro = linha;
+
+        List<String> campos = new ArrayList<>();
+        StringBuilder campo = new StringBuilder();
+        boolean entreAspas = false;
+        while (true) {
+            if (entreAspas) {
+                if (c == -1) {
+                    throw new IOException("Aspas não fechadas no registro da linha " + linhaDoRegistro);
+                }
+                if (c == '"') {
+                    int proximo = entrada.read();
+                    if (proximo != '"') {
+                        entreAspas = false;
+                        c = proximo;
+                        continue;
+                    }
+                    campo.append('"');
+                } else {
+                    if (c == '\n') {
+                        linha++;
+                    }
+                    campo.append((char) c);
+                }
+            } else if (c == '"' && campo.isEmpty()) {
+                entreAspas = true;
+            } else if (c == separador) {
+                campos.add(campo.toString());
+                campo.setLength(0);
+            } else if (c == '\n' || c == -1) {
+                if (c == '\n') {
+                    linha++;
+                }
+                campos.add(campo.toString());
+                return campos;
+            } else if (c != '\r') {
+                campo.append((char) c);
+            }
+            c = entrada.read();
+        }
+    }
+
+    /**
+     * Linha do arquivo em que começa o último registro lido
+     */
+    long getLinhaDoRegistro() {
+        return linhaDoRegistro;
+    }
+
+    private static char detectarSeparador(BufferedReader entrada) throws IOException {
+        entrada.mark(LIMITE_CABECALHO);
+        String cabecalho = entrada.readLine();
+        entrada.reset();
+        if (cabecalho == null) {
+            return ',';
+        }
+        long virgulas = cabecalho.chars().filter(c -> c == ',').count();
+        long pontosEVirgula = cabecalho.chars().filter(c -> c == ';').count();
+        return pontosEVirgula > virgulas ? ';' : ',';
+    }
+}
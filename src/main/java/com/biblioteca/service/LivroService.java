@@ -1,19 +1,33 @@
 package com.biblioteca.service;
 
 import com.biblioteca.dto.LivroDTO;
+import com.biblioteca.dto.LivroResposta;
 import com.biblioteca.entity.Livro;
+import com.biblioteca.evento.EstoqueLivroAlteradoEvento;
 import com.biblioteca.exception.ExcecaoNegocioException;
 import com.biblioteca.exception.RecursoNaoEncontradoException;
+import com.biblioteca.mapper.LivroMapper;
+import com.biblioteca.repository.EmprestimoRepository;
 import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.repository.ReservaRepository;
+import com.biblioteca.service.VersaoDados.Dominio;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Serviço de negócio para operações com Livros
@@ -25,6 +39,16 @@ import java.util.List;
 public class LivroService {
 
     private final LivroRepository livroRepository;
+    private final EmprestimoRepository emprestimoRepository;
+    private final ReservaRepository reservaRepository;
+    private final LedgerDisponibilidade ledgerDisponibilidade;
+    private final EstatisticaCategoriaService estatisticaCategoriaService;
+    private final RankingEmprestimos rankingEmprestimos;
+    private final IndiceBuscaLivros indiceBuscaLivros;
+    private final CacheCatalogo cacheCatalogo;
+    private final VersaoDados versaoDados;
+    private final LivroMapper livroMapper;
+    private final ApplicationEventPublisher eventos;
 
     /**
      * Cria um novo livro
@@ -55,18 +79,29 @@ public class LivroService {
                 .build();
 
         Livro novoLivro = livroRepository.save(livro);
+        estatisticaCategoriaService.registrarInclusao(novoLivro);
+        indiceBuscaLivros.indexarAposCommit(novoLivro);
+        versaoDados.registrarAlteracaoAposCommit(Dominio.LIVROS);
         log.info("Livro criado com sucesso: ID {}", novoLivro.getId());
         return novoLivro;
     }
 
     /**
      * Atualiza um livro existente
+     * Grava valores absolutos (inclusive as cópias disponíveis), então não é refeita em conflito:
+     * se o livro mudou desde a versão informada no DTO, ou entre a leitura e o commit (edição,
+     * checkout ou devolução), a atualização é recusada (409).
      */
     public Livro atualizar(Long id, LivroDTO dto) {
         log.info("Atualizando livro com ID: {}", id);
 
         Livro livro = buscarPorId(id);
 
+        // Valida a versão lida pelo cliente: as cópias do DTO são absolutas e desfariam os empréstimos posteriores
+        if (dto.getVersao() != null && !dto.getVersao().equals(livro.getVersao())) {
+            throw new ObjectOptimisticLockingFailureException(Livro.class, id);
+        }
+
         // Valida ISBN se foi alterado
         if (!livro.getIsbn().equals(dto.getIsbn()) && 
             livroRepository.findByIsbn(dto.getIsbn()).isPresent()) {
@@ -78,6 +113,11 @@ public class LivroService {
             throw new ExcecaoNegocioException("Cópias disponíveis não pode ser maior que cópias totais");
         }
 
+        String isbnAnterior = livro.getIsbn();
+        String categoriaAnterior = livro.getCategoria();
+        int copiasTotaisAnteriores = livro.getCopiasTotais();
+        int copiasDisponiveisAnteriores = livro.getCopiasDisponiveis();
+
         livro.setTitulo(dto.getTitulo());
         livro.setAutor(dto.getAutor());
         livro.setIsbn(dto.getIsbn());
@@ -88,6 +128,16 @@ public class LivroService {
         livro.setDataAtualizacao(LocalDateTime.now());
 
         Livro livroAtualizado = livroRepository.save(livro);
+        estatisticaCategoriaService.registrarAlteracao(categoriaAnterior, copiasTotaisAnteriores,
+                copiasDisponiveisAnteriores, livroAtualizado);
+        ledgerDisponibilidade.ajustarAposCommit(id, dto.getCopiasDisponiveis() - copiasDisponiveisAnteriores);
+        indiceBuscaLivros.indexarAposCommit(livroAtualizado);
+        cacheCatalogo.removerAposCommit(CacheCatalogo.LIVROS, id);
+        cacheCatalogo.removerAposCommit(CacheCatalogo.LIVROS_POR_ISBN, isbnAnterior, livroAtualizado.getIsbn());
+        versaoDados.registrarAlteracaoAposCommit(Dominio.LIVROS);
+        if (dto.getCopiasDisponiveis() != copiasDisponiveisAnteriores) {
+            eventos.publishEvent(new EstoqueLivroAlteradoEvento(id, dto.getCopiasDisponiveis() - copiasDisponiveisAnteriores));
+        }
         log.info("Livro atualizado com sucesso: ID {}", livroAtualizado.getId());
         return livroAtualizado;
     }
@@ -118,14 +168,56 @@ public class LivroService {
                 });
     }
 
+    /**
+     * Consulta a representação de um livro por ID, usando o cache do catálogo
+     * As cópias disponíveis vêm sempre do livro-razão e a versão, do banco; nenhuma das duas do cache.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public LivroResposta consultarPorId(Long id) {
+        LivroResposta resposta = cacheCatalogo.obter(CacheCatalogo.LIVROS, id, LivroResposta.class,
+                () -> livroMapper.paraResposta(buscarPorId(id)));
+        return comEstoqueAtual(resposta);
+    }
+
+    /**
+     * Consulta a representação de um livro por ISBN, usando o cache do catálogo
+     * As cópias disponíveis vêm sempre do livro-razão e a versão, do banco; nenhuma das duas do cache.
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public LivroResposta consultarPorIsbn(String isbn) {
+        LivroResposta resposta = cacheCatalogo.obter(CacheCatalogo.LIVROS_POR_ISBN, isbn, LivroResposta.class,
+                () -> livroMapper.paraResposta(buscarPorIsbn(isbn)));
+        return comEstoqueAtual(resposta);
+    }
+
     /**
      * Busca livros com filtros
+     * Filtros textuais (busca livre, título e autor) são resolvidos pelo índice de busca, que
+     * devolve os IDs por relevância; o banco só carrega os livros da página. ISBN e categoria
+     * sozinhos continuam no banco, por igualdade.
      */
     @Transactional(readOnly = true)
-    public Page<Livro> buscarComFiltros(String titulo, String autor, String isbn, String categoria, Pageable pageable) {
-        log.debug("Buscando livros com filtros - Título: {}, Autor: {}, ISBN: {}, Categoria: {}", 
-                titulo, autor, isbn, categoria);
-        return livroRepository.buscarComFiltros(titulo, autor, isbn, categoria, pageable);
+    public Page<Livro> buscarComFiltros(String q, String titulo, String autor, String isbn, String categoria,
+                                        Pageable pageable) {
+        log.debug("Buscando livros com filtros - Busca: {}, Título: {}, Autor: {}, ISBN: {}, Categoria: {}",
+                q, titulo, autor, isbn, categoria);
+        if (q == null && titulo == null && autor == null) {
+            return livroRepository.buscarComFiltros(null, null, isbn, categoria, pageable);
+        }
+
+        List<Long> ids = indiceBuscaLivros.buscar(q, titulo, autor, isbn, categoria);
+        if (ids.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        if (pageable.getSort().isSorted()) {
+            return livroRepository.findByIdIn(ids, pageable);
+        }
+        if (pageable.isUnpaged()) {
+            return new PageImpl<>(carregarNaOrdem(ids), pageable, ids.size());
+        }
+        int inicio = (int) Math.min(pageable.getOffset(), ids.size());
+        int fim = Math.min(inicio + pageable.getPageSize(), ids.size());
+        return new PageImpl<>(carregarNaOrdem(ids.subList(inicio, fim)), pageable, ids.size());
     }
 
     /**
@@ -139,11 +231,15 @@ public class LivroService {
 
     /**
      * Retorna os 20 livros mais emprestados
+     * A ordem vem do ranking em memória; o banco só é consultado pelos IDs do top 20
      */
     @Transactional(readOnly = true)
     public List<Livro> obterTop20MaisEmprestados() {
         log.debug("Obtendo top 20 livros mais emprestados");
-        return livroRepository.findTop20MaisEmprestados();
+        List<Long> ids = rankingEmprestimos.top(20, null).stream()
+                .map(RankingEmprestimos.Posicao::getLivroId)
+                .toList();
+        return carregarNaOrdem(ids);
     }
 
     /**
@@ -162,43 +258,92 @@ public class LivroService {
         log.info("Deletando livro com ID: {}", id);
         Livro livro = buscarPorId(id);
 
-        if (!livro.getEmprestimos().isEmpty()) {
+        if (emprestimoRepository.existsByLivroId(id)) {
             throw new ExcecaoNegocioException("Não é possível deletar livro com empréstimos pendentes");
         }
+        if (reservaRepository.existsByLivroId(id)) {
+            throw new ExcecaoNegocioException("Não é possível deletar livro com reservas");
+        }
 
         livroRepository.delete(livro);
+        estatisticaCategoriaService.registrarExclusao(livro);
+        ledgerDisponibilidade.invalidarAposCommit(id);
+        indiceBuscaLivros.removerAposCommit(id);
+        cacheCatalogo.removerAposCommit(CacheCatalogo.LIVROS, id);
+        cacheCatalogo.removerAposCommit(CacheCatalogo.LIVROS_POR_ISBN, livro.getIsbn());
+        versaoDados.registrarAlteracaoAposCommit(Dominio.LIVROS);
         log.info("Livro deletado com sucesso: ID {}", id);
     }
 
     /**
      * Reserva uma cópia de um livro (reduz quantidade disponível)
+     * O livro-razão rejeita títulos esgotados sem consultar o banco e o UPDATE
+     * condicional garante que o estoque nunca fique negativo.
      */
     public void reservarCopia(Long id) {
-        log.info("Reservando cópia de livro com ID: {}", id);
-        Livro livro = buscarPorId(id);
+        log.debug("Reservando cópia de livro com ID: {}", id);
 
-        if (livro.getCopiasDisponiveis() <= 0) {
+        if (!ledgerDisponibilidade.tentarReservar(id)) {
             throw new ExcecaoNegocioException("Sem cópias disponíveis do livro");
         }
 
-        livro.setCopiasDisponiveis(livro.getCopiasDisponiveis() - 1);
-        livroRepository.save(livro);
-        log.info("Cópia reservada com sucesso");
+        if (livroRepository.debitarCopias(id, 1, LocalDateTime.now()) == 0) {
+            // Saldo em memória divergiu do banco: descarta para recarregar na próxima reserva
+            ledgerDisponibilidade.invalidar(id);
+            throw new ExcecaoNegocioException("Sem cópias disponíveis do livro");
+        }
+        estatisticaCategoriaService.registrarVariacaoEstoqueAposCommit(id, -1);
+        versaoDados.registrarAlteracaoAposCommit(Dominio.LIVROS);
+        eventos.publishEvent(new EstoqueLivroAlteradoEvento(id, -1));
+        log.debug("Cópia reservada do livro ID: {}", id);
     }
 
     /**
      * Libera uma cópia de um livro (aumenta quantidade disponível)
      */
     public void liberarCopia(Long id) {
-        log.info("Liberando cópia de livro com ID: {}", id);
-        Livro livro = buscarPorId(id);
+        log.debug("Liberando cópia de livro com ID: {}", id);
 
-        if (livro.getCopiasDisponiveis() >= livro.getCopiasTotais()) {
+        if (livroRepository.creditarCopias(id, 1, LocalDateTime.now()) == 0) {
+            if (!livroRepository.existsById(id)) {
+                throw new RecursoNaoEncontradoException("Livro não encontrado com ID: " + id);
+            }
             throw new ExcecaoNegocioException("Todas as cópias já estão disponíveis");
         }
 
-        livro.setCopiasDisponiveis(livro.getCopiasDisponiveis() + 1);
-        livroRepository.save(livro);
-        log.info("Cópia liberada com sucesso");
+        ledgerDisponibilidade.creditarAposCommit(id);
+        estatisticaCategoriaService.registrarVariacaoEstoqueAposCommit(id, 1);
+        versaoDados.registrarAlteracaoAposCommit(Dominio.LIVROS);
+        // Publicado depois do crédito: quem reage após o commit já encontra o saldo atualizado
+        eventos.publishEvent(new EstoqueLivroAlteradoEvento(id, 1));
+        log.debug("Cópia liberada do livro ID: {}", id);
+    }
+
+    /**
+     * Substitui o estoque guardado em cache pelo saldo atual do livro-razão, que acompanha
+     * cada checkout e devolução; assim o cache não precisa ser invalidado a cada empréstimo.
+     * A versão também muda a cada checkout e devolução, então é relida do banco (só a coluna,
+     * pela chave primária): devolvida no PUT, uma versão guardada em cache daria 409 sem edição.
+     */
+    private LivroResposta comEstoqueAtual(LivroResposta resposta) {
+        int disponiveis = ledgerDisponibilidade.consultar(resposta.id());
+        Long versao = livroRepository.buscarVersao(resposta.id())
+                .orElseThrow(() -> new RecursoNaoEncontradoException("Livro não encontrado com ID: " + resposta.id()));
+        Integer emprestadas = resposta.copiasTotais() != null ? resposta.copiasTotais() - disponiveis : null;
+        return new LivroResposta(resposta.id(), resposta.titulo(), resposta.autor(), resposta.isbn(),
+                resposta.descricao(), resposta.categoria(), disponiveis, resposta.copiasTotais(), emprestadas,
+                resposta.dataCriacao(), resposta.dataAtualizacao(), versao);
+    }
+
+    /**
+     * Carrega os livros pelos IDs preservando a ordem informada (IDs removidos são ignorados)
+     */
+    private List<Livro> carregarNaOrdem(List<Long> ids) {
+        Map<Long, Livro> livros = livroRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Livro::getId, Function.identity()));
+        return ids.stream()
+                .map(livros::get)
+                .filter(Objects::nonNull)
+                .toList();
     }
 }
@@ -0,0 +1,307 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.EmprestimoDTO;
+import com.biblioteca.dto.ResultadoLoteEmprestimos.Item;
+import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.evento.EstoqueLivroAlteradoEvento;
+import com.biblioteca.exception.CheckoutRejeitadoException;
+import com.biblioteca.exception.MotivoRejeicao;
+import com.biblioteca.metricas.ContadorRejeicoes;
+import com.biblioteca.repository.EmprestimoRepository;
+import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.service.IndiceElegibilidadeUsuario.Vaga;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Motor de checkout de empréstimos
+ *
+ * Estoque e elegibilidade do usuário (ativo, limite e atrasos) são verificados em
+ * memória pelo {@link LedgerDisponibilidade} e pelo {@link IndiceElegibilidadeUsuario}.
+ * O banco recebe três instruções na mesma transação: o UPDATE condicional que debita a cópia,
+ * o UPDATE condicional que conta o empréstimo no usuário (e confere de novo limite, atrasos e
+ * status, valendo entre instâncias) e o INSERT do empréstimo (livro e usuário entram como
+ * referências, sem SELECT). As linhas são travadas sempre na ordem livro, usuário.
+ *
+ * No checkout em lote as mesmas regras são aplicadas ao conjunto: livros e usuários são
+ * carregados em uma consulta cada, o estoque é reservado e debitado uma vez por livro e
+ * os INSERTs seguem agrupados pelo {@code hibernate.jdbc.batch_size}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@Transactional
+public class MotorCheckout {
+
+    private final LivroRepository livroRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final EmprestimoRepository emprestimoRepository;
+    private final LedgerDisponibilidade ledgerDisponibilidade;
+    private final IndiceElegibilidadeUsuario indiceElegibilidade;
+    private final EstatisticaCategoriaService estatisticaCategoriaService;
+    private final ContadorRejeicoes contadorRejeicoes;
+    private final ApplicationEventPublisher eventos;
+
+    /**
+     * Efetua o checkout de um livro para um usuário
+     * @throws CheckoutRejeitadoException com o motivo quando alguma regra recusar o empréstimo
+     */
+    public Emprestimo efetuar(EmprestimoDTO dto) {
+        Long livroId = dto.getLivroId();
+        Long usuarioId = dto.getUsuarioId();
+        LocalDate hoje = LocalDate.now();
+
+        LocalDate dataEmprestimo = dto.getDataEmprestimo() != null ? dto.getDataEmprestimo() : hoje;
+        LocalDate dataDevolucaoPrevista = dataEmprestimo.plusDays(EmprestimoService.DIAS_EMPRESTIMO_PADRAO);
+
+        // Títulos esgotados são recusados pelo livro-razão sem ida ao banco
+        if (!ledgerDisponibilidade.tentarReservar(livroId)) {
+            throw recusar(MotivoRejeicao.SEM_COPIAS);
+        }
+
+        Vaga vaga = indiceElegibilidade.reservar(usuarioId, dataDevolucaoPrevista, hoje);
+        if (vaga.recusa().isPresent()) {
+            log.debug("Checkout recusado para usuário ID: {} e livro ID: {} - {}", usuarioId, livroId, vaga.recusa().get());
+            throw recusar(vaga.recusa().get());
+        }
+
+        if (livroRepository.debitarCopias(livroId, 1, LocalDateTime.now()) == 0) {
+            // Saldo em memória estava à frente do banco: descarta para recarregar
+            ledgerDisponibilidade.invalidar(livroId);
+            throw recusar(MotivoRejeicao.SEM_COPIAS);
+        }
+        if (usuarioRepository.contarAberturas(usuarioId, 1, hoje) == 0) {
+            // Índice desta instância estava atrás do banco (ex.: empréstimo feito em outra instância)
+            throw recusar(indiceElegibilidade.diagnosticarRecusa(usuarioId, hoje));
+        }
+        estatisticaCategoriaService.registrarVariacaoEstoqueAposCommit(livroId, -1);
+        eventos.publishEvent(new EstoqueLivroAlteradoEvento(livroId, -1));
+
+        Emprestimo emprestimo = Emprestimo.builder()
+                .livro(livroRepository.getReferenceById(livroId))
+                .usuario(usuarioRepository.getReferenceById(usuarioId))
+                .dataEmprestimo(dataEmprestimo)
+                .dataDeVolucaoPrevista(dataDevolucaoPrevista)
+                .status("ATIVO")
+                .observacoes(dto.getObservacoes())
+                .dataCriacao(LocalDateTime.now())
+                .dataAtualizacao(LocalDateTime.now())
+                .build();
+
+        Emprestimo salvo = emprestimoRepository.save(emprestimo);
+        vaga.vincular(salvo.getId());
+        return salvo;
+    }
+
+    /**
+     * Empresta a cópia que acaba de ser devolvida ao usuário da vez na fila de reservas
+     *
+     * A cópia passa de um empréstimo a outro sem voltar ao estoque, então o livro-razão e a
+     * tabela de livros não mudam; só a elegibilidade do usuário é verificada. A recusa não marca
+     * a transação da devolução para rollback: a cópia segue para o próximo da fila.
+     * @throws CheckoutRejeitadoException com o motivo quando o usuário não puder emprestar
+     */
+    @Transactional(noRollbackFor = CheckoutRejeitadoException.class)
+    public Emprestimo efetuarComCopiaDevolvida(Long livroId, Long usuarioId, String observacoes) {
+        LocalDate hoje = LocalDate.now();
+        LocalDate dataDevolucaoPrevista = hoje.plusDays(EmprestimoService.DIAS_EMPRESTIMO_PADRAO);
+
+        Vaga vaga = indiceElegibilidade.reservar(usuarioId, dataDevolucaoPrevista, hoje);
+        if (vaga.recusa().isPresent()) {
+            log.debug("Cópia devolvida do livro ID: {} recusada para usuário ID: {} - {}", livroId, usuarioId, vaga.recusa().get());
+            throw recusar(vaga.recusa().get());
+        }
+        if (usuarioRepository.contarAberturas(usuarioId, 1, hoje) == 0) {
+            // A recusa não desfaz a transação da devolução, então a vaga é devolvida aqui
+            vaga.liberar();
+            throw recusar(indiceElegibilidade.diagnosticarRecusa(usuarioId, hoje));
+        }
+
+        Emprestimo emprestimo = Emprestimo.builder()
+                .livro(livroRepository.getReferenceById(livroId))
+                .usuario(usuarioRepository.getReferenceById(usuarioId))
+                .dataEmprestimo(hoje)
+                .dataDeVolucaoPrevista(dataDevolucaoPrevista)
+                .status("ATIVO")
+                .observacoes(observacoes)
+                .dataCriacao(LocalDateTime.now())
+                .dataAtualizacao(LocalDateTime.now())
+                .build();
+
+        Emprestimo salvo = emprestimoRepository.save(emprestimo);
+        vaga.vincular(salvo.getId());
+        return salvo;
+    }
+
+    /**
+     * Efetua o checkout de vários empréstimos numa única transação
+     *
+     * Cada pedido recebe seu desfecho (criado ou recusado com o motivo), sem que uma recusa
+     * interrompa os demais. Quando faltam cópias, os pedidos que aparecem primeiro no lote têm preferência.
+     * @return um item por pedido, na mesma ordem
+     */
+    public List<Item> efetuarLote(List<EmprestimoDTO> pedidos) {
+        LocalDate hoje = LocalDate.now();
+        LocalDateTime agora = LocalDateTime.now();
+        Item[] itens = new Item[pedidos.size()];
+
+        Set<Long> livroIds = new HashSet<>();
+        Set<Long> usuarioIds = new HashSet<>();
+        for (int i = 0; i < itens.length; i++) {
+            EmprestimoDTO dto = pedidos.get(i);
+            if (dto == null || dto.getLivroId() == null || dto.getUsuarioId() == null) {
+                itens[i] = dto == null ? Item.rejeitado(i, null, null, MotivoRejeicao.DADOS_INCOMPLETOS)
+                        : Item.rejeitado(i, dto.getLivroId(), dto.getUsuarioId(), MotivoRejeicao.DADOS_INCOMPLETOS);
+                continue;
+            }
+            livroIds.add(dto.getLivroId());
+            usuarioIds.add(dto.getUsuarioId());
+        }
+        Set<Long> livrosExistentes = ledgerDisponibilidade.carregar(livroIds);
+        Set<Long> usuariosExistentes = indiceElegibilidade.carregar(usuarioIds);
+
+        // Demanda por livro, em ordem de ID para que lotes concorrentes travem as linhas na mesma ordem
+        Map<Long, Integer> demanda = new TreeMap<>();
+        for (int i = 0; i < itens.length; i++) {
+            if (itens[i] != null) {
+                continue;
+            }
+            EmprestimoDTO dto = pedidos.get(i);
+            if (!livrosExistentes.contains(dto.getLivroId())) {
+                itens[i] = Item.rejeitado(i, dto.getLivroId(), dto.getUsuarioId(), MotivoRejeicao.LIVRO_NAO_ENCONTRADO);
+            } else if (!usuariosExistentes.contains(dto.getUsuarioId())) {
+                itens[i] = Item.rejeitado(i, dto.getLivroId(), dto.getUsuarioId(), MotivoRejeicao.USUARIO_NAO_ENCONTRADO);
+            } else {
+                demanda.merge(dto.getLivroId(), 1, Integer::sum);
+            }
+        }
+
+        // Reserva agregada: uma operação no livro-razão e um UPDATE condicional por livro
+        Map<Long, Integer> concedidas = new HashMap<>();
+        for (Map.Entry<Long, Integer> pedido : demanda.entrySet()) {
+            Long livroId = pedido.getKey();
+            int reservadas = ledgerDisponibilidade.reservarAte(livroId, pedido.getValue());
+            if (reservadas > 0 && livroRepository.debitarCopias(livroId, reservadas, agora) == 0) {
+                // Saldo em memória estava à frente do banco: descarta para recarregar
+                ledgerDisponibilidade.invalidar(livroId);
+                reservadas = 0;
+            }
+            concedidas.put(livroId, reservadas);
+        }
+
+        Map<Long, Integer> usadas = new HashMap<>();
+        List<Emprestimo> novos = new ArrayList<>();
+        List<Integer> posicoesNovos = new ArrayList<>();
+        List<Vaga> vagas = new ArrayList<>();
+        for (int i = 0; i < itens.length; i++) {
+            if (itens[i] != null) {
+                continue;
+            }
+            EmprestimoDTO dto = pedidos.get(i);
+            Long livroId = dto.getLivroId();
+            Long usuarioId = dto.getUsuarioId();
+            if (usadas.getOrDefault(livroId, 0) >= concedidas.get(livroId)) {
+                itens[i] = Item.rejeitado(i, livroId, usuarioId, MotivoRejeicao.SEM_COPIAS);
+                continue;
+            }
+
+            LocalDate dataEmprestimo = dto.getDataEmprestimo() != null ? dto.getDataEmprestimo() : hoje;
+            LocalDate dataDevolucaoPrevista = dataEmprestimo.plusDays(EmprestimoService.DIAS_EMPRESTIMO_PADRAO);
+            Vaga vaga = indiceElegibilidade.reservar(usuarioId, dataDevolucaoPrevista, hoje);
+            if (vaga.recusa().isPresent()) {
+                itens[i] = Item.rejeitado(i, livroId, usuarioId, vaga.recusa().get());
+                continue;
+            }
+
+            usadas.merge(livroId, 1, Integer::sum);
+            novos.add(Emprestimo.builder()
+                    .livro(livroRepository.getReferenceById(livroId))
+                    .usuario(usuarioRepository.getReferenceById(usuarioId))
+                    .dataEmprestimo(dataEmprestimo)
+                    .dataDeVolucaoPrevista(dataDevolucaoPrevista)
+                    .status("ATIVO")
+                    .observacoes(dto.getObservacoes())
+                    .dataCriacao(agora)
+                    .dataAtualizacao(agora)
+                    .build());
+            posicoesNovos.add(i);
+            vagas.add(vaga);
+        }
+
+        // O banco confere o limite de cada usuário uma vez, em ordem de ID como os livros; um usuário
+        // recusado (índice desta instância atrás do banco) tem todos os seus pedidos do lote recusados
+        Map<Long, Integer> aberturas = new TreeMap<>();
+        for (int posicao : posicoesNovos) {
+            aberturas.merge(pedidos.get(posicao).getUsuarioId(), 1, Integer::sum);
+        }
+        Map<Long, MotivoRejeicao> recusadosPeloBanco = new HashMap<>();
+        for (Map.Entry<Long, Integer> abertura : aberturas.entrySet()) {
+            if (usuarioRepository.contarAberturas(abertura.getKey(), abertura.getValue(), hoje) == 0) {
+                recusadosPeloBanco.put(abertura.getKey(), indiceElegibilidade.diagnosticarRecusa(abertura.getKey(), hoje));
+            }
+        }
+        for (int k = novos.size() - 1; k >= 0 && !recusadosPeloBanco.isEmpty(); k--) {
+            int i = posicoesNovos.get(k);
+            EmprestimoDTO dto = pedidos.get(i);
+            MotivoRejeicao motivo = recusadosPeloBanco.get(dto.getUsuarioId());
+            if (motivo != null) {
+                vagas.remove(k).liberar();
+                novos.remove(k);
+                posicoesNovos.remove(k);
+                usadas.merge(dto.getLivroId(), -1, Integer::sum);
+                itens[i] = Item.rejeitado(i, dto.getLivroId(), dto.getUsuarioId(), motivo);
+            }
+        }
+
+        // Cópias reservadas para pedidos recusados pelo usuário voltam ao estoque
+        for (Map.Entry<Long, Integer> concedida : concedidas.entrySet()) {
+            Long livroId = concedida.getKey();
+            int usadasDoLivro = usadas.getOrDefault(livroId, 0);
+            int sobra = concedida.getValue() - usadasDoLivro;
+            if (sobra > 0) {
+                livroRepository.creditarCopias(livroId, sobra, agora);
+                ledgerDisponibilidade.estornar(livroId, sobra);
+            }
+            if (usadasDoLivro > 0) {
+                estatisticaCategoriaService.registrarVariacaoEstoqueAposCommit(livroId, -usadasDoLivro);
+                eventos.publishEvent(new EstoqueLivroAlteradoEvento(livroId, -usadasDoLivro));
+            }
+        }
+
+        emprestimoRepository.saveAll(novos);
+        emprestimoRepository.flush();
+        for (int k = 0; k < novos.size(); k++) {
+            vagas.get(k).vincular(novos.get(k).getId());
+            int i = posicoesNovos.get(k);
+            EmprestimoDTO dto = pedidos.get(i);
+            itens[i] = Item.criado(i, dto.getLivroId(), dto.getUsuarioId(), novos.get(k).getId());
+        }
+        for (Item item : itens) {
+            if (item.motivo() != null) {
+                contadorRejeicoes.registrar(item.motivo());
+            }
+        }
+        log.debug("Checkout em lote: {} livro(s) distintos, {} empréstimo(s) inseridos", demanda.size(), novos.size());
+        return Arrays.asList(itens);
+    }
+
+    private CheckoutRejeitadoException recusar(MotivoRejeicao motivo) {
+        contadorRejeicoes.registrar(motivo);
+        return new CheckoutRejeitadoException(motivo);
+    }
+}
@@ -0,0 +1,31 @@
+package com.biblioteca.service;
+
+import com.biblioteca.evento.ReservaEncerradaEvento;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Aviso ao usuário quando a reserva sai da fila
+ *
+ * Ponto de extensão para o envio por e-mail ou push: reage ao {@link ReservaEncerradaEvento}
+ * somente após o commit, então nunca avisa de um atendimento desfeito por rollback. Por ora
+ * o aviso é registrado no log; um envio lento deve ir para outra thread, pois este método
+ * roda na thread da devolução.
+ */
+@Component
+@Slf4j
+public class NotificacaoReservas {
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoEncerrarReserva(ReservaEncerradaEvento evento) {
+        switch (evento.getStatus()) {
+            case "ATENDIDA" -> log.info("Aviso ao usuário ID {}: reserva {} atendida, livro ID {} emprestado (empréstimo {})",
+                    evento.getUsuarioId(), evento.getReservaId(), evento.getLivroId(), evento.getEmprestimoId());
+            case "RECUSADA" -> log.info("Aviso ao usuário ID {}: reserva {} do livro ID {} encerrada na sua vez - {}",
+                    evento.getUsuarioId(), evento.getReservaId(), evento.getLivroId(), evento.getMotivo());
+            default -> log.debug("Reserva {} do livro ID {} encerrada com status {}",
+                    evento.getReservaId(), evento.getLivroId(), evento.getStatus());
+        }
+    }
+}
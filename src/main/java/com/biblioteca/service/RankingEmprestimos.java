@@ -0,0 +1,257 @@
+package com.biblioteca.service;
+
+import com.biblioteca.evento.EmprestimoCriadoEvento;
+import com.biblioteca.evento.EmprestimoRemovidoEvento;
+import com.biblioteca.repository.EmprestimoRepository;
+import com.biblioteca.repository.projecao.ContagemEmprestimosLivro;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Ranking em memória dos livros mais emprestados
+ *
+ * Mantém um contador por livro para todo o histórico e contadores por dia para os
+ * últimos {@code biblioteca.ranking.dias-retidos} dias, alimentados pelos eventos de
+ * criação e exclusão de empréstimos após o commit. A memória é limitada pelo número
+ * de livros (histórico) e de pares dia/livro dentro da retenção; o top-N é obtido
+ * com um heap de tamanho N, sem consultar o banco.
+ *
+ * Os contadores são carregados do banco na inicialização, antes de a aplicação
+ * aceitar requisições. Com várias instâncias, cada uma só enxerga os próprios eventos;
+ * a recarga periódica ({@code biblioteca.ranking.recarga-cron}) reconcilia os contadores.
+ *
+ * Durante uma recarga, os eventos continuam a alimentar os contadores em uso e também são
+ * guardados; antes da troca, os guardados são reaplicados aos contadores recém-lidos. A troca
+ * acontece com os eventos bloqueados, para que nenhum caia entre a reaplicação e a troca.
+ */
+@Component
+@Slf4j
+public class RankingEmprestimos {
+
+    private static final Comparator<Posicao> ORDEM_CRESCENTE = Comparator
+            .comparingLong(Posicao::getQuantidade)
+            .thenComparing(Posicao::getLivroId, Comparator.reverseOrder());
+
+    private final EmprestimoRepository emprestimoRepository;
+    private final int diasRetidos;
+
+    private volatile Contadores contadores = new Contadores();
+
+    /**
+     * Eventos aplicados ao ranking contra a troca dos contadores (leitura: eventos; escrita: troca)
+     */
+    private final ReadWriteLock trocaContadores = new ReentrantReadWriteLock();
+
+    /**
+     * Variações recebidas desde o início da recarga em andamento (nulo fora de recarga)
+     */
+    private ConcurrentLinkedQueue<Variacao> variacoesDuranteRecarga;
+
+    public RankingEmprestimos(EmprestimoRepository emprestimoRepository,
+                              @Value("${biblioteca.ranking.dias-retidos:365}") int diasRetidos) {
+        this.emprestimoRepository = emprestimoRepository;
+        this.diasRetidos = diasRetidos;
+    }
+
+    /**
+     * Contabiliza um empréstimo criado
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoCriarEmprestimo(EmprestimoCriadoEvento evento) {
+        registrar(new Variacao(evento.getLivroId(), evento.getDataEmprestimo(), 1));
+    }
+
+    /**
+     * Desconta um empréstimo excluído (somente status que entram no ranking)
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoRemoverEmprestimo(EmprestimoRemovidoEvento evento) {
+        if ("ATIVO".equals(evento.getStatus()) || "ATRASADO".equals(evento.getStatus())
+                || "DEVOLVIDO".equals(evento.getStatus())) {
+            registrar(new Variacao(evento.getLivroId(), evento.getDataEmprestimo(), -1));
+        }
+    }
+
+    /**
+     * Indica se a janela pedida está dentro dos dias mantidos em memória
+     * @param dias janela em dias até hoje; nulo significa todo o histórico
+     */
+    public boolean cobreJanela(Integer dias) {
+        return dias == null || dias <= diasRetidos;
+    }
+
+    /**
+     * Retorna os livros mais emprestados, do mais para o menos emprestado (desempate pelo menor ID)
+     * @param dias janela em dias até hoje, dentro da retenção; nulo considera todo o histórico
+     */
+    public List<Posicao> top(int limite, Integer dias) {
+        if (!cobreJanela(dias)) {
+            throw new IllegalArgumentException("Janela de " + dias + " dias excede a retenção do ranking");
+        }
+        Contadores atuais = contadores;
+
+        Map<Long, Long> quantidades = new HashMap<>();
+        if (dias == null) {
+            atuais.totais.forEach((livroId, quantidade) -> quantidades.put(livroId, quantidade.sum()));
+        } else {
+            LocalDate desde = LocalDate.now().minusDays(dias);
+            atuais.porDia.forEach((dia, contagens) -> {
+                if (!dia.isBefore(desde)) {
+                    contagens.forEach((livroId, quantidade) -> quantidades.merge(livroId, quantidade.sum(), Long::sum));
+                }
+            });
+        }
+
+        PriorityQueue<Posicao> heap = new PriorityQueue<>(limite + 1, ORDEM_CRESCENTE);
+        quantidades.forEach((livroId, quantidade) -> {
+            if (quantidade > 0) {
+                heap.offer(new Posicao(livroId, quantidade));
+                if (heap.size() > limite) {
+                    heap.poll();
+                }
+            }
+        });
+
+        List<Posicao> ranking = new ArrayList<>(heap);
+        ranking.sort(ORDEM_CRESCENTE.reversed());
+        return ranking;
+    }
+
+    /**
+     * Recarrega todos os contadores a partir do banco
+     * Os eventos que chegam enquanto as consultas rodam são reaplicados aos contadores novos.
+     * Um evento cujo commit precedeu as consultas, mas que chegou depois de a recarga começar,
+     * é contado duas vezes; a janela é a do commit até o listener, e a recarga seguinte corrige.
+     */
+    @PostConstruct
+    public synchronized void carregar() {
+        ConcurrentLinkedQueue<Variacao> variacoes = new ConcurrentLinkedQueue<>();
+        trocaContadores.writeLock().lock();
+        try {
+            variacoesDuranteRecarga = variacoes;
+        } finally {
+            trocaContadores.writeLock().unlock();
+        }
+
+        LocalDate inicio = inicioRetencao();
+        Contadores novos = new Contadores();
+        try {
+            for (ContagemEmprestimosLivro contagem : emprestimoRepository.contarEmprestimosPorLivro()) {
+                novos.totais.computeIfAbsent(contagem.getLivroId(), id -> new LongAdder()).add(contagem.getQuantidade());
+            }
+            for (ContagemEmprestimosLivro contagem : emprestimoRepository.contarEmprestimosPorLivroEDia(inicio)) {
+                novos.porDia.computeIfAbsent(contagem.getDia(), dia -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(contagem.getLivroId(), id -> new LongAdder())
+                        .add(contagem.getQuantidade());
+            }
+        } catch (RuntimeException e) {
+            trocaContadores.writeLock().lock();
+            try {
+                variacoesDuranteRecarga = null;
+            } finally {
+                trocaContadores.writeLock().unlock();
+            }
+            throw e;
+        }
+
+        int reaplicadas;
+        trocaContadores.writeLock().lock();
+        try {
+            reaplicadas = variacoes.size();
+            for (Variacao variacao : variacoes) {
+                novos.somar(variacao.livroId(), variacao.dia(), variacao.quantidade(), inicio);
+            }
+            contadores = novos;
+            variacoesDuranteRecarga = null;
+        } finally {
+            trocaContadores.writeLock().unlock();
+        }
+        log.info("Ranking de empréstimos carregado: {} livro(s), {} dia(s) retidos, {} evento(s) reaplicado(s)",
+                novos.totais.size(), novos.porDia.size(), reaplicadas);
+    }
+
+    /**
+     * Recarga periódica opcional (desativada por padrão)
+     */
+    @Scheduled(cron = "${biblioteca.ranking.recarga-cron:-}")
+    public void recarregarPeriodicamente() {
+        carregar();
+    }
+
+    /**
+     * Descarta os dias que saíram da retenção
+     */
+    @Scheduled(cron = "0 5 0 * * *")
+    public void descartarDiasAntigos() {
+        LocalDate inicio = inicioRetencao();
+        contadores.porDia.keySet().removeIf(dia -> dia.isBefore(inicio));
+    }
+
+    /**
+     * Aplica a variação aos contadores em uso e, durante uma recarga, guarda-a para os novos
+     */
+    private void registrar(Variacao variacao) {
+        trocaContadores.readLock().lock();
+        try {
+            contadores.somar(variacao.livroId(), variacao.dia(), variacao.quantidade(), inicioRetencao());
+            if (variacoesDuranteRecarga != null) {
+                variacoesDuranteRecarga.add(variacao);
+            }
+        } finally {
+            trocaContadores.readLock().unlock();
+        }
+    }
+
+    private LocalDate inicioRetencao() {
+        return LocalDate.now().minusDays(diasRetidos);
+    }
+
+    /**
+     * Posição de um livro no ranking
+     */
+    @lombok.Value
+    public static class Posicao {
+        Long livroId;
+        long quantidade;
+    }
+
+    /**
+     * Empréstimo contado (+1) ou descontado (-1) de um livro no dia do empréstimo
+     */
+    private record Variacao(Long livroId, LocalDate dia, int quantidade) {
+    }
+
+    /**
+     * Contadores do ranking; substituídos por inteiro a cada recarga
+     */
+    private static final class Contadores {
+        private final ConcurrentHashMap<Long, LongAdder> totais = new ConcurrentHashMap<>();
+        private final ConcurrentHashMap<LocalDate, ConcurrentHashMap<Long, LongAdder>> porDia = new ConcurrentHashMap<>();
+
+        private void somar(Long livroId, LocalDate dia, int variacao, LocalDate inicioRetencao) {
+            totais.computeIfAbsent(livroId, id -> new LongAdder()).add(variacao);
+            if (dia != null && !dia.isBefore(inicioRetencao)) {
+                porDia.computeIfAbsent(dia, d -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(livroId, id -> new LongAdder())
+                        .add(variacao);
+            }
+        }
+    }
+}
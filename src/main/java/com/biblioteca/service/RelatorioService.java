@@ -2,16 +2,35 @@ package com.biblioteca.service;
 
 import com.biblioteca.entity.Emprestimo;
 import com.biblioteca.entity.Livro;
+import com.biblioteca.exception.ExcecaoNegocioException;
 import com.biblioteca.repository.EmprestimoRepository;
+import com.biblioteca.repository.EstatisticaCategoriaRepository;
 import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.repository.projecao.LivroEmprestadoLinha;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Serviço para gerar relatórios da biblioteca
@@ -23,129 +42,213 @@ import java.util.stream.Collectors;
 @Transactional(readOnly = true)
 public class RelatorioService {
 
+    private static final int LINHAS_POR_FLUSH = 500;
+
+    private static final int LIMITE_MAXIMO_RANKING = 100;
+
+    private static final String CABECALHO_CSV_LIVROS_EMPRESTADOS = "emprestimoId,livroId,livroTitulo,livroAutor," +
+            "livroIsbn,usuarioId,usuarioNome,usuarioEmail,dataEmprestimo,dataDeVolucaoPrevista,diasRestantes," +
+            "estaAtrasado,diasAtrasados\r\n";
+
+    /**
+     * Campos aceitos para ordenar o relatório de empréstimos por usuário
+     */
+    private static final Set<String> ORDENACOES_EMPRESTIMOS_POR_USUARIO = Set.of(
+            "usuarioId", "usuarioNome", "totalEmprestimos", "emprestimosDevolvidos",
+            "emprestimosAtivos", "emprestimosAtrasados");
+
     private final LivroRepository livroRepository;
     private final EmprestimoRepository emprestimoRepository;
+    private final EstatisticaCategoriaService estatisticaCategoriaService;
+    private final RankingEmprestimos rankingEmprestimos;
+    private final ObjectMapper objectMapper;
 
     /**
-     * Gera relatório dos 20 livros mais emprestados
-     * Utiliza Stream para filtrar e ordenar
+     * Gera o ranking dos livros mais emprestados
+     * Janelas dentro da retenção do {@link RankingEmprestimos} são atendidas em memória
+     * (o banco só devolve os livros do top-N); janelas maiores usam a consulta agregada.
+     * @param limite tamanho do ranking (1 a 100)
+     * @param dias janela em dias até hoje; nulo considera todo o histórico
      */
-    public List<LivroComContagemDTO> relatorio20LivrosMaisEmprestados() {
-        log.info("Gerando relatório dos 20 livros mais emprestados");
-
-        List<Livro> livrosMaisEmprestados = livroRepository.findTop20MaisEmprestados();
-
-        return livrosMaisEmprestados.stream()
-                .map(livro -> {
-                    long contagemEmprestimos = livro.getEmprestimos().stream()
-                            .filter(emp -> "ATIVO".equals(emp.getStatus()) || "DEVOLVIDO".equals(emp.getStatus()))
-                            .count();
-                    
-                    return LivroComContagemDTO.builder()
-                            .id(livro.getId())
-                            .titulo(livro.getTitulo())
-                            .autor(livro.getAutor())
-                            .isbn(livro.getIsbn())
-                            .categoria(livro.getCategoria())
-                            .copiasDisponiveis(livro.getCopiasDisponiveis())
-                            .copiasTotais(livro.getCopiasTotais())
-                            .quantidadeEmprestimos(contagemEmprestimos)
-                            .build();
-                })
-                .limit(20)
+    public List<LivroComContagemDTO> relatorioLivrosMaisEmprestados(int limite, Integer dias) {
+        log.info("Gerando relatório dos {} livros mais emprestados (janela: {} dias)", limite, dias);
+
+        if (limite < 1 || limite > LIMITE_MAXIMO_RANKING) {
+            throw new ExcecaoNegocioException("O limite deve estar entre 1 e " + LIMITE_MAXIMO_RANKING);
+        }
+        if (dias != null && dias < 1) {
+            throw new ExcecaoNegocioException("A janela em dias deve ser positiva");
+        }
+
+        if (rankingEmprestimos.cobreJanela(dias)) {
+            List<RankingEmprestimos.Posicao> ranking = rankingEmprestimos.top(limite, dias);
+            Map<Long, Livro> livros = livroRepository.findAllById(ranking.stream()
+                            .map(RankingEmprestimos.Posicao::getLivroId)
+                            .toList())
+                    .stream()
+                    .collect(Collectors.toMap(Livro::getId, livro -> livro));
+
+            return ranking.stream()
+                    .filter(posicao -> livros.containsKey(posicao.getLivroId()))
+                    .map(posicao -> {
+                        Livro livro = livros.get(posicao.getLivroId());
+                        return LivroComContagemDTO.builder()
+                                .id(livro.getId())
+                                .titulo(livro.getTitulo())
+                                .autor(livro.getAutor())
+                                .isbn(livro.getIsbn())
+                                .categoria(livro.getCategoria())
+                                .copiasDisponiveis(livro.getCopiasDisponiveis())
+                                .copiasTotais(livro.getCopiasTotais())
+                                .quantidadeEmprestimos(posicao.getQuantidade())
+                                .build();
+                    })
+                    .collect(Collectors.toList());
+        }
+
+        LocalDate desde = LocalDate.now().minusDays(dias);
+
+        return livroRepository.buscarMaisEmprestados(desde, PageRequest.of(0, limite)).stream()
+                .map(linha -> LivroComContagemDTO.builder()
+                        .id(linha.getId())
+                        .titulo(linha.getTitulo())
+                        .autor(linha.getAutor())
+                        .isbn(linha.getIsbn())
+                        .categoria(linha.getCategoria())
+                        .copiasDisponiveis(linha.getCopiasDisponiveis())
+                        .copiasTotais(linha.getCopiasTotais())
+                        .quantidadeEmprestimos(linha.getQuantidadeEmprestimos())
+                        .build())
                 .collect(Collectors.toList());
     }
 
     /**
      * Gera relatório de livros emprestados com previsão de devolução
-     * Agrupa por livro e mostra próximos a vencer
+     * A ordenação pela data de devolução prevista é feita pelo banco
      */
     public List<LivroEmprestadoDTO> relatorioLivrosEmprestados() {
         log.info("Gerando relatório de livros emprestados");
 
-        return emprestimoRepository.findByStatusOrderByDataEmprestimoDesc("ATIVO", 
-                org.springframework.data.domain.PageRequest.of(0, Integer.MAX_VALUE))
-                .stream()
-                .map(emprestimo -> LivroEmprestadoDTO.builder()
-                        .emprestimoId(emprestimo.getId())
-                        .livroId(emprestimo.getLivro().getId())
-                        .livroTitulo(emprestimo.getLivro().getTitulo())
-                        .livroAutor(emprestimo.getLivro().getAutor())
-                        .livroIsbn(emprestimo.getLivro().getIsbn())
-                        .usuarioId(emprestimo.getUsuario().getId())
-                        .usuarioNome(emprestimo.getUsuario().getNome())
-                        .usuarioEmail(emprestimo.getUsuario().getEmail())
-                        .dataEmprestimo(emprestimo.getDataEmprestimo())
-                        .dataDeVolucaoPrevista(emprestimo.getDataDeVolucaoPrevista())
-                        .diasRestantes(java.time.temporal.ChronoUnit.DAYS.between(
-                                LocalDate.now(), 
-                                emprestimo.getDataDeVolucaoPrevista()
-                        ))
-                        .estaAtrasado(emprestimo.estaAtrasado())
-                        .diasAtrasados(emprestimo.calcularDiasAtrasados())
-                        .build())
-                .sorted(Comparator.comparing(LivroEmprestadoDTO::getDataDeVolucaoPrevista))
+        LocalDate hoje = LocalDate.now();
+        return emprestimoRepository.buscarLivrosEmprestados().stream()
+                .map(linha -> paraLivroEmprestadoDTO(linha, hoje))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Exporta o relatório de livros emprestados diretamente para a saída informada
+     * Os registros são lidos do banco por cursor e escritos um a um, com memória constante;
+     * a escrita bloqueante na saída limita o ritmo da leitura quando o cliente é lento.
+     */
+    public void exportarLivrosEmprestados(OutputStream saida, FormatoExportacao formato) throws IOException {
+        log.info("Exportando relatório de livros emprestados em {}", formato);
+
+        LocalDate hoje = LocalDate.now();
+        long total = 0;
+        try (Stream<LivroEmprestadoLinha> linhas = emprestimoRepository.percorrerLivrosEmprestados()) {
+            Iterator<LivroEmprestadoLinha> iterador = linhas.iterator();
+            if (formato == FormatoExportacao.CSV) {
+                Writer escritor = new BufferedWriter(new OutputStreamWriter(saida, StandardCharsets.UTF_8));
+                escritor.write(CABECALHO_CSV_LIVROS_EMPRESTADOS);
+                while (iterador.hasNext()) {
+                    escreverLinhaCsv(escritor, paraLivroEmprestadoDTO(iterador.next(), hoje));
+                    if (++total % LINHAS_POR_FLUSH == 0) {
+                        escritor.flush();
+                    }
+                }
+                escritor.flush();
+            } else {
+                SequenceWriter escritor = objectMapper.writerFor(LivroEmprestadoDTO.class)
+                        .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                        .withRootValueSeparator("\n")
+                        .writeValues(saida);
+                while (iterador.hasNext()) {
+                    escritor.write(paraLivroEmprestadoDTO(iterador.next(), hoje));
+                    if (++total % LINHAS_POR_FLUSH == 0) {
+                        escritor.flush();
+                    }
+                }
+                escritor.close();
+                saida.write('\n');
+                saida.flush();
+            }
+        }
+        log.info("Exportação de livros emprestados concluída: {} registros", total);
+    }
+
     /**
      * Gera relatório de empréstimos por usuário
+     * A contagem por status é agregada pelo banco (GROUP BY com somas condicionais);
+     * apenas a página solicitada é trafegada e convertida.
      */
-    public List<UsuarioEmprestimosDTO> relatorioEmprestimosPorUsuario() {
+    public Page<UsuarioEmprestimosDTO> relatorioEmprestimosPorUsuario(Pageable pageable) {
         log.info("Gerando relatório de empréstimos por usuário");
 
-        return emprestimoRepository.findAll().stream()
-                .collect(Collectors.groupingBy(emp -> emp.getUsuario()))
-                .entrySet()
-                .stream()
-                .map(entry -> UsuarioEmprestimosDTO.builder()
-                        .usuarioId(entry.getKey().getId())
-                        .usuarioNome(entry.getKey().getNome())
-                        .usuarioEmail(entry.getKey().getEmail())
-                        .usuarioTipo(entry.getKey().getTipoUsuario())
-                        .totalEmprestimos(entry.getValue().size())
-                        .emprestimosDevolvidosCount(entry.getValue().stream()
-                                .filter(emp -> "DEVOLVIDO".equals(emp.getStatus()))
-                                .count())
-                        .emprestimosAtivosCount(entry.getValue().stream()
-                                .filter(emp -> "ATIVO".equals(emp.getStatus()))
-                                .count())
-                        .emprestimosAtrasadosCount(entry.getValue().stream()
-                                .filter(Emprestimo::estaAtrasado)
-                                .count())
-                        .build())
-                .sorted(Comparator.comparingLong(UsuarioEmprestimosDTO::getTotalEmprestimos).reversed())
-                .collect(Collectors.toList());
+        Sort ordenacao = Sort.unsorted();
+        for (Sort.Order ordem : pageable.getSort()) {
+            if (!ORDENACOES_EMPRESTIMOS_POR_USUARIO.contains(ordem.getProperty())) {
+                throw new ExcecaoNegocioException("Ordenação não suportada: " + ordem.getProperty());
+            }
+            ordenacao = ordenacao.and(Sort.by(ordem));
+        }
+        // Desempate pelo ID garante paginação estável
+        Pageable pagina = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(),
+                ordenacao.and(Sort.by("usuarioId")));
+
+        return emprestimoRepository.agregarEmprestimosPorUsuario(pagina)
+                .map(linha -> UsuarioEmprestimosDTO.builder()
+                        .usuarioId(linha.getUsuarioId())
+                        .usuarioNome(linha.getUsuarioNome())
+                        .usuarioEmail(linha.getUsuarioEmail())
+                        .usuarioTipo(linha.getUsuarioTipo())
+                        .totalEmprestimos(linha.getTotalEmprestimos())
+                        .emprestimosDevolvidosCount(linha.getEmprestimosDevolvidos())
+                        .emprestimosAtivosCount(linha.getEmprestimosAtivos())
+                        .emprestimosAtrasadosCount(linha.getEmprestimosAtrasados())
+                        .build());
     }
 
     /**
      * Gera relatório de livros por categoria
+     * Os totais vêm da tabela de estatísticas mantida incrementalmente (uma linha por categoria);
+     * a lista de livros de cada categoria só é carregada quando solicitada.
      */
-    public List<LivroPorCategoriaDTO> relatorioLivrosPorCategoria() {
+    public List<LivroPorCategoriaDTO> relatorioLivrosPorCategoria(boolean incluirLivros) {
         log.info("Gerando relatório de livros por categoria");
 
-        return livroRepository.findAll().stream()
-                .collect(Collectors.groupingBy(Livro::getCategoria))
-                .entrySet()
-                .stream()
-                .map(entry -> LivroPorCategoriaDTO.builder()
-                        .categoria(entry.getKey() != null ? entry.getKey() : "Sem Categoria")
-                        .totalLivros(entry.getValue().size())
-                        .copiasDisponiveis(entry.getValue().stream()
-                                .mapToInt(Livro::getCopiasDisponiveis)
-                                .sum())
-                        .copiasTotais(entry.getValue().stream()
-                                .mapToInt(Livro::getCopiasTotais)
-                                .sum())
-                        .taxaDisponibilidade(calcularTaxaDisponibilidade(entry.getValue()))
-                        .livros(entry.getValue().stream()
-                                .map(l -> new LivroResumoDTO(l.getId(), l.getTitulo(), l.getAutor(), l.getIsbn()))
-                                .collect(Collectors.toList()))
+        Map<String, List<LivroResumoDTO>> livrosPorCategoria = incluirLivros
+                ? livroRepository.listarResumos().stream()
+                        .collect(Collectors.groupingBy(
+                                l -> l.getCategoria() != null ? l.getCategoria() : EstatisticaCategoriaRepository.SEM_CATEGORIA,
+                                Collectors.mapping(
+                                        l -> new LivroResumoDTO(l.getId(), l.getTitulo(), l.getAutor(), l.getIsbn()),
+                                        Collectors.toList())))
+                : Map.of();
+
+        return estatisticaCategoriaService.listar().stream()
+                .map(estatistica -> LivroPorCategoriaDTO.builder()
+                        .categoria(estatistica.getCategoria())
+                        .totalLivros(estatistica.getTotalLivros())
+                        .copiasDisponiveis(estatistica.getCopiasDisponiveis())
+                        .copiasTotais(estatistica.getCopiasTotais())
+                        .taxaDisponibilidade(estatistica.getCopiasTotais() == 0 ? 0.0
+                                : (estatistica.getCopiasDisponiveis() * 100.0) / estatistica.getCopiasTotais())
+                        .livros(incluirLivros
+                                ? livrosPorCategoria.getOrDefault(estatistica.getCategoria(), List.of())
+                                : null)
                         .build())
-                .sorted(Comparator.comparing(LivroPorCategoriaDTO::getCategoria))
                 .collect(Collectors.toList());
     }
 
+    /**
+     * Recalcula as estatísticas por categoria a partir da tabela de livros
+     * @return quantidade de categorias gravadas
+     */
+    public int reconstruirEstatisticasCategoria() {
+        log.info("Reconstruindo estatísticas por categoria");
+        return estatisticaCategoriaService.reconstruir();
+    }
+
     /**
      * Gera relatório de atividade por período
      */
@@ -179,22 +282,78 @@ public class RelatorioService {
     }
 
     /**
-     * Calcula a taxa de disponibilidade de um grupo de livros
+     * Converte a projeção de um empréstimo ativo no DTO do relatório
+     */
+    private LivroEmprestadoDTO paraLivroEmprestadoDTO(LivroEmprestadoLinha linha, LocalDate hoje) {
+        boolean atrasado = hoje.isAfter(linha.getDataDeVolucaoPrevista());
+        return LivroEmprestadoDTO.builder()
+                .emprestimoId(linha.getEmprestimoId())
+                .livroId(linha.getLivroId())
+                .livroTitulo(linha.getLivroTitulo())
+                .livroAutor(linha.getLivroAutor())
+                .livroIsbn(linha.getLivroIsbn())
+                .usuarioId(linha.getUsuarioId())
+                .usuarioNome(linha.getUsuarioNome())
+                .usuarioEmail(linha.getUsuarioEmail())
+                .dataEmprestimo(linha.getDataEmprestimo())
+                .dataDeVolucaoPrevista(linha.getDataDeVolucaoPrevista())
+                .diasRestantes(ChronoUnit.DAYS.between(hoje, linha.getDataDeVolucaoPrevista()))
+                .estaAtrasado(atrasado)
+                .diasAtrasados(atrasado ? ChronoUnit.DAYS.between(linha.getDataDeVolucaoPrevista(), hoje) : 0)
+                .build();
+    }
+
+    /**
+     * Escreve um empréstimo como linha CSV (RFC 4180)
+     */
+    private void escreverLinhaCsv(Writer escritor, LivroEmprestadoDTO dto) throws IOException {
+        escritor.write(String.valueOf(dto.getEmprestimoId()));
+        escritor.write(',');
+        escritor.write(String.valueOf(dto.getLivroId()));
+        escritor.write(',');
+        escritor.write(campoCsv(dto.getLivroTitulo()));
+        escritor.write(',');
+        escritor.write(campoCsv(dto.getLivroAutor()));
+        escritor.write(',');
+        escritor.write(campoCsv(dto.getLivroIsbn()));
+        escritor.write(',');
+        escritor.write(String.valueOf(dto.getUsuarioId()));
+        escritor.write(',');
+        escritor.write(campoCsv(dto.getUsuarioNome()));
+        escritor.write(',');
+        escritor.write(campoCsv(dto.getUsuarioEmail()));
+        escritor.write(',');
+        escritor.write(dto.getDataEmprestimo().toString());
+        escritor.write(',');
+        escritor.write(dto.getDataDeVolucaoPrevista().toString());
+        escritor.write(',');
+        escritor.write(String.valueOf(dto.getDiasRestantes()));
+        escritor.write(',');
+        escritor.write(String.valueOf(dto.getEstaAtrasado()));
+        escritor.write(',');
+        escritor.write(String.valueOf(dto.getDiasAtrasados()));
+        escritor.write("\r\n");
+    }
+
+    /**
+     * Escapa um campo de texto para CSV
      */
-    private Double calcularTaxaDisponibilidade(List<Livro> livros) {
-        if (livros.isEmpty()) {
-            return 0.0;
+    private String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
         }
-        
-        long totalCopias = livros.stream()
-                .mapToLong(Livro::getCopiasTotais)
-                .sum();
-        
-        long copiasDisponiveis = livros.stream()
-                .mapToLong(Livro::getCopiasDisponiveis)
-                .sum();
-        
-        return totalCopias == 0 ? 0.0 : (copiasDisponiveis * 100.0) / totalCopias;
+        if (valor.indexOf(',') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0) {
+            return valor;
+        }
+        return '"' + valor.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * Formatos suportados na exportação em streaming
+     */
+    public enum FormatoExportacao {
+        NDJSON,
+        CSV
     }
 
     /**
@@ -257,10 +416,11 @@ public class RelatorioService {
     @lombok.Builder
     public static class LivroPorCategoriaDTO {
         private String categoria;
-        private int totalLivros;
-        private int copiasDisponiveis;
-        private int copiasTotais;
+        private long totalLivros;
+        private long copiasDisponiveis;
+        private long copiasTotais;
         private Double taxaDisponibilidade;
+        @JsonInclude(JsonInclude.Include.NON_NULL)
         private List<LivroResumoDTO> livros;
     }
 
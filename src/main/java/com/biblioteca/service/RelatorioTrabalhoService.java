@@ -0,0 +1,394 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.SolicitacaoRelatorio;
+import com.biblioteca.dto.SolicitacaoRelatorio.Tipo;
+import com.biblioteca.dto.TrabalhoRelatorio;
+import com.biblioteca.dto.TrabalhoRelatorio.Situacao;
+import com.biblioteca.exception.CapacidadeEsgotadaException;
+import com.biblioteca.exception.ExcecaoNegocioException;
+import com.biblioteca.exception.RecursoNaoEncontradoException;
+import com.biblioteca.service.VersaoDados.Dominio;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Relatórios calculados num executor limitado, com resultados reaproveitados por versão dos dados
+ *
+ * Um resultado é identificado pelo tipo, pelos parâmetros efetivos (padrões preenchidos), pela
+ * data corrente (prazos e atrasos dependem dela) e pela versão dos domínios de que o relatório
+ * depende ({@link VersaoDados}), lida antes do cálculo. Enquanto empréstimos, livros ou usuários
+ * relevantes não mudam, pedidos repetidos (GET síncronos ou trabalhos) recebem o resultado
+ * guardado; pedidos iguais simultâneos compartilham o mesmo cálculo. Com a fila do executor
+ * cheia, novos cálculos são recusados em vez de se acumularem sobre o banco.
+ *
+ * Um trabalho guarda só a chave do resultado, nunca o resultado: o limite de linhas em cache
+ * vale para tudo o que está em memória. Se o resultado foi descartado antes da consulta, o
+ * trabalho aparece como {@link Situacao#DESCARTADO}.
+ */
+@Service
+@Slf4j
+public class RelatorioTrabalhoService {
+
+    private static final int TAMANHO_MAXIMO_PAGINA = 2000;
+    private static final int TRABALHOS_RETIDOS = 10_000;
+
+    private final RelatorioService relatorioService;
+    private final VersaoDados versaoDados;
+    private final ThreadPoolExecutor executor;
+    private final AsyncCache<ChaveResultado, Object> resultados;
+    private final Cache<String, Trabalho> trabalhos;
+
+    public RelatorioTrabalhoService(RelatorioService relatorioService,
+                                    VersaoDados versaoDados,
+                                    @Value("${biblioteca.relatorios.threads:2}") int threads,
+                                    @Value("${biblioteca.relatorios.fila:50}") int fila,
+                                    @Value("${biblioteca.relatorios.linhas-em-cache:200000}") long linhasEmCache,
+                                    @Value("${biblioteca.relatorios.retencao-minutos:30}") long retencaoMinutos) {
+        this.relatorioService = relatorioService;
+        this.versaoDados = versaoDados;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(fila), Thread.ofPlatform().name("relatorio-", 1).daemon(true).factory());
+        Duration retencao = Duration.ofMinutes(retencaoMinutos);
+        this.resultados = Caffeine.newBuilder()
+                .maximumWeight(linhasEmCache)
+                .weigher((ChaveResultado chave, Object valor) -> linhas(valor))
+                .expireAfterAccess(retencao)
+                .buildAsync();
+        this.trabalhos = Caffeine.newBuilder()
+                .maximumSize(TRABALHOS_RETIDOS)
+                .expireAfterWrite(retencao)
+                .build();
+    }
+
+    /**
+     * Ranking dos livros mais emprestados (ver {@link RelatorioService#relatorioLivrosMaisEmprestados})
+     */
+    public List<RelatorioService.LivroComContagemDTO> livrosMaisEmprestados(int limite, Integer dias) {
+        Map<String, String> parametros = new HashMap<>();
+        parametros.put("limite", String.valueOf(limite));
+        if (dias != null) {
+            parametros.put("dias", String.valueOf(dias));
+        }
+        return gerar(Tipo.TOP_LIVROS, parametros);
+    }
+
+    /**
+     * Livros emprestados com previsão de devolução
+     */
+    public List<RelatorioService.LivroEmprestadoDTO> livrosEmprestados() {
+        return gerar(Tipo.LIVROS_EMPRESTADOS, Map.of());
+    }
+
+    /**
+     * Página do resumo de empréstimos por usuário
+     */
+    public Page<RelatorioService.UsuarioEmprestimosDTO> emprestimosPorUsuario(Pageable pageable) {
+        StringJoiner ordenacao = new StringJoiner(";");
+        for (Sort.Order ordem : pageable.getSort()) {
+            ordenacao.add(ordem.getProperty() + "," + ordem.getDirection().name().toLowerCase());
+        }
+        Map<String, String> parametros = new HashMap<>();
+        parametros.put("pagina", String.valueOf(pageable.getPageNumber()));
+        parametros.put("tamanho", String.valueOf(pageable.getPageSize()));
+        parametros.put("ordenacao", ordenacao.toString());
+        return gerar(Tipo.EMPRESTIMOS_POR_USUARIO, parametros);
+    }
+
+    /**
+     * Estatísticas de livros por categoria
+     */
+    public List<RelatorioService.LivroPorCategoriaDTO> livrosPorCategoria(boolean incluirLivros) {
+        return gerar(Tipo.LIVROS_POR_CATEGORIA, Map.of("incluirLivros", String.valueOf(incluirLivros)));
+    }
+
+    /**
+     * Atividade de empréstimos no período
+     */
+    public RelatorioService.RelatorioAtividadeDTO atividadePeriodo(LocalDate dataInicio, LocalDate dataFim) {
+        return gerar(Tipo.ATIVIDADE_PERIODO, Map.of("dataInicio", dataInicio.toString(), "dataFim", dataFim.toString()));
+    }
+
+    /**
+     * Submete um relatório para cálculo em segundo plano
+     * Se o resultado já estiver guardado para a versão atual dos dados, o trabalho nasce concluído.
+     * @throws CapacidadeEsgotadaException se a fila do executor estiver cheia
+     */
+    public TrabalhoRelatorio submeter(SolicitacaoRelatorio solicitacao) {
+        if (solicitacao == null || solicitacao.tipo() == null) {
+            throw new ExcecaoNegocioException("Tipo do relatório é obrigatório");
+        }
+        Pedido pedido = preparar(solicitacao.tipo(),
+                solicitacao.parametros() != null ? solicitacao.parametros() : Map.of());
+        CompletableFuture<Object> futuro = calcular(pedido);
+
+        Trabalho trabalho = new Trabalho(UUID.randomUUID().toString(), pedido, futuro.isDone());
+        trabalhos.put(trabalho.id, trabalho);
+        futuro.whenComplete(trabalho::concluir);
+        log.info("Trabalho de relatório {} submetido: {} {} (versão {}{})", trabalho.id, pedido.tipo(),
+                pedido.parametros(), pedido.chave().versao(), trabalho.doCache ? ", do cache" : "");
+        return trabalho.paraResposta(() -> resultadoGuardado(pedido.chave()));
+    }
+
+    /**
+     * Consulta um trabalho submetido (retido por {@code biblioteca.relatorios.retencao-minutos})
+     */
+    public TrabalhoRelatorio consultar(String id) {
+        Trabalho trabalho = trabalhos.getIfPresent(id);
+        if (trabalho == null) {
+            throw new RecursoNaoEncontradoException("Trabalho de relatório não encontrado: " + id);
+        }
+        return trabalho.paraResposta(() -> resultadoGuardado(trabalho.pedido.chave()));
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Gera o relatório aguardando o executor, ou devolve o resultado guardado
+     */
+    @SuppressWarnings("unchecked")
+    private <T> T gerar(Tipo tipo, Map<String, String> parametros) {
+        try {
+            return (T) calcular(preparar(tipo, parametros)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<Object> calcular(Pedido pedido) {
+        try {
+            return resultados.get(pedido.chave(), (chave, ignorado) -> CompletableFuture.supplyAsync(() -> {
+                long inicio = System.nanoTime();
+                Object resultado = pedido.calculo().get();
+                log.debug("Relatório {} {} calculado em {} ms (versão {})", chave.tipo(), chave.parametros(),
+                        (System.nanoTime() - inicio) / 1_000_000, chave.versao());
+                return resultado;
+            }, executor));
+        } catch (RejectedExecutionException e) {
+            throw new CapacidadeEsgotadaException("Fila de relatórios cheia; tente novamente em instantes");
+        }
+    }
+
+    /**
+     * Resultado já calculado e ainda em cache para a chave, ou nulo
+     */
+    private Object resultadoGuardado(ChaveResultado chave) {
+        CompletableFuture<Object> futuro = resultados.getIfPresent(chave);
+        if (futuro == null || !futuro.isDone() || futuro.isCompletedExceptionally()) {
+            return null;
+        }
+        return futuro.join();
+    }
+
+    /**
+     * Valida os parâmetros, preenche os padrões e monta a chave e o cálculo do relatório
+     */
+    private Pedido preparar(Tipo tipo, Map<String, String> informados) {
+        SortedMap<String, String> parametros = new TreeMap<>();
+        Supplier<Object> calculo;
+        switch (tipo) {
+            case TOP_LIVROS -> {
+                aceitar(informados, "limite", "dias");
+                int limite = inteiro(informados, "limite", 20);
+                Integer dias = informados.get("dias") != null ? inteiro(informados, "dias", 0) : null;
+                parametros.put("limite", String.valueOf(limite));
+                if (dias != null) {
+                    parametros.put("dias", String.valueOf(dias));
+                }
+                calculo = () -> relatorioService.relatorioLivrosMaisEmprestados(limite, dias);
+            }
+            case LIVROS_EMPRESTADOS -> {
+                aceitar(informados);
+                calculo = relatorioService::relatorioLivrosEmprestados;
+            }
+            case EMPRESTIMOS_POR_USUARIO -> {
+                aceitar(informados, "pagina", "tamanho", "ordenacao");
+                int pagina = inteiro(informados, "pagina", 0);
+                int tamanho = inteiro(informados, "tamanho", 20);
+                if (pagina < 0 || tamanho < 1 || tamanho > TAMANHO_MAXIMO_PAGINA) {
+                    throw new ExcecaoNegocioException("Página deve ser positiva e tamanho entre 1 e " + TAMANHO_MAXIMO_PAGINA);
+                }
+                String textoOrdenacao = informados.getOrDefault("ordenacao", "");
+                Sort ordenacao = ordenacao(textoOrdenacao.isBlank() ? "totalEmprestimos,desc" : textoOrdenacao);
+                parametros.put("pagina", String.valueOf(pagina));
+                parametros.put("tamanho", String.valueOf(tamanho));
+                parametros.put("ordenacao", ordenacao.stream()
+                        .map(ordem -> ordem.getProperty() + "," + ordem.getDirection().name().toLowerCase())
+                        .reduce((a, b) -> a + ";" + b).orElse(""));
+                Pageable pageable = PageRequest.of(pagina, tamanho, ordenacao);
+                calculo = () -> relatorioService.relatorioEmprestimosPorUsuario(pageable);
+            }
+            case LIVROS_POR_CATEGORIA -> {
+                aceitar(informados, "incluirLivros");
+                boolean incluirLivros = Boolean.parseBoolean(informados.getOrDefault("incluirLivros", "false"));
+                parametros.put("incluirLivros", String.valueOf(incluirLivros));
+                calculo = () -> relatorioService.relatorioLivrosPorCategoria(incluirLivros);
+            }
+            case ATIVIDADE_PERIODO -> {
+                aceitar(informados, "dataInicio", "dataFim");
+                LocalDate dataInicio = data(informados, "dataInicio", LocalDate.now().minusMonths(1));
+                LocalDate dataFim = data(informados, "dataFim", LocalDate.now());
+                parametros.put("dataInicio", dataInicio.toString());
+                parametros.put("dataFim", dataFim.toString());
+                calculo = () -> relatorioService.relatorioAtividadePeriodo(dataInicio, dataFim);
+            }
+            default -> throw new ExcecaoNegocioException("Relatório não suportado: " + tipo);
+        }
+        long versao = versaoDados.versao(dominios(tipo));
+        return new Pedido(tipo, parametros, calculo, new ChaveResultado(tipo, parametros, LocalDate.now(), versao));
+    }
+
+    /**
+     * Dados de que cada relatório depende (checkout e devolução também alteram o estoque dos livros)
+     */
+    private static Set<Dominio> dominios(Tipo tipo) {
+        return switch (tipo) {
+            case TOP_LIVROS -> EnumSet.of(Dominio.EMPRESTIMOS, Dominio.LIVROS);
+            case LIVROS_EMPRESTADOS -> EnumSet.allOf(Dominio.class);
+            case EMPRESTIMOS_POR_USUARIO -> EnumSet.of(Dominio.EMPRESTIMOS, Dominio.USUARIOS);
+            case LIVROS_POR_CATEGORIA -> EnumSet.of(Dominio.LIVROS);
+            case ATIVIDADE_PERIODO -> EnumSet.of(Dominio.EMPRESTIMOS);
+        };
+    }
+
+    private static void aceitar(Map<String, String> informados, String... aceitos) {
+        Set<String> permitidos = Set.of(aceitos);
+        for (String nome : informados.keySet()) {
+            if (!permitidos.contains(nome)) {
+                throw new ExcecaoNegocioException("Parâmetro não suportado: " + nome
+                        + (permitidos.isEmpty() ? " (o relatório não tem parâmetros)" : "; aceitos: " + String.join(", ", aceitos)));
+            }
+        }
+    }
+
+    private static int inteiro(Map<String, String> informados, String nome, int padrao) {
+        String valor = informados.get(nome);
+        if (valor == null || valor.isBlank()) {
+            return padrao;
+        }
+        try {
+            return Integer.parseInt(valor.trim());
+        } catch (NumberFormatException e) {
+            throw new ExcecaoNegocioException("Parâmetro " + nome + " deve ser um número inteiro");
+        }
+    }
+
+    private static LocalDate data(Map<String, String> informados, String nome, LocalDate padrao) {
+        String valor = informados.get(nome);
+        if (valor == null || valor.isBlank()) {
+            return padrao;
+        }
+        try {
+            return LocalDate.parse(valor.trim());
+        } catch (DateTimeParseException e) {
+            throw new ExcecaoNegocioException("Parâmetro " + nome + " deve estar no formato AAAA-MM-DD");
+        }
+    }
+
+    /**
+     * Interpreta "campo,direcao;campo,direcao" (direção opcional, crescente por padrão)
+     */
+    private static Sort ordenacao(String texto) {
+        Sort ordenacao = Sort.unsorted();
+        for (String item : texto.split(";")) {
+            String[] partes = item.trim().split(",");
+            Sort.Direction direcao = Sort.Direction.ASC;
+            if (partes.length > 1) {
+                direcao = Sort.Direction.fromOptionalString(partes[1].trim())
+                        .orElseThrow(() -> new ExcecaoNegocioException("Direção de ordenação inválida: " + partes[1]));
+            }
+            ordenacao = ordenacao.and(Sort.by(direcao, partes[0].trim()));
+        }
+        return ordenacao;
+    }
+
+    /**
+     * Peso de um resultado no cache: linhas do relatório
+     */
+    private static int linhas(Object valor) {
+        if (valor instanceof Collection<?> colecao) {
+            return Math.max(1, colecao.size());
+        }
+        if (valor instanceof Page<?> pagina) {
+            return Math.max(1, pagina.getNumberOfElements());
+        }
+        return 1;
+    }
+
+    private record ChaveResultado(Tipo tipo, SortedMap<String, String> parametros, LocalDate dia, long versao) {
+    }
+
+    private record Pedido(Tipo tipo, SortedMap<String, String> parametros, Supplier<Object> calculo, ChaveResultado chave) {
+    }
+
+    /**
+     * Estado de um trabalho submetido; concluído uma única vez, pela thread que termina o cálculo
+     * O resultado fica só no cache de resultados, sob a chave do pedido.
+     */
+    private static final class Trabalho {
+        private final String id;
+        private final Pedido pedido;
+        private final boolean doCache;
+        private final LocalDateTime solicitadoEm = LocalDateTime.now();
+        private volatile Situacao situacao = Situacao.EM_ANDAMENTO;
+        private volatile LocalDateTime concluidoEm;
+        private volatile String erro;
+
+        private Trabalho(String id, Pedido pedido, boolean doCache) {
+            this.id = id;
+            this.pedido = pedido;
+            this.doCache = doCache;
+        }
+
+        private void concluir(Object ignorado, Throwable falha) {
+            if (falha != null) {
+                Throwable causa = falha instanceof CompletionException && falha.getCause() != null ? falha.getCause() : falha;
+                erro = causa.getMessage() != null ? causa.getMessage() : causa.getClass().getSimpleName();
+                log.warn("Trabalho de relatório {} falhou: {}", id, erro);
+            }
+            concluidoEm = LocalDateTime.now();
+            situacao = falha != null ? Situacao.FALHOU : Situacao.CONCLUIDO;
+        }
+
+        /**
+         * @param guardado resultado em cache para a chave do pedido (nulo se já descartado),
+         *                 lido só depois da situação para não confundir "ainda calculando" com "descartado"
+         */
+        private TrabalhoRelatorio paraResposta(Supplier<Object> guardado) {
+            Situacao atual = situacao;
+            LocalDateTime fim = concluidoEm;
+            String motivo = erro;
+            Object resultado = atual == Situacao.CONCLUIDO ? guardado.get() : null;
+            if (atual == Situacao.CONCLUIDO && resultado == null) {
+                atual = Situacao.DESCARTADO;
+                motivo = "Resultado descartado do cache de relatórios; submeta o trabalho novamente";
+            }
+            return new TrabalhoRelatorio(id, pedido.tipo(), pedido.parametros(), atual, pedido.chave().versao(),
+                    doCache, solicitadoEm, fim, fim != null ? ChronoUnit.MILLIS.between(solicitadoEm, fim) : null,
+                    motivo, atual == Situacao.CONCLUIDO ? resultado : null);
+        }
+    }
+}
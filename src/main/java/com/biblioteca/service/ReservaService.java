@@ -0,0 +1,280 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.ReservaDTO;
+import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.entity.Reserva;
+import com.biblioteca.entity.Usuario;
+import com.biblioteca.evento.EmprestimoCriadoEvento;
+import com.biblioteca.evento.EstoqueLivroAlteradoEvento;
+import com.biblioteca.evento.ReservaEncerradaEvento;
+import com.biblioteca.exception.CheckoutRejeitadoException;
+import com.biblioteca.exception.ExcecaoNegocioException;
+import com.biblioteca.exception.RecursoNaoEncontradoException;
+import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.repository.ReservaRepository;
+import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.service.FilaReservas.Espera;
+import com.biblioteca.service.VersaoDados.Dominio;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Serviço de negócio para a fila de reservas dos livros sem cópias disponíveis
+ *
+ * Em vez de repetir o pedido de empréstimo até uma cópia aparecer, o usuário entra na fila
+ * do livro; a devolução entrega a cópia diretamente ao primeiro da fila, que recebe o
+ * empréstimo e o aviso da {@link NotificacaoReservas}.
+ *
+ * A reserva só exige estoque zerado no momento do pedido e entra na fila após o commit; uma
+ * devolução confirmada nesse intervalo manda a cópia ao estoque sem ver a reserva. Por isso
+ * cada lado confere o outro depois de publicar o seu: a reserva, já na fila, olha o saldo do
+ * livro-razão, e a devolução, já creditada, olha a fila. Quem encontrar os dois atende a fila
+ * com cópias do estoque ({@link #atenderComEstoque(Long)}).
+ */
+@Service
+@Slf4j
+@Transactional
+public class ReservaService {
+
+    private final ReservaRepository reservaRepository;
+    private final LivroRepository livroRepository;
+    private final UsuarioRepository usuarioRepository;
+    private final LedgerDisponibilidade ledgerDisponibilidade;
+    private final FilaReservas filaReservas;
+    private final MotorCheckout motorCheckout;
+    private final EstatisticaCategoriaService estatisticaCategoriaService;
+    private final VersaoDados versaoDados;
+    private final ApplicationEventPublisher eventos;
+    private final TransactionTemplate transacaoIsolada;
+
+    public ReservaService(ReservaRepository reservaRepository,
+                          LivroRepository livroRepository,
+                          UsuarioRepository usuarioRepository,
+                          LedgerDisponibilidade ledgerDisponibilidade,
+                          FilaReservas filaReservas,
+                          MotorCheckout motorCheckout,
+                          EstatisticaCategoriaService estatisticaCategoriaService,
+                          VersaoDados versaoDados,
+                          ApplicationEventPublisher eventos,
+                          PlatformTransactionManager transactionManager) {
+        this.reservaRepository = reservaRepository;
+        this.livroRepository = livroRepository;
+        this.usuarioRepository = usuarioRepository;
+        this.ledgerDisponibilidade = ledgerDisponibilidade;
+        this.filaReservas = filaReservas;
+        this.motorCheckout = motorCheckout;
+        this.estatisticaCategoriaService = estatisticaCategoriaService;
+        this.versaoDados = versaoDados;
+        this.eventos = eventos;
+        this.transacaoIsolada = new TransactionTemplate(transactionManager);
+        this.transacaoIsolada.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Coloca o usuário no fim da fila de um livro sem cópias disponíveis
+     */
+    public Reserva reservar(ReservaDTO dto) {
+        Long livroId = dto.getLivroId();
+        Long usuarioId = dto.getUsuarioId();
+        log.debug("Reservando livro ID: {} para usuário ID: {}", livroId, usuarioId);
+
+        // Saldo do livro-razão, sem ida ao banco para títulos já carregados
+        if (ledgerDisponibilidade.consultar(livroId) > 0) {
+            throw new ExcecaoNegocioException("Há cópias disponíveis do livro; faça o empréstimo");
+        }
+
+        Usuario usuario = usuarioRepository.findById(usuarioId)
+                .orElseThrow(() -> new RecursoNaoEncontradoException("Usuário não encontrado com ID: " + usuarioId));
+        if (!Boolean.TRUE.equals(usuario.getAtivo())) {
+            throw new ExcecaoNegocioException("Usuário não está ativo");
+        }
+
+        if (!filaReservas.reservarLugar(livroId, usuarioId)) {
+            throw new ExcecaoNegocioException("Usuário já está na fila de reservas deste livro");
+        }
+
+        Reserva reserva = reservaRepository.save(Reserva.builder()
+                .livro(livroRepository.getReferenceById(livroId))
+                .usuario(usuario)
+                .status("AGUARDANDO")
+                .build());
+        filaReservas.enfileirarAposCommit(livroId, reserva.getId(), usuarioId);
+        // Já na fila: uma devolução confirmada depois da consulta ao saldo deixou a cópia no estoque
+        SincronizacaoTransacao.aposCommit(() -> {
+            if (ledgerDisponibilidade.consultar(livroId) > 0) {
+                atenderComEstoque(livroId);
+            }
+        });
+        log.debug("Reserva criada: ID {}", reserva.getId());
+        return reserva;
+    }
+
+    /**
+     * Cancela uma reserva que ainda aguarda na fila
+     * Concorrendo com o atendimento, a tentativa refeita encontra a reserva já atendida.
+     */
+    @RetentarEmConflito
+    public Reserva cancelar(Long id) {
+        log.debug("Cancelando reserva: {}", id);
+        Reserva reserva = buscarPorId(id);
+
+        if (!reserva.estaAguardando()) {
+            throw new ExcecaoNegocioException("Reserva não está aguardando na fila");
+        }
+
+        reserva.setStatus("CANCELADA");
+        Reserva reservaAtualizada = reservaRepository.save(reserva);
+        Long livroId = reserva.getLivro().getId();
+        Long usuarioId = reserva.getUsuario().getId();
+        filaReservas.removerAposCommit(livroId, id, usuarioId);
+        eventos.publishEvent(new ReservaEncerradaEvento(id, livroId, usuarioId, "CANCELADA", null, null));
+        return reservaAtualizada;
+    }
+
+    /**
+     * Entrega a cópia devolvida ao primeiro da fila do livro, criando o empréstimo dele
+     *
+     * Chamado na transação da devolução. Quem não puder emprestar na sua vez (inativo, no
+     * limite ou com atraso) tem a reserva recusada com o motivo, e a cópia segue para o próximo.
+     * @return o empréstimo criado, ou vazio se ninguém aguardava (a cópia volta ao estoque)
+     */
+    public Optional<Emprestimo> entregarCopiaDevolvida(Long livroId) {
+        for (Espera espera = filaReservas.retirar(livroId); espera != null; espera = filaReservas.retirar(livroId)) {
+            Reserva reserva = reservaRepository.findById(espera.reservaId()).orElse(null);
+            if (reserva == null || !reserva.estaAguardando()) {
+                // Cancelada por uma transação cujo commit ainda não chegou à fila
+                continue;
+            }
+
+            try {
+                Emprestimo emprestimo = motorCheckout.efetuarComCopiaDevolvida(
+                        livroId, espera.usuarioId(), "Atendimento da reserva " + reserva.getId());
+                reserva.setStatus("ATENDIDA");
+                reserva.setEmprestimoId(emprestimo.getId());
+                reservaRepository.save(reserva);
+                eventos.publishEvent(new EmprestimoCriadoEvento(emprestimo.getId(), livroId,
+                        espera.usuarioId(), emprestimo.getDataEmprestimo()));
+                eventos.publishEvent(new ReservaEncerradaEvento(reserva.getId(), livroId, espera.usuarioId(),
+                        "ATENDIDA", null, emprestimo.getId()));
+                log.debug("Cópia do livro ID {} entregue à reserva {}: empréstimo ID {}",
+                        livroId, reserva.getId(), emprestimo.getId());
+                return Optional.of(emprestimo);
+            } catch (CheckoutRejeitadoException recusa) {
+                reserva.setStatus("RECUSADA");
+                reserva.setMotivo(recusa.getMotivo().name());
+                reservaRepository.save(reserva);
+                eventos.publishEvent(new ReservaEncerradaEvento(reserva.getId(), livroId, espera.usuarioId(),
+                        "RECUSADA", recusa.getMotivo().name(), null));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Após o commit da devolução que mandou a cópia ao estoque, atende a fila do livro se uma
+     * reserva chegou a ela depois da entrega ter sido tentada
+     */
+    public void atenderFilaAposCommit(Long livroId) {
+        SincronizacaoTransacao.aposCommit(() -> {
+            if (filaReservas.temEspera(livroId)) {
+                atenderComEstoque(livroId);
+            }
+        });
+    }
+
+    /**
+     * Tira cópias do estoque para a fila do livro enquanto houver saldo e reservas aguardando
+     *
+     * Cada cópia é debitada e entregue como uma cópia devolvida, numa transação própria; se
+     * ninguém da fila puder recebê-la, volta ao estoque. Roda após o commit de quem chamou, então
+     * uma falha fica no log e as reservas seguem na fila até a próxima devolução.
+     */
+    void atenderComEstoque(Long livroId) {
+        try {
+            while (Boolean.TRUE.equals(transacaoIsolada.execute(status -> entregarCopiaDoEstoque(livroId)))) {
+                log.debug("Reserva do livro ID {} atendida com cópia do estoque", livroId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Falha ao atender a fila do livro ID {} com cópias do estoque", livroId, e);
+        }
+    }
+
+    private boolean entregarCopiaDoEstoque(Long livroId) {
+        if (!filaReservas.temEspera(livroId) || !ledgerDisponibilidade.tentarReservar(livroId)) {
+            return false;
+        }
+        LocalDateTime agora = LocalDateTime.now();
+        if (livroRepository.debitarCopias(livroId, 1, agora) == 0) {
+            // Saldo em memória estava à frente do banco: descarta para recarregar
+            ledgerDisponibilidade.invalidar(livroId);
+            return false;
+        }
+        if (entregarCopiaDevolvida(livroId).isEmpty()) {
+            // Toda a fila recusou a cópia (recusas já gravadas): ela volta ao estoque
+            livroRepository.creditarCopias(livroId, 1, agora);
+            ledgerDisponibilidade.estornar(livroId, 1);
+            return false;
+        }
+        estatisticaCategoriaService.registrarVariacaoEstoqueAposCommit(livroId, -1);
+        eventos.publishEvent(new EstoqueLivroAlteradoEvento(livroId, -1));
+        versaoDados.registrarAlteracaoAposCommit(Dominio.EMPRESTIMOS, Dominio.LIVROS);
+        return true;
+    }
+
+    /**
+     * Busca uma reserva por ID
+     */
+    @Transactional(readOnly = true)
+    public Reserva buscarPorId(Long id) {
+        log.debug("Buscando reserva com ID: {}", id);
+        return reservaRepository.findById(id)
+                .orElseThrow(() -> new RecursoNaoEncontradoException("Reserva não encontrada com ID: " + id));
+    }
+
+    /**
+     * Reservas que aguardam um livro, na ordem da fila
+     */
+    @Transactional(readOnly = true)
+    public List<Reserva> listarFila(Long livroId) {
+        List<Long> ids = filaReservas.listar(livroId).stream().map(Espera::reservaId).toList();
+        Map<Long, Reserva> reservas = reservaRepository.findAllById(ids).stream()
+                .collect(Collectors.toMap(Reserva::getId, Function.identity()));
+        return ids.stream()
+                .map(reservas::get)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    /**
+     * Lista as reservas de um usuário, da mais recente para a mais antiga
+     */
+    @Transactional(readOnly = true)
+    public Page<Reserva> listarPorUsuario(Long usuarioId, Pageable pageable) {
+        log.debug("Listando reservas do usuário ID: {}", usuarioId);
+        return reservaRepository.findByUsuarioIdOrderByIdDesc(usuarioId, pageable);
+    }
+
+    /**
+     * Posição da reserva na fila do livro, a partir de 1 (nula se não aguarda mais)
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public Integer posicao(Reserva reserva) {
+        return reserva.estaAguardando() ? filaReservas.posicao(reserva.getLivro().getId(), reserva.getId()) : null;
+    }
+}
@@ -0,0 +1,21 @@
+package com.biblioteca.service;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Refaz a operação, em uma nova transação, quando o commit é recusado pelo bloqueio otimista
+ *
+ * Só vale para operações que releem o estado e decidem de novo a cada tentativa (checkout,
+ * devolução, renovação). Edições que gravam valores absolutos vindos do cliente não devem
+ * ser refeitas: o conflito vai para o cliente (409), que relê e decide.
+ * @see RetentativaConflitos
+ */
+@Documented
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface RetentarEmConflito {
+}
@@ -0,0 +1,97 @@
+package com.biblioteca.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Retentativa das operações marcadas com {@link RetentarEmConflito}
+ *
+ * Envolve o proxy transacional (a medição de {@code biblioteca.servico} fica por fora e conta a
+ * operação uma vez): cada tentativa é uma transação nova, que relê livro e empréstimo. Conflitos de
+ * versão e perdas de deadlock ({@link ConcurrencyFailureException}) são refeitos até
+ * {@code biblioteca.conflitos.tentativas} vezes, com espera aleatória entre zero e um teto que
+ * dobra a cada tentativa (a partir de {@code espera-base-ms}, limitado a {@code espera-maxima-ms}),
+ * para que as threads que colidiram não voltem juntas. Esgotadas as tentativas, o conflito segue
+ * para o cliente (409). Conflitos refeitos e esgotados são contados em {@code biblioteca.conflitos}.
+ */
+@Aspect
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 1)
+@Slf4j
+public class RetentativaConflitos {
+
+    static final String METRICA = "biblioteca.conflitos";
+
+    private final MeterRegistry meterRegistry;
+    private final int tentativas;
+    private final long esperaBaseMs;
+    private final long esperaMaximaMs;
+
+    public RetentativaConflitos(MeterRegistry meterRegistry,
+                                @Value("${biblioteca.conflitos.tentativas:5}") int tentativas,
+                                @Value("${biblioteca.conflitos.espera-base-ms:2}") long esperaBaseMs,
+                                @Value("${biblioteca.conflitos.espera-maxima-ms:100}") long esperaMaximaMs) {
+        this.meterRegistry = meterRegistry;
+        this.tentativas = Math.max(1, tentativas);
+        this.esperaBaseMs = esperaBaseMs;
+        this.esperaMaximaMs = esperaMaximaMs;
+    }
+
+    @Around("@annotation(com.biblioteca.service.RetentarEmConflito)")
+    public Object executar(ProceedingJoinPoint chamada) throws Throwable {
+        // Numa transação já aberta por quem chamou, o conflito só aparece no commit dela
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return chamada.proceed();
+        }
+        for (int tentativa = 1; ; tentativa++) {
+            try {
+                return chamada.proceed();
+            } catch (ConcurrencyFailureException conflito) {
+                String operacao = chamada.getSignature().getDeclaringType().getSimpleName()
+                        + "." + chamada.getSignature().getName();
+                if (tentativa >= tentativas) {
+                    contar(operacao, "esgotado");
+                    log.warn("Conflito de concorrência em {} persistiu após {} tentativa(s)", operacao, tentativa);
+                    throw conflito;
+                }
+                contar(operacao, "refeito");
+                log.debug("Conflito de concorrência em {} (tentativa {}): {}", operacao, tentativa, conflito.getMessage());
+                try {
+                    Thread.sleep(espera(tentativa));
+                } catch (InterruptedException interrupcao) {
+                    Thread.currentThread().interrupt();
+                    throw conflito;
+                }
+            }
+        }
+    }
+
+    /**
+     * Espera aleatória entre zero e o teto da tentativa (jitter completo)
+     */
+    private long espera(int tentativa) {
+        long teto = Math.min(esperaMaximaMs, esperaBaseMs << Math.min(tentativa - 1, 20));
+        return teto <= 0 ? 0 : ThreadLocalRandom.current().nextLong(teto + 1);
+    }
+
+    private void contar(String operacao, String desfecho) {
+        Counter.builder(METRICA)
+                .description("Conflitos de concorrência nas operações com retentativa, refeitos ou esgotados")
+                .tag("operacao", operacao)
+                .tag("desfecho", desfecho)
+                .register(meterRegistry)
+                .increment();
+    }
+}
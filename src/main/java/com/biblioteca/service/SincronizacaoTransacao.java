@@ -0,0 +1,90 @@
+package com.biblioteca.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Utilitário para agendar ações em memória conforme o desfecho da transação corrente
+ *
+ * Usado pelas estruturas em memória (livro-razão, índices) para só refletirem
+ * alterações confirmadas e desfazerem reservas quando houver rollback.
+ */
+public final class SincronizacaoTransacao {
+
+    private SincronizacaoTransacao() {
+    }
+
+    /**
+     * Executa a ação após o commit (ou imediatamente, se não houver transação ativa)
+     */
+    public static void aposCommit(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            acao.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+        });
+    }
+
+    /**
+     * Executa a ação após o commit, segurando a trava do início do commit até o fim da ação
+     * Quem adquirir a trava nunca encontra a transação confirmada no banco e a ação ainda
+     * pendente. Sem transação ativa, executa a ação imediatamente sob a trava.
+     */
+    public static void aposCommitComTrava(Lock trava, Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            trava.lock();
+            try {
+                acao.run();
+            } finally {
+                trava.unlock();
+            }
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            private boolean travada;
+
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                trava.lock();
+                travada = true;
+            }
+
+            @Override
+            public void afterCommit() {
+                acao.run();
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (travada) {
+                    travada = false;
+                    trava.unlock();
+                }
+            }
+        });
+    }
+
+    /**
+     * Executa a ação somente se a transação corrente sofrer rollback
+     */
+    public static void aposRollback(Runnable acao) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                if (status == STATUS_ROLLED_BACK) {
+                    acao.run();
+                }
+            }
+        });
+    }
+}
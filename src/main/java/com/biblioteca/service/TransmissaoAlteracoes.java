@@ -0,0 +1,457 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.AlteracaoAcervo;
+import com.biblioteca.evento.EmprestimoCriadoEvento;
+import com.biblioteca.evento.EmprestimoDevolvidoEvento;
+import com.biblioteca.evento.EmprestimoRemovidoEvento;
+import com.biblioteca.evento.EmprestimoRenovadoEvento;
+import com.biblioteca.evento.EstoqueLivroAlteradoEvento;
+import com.biblioteca.exception.CapacidadeEsgotadaException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Transmissão por server-sent events das alterações de empréstimos e de estoque
+ *
+ * Reage após o commit aos eventos dos serviços de empréstimos e livros, então só transmite
+ * alterações confirmadas. Cada alteração é serializada uma vez e recebe um número de sequência,
+ * enviado como {@code id} do evento. Quem publica só numera a alteração e a põe num registro
+ * ordenado; a distribuição aos assinantes e o envio correm num pool pequeno de threads
+ * ({@code biblioteca.alteracoes.threads-envio}), fora do bloqueio e fora da thread do commit.
+ *
+ * Cada assinante tem um buffer limitado, esvaziado em lotes por uma tarefa do pool de cada vez:
+ * quem não acompanha o ritmo e enche o buffer é desconectado com o evento {@code DESCARTADO},
+ * em vez de acumular memória ou atrasar quem publica. Uma escrita parada além de
+ * {@code biblioteca.alteracoes.limite-envio-ms} também descarta o assinante, e o pool ganha uma
+ * thread enquanto aquela escrita não volta, para que clientes parados não travem os demais.
+ * Fora o descarte, nenhuma alteração é perdida; o cliente descartado reconecta e relê o estado pela API.
+ */
+@Component
+@Slf4j
+public class TransmissaoAlteracoes {
+
+    private static final String BATIMENTO = "batimento";
+
+    private final ObjectMapper objectMapper;
+    private final LedgerDisponibilidade ledgerDisponibilidade;
+    private final int capacidadeBuffer;
+    private final int maximoAssinantes;
+    private final long timeoutMs;
+    private final int threadsEnvio;
+    private final long limiteEnvioMs;
+    private final Counter descartes;
+
+    private final Set<Assinante> assinantes = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Alterações numeradas e ainda não distribuídas, na ordem da sequência
+     */
+    private final ConcurrentLinkedQueue<Publicacao> publicacoes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean distribuindo = new AtomicBoolean();
+
+    // Threads de plataforma: o send do SseEmitter é synchronized e, com o cliente lento, bloqueia na
+    // escrita; numa thread virtual isso prenderia a portadora e pararia os envios dos demais assinantes
+    private final ThreadPoolExecutor envios;
+    private int enviosPresos;
+    private long sequencia;
+
+    public TransmissaoAlteracoes(ObjectMapper objectMapper,
+                                 LedgerDisponibilidade ledgerDisponibilidade,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${biblioteca.alteracoes.buffer:256}") int capacidadeBuffer,
+                                 @Value("${biblioteca.alteracoes.maximo-assinantes:10000}") int maximoAssinantes,
+                                 @Value("${biblioteca.alteracoes.timeout-ms:1800000}") long timeoutMs,
+                                 @Value("${biblioteca.alteracoes.threads-envio:4}") int threadsEnvio,
+                                 @Value("${biblioteca.alteracoes.limite-envio-ms:5000}") long limiteEnvioMs) {
+        this.objectMapper = objectMapper;
+        this.ledgerDisponibilidade = ledgerDisponibilidade;
+        this.capacidadeBuffer = capacidadeBuffer;
+        this.maximoAssinantes = maximoAssinantes;
+        this.timeoutMs = timeoutMs;
+        this.threadsEnvio = threadsEnvio;
+        this.limiteEnvioMs = limiteEnvioMs;
+        this.envios = new ThreadPoolExecutor(threadsEnvio, threadsEnvio, 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                Thread.ofPlatform().name("alteracoes-", 1).daemon(true).stackSize(256 * 1024).factory());
+        Gauge.builder("biblioteca.alteracoes.assinantes", assinantes, Set::size)
+                .description("Assinantes conectados ao fluxo de alterações")
+                .register(meterRegistry);
+        Gauge.builder("biblioteca.alteracoes.envios-presos", this, transmissao -> transmissao.enviosPresosAtuais())
+                .description("Escritas paradas além do limite, cada uma compensada com uma thread extra no pool de envio")
+                .register(meterRegistry);
+        this.descartes = Counter.builder("biblioteca.alteracoes.descartes")
+                .description("Assinantes desconectados por não acompanharem o fluxo (buffer cheio ou escrita parada)")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Registra um assinante, opcionalmente restrito a alguns livros
+     * @param livroIds livros acompanhados (nulo ou vazio para todos)
+     */
+    public SseEmitter assinar(Collection<Long> livroIds) {
+        if (assinantes.size() >= maximoAssinantes) {
+            throw new CapacidadeEsgotadaException("Limite de assinantes do fluxo de alterações atingido");
+        }
+        Assinante assinante;
+        synchronized (this) {
+            assinante = new Assinante(new SseEmitter(timeoutMs),
+                    livroIds == null || livroIds.isEmpty() ? null : Set.copyOf(livroIds),
+                    new ArrayBlockingQueue<>(capacidadeBuffer), sequencia);
+            assinante.buffer.offer(new Mensagem(sequencia, "CONECTADO",
+                    serializar(AlteracaoAcervo.controle("CONECTADO")), false));
+            assinantes.add(assinante);
+        }
+        SseEmitter emissor = assinante.emissor;
+        emissor.onCompletion(() -> encerrar(assinante));
+        emissor.onError(erro -> encerrar(assinante));
+        emissor.onTimeout(() -> {
+            encerrar(assinante);
+            emissor.complete();
+        });
+        assinante.agendar();
+        log.debug("Assinante conectado ao fluxo de alterações ({} livro(s) filtrado(s)); total: {}",
+                assinante.livroIds != null ? assinante.livroIds.size() : 0, assinantes.size());
+        return emissor;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoCriarEmprestimo(EmprestimoCriadoEvento evento) {
+        publicar(AlteracaoAcervo.emprestimo("EMPRESTIMO_CRIADO", evento.getEmprestimoId(), evento.getLivroId(),
+                evento.getUsuarioId(), evento.getDataEmprestimo(), null));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoDevolverEmprestimo(EmprestimoDevolvidoEvento evento) {
+        publicar(AlteracaoAcervo.emprestimo("EMPRESTIMO_DEVOLVIDO", evento.getEmprestimoId(), evento.getLivroId(),
+                evento.getUsuarioId(), null, null));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoRenovarEmprestimo(EmprestimoRenovadoEvento evento) {
+        publicar(AlteracaoAcervo.emprestimo("EMPRESTIMO_RENOVADO", evento.getEmprestimoId(), evento.getLivroId(),
+                evento.getUsuarioId(), null, evento.getDataDeVolucaoPrevista()));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoRemoverEmprestimo(EmprestimoRemovidoEvento evento) {
+        publicar(AlteracaoAcervo.emprestimo("EMPRESTIMO_REMOVIDO", evento.getEmprestimoId(), evento.getLivroId(),
+                evento.getUsuarioId(), evento.getDataEmprestimo(), null));
+    }
+
+    /**
+     * O saldo é lido na numeração, em ordem de sequência: o último evento de um livro sempre traz
+     * o saldo mais recente, mesmo que commits concorrentes cheguem fora de ordem
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoAlterarEstoque(EstoqueLivroAlteradoEvento evento) {
+        Long livroId = evento.getLivroId();
+        if (assinantes.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            publicacoes.add(new Publicacao(new Mensagem(++sequencia, "ESTOQUE_ALTERADO", serializar(AlteracaoAcervo.estoque(
+                    livroId, evento.getVariacao(), ledgerDisponibilidade.consultarEmMemoria(livroId))), false), livroId, false));
+        }
+        agendarDistribuicao();
+    }
+
+    /**
+     * Comentário periódico: mantém a conexão aberta em proxies e revela clientes que já saíram
+     */
+    @Scheduled(fixedDelayString = "${biblioteca.alteracoes.intervalo-batimento-ms:15000}")
+    public void enviarBatimento() {
+        if (assinantes.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            publicacoes.add(new Publicacao(new Mensagem(sequencia, BATIMENTO, null, false), null, true));
+        }
+        agendarDistribuicao();
+    }
+
+    /**
+     * Descarta os assinantes cuja escrita está parada além do limite e compensa cada escrita
+     * parada com uma thread a mais no pool, até ela voltar (o SseEmitter não tem escrita sem bloqueio)
+     */
+    @Scheduled(fixedDelayString = "${biblioteca.alteracoes.intervalo-verificacao-ms:1000}")
+    public void verificarEnviosParados() {
+        long agora = System.nanoTime();
+        long limite = TimeUnit.MILLISECONDS.toNanos(limiteEnvioMs);
+        for (Assinante assinante : assinantes) {
+            long desde = assinante.enviandoDesde;
+            if (desde != 0 && agora - desde > limite && assinante.preso.compareAndSet(false, true)) {
+                ajustarEnviosPresos(1);
+                // A escrita pode ter voltado entre a leitura e a marcação: quem desmarcar primeiro desconta
+                if (assinante.enviandoDesde != desde && assinante.preso.compareAndSet(true, false)) {
+                    ajustarEnviosPresos(-1);
+                }
+                descartar(assinante, "escrita parada há mais de " + limiteEnvioMs + " ms");
+            }
+        }
+    }
+
+    @PreDestroy
+    public void encerrarTodos() {
+        for (Assinante assinante : new ArrayList<>(assinantes)) {
+            encerrar(assinante);
+            assinante.emissor.complete();
+        }
+        envios.shutdown();
+    }
+
+    private void publicar(AlteracaoAcervo alteracao) {
+        if (assinantes.isEmpty()) {
+            return;
+        }
+        // Serializada fora do bloqueio e uma única vez para todos os assinantes
+        String json = serializar(alteracao);
+        synchronized (this) {
+            publicacoes.add(new Publicacao(new Mensagem(++sequencia, alteracao.tipo(), json, false), alteracao.livroId(), false));
+        }
+        agendarDistribuicao();
+    }
+
+    /**
+     * Agenda a distribuição no pool de envio, se ela ainda não estiver agendada ou em andamento
+     */
+    private void agendarDistribuicao() {
+        if (!distribuindo.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            envios.execute(this::distribuirPendentes);
+        } catch (RejectedExecutionException e) {
+            // Aplicação encerrando
+            distribuindo.set(false);
+        }
+    }
+
+    /**
+     * Coloca as alterações pendentes, em ordem, no buffer de cada assinante interessado
+     * Uma única distribuição roda por vez, então todos os assinantes recebem na ordem da sequência.
+     */
+    private void distribuirPendentes() {
+        try {
+            Publicacao publicacao;
+            while ((publicacao = publicacoes.poll()) != null) {
+                for (Assinante assinante : assinantes) {
+                    if (assinante.recebe(publicacao)) {
+                        entregar(assinante, publicacao.mensagem());
+                    }
+                }
+            }
+        } finally {
+            distribuindo.set(false);
+            if (!publicacoes.isEmpty()) {
+                agendarDistribuicao();
+            }
+        }
+    }
+
+    /**
+     * Coloca a mensagem no buffer sem esperar; buffer cheio desconecta o assinante
+     */
+    private void entregar(Assinante assinante, Mensagem mensagem) {
+        if (assinante.buffer.offer(mensagem)) {
+            assinante.agendar();
+            return;
+        }
+        descartar(assinante, "buffer de " + capacidadeBuffer + " mensagem(ns) cheio");
+    }
+
+    /**
+     * Tira o assinante da distribuição e deixa no buffer só o aviso DESCARTADO, que encerra a conexão
+     */
+    private void descartar(Assinante assinante, String motivo) {
+        if (!assinantes.remove(assinante)) {
+            return;
+        }
+        assinante.buffer.clear();
+        assinante.buffer.offer(new Mensagem(assinante.desde, "DESCARTADO",
+                serializar(AlteracaoAcervo.controle("DESCARTADO")), true));
+        assinante.agendar();
+        descartes.increment();
+        log.warn("Assinante do fluxo de alterações descartado: {}", motivo);
+    }
+
+    /**
+     * Tira o assinante da distribuição e encerra o envio (idempotente)
+     */
+    private void encerrar(Assinante assinante) {
+        if (assinantes.remove(assinante)) {
+            assinante.buffer.clear();
+            assinante.buffer.offer(Mensagem.FIM);
+            assinante.agendar();
+        }
+    }
+
+    /**
+     * Mantém no pool {@code threads-envio} threads livres além das presas em escritas paradas
+     */
+    private synchronized void ajustarEnviosPresos(int variacao) {
+        enviosPresos += variacao;
+        int threads = threadsEnvio + enviosPresos;
+        if (threads > envios.getMaximumPoolSize()) {
+            envios.setMaximumPoolSize(threads);
+            envios.setCorePoolSize(threads);
+        } else {
+            envios.setCorePoolSize(threads);
+            envios.setMaximumPoolSize(threads);
+        }
+    }
+
+    private synchronized int enviosPresosAtuais() {
+        return enviosPresos;
+    }
+
+    private String serializar(AlteracaoAcervo alteracao) {
+        try {
+            return objectMapper.writeValueAsString(alteracao);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static SseEmitter.SseEventBuilder evento(Mensagem mensagem) {
+        if (BATIMENTO.equals(mensagem.tipo())) {
+            return SseEmitter.event().comment(BATIMENTO);
+        }
+        return SseEmitter.event()
+                .id(String.valueOf(mensagem.sequencia()))
+                .name(mensagem.tipo())
+                .data(mensagem.json(), MediaType.APPLICATION_JSON);
+    }
+
+    private record Mensagem(long sequencia, String tipo, String json, boolean ultima) {
+        static final Mensagem FIM = new Mensagem(-1, null, null, true);
+    }
+
+    /**
+     * Alteração numerada à espera da distribuição
+     * @param paraTodos vai a todos os assinantes, sem filtro de livro nem de sequência (batimento)
+     */
+    private record Publicacao(Mensagem mensagem, Long livroId, boolean paraTodos) {
+    }
+
+    /**
+     * Conexão de um cliente: envia, na ordem, o que a distribuição coloca no buffer
+     */
+    private final class Assinante {
+
+        private final SseEmitter emissor;
+        private final Set<Long> livroIds;
+        private final BlockingQueue<Mensagem> buffer;
+        /**
+         * Sequência na conexão: alterações numeradas antes dela e distribuídas depois não são enviadas
+         */
+        private final long desde;
+        private final AtomicBoolean agendado = new AtomicBoolean();
+        private final AtomicBoolean preso = new AtomicBoolean();
+        private volatile long enviandoDesde;
+        private volatile boolean encerrado;
+
+        private Assinante(SseEmitter emissor, Set<Long> livroIds, BlockingQueue<Mensagem> buffer, long desde) {
+            this.emissor = emissor;
+            this.livroIds = livroIds;
+            this.buffer = buffer;
+            this.desde = desde;
+        }
+
+        private boolean recebe(Publicacao publicacao) {
+            return publicacao.paraTodos() || (publicacao.mensagem().sequencia() > desde
+                    && (livroIds == null || livroIds.contains(publicacao.livroId())));
+        }
+
+        /**
+         * Agenda um envio no pool, se não houver um agendado ou em andamento para este assinante
+         */
+        private void agendar() {
+            if (encerrado || !agendado.compareAndSet(false, true)) {
+                return;
+            }
+            try {
+                envios.execute(this::enviarPendentes);
+            } catch (RejectedExecutionException e) {
+                // Aplicação encerrando
+                agendado.set(false);
+            }
+        }
+
+        /**
+         * Envia de uma vez tudo o que se acumulou no buffer (uma escrita e um flush por lote)
+         * e devolve a thread ao pool; o que chegar durante o envio vai no lote seguinte.
+         */
+        private void enviarPendentes() {
+            try {
+                List<Mensagem> lote = new ArrayList<>();
+                buffer.drainTo(lote);
+                Set<ResponseBodyEmitter.DataWithMediaType> dados = new LinkedHashSet<>();
+                boolean ultima = false;
+                for (Mensagem mensagem : lote) {
+                    if (mensagem == Mensagem.FIM) {
+                        encerrado = true;
+                        break;
+                    }
+                    dados.addAll(evento(mensagem).build());
+                    if (mensagem.ultima()) {
+                        ultima = true;
+                        break;
+                    }
+                }
+                if (!dados.isEmpty()) {
+                    enviandoDesde = System.nanoTime();
+                    try {
+                        emissor.send(dados);
+                    } finally {
+                        enviandoDesde = 0;
+                        if (preso.compareAndSet(true, false)) {
+                            ajustarEnviosPresos(-1);
+                        }
+                    }
+                }
+                if (ultima) {
+                    encerrado = true;
+                    emissor.complete();
+                }
+            } catch (IOException | IllegalStateException e) {
+                // Cliente desconectado ou resposta já encerrada
+                log.debug("Envio ao assinante interrompido: {}", e.getMessage());
+                encerrado = true;
+                encerrar(this);
+            } finally {
+                agendado.set(false);
+                if (!encerrado && !buffer.isEmpty()) {
+                    agendar();
+                }
+            }
+        }
+    }
+}
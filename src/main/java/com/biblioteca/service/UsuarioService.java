@@ -1,15 +1,21 @@
 package com.biblioteca.service;
 
 import com.biblioteca.dto.UsuarioDTO;
+import com.biblioteca.dto.UsuarioResposta;
 import com.biblioteca.entity.Usuario;
 import com.biblioteca.exception.ExcecaoNegocioException;
 import com.biblioteca.exception.RecursoNaoEncontradoException;
+import com.biblioteca.mapper.UsuarioMapper;
+import com.biblioteca.repository.EmprestimoRepository;
+import com.biblioteca.repository.ReservaRepository;
 import com.biblioteca.repository.UsuarioRepository;
+import com.biblioteca.service.VersaoDados.Dominio;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
@@ -24,6 +30,12 @@ import java.time.LocalDateTime;
 public class UsuarioService {
 
     private final UsuarioRepository usuarioRepository;
+    private final EmprestimoRepository emprestimoRepository;
+    private final ReservaRepository reservaRepository;
+    private final IndiceElegibilidadeUsuario indiceElegibilidade;
+    private final CacheCatalogo cacheCatalogo;
+    private final VersaoDados versaoDados;
+    private final UsuarioMapper usuarioMapper;
 
     /**
      * Cria um novo usuário
@@ -60,6 +72,7 @@ public class UsuarioService {
         log.info("Atualizando usuário com ID: {}", id);
 
         Usuario usuario = buscarPorId(id);
+        String emailAnterior = usuario.getEmail();
 
         // Valida email se foi alterado
         if (!usuario.getEmail().equals(dto.getEmail()) && 
@@ -77,6 +90,8 @@ public class UsuarioService {
         usuario.setDataAtualizacao(LocalDateTime.now());
 
         Usuario usuarioAtualizado = usuarioRepository.save(usuario);
+        indiceElegibilidade.atualizarCadastroAposCommit(id, usuario.getAtivo(), usuario.getLimiteEmprestimos());
+        invalidarAposCommit(id, emailAnterior, usuarioAtualizado.getEmail());
         log.info("Usuário atualizado com sucesso: ID {}", usuarioAtualizado.getId());
         return usuarioAtualizado;
     }
@@ -107,6 +122,24 @@ public class UsuarioService {
                 });
     }
 
+    /**
+     * Consulta a representação de um usuário por ID, usando o cache do catálogo
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public UsuarioResposta consultarPorId(Long id) {
+        return cacheCatalogo.obter(CacheCatalogo.USUARIOS, id, UsuarioResposta.class,
+                () -> usuarioMapper.paraResposta(buscarPorId(id)));
+    }
+
+    /**
+     * Consulta a representação de um usuário por email, usando o cache do catálogo
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public UsuarioResposta consultarPorEmail(String email) {
+        return cacheCatalogo.obter(CacheCatalogo.USUARIOS_POR_EMAIL, email, UsuarioResposta.class,
+                () -> usuarioMapper.paraResposta(buscarPorEmail(email)));
+    }
+
     /**
      * Lista todos os usuários com paginação
      */
@@ -150,11 +183,16 @@ public class UsuarioService {
         log.info("Deletando usuário com ID: {}", id);
         Usuario usuario = buscarPorId(id);
 
-        if (!usuario.getEmprestimos().isEmpty()) {
+        if (emprestimoRepository.existsByUsuarioId(id)) {
             throw new ExcecaoNegocioException("Não é possível deletar usuário com empréstimos pendentes");
         }
+        if (reservaRepository.existsByUsuarioId(id)) {
+            throw new ExcecaoNegocioException("Não é possível deletar usuário com reservas");
+        }
 
         usuarioRepository.delete(usuario);
+        indiceElegibilidade.removerAposCommit(id);
+        invalidarAposCommit(id, usuario.getEmail());
         log.info("Usuário deletado com sucesso: ID {}", id);
     }
 
@@ -165,6 +203,8 @@ public class UsuarioService {
         log.info("Ativando usuário com ID: {}", id);
         Usuario usuario = buscarPorId(id);
         usuario.setAtivo(true);
+        indiceElegibilidade.atualizarCadastroAposCommit(id, true, usuario.getLimiteEmprestimos());
+        invalidarAposCommit(id, usuario.getEmail());
         return usuarioRepository.save(usuario);
     }
 
@@ -175,6 +215,17 @@ public class UsuarioService {
         log.info("Desativando usuário com ID: {}", id);
         Usuario usuario = buscarPorId(id);
         usuario.setAtivo(false);
+        indiceElegibilidade.atualizarCadastroAposCommit(id, false, usuario.getLimiteEmprestimos());
+        invalidarAposCommit(id, usuario.getEmail());
         return usuarioRepository.save(usuario);
     }
+
+    /**
+     * Remove o usuário do cache e marca os dados de usuários como alterados após o commit
+     */
+    private void invalidarAposCommit(Long id, String... emails) {
+        cacheCatalogo.removerAposCommit(CacheCatalogo.USUARIOS, id);
+        cacheCatalogo.removerAposCommit(CacheCatalogo.USUARIOS_POR_EMAIL, (Object[]) emails);
+        versaoDados.registrarAlteracaoAposCommit(Dominio.USUARIOS);
+    }
 }
@@ -0,0 +1,128 @@
+package com.biblioteca.service;
+
+import com.biblioteca.repository.EmprestimoRepository;
+import com.biblioteca.service.VersaoDados.Dominio;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Varredura que grava o status ATRASADO nos empréstimos vencidos
+ *
+ * Roda na virada do dia (fuso configurado, America/Sao_Paulo por padrão) e na
+ * inicialização da aplicação, para recuperar viradas perdidas com a aplicação parada.
+ * Os empréstimos são marcados em lotes por ordem de ID, cada lote na sua própria
+ * transação: uma interrupção no meio preserva os lotes já confirmados, e a próxima
+ * execução continua dos que ainda estão ATIVO. O UPDATE só altera quem continua ATIVO,
+ * então devoluções concorrentes e execuções repetidas não causam efeito indevido.
+ */
+@Component
+@Slf4j
+public class VarreduraAtrasos {
+
+    private final EmprestimoRepository emprestimoRepository;
+    private final VersaoDados versaoDados;
+    private final TransactionTemplate transacaoIsolada;
+    private final ZoneId zona;
+    private final int tamanhoLote;
+
+    private final AtomicBoolean emExecucao = new AtomicBoolean();
+
+    public VarreduraAtrasos(EmprestimoRepository emprestimoRepository,
+                            VersaoDados versaoDados,
+                            PlatformTransactionManager transactionManager,
+                            @Value("${biblioteca.atrasos.zona:America/Sao_Paulo}") String zona,
+                            @Value("${biblioteca.atrasos.tamanho-lote:1000}") int tamanhoLote) {
+        this.emprestimoRepository = emprestimoRepository;
+        this.versaoDados = versaoDados;
+        this.transacaoIsolada = new TransactionTemplate(transactionManager);
+        this.transacaoIsolada.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.zona = ZoneId.of(zona);
+        this.tamanhoLote = tamanhoLote;
+    }
+
+    /**
+     * Recupera os atrasos de dias em que a aplicação esteve parada
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void aoIniciar() {
+        varrer();
+    }
+
+    /**
+     * Marca os atrasos do dia que começa
+     */
+    @Scheduled(cron = "${biblioteca.atrasos.cron:0 0 0 * * *}", zone = "${biblioteca.atrasos.zona:America/Sao_Paulo}")
+    public void aoVirarDia() {
+        varrer();
+    }
+
+    /**
+     * Marca como ATRASADO os empréstimos ATIVO vencidos antes de hoje
+     * @return quantidade de empréstimos marcados (0 se outra varredura já estava em andamento)
+     */
+    public long varrer() {
+        if (!emExecucao.compareAndSet(false, true)) {
+            log.debug("Varredura de atrasos já em andamento");
+            return 0;
+        }
+        try {
+            LocalDate hoje = LocalDate.now(zona);
+            long inicio = System.nanoTime();
+            long marcados = 0;
+            int lotes = 0;
+            int lidos;
+            do {
+                Lote lote = transacaoIsolada.execute(status -> marcarLote(hoje));
+                lidos = lote.lidos();
+                marcados += lote.alterados();
+                lotes++;
+            } while (lidos == tamanhoLote);
+
+            if (marcados > 0) {
+                log.info("Varredura de atrasos ({}): {} empréstimo(s) marcado(s) como ATRASADO em {} lote(s), {} ms",
+                        hoje, marcados, lotes, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio));
+            } else {
+                log.debug("Varredura de atrasos ({}): nenhum empréstimo vencido", hoje);
+            }
+            return marcados;
+        } finally {
+            emExecucao.set(false);
+        }
+    }
+
+    /**
+     * Marca um lote na transação corrente
+     */
+    private Lote marcarLote(LocalDate hoje) {
+        List<Long> ids = emprestimoRepository.buscarIdsVencidosAtivos(hoje, PageRequest.of(0, tamanhoLote));
+        if (ids.isEmpty()) {
+            return new Lote(0, 0);
+        }
+        int alterados = emprestimoRepository.marcarAtrasados(ids, LocalDateTime.now());
+        if (alterados > 0) {
+            versaoDados.registrarAlteracaoAposCommit(Dominio.EMPRESTIMOS);
+        }
+        return new Lote(ids.size(), alterados);
+    }
+
+    /**
+     * IDs lidos num lote e empréstimos efetivamente alterados (os demais já não estavam ATIVO)
+     */
+    private record Lote(int lidos, int alterados) {
+    }
+}
@@ -0,0 +1,58 @@
+package com.biblioteca.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Versões dos dados por domínio, incrementadas após o commit de cada alteração
+ *
+ * Resultados derivados (relatórios) guardam a versão lida antes do cálculo; enquanto ela não
+ * muda, o resultado continua válido. Cada versão só cresce, então a soma das versões dos
+ * domínios de que um resultado depende também só cresce e serve de carimbo único.
+ */
+@Component
+public class VersaoDados {
+
+    /**
+     * Conjuntos de dados acompanhados
+     */
+    public enum Dominio {
+        EMPRESTIMOS,
+        LIVROS,
+        USUARIOS
+    }
+
+    private final Map<Dominio, AtomicLong> versoes = new EnumMap<>(Dominio.class);
+
+    public VersaoDados() {
+        for (Dominio dominio : Dominio.values()) {
+            versoes.put(dominio, new AtomicLong());
+        }
+    }
+
+    /**
+     * Carimbo de versão dos domínios informados
+     */
+    public long versao(Set<Dominio> dominios) {
+        long soma = 0;
+        for (Dominio dominio : dominios) {
+            soma += versoes.get(dominio).get();
+        }
+        return soma;
+    }
+
+    /**
+     * Incrementa a versão dos domínios após o commit da transação corrente
+     */
+    public void registrarAlteracaoAposCommit(Dominio... dominios) {
+        SincronizacaoTransacao.aposCommit(() -> {
+            for (Dominio dominio : dominios) {
+                versoes.get(dominio).incrementAndGet();
+            }
+        });
+    }
+}
@@ -0,0 +1,10 @@
+-- Contador de empréstimos em aberto (ATIVO ou ATRASADO) por usuário, mantido pelo checkout,
+-- pela devolução e pela exclusão. O checkout o incrementa num UPDATE condicional que trava
+-- a linha do usuário, e assim o limite vale entre várias instâncias da aplicação, cada
+-- uma com seu índice de elegibilidade em memória. A coluna não é mapeada na entidade,
+-- então gravar um Usuario não a sobrescreve.
+ALTER TABLE usuarios ADD COLUMN emprestimos_em_aberto INTEGER DEFAULT 0 NOT NULL;
+
+UPDATE usuarios SET emprestimos_em_aberto = (
+    SELECT COUNT(*) FROM emprestimos e
+    WHERE e.usuario_id = usuarios.id AND e.status IN ('ATIVO', 'ATRASADO'));
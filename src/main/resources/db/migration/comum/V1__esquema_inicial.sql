@@ -0,0 +1,58 @@
+-- Esquema inicial: tabelas e restrições, como o Hibernate criava com ddl-auto=update.
+-- Bancos já existentes são marcados com esta versão pelo baseline-on-migrate e seguem da V2;
+-- por isso os índices ficam nas versões seguintes, todos com IF NOT EXISTS.
+
+CREATE TABLE livros (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    titulo VARCHAR(255) NOT NULL,
+    autor VARCHAR(255) NOT NULL,
+    isbn VARCHAR(20) NOT NULL,
+    descricao VARCHAR(1000),
+    categoria VARCHAR(100),
+    cópias_disponíveis INTEGER NOT NULL,
+    cópias_totais INTEGER NOT NULL,
+    data_criacao TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6),
+    CONSTRAINT pk_livros PRIMARY KEY (id),
+    CONSTRAINT uk_livros_isbn UNIQUE (isbn)
+);
+
+CREATE TABLE usuarios (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    nome VARCHAR(255) NOT NULL,
+    email VARCHAR(255) NOT NULL,
+    telefone VARCHAR(20),
+    endereco VARCHAR(500),
+    tipo_usuario VARCHAR(50) NOT NULL,
+    limite_emprestimos INTEGER,
+    ativo BOOLEAN NOT NULL,
+    data_criacao TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6),
+    CONSTRAINT pk_usuarios PRIMARY KEY (id),
+    CONSTRAINT uk_usuarios_email UNIQUE (email)
+);
+
+CREATE TABLE emprestimos (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    livro_id BIGINT NOT NULL,
+    usuario_id BIGINT NOT NULL,
+    data_emprestimo DATE NOT NULL,
+    data_devolucao_prevista DATE NOT NULL,
+    data_devolucao_real DATE,
+    status VARCHAR(20) NOT NULL,
+    observacoes VARCHAR(500),
+    data_criacao TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6),
+    CONSTRAINT pk_emprestimos PRIMARY KEY (id),
+    CONSTRAINT fk_emprestimos_livro FOREIGN KEY (livro_id) REFERENCES livros (id),
+    CONSTRAINT fk_emprestimos_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios (id)
+);
+
+CREATE TABLE estatisticas_categoria (
+    categoria VARCHAR(100) NOT NULL,
+    total_livros BIGINT NOT NULL,
+    copias_totais BIGINT NOT NULL,
+    copias_disponiveis BIGINT NOT NULL,
+    data_atualizacao TIMESTAMP(6),
+    CONSTRAINT pk_estatisticas_categoria PRIMARY KEY (categoria)
+);
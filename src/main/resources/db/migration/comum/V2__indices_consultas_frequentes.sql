@@ -0,0 +1,28 @@
+-- Índices compostos casados com as consultas dos repositórios.
+-- IF NOT EXISTS: bancos criados com ddl-auto=update podem já ter os índices declarados na entidade.
+
+-- EmprestimoRepository: contarEmprestimosPorLivroEDia, buscarMaisEmprestados (janela de datas),
+-- findByDataEmprestimoEntre e buscarPorPeriodoAposCursor
+CREATE INDEX IF NOT EXISTS idx_emprestimos_data_livro_status ON emprestimos (data_emprestimo, livro_id, status);
+
+-- EmprestimoRepository: findByStatusOrderByDataEmprestimoDesc e buscarPorStatusAposCursor
+CREATE INDEX IF NOT EXISTS idx_emprestimos_status_data_id ON emprestimos (status, data_emprestimo, id);
+
+-- EmprestimoRepository: buscarPorUsuarioAposCursor sem status e existsByUsuarioId
+CREATE INDEX IF NOT EXISTS idx_emprestimos_usuario_data_id ON emprestimos (usuario_id, data_emprestimo, id);
+
+-- EmprestimoRepository: findByLivroIdOrderByDataEmprestimoDesc, buscarPorLivroAposCursor e existsByLivroId
+CREATE INDEX IF NOT EXISTS idx_emprestimos_livro_data_id ON emprestimos (livro_id, data_emprestimo, id);
+
+-- EmprestimoRepository: findByUsuarioIdAndStatusOrderByDataEmprestimoDesc, countByUsuarioIdAndStatus,
+-- findEmprestimosAtivosDoUsuario, buscarVencimentosAtivosDoUsuario e buscarPorUsuarioAposCursor com status
+CREATE INDEX IF NOT EXISTS idx_emprestimos_usuario_status_data ON emprestimos (usuario_id, status, data_emprestimo, id);
+
+-- LivroRepository: findByCategoria e buscarComFiltros por categoria
+CREATE INDEX IF NOT EXISTS idx_livros_categoria ON livros (categoria, id);
+
+-- LivroRepository: findByCopiasDisponiveisGreaterThan (livros disponíveis)
+CREATE INDEX IF NOT EXISTS idx_livros_copias_disponiveis ON livros (cópias_disponíveis, id);
+
+-- UsuarioRepository: findByTipoUsuario
+CREATE INDEX IF NOT EXISTS idx_usuarios_tipo ON usuarios (tipo_usuario, id);
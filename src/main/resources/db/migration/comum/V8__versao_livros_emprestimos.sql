@@ -0,0 +1,5 @@
+-- Versão para o bloqueio otimista de livros e empréstimos (@Version nas entidades).
+-- Os UPDATEs em massa dos repositórios (débito e crédito de cópias, marcação de atrasos)
+-- também incrementam a versão, então uma gravação da entidade lida antes deles é recusada.
+ALTER TABLE livros ADD COLUMN versao BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE emprestimos ADD COLUMN versao BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,28 @@
+-- Fila de reservas dos títulos sem cópias: a devolução entrega a cópia ao primeiro que aguarda.
+-- As reservas em AGUARDANDO são a cópia persistente da fila em memória (FilaReservas),
+-- recarregada na inicialização em ordem de ID. emprestimo_id fica sem chave estrangeira
+-- para não impedir a exclusão do empréstimo que atendeu a reserva.
+
+CREATE TABLE reservas (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    livro_id BIGINT NOT NULL,
+    usuario_id BIGINT NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    motivo VARCHAR(30),
+    emprestimo_id BIGINT,
+    data_criacao TIMESTAMP(6) NOT NULL,
+    data_atualizacao TIMESTAMP(6),
+    versao BIGINT DEFAULT 0 NOT NULL,
+    CONSTRAINT pk_reservas PRIMARY KEY (id),
+    CONSTRAINT fk_reservas_livro FOREIGN KEY (livro_id) REFERENCES livros (id),
+    CONSTRAINT fk_reservas_usuario FOREIGN KEY (usuario_id) REFERENCES usuarios (id)
+);
+
+-- ReservaRepository: buscarEsperas (carga da fila na inicialização)
+CREATE INDEX IF NOT EXISTS idx_reservas_status_livro_id ON reservas (status, livro_id, id);
+
+-- ReservaRepository: existsByLivroId (exclusão de livros)
+CREATE INDEX IF NOT EXISTS idx_reservas_livro ON reservas (livro_id);
+
+-- ReservaRepository: findByUsuarioIdOrderByIdDesc e existsByUsuarioId
+CREATE INDEX IF NOT EXISTS idx_reservas_usuario_id ON reservas (usuario_id, id);
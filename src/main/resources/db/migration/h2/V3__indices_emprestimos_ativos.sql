@@ -0,0 +1,4 @@
+-- EmprestimoRepository: buscarEmprestimosAtrasados, buscarAtrasadosAposCursor e buscarLivrosEmprestados
+-- (empréstimos ATIVO por data de devolução prevista). O H2 não tem índice parcial; o status
+-- vem na frente para restringir a faixa percorrida.
+CREATE INDEX IF NOT EXISTS idx_emprestimos_ativos_vencimento ON emprestimos (status, data_devolucao_prevista, id);
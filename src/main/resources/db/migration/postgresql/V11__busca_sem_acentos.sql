@@ -0,0 +1,19 @@
+-- Busca textual sem acentos (LivroRepository.buscarIdsPorTextoPostgres), como no índice em memória
+CREATE EXTENSION IF NOT EXISTS unaccent;
+
+-- unaccent() é STABLE (depende do search_path) e não pode entrar em índice; a versão com o
+-- dicionário explícito é determinística e pode ser declarada IMMUTABLE
+CREATE OR REPLACE FUNCTION sem_acentos(texto text) RETURNS text AS
+$$ SELECT public.unaccent('public.unaccent'::regdictionary, texto) $$
+LANGUAGE sql IMMUTABLE PARALLEL SAFE STRICT;
+
+-- Os índices da V4 eram sobre o texto original; a busca agora compara sem_acentos() dos dois lados
+DROP INDEX IF EXISTS idx_livros_titulo_trgm;
+DROP INDEX IF EXISTS idx_livros_autor_trgm;
+DROP INDEX IF EXISTS idx_livros_categoria_trgm;
+DROP INDEX IF EXISTS idx_livros_descricao_fts;
+
+CREATE INDEX IF NOT EXISTS idx_livros_titulo_trgm ON livros USING gin (sem_acentos(titulo) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_livros_autor_trgm ON livros USING gin (sem_acentos(autor) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_livros_categoria_trgm ON livros USING gin (sem_acentos(categoria) gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_livros_descricao_fts ON livros USING gin (to_tsvector('portuguese', sem_acentos(COALESCE(descricao, ''))));
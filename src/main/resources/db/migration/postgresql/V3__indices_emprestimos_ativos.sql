@@ -0,0 +1,5 @@
+-- EmprestimoRepository: buscarEmprestimosAtrasados, buscarAtrasadosAposCursor e buscarLivrosEmprestados
+-- (empréstimos ATIVO por data de devolução prevista). Índice parcial: só contém os empréstimos
+-- em aberto, que são uma fração pequena do histórico.
+CREATE INDEX IF NOT EXISTS idx_emprestimos_ativos_vencimento ON emprestimos (data_devolucao_prevista, id)
+    WHERE status = 'ATIVO';
@@ -0,0 +1,13 @@
+-- Busca textual (biblioteca.busca.motor=postgres e filtros "contém" de UsuarioRepository)
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+-- LivroRepository.buscarIdsPorTextoPostgres: ILIKE '%trecho%' e semelhança (%) em título, autor e categoria
+CREATE INDEX IF NOT EXISTS idx_livros_titulo_trgm ON livros USING gin (titulo gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_livros_autor_trgm ON livros USING gin (autor gin_trgm_ops);
+CREATE INDEX IF NOT EXISTS idx_livros_categoria_trgm ON livros USING gin (categoria gin_trgm_ops);
+
+-- LivroRepository.buscarIdsPorTextoPostgres: texto completo em português na descrição
+CREATE INDEX IF NOT EXISTS idx_livros_descricao_fts ON livros USING gin (to_tsvector('portuguese', COALESCE(descricao, '')));
+
+-- UsuarioRepository.findByNomeContainingIgnoreCase (o Hibernate gera upper(nome) LIKE upper(?))
+CREATE INDEX IF NOT EXISTS idx_usuarios_nome_trgm ON usuarios USING gin (upper(nome) gin_trgm_ops);
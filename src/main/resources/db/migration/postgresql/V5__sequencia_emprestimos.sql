@@ -0,0 +1,7 @@
+-- Sequência dos IDs de empréstimo (allocationSize = 50 na entidade), que permite ao Hibernate
+-- agrupar os INSERTs em lote. A coluna continua aceitando IDs explícitos.
+CREATE SEQUENCE IF NOT EXISTS emprestimos_seq START WITH 1 INCREMENT BY 50;
+
+-- O otimizador "pooled" usa o valor da sequência como topo do bloco (valor - 49 .. valor):
+-- o primeiro valor precisa ficar 50 acima do maior ID já gravado.
+SELECT setval('emprestimos_seq', COALESCE(MAX(id), 0) + 50, false) FROM emprestimos;
@@ -0,0 +1,9 @@
+-- Com a varredura de atrasos (VarreduraAtrasos), empréstimos vencidos passam de ATIVO a ATRASADO.
+-- O índice parcial de V3 passa a cobrir todos os empréstimos em aberto:
+--   buscarLivrosEmprestados / percorrerLivrosEmprestados (status IN ('ATIVO', 'ATRASADO') por vencimento),
+--   buscarIdsVencidosAtivos (status = 'ATIVO' AND vencimento < hoje, implicado pelo predicado do índice),
+--   buscarEmprestimosAtrasados (status = 'ATRASADO' por vencimento).
+-- A listagem de atrasados por cursor usa idx_emprestimos_status_data_id (V2) com status = 'ATRASADO'.
+DROP INDEX IF EXISTS idx_emprestimos_ativos_vencimento;
+CREATE INDEX IF NOT EXISTS idx_emprestimos_em_aberto_vencimento ON emprestimos (data_devolucao_prevista, id)
+    WHERE status IN ('ATIVO', 'ATRASADO');
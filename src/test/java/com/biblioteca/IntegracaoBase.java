@@ -0,0 +1,81 @@
+package com.biblioteca;
+
+import com.biblioteca.dto.EmprestimoDTO;
+import com.biblioteca.dto.LivroDTO;
+import com.biblioteca.dto.UsuarioDTO;
+import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.service.EmprestimoService;
+import com.biblioteca.service.LivroService;
+import com.biblioteca.service.UsuarioService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Contexto e dados comuns aos testes de integração sobre o H2 em memória
+ *
+ * As classes que estendem esta compartilham um único contexto e um único banco. Cada teste
+ * cria seus próprios livros e usuários, com ISBN e e-mail únicos, e não deve supor o banco vazio.
+ * As estatísticas do Hibernate ficam ligadas para a contagem de instruções por endpoint, e a
+ * consolidação das estatísticas por categoria fica fora do caminho das medições.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:integracao",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "biblioteca.estatisticas.intervalo-consolidacao-ms=3600000"
+})
+@AutoConfigureMockMvc
+public abstract class IntegracaoBase {
+
+    private static final AtomicLong sequencia = new AtomicLong();
+
+    @Autowired
+    protected EmprestimoService emprestimoService;
+
+    @Autowired
+    protected LivroService livroService;
+
+    @Autowired
+    protected UsuarioService usuarioService;
+
+    @Autowired
+    protected JdbcTemplate jdbcTemplate;
+
+    protected Emprestimo emprestar(Long livroId, Long usuarioId) {
+        return emprestimoService.criar(EmprestimoDTO.builder().usuarioId(usuarioId).livroId(livroId).build());
+    }
+
+    protected Long criarLivro() {
+        return criarLivro(5);
+    }
+
+    protected Long criarLivro(int copias) {
+        long n = sequencia.incrementAndGet();
+        return livroService.criar(LivroDTO.builder()
+                .titulo("Título de teste " + n)
+                .autor("Autor " + n)
+                .isbn(String.format("978-1-%07d", n))
+                .categoria("Testes")
+                .copiasDisponiveis(copias)
+                .copiasTotais(copias)
+                .build()).getId();
+    }
+
+    protected Long criarUsuario() {
+        return criarUsuario(5);
+    }
+
+    protected Long criarUsuario(int limite) {
+        long n = sequencia.incrementAndGet();
+        return usuarioService.criar(UsuarioDTO.builder()
+                .nome("Leitor " + n)
+                .email("leitor" + n + "@integracao.test")
+                .tipoUsuario("ALUNO")
+                .ativo(true)
+                .limiteEmprestimos(limite)
+                .build()).getId();
+    }
+}
@@ -0,0 +1,146 @@
+package com.biblioteca.controller;
+
+import com.biblioteca.IntegracaoBase;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Instruções SQL por endpoint das tabelas das seções 5.4 e 5.6 do relatório, contadas pelas estatísticas do Hibernate
+ *
+ * Cada endpoint é chamado uma vez antes da medição, para que livro-razão, índice de elegibilidade
+ * e cache do catálogo já estejam carregados, como em regime.
+ */
+class InstrucoesSqlPorEndpointTest extends IntegracaoBase {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Statistics estatisticas;
+
+    @BeforeEach
+    void habilitarEstatisticas() {
+        estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void emprestimosAtivosSemNMaisUm() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            emprestar(criarLivro(), criarUsuario());
+        }
+
+        // Página cheia (3 de pelo menos 4), independente dos empréstimos dos outros testes: página e COUNT
+        assertThat(instrucoes("/emprestimos/ativos?size=3")).isEqualTo(2);
+    }
+
+    @Test
+    void emprestimosDoLivroEmUmaInstrucao() throws Exception {
+        Long livroId = criarLivro();
+        for (int i = 0; i < 3; i++) {
+            emprestar(livroId, criarUsuario());
+        }
+
+        assertThat(instrucoes("/emprestimos/livro/" + livroId)).isEqualTo(1);
+    }
+
+    @Test
+    void emprestimosDoPeriodoSemNMaisUm() throws Exception {
+        for (int i = 0; i < 4; i++) {
+            emprestar(criarLivro(), criarUsuario());
+        }
+        LocalDate hoje = LocalDate.now();
+
+        assertThat(instrucoes("/emprestimos/periodo?size=3&dataInicio=" + hoje + "&dataFim=" + hoje)).isEqualTo(2);
+    }
+
+    @Test
+    void livroPorIdEmUmaInstrucao() throws Exception {
+        Long livroId = criarLivro();
+        emprestar(livroId, criarUsuario());
+
+        assertThat(instrucoes("/livros/" + livroId)).isEqualTo(1);
+    }
+
+    @Test
+    void checkoutAceitoEmTresInstrucoesNoServico() {
+        Long livroId = criarLivro();
+        Long usuarioId = criarUsuario();
+        // Carrega o livro no livro-razão e o usuário no índice de elegibilidade
+        emprestar(livroId, criarUsuario());
+        emprestar(criarLivro(), usuarioId);
+
+        estatisticas.clear();
+        emprestar(livroId, usuarioId);
+
+        assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(3);
+    }
+
+    @Test
+    void checkoutAceitoPeloEndpointLeLivroEUsuarioParaAResposta() throws Exception {
+        Long livroId = criarLivro();
+        Long usuarioId = criarUsuario();
+        emprestar(livroId, criarUsuario());
+        emprestar(criarLivro(), usuarioId);
+
+        // As três do serviço e os SELECTs por ID do livro e do usuário resumidos na resposta
+        assertThat(instrucoesNoCheckout(livroId, usuarioId, status().isCreated())).isEqualTo(5);
+    }
+
+    @Test
+    void checkoutSemEstoqueSemInstrucoes() throws Exception {
+        Long livroId = criarLivro(1);
+        Long usuarioId = criarUsuario();
+        emprestar(livroId, criarUsuario());
+        emprestar(criarLivro(), usuarioId);
+
+        assertThat(instrucoesNoCheckout(livroId, usuarioId, status().isBadRequest())).isZero();
+    }
+
+    @Test
+    void checkoutRecusadoPeloUsuarioSemInstrucoes() throws Exception {
+        Long livroId = criarLivro();
+        Long usuarioId = criarUsuario(1);
+        emprestar(livroId, criarUsuario());
+        emprestar(criarLivro(), usuarioId);
+
+        assertThat(instrucoesNoCheckout(livroId, usuarioId, status().isBadRequest())).isZero();
+    }
+
+    /**
+     * Instruções preparadas pelo Hibernate num POST /emprestimos com livro e usuário já carregados
+     */
+    private long instrucoesNoCheckout(Long livroId, Long usuarioId, ResultMatcher esperado) throws Exception {
+        estatisticas.clear();
+        mockMvc.perform(post("/emprestimos")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"usuarioId\":" + usuarioId + ",\"livroId\":" + livroId + "}"))
+                .andExpect(esperado);
+        return estatisticas.getPrepareStatementCount();
+    }
+
+    /**
+     * Instruções preparadas pelo Hibernate numa chamada ao endpoint, depois de uma chamada de aquecimento
+     */
+    private long instrucoes(String caminho) throws Exception {
+        mockMvc.perform(get(caminho)).andExpect(status().isOk());
+        estatisticas.clear();
+        mockMvc.perform(get(caminho)).andExpect(status().isOk());
+        return estatisticas.getPrepareStatementCount();
+    }
+}
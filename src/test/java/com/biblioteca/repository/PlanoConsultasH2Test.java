@@ -0,0 +1,182 @@
+package com.biblioteca.repository;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Planos do H2 para as consultas da tabela de índices (seção 5.3 do relatório)
+ *
+ * O SQL conferido é o que o Hibernate gera para cada método de repositório, capturado por um
+ * {@link StatementInspector}; o teste roda EXPLAIN sobre ele e procura o índice das migrações
+ * V2 e V3 no plano. Renomear um índice ou mudar uma consulta para uma forma que ele não atende
+ * quebra o teste. Onde o H2 escolhe diferente do PostgreSQL, o teste aceita a escolha do H2
+ * e diz por quê.
+ */
+@SpringBootTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:plano-consultas",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "com.biblioteca.repository.PlanoConsultasH2Test$CapturaInstrucoes"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PlanoConsultasH2Test {
+
+    private static final LocalDate HOJE = LocalDate.of(2026, 6, 1);
+    private static final PageRequest PAGINA = PageRequest.of(0, 20);
+    private static final Pattern INDICE_NO_PLANO = Pattern.compile("/\\* PUBLIC\\.([A-Z0-9_]+)[:*]");
+
+    @Autowired
+    private EmprestimoRepository emprestimoRepository;
+
+    @Autowired
+    private LivroRepository livroRepository;
+
+    @Autowired
+    private UsuarioRepository usuarioRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /**
+     * Volume suficiente para o otimizador do H2 preferir os índices à varredura
+     */
+    @BeforeAll
+    void popular() {
+        jdbcTemplate.update("INSERT INTO livros (id, titulo, autor, isbn, categoria, cópias_disponíveis, cópias_totais, " +
+                "data_criacao) SELECT X, 'Livro ' || X, 'Autor ' || X, '978-7-' || X, 'Categoria ' || MOD(X, 20), " +
+                "MOD(X, 3), 2, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, 500)");
+        jdbcTemplate.update("INSERT INTO usuarios (id, nome, email, tipo_usuario, limite_emprestimos, ativo, data_criacao) " +
+                "SELECT X, 'Leitor ' || X, 'leitor' || X || '@plano.test', " +
+                "CASE MOD(X, 3) WHEN 0 THEN 'ALUNO' WHEN 1 THEN 'PROFESSOR' ELSE 'FUNCIONARIO' END, 5, TRUE, " +
+                "CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, 500)");
+        jdbcTemplate.update("INSERT INTO emprestimos (id, livro_id, usuario_id, data_emprestimo, data_devolucao_prevista, " +
+                "status, data_criacao) SELECT X, MOD(X, 500) + 1, MOD(X * 7, 500) + 1, " +
+                "DATEADD('DAY', -MOD(X, 720), DATE '2026-06-01'), DATEADD('DAY', 14 - MOD(X, 720), DATE '2026-06-01'), " +
+                "CASE WHEN MOD(X, 20) = 0 THEN 'ATRASADO' WHEN MOD(X, 10) = 1 THEN 'ATIVO' ELSE 'DEVOLVIDO' END, " +
+                "CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, 20000)");
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void emprestimosPorUsuarioEStatus() {
+        assertThat(indices(() -> emprestimoRepository.findByUsuarioIdAndStatusOrderByDataEmprestimoDesc(1L, "ATIVO", PAGINA)))
+                .contains("idx_emprestimos_usuario_status_data");
+        assertThat(indices(() -> emprestimoRepository.countByUsuarioIdAndStatus(1L, "ATIVO")))
+                .contains("idx_emprestimos_usuario_status_data");
+        assertThat(indices(() -> emprestimoRepository.buscarVencimentosAtivosDoUsuario(1L)))
+                .contains("idx_emprestimos_usuario_status_data");
+    }
+
+    @Test
+    void emprestimosAtrasadosLidosJaNaOrdemDoIndice() {
+        String plano = plano(() -> emprestimoRepository.buscarEmprestimosAtrasados(PAGINA));
+
+        assertThat(indicesDoPlano(plano)).contains("idx_emprestimos_ativos_vencimento");
+        assertThat(plano).contains("index sorted");
+    }
+
+    @Test
+    void emprestimosEmAbertoPorVencimento() {
+        assertThat(indices(() -> emprestimoRepository.buscarIdsVencidosAtivos(HOJE, PAGINA)))
+                .contains("idx_emprestimos_ativos_vencimento");
+        // Dois status no IN: nenhum índice do H2 entrega a ordem por vencimento, e os dois que
+        // começam pelo status custam o mesmo (no PostgreSQL, o índice parcial da V7 entrega)
+        assertThat(indices(() -> emprestimoRepository.buscarLivrosEmprestados()))
+                .containsAnyOf("idx_emprestimos_ativos_vencimento", "idx_emprestimos_status_data_id");
+    }
+
+    @Test
+    void emprestimosPorJanelaDeDatas() {
+        // O H2 percorre os livros e busca os empréstimos de cada um no período pelo índice (livro_id, data_emprestimo, id)
+        assertThat(indices(() -> emprestimoRepository.findByDataEmprestimoEntre(HOJE.minusDays(7), HOJE, PAGINA)))
+                .containsAnyOf("idx_emprestimos_data_livro_status", "idx_emprestimos_livro_data_id");
+        assertThat(indices(() -> emprestimoRepository.contarEmprestimosPorLivroEDia(HOJE.minusDays(7))))
+                .containsAnyOf("idx_emprestimos_data_livro_status", "idx_emprestimos_status_data_id");
+    }
+
+    @Test
+    void emprestimosPorStatusEmOrdemDeData() {
+        assertThat(indices(() -> emprestimoRepository.findByStatusOrderByDataEmprestimoDesc("ATIVO", PAGINA)))
+                .contains("idx_emprestimos_status_data_id");
+        assertThat(indices(() -> emprestimoRepository.buscarPorStatusAposCursor("ATIVO", HOJE, 10_000L, PAGINA)))
+                .contains("idx_emprestimos_status_data_id");
+    }
+
+    /**
+     * O H2 cria um índice próprio para cada chave estrangeira e, com menos colunas, prefere-o
+     * para {@code livro_id = ?}; os índices (livro_id ou usuario_id, data_emprestimo, id) da V2
+     * servem ao PostgreSQL, que os lê de trás para frente no ORDER BY data DESC.
+     * O teste garante que nenhuma dessas consultas volta a percorrer a tabela.
+     */
+    @Test
+    void emprestimosDeUmLivroOuUsuario() {
+        assertThat(indices(() -> emprestimoRepository.findByLivroIdOrderByDataEmprestimoDesc(1L, PAGINA)))
+                .anyMatch(indice -> indice.equals("idx_emprestimos_livro_data_id") || indice.startsWith("fk_emprestimos_livro"));
+        assertThat(indices(() -> emprestimoRepository.buscarPorLivroAposCursor(1L, HOJE, 10_000L, PAGINA)))
+                .anyMatch(indice -> indice.equals("idx_emprestimos_livro_data_id") || indice.startsWith("fk_emprestimos_livro"));
+        assertThat(indices(() -> emprestimoRepository.buscarPorUsuarioAposCursor(1L, null, HOJE, 10_000L, PAGINA)))
+                .anyMatch(indice -> indice.equals("idx_emprestimos_usuario_data_id") || indice.startsWith("fk_emprestimos_usuario"));
+    }
+
+    @Test
+    void livrosEUsuariosPorColunasFiltradas() {
+        assertThat(indices(() -> livroRepository.findByCopiasDisponiveisGreaterThan(0, PAGINA)))
+                .contains("idx_livros_copias_disponiveis");
+        assertThat(indices(() -> livroRepository.findByCategoria("Categoria 1", PAGINA)))
+                .contains("idx_livros_categoria");
+        assertThat(indices(() -> usuarioRepository.findByTipoUsuario("ALUNO", PAGINA)))
+                .contains("idx_usuarios_tipo");
+    }
+
+    private List<String> indices(Runnable consulta) {
+        return indicesDoPlano(plano(consulta));
+    }
+
+    /**
+     * Executa a consulta e devolve o plano do H2 para o primeiro SELECT que ela emitiu
+     */
+    private String plano(Runnable consulta) {
+        CapturaInstrucoes.instrucoes.clear();
+        consulta.run();
+        String sql = CapturaInstrucoes.instrucoes.stream()
+                .filter(instrucao -> instrucao.toLowerCase().contains("select"))
+                .findFirst()
+                .orElseThrow();
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class);
+    }
+
+    /**
+     * Índices percorridos no plano, em minúsculas (o H2 os anota como {@code /* PUBLIC.NOME: ...})
+     */
+    private static List<String> indicesDoPlano(String plano) {
+        return INDICE_NO_PLANO.matcher(plano).results()
+                .map(resultado -> resultado.group(1).toLowerCase())
+                .toList();
+    }
+
+    /**
+     * Guarda o SQL de cada instrução preparada pelo Hibernate, sem alterá-lo
+     */
+    public static class CapturaInstrucoes implements StatementInspector {
+
+        static final List<String> instrucoes = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            instrucoes.add(sql);
+            return sql;
+        }
+    }
+}
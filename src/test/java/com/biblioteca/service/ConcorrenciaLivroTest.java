@@ -0,0 +1,177 @@
+package com.biblioteca.service;
+
+import com.biblioteca.IntegracaoBase;
+import com.biblioteca.dto.EmprestimoDTO;
+import com.biblioteca.dto.LivroDTO;
+import com.biblioteca.dto.LivroResposta;
+import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.entity.Livro;
+import com.biblioteca.exception.CheckoutRejeitadoException;
+import com.biblioteca.exception.ExcecaoNegocioException;
+import com.biblioteca.exception.MotivoRejeicao;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.ConcurrencyFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Disputa de centenas de threads pelas cópias de um único título (seção 5.15 do relatório)
+ *
+ * Cada teste cria seus próprios livros e usuários, então a ordem de execução não importa.
+ */
+class ConcorrenciaLivroTest extends IntegracaoBase {
+
+    private static final int COPIAS = 20;
+    private static final int THREADS_EMPRESTIMO = 190;
+    private static final int THREADS_EDICAO = 10;
+    private static final int RODADAS = 20;
+
+    @Autowired
+    private LedgerDisponibilidade ledgerDisponibilidade;
+
+    @Test
+    void estoqueNuncaEmprestaMaisCopiasDoQueOTituloTem() throws Exception {
+        Long livroId = criarLivro(COPIAS);
+        List<Long> usuarios = new ArrayList<>();
+        for (int i = 0; i < THREADS_EMPRESTIMO; i++) {
+            usuarios.add(criarUsuario());
+        }
+
+        AtomicInteger emprestimos = new AtomicInteger();
+        AtomicInteger semCopias = new AtomicInteger();
+        CyclicBarrier largada = new CyclicBarrier(THREADS_EMPRESTIMO + THREADS_EDICAO);
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS_EMPRESTIMO + THREADS_EDICAO);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (Long usuarioId : usuarios) {
+            tarefas.add(threads.submit(() -> {
+                largada.await();
+                for (int rodada = 0; rodada < RODADAS; rodada++) {
+                    try {
+                        Emprestimo emprestimo = emprestimoService.criar(EmprestimoDTO.builder()
+                                .usuarioId(usuarioId)
+                                .livroId(livroId)
+                                .build());
+                        emprestimoService.devolver(emprestimo.getId());
+                        emprestimos.incrementAndGet();
+                    } catch (CheckoutRejeitadoException recusa) {
+                        assertThat(recusa.getMotivo()).isEqualTo(MotivoRejeicao.SEM_COPIAS);
+                        semCopias.incrementAndGet();
+                    } catch (ConcurrencyFailureException conflitoEsgotado) {
+                        // Retentativas esgotadas: a operação não aconteceu, e o estoque continua fechando
+                    }
+                }
+                return null;
+            }));
+        }
+        for (int i = 0; i < THREADS_EDICAO; i++) {
+            tarefas.add(threads.submit(() -> {
+                largada.await();
+                for (int rodada = 0; rodada < RODADAS; rodada++) {
+                    // Edição montada a partir de uma leitura que os checkouts tornam desatualizada
+                    Livro lido = livroService.buscarPorId(livroId);
+                    try {
+                        livroService.atualizar(livroId, paraDTO(lido, lido.getCopiasDisponiveis(), lido.getCopiasTotais()));
+                    } catch (ConcurrencyFailureException conflito) {
+                        // Esperado: a versão mudou entre a leitura e a gravação
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get(5, TimeUnit.MINUTES);
+        }
+        threads.shutdown();
+
+        Livro livro = livroService.buscarPorId(livroId);
+        assertThat(emprestimos.get()).isPositive();
+        assertThat(semCopias.get()).isPositive();
+        assertThat(livro.getCopiasDisponiveis()).isBetween(0, COPIAS);
+        assertThat(livro.getCopiasDisponiveis() + emprestimosEmAberto(livroId)).isEqualTo(livro.getCopiasTotais());
+        assertThat(ledgerDisponibilidade.consultar(livroId)).isEqualTo(livro.getCopiasDisponiveis());
+    }
+
+    @Test
+    void devolucoesSimultaneasDoMesmoEmprestimoCreditamUmaUnicaCopia() throws Exception {
+        Long livroId = criarLivro(2);
+        Long emprestimoId = emprestimoService.criar(EmprestimoDTO.builder()
+                .usuarioId(criarUsuario())
+                .livroId(livroId)
+                .build()).getId();
+        assertThat(livroService.buscarPorId(livroId).getCopiasDisponiveis()).isEqualTo(1);
+
+        CyclicBarrier largada = new CyclicBarrier(2);
+        AtomicInteger devolvidas = new AtomicInteger();
+        AtomicInteger recusadas = new AtomicInteger();
+        ExecutorService threads = Executors.newFixedThreadPool(2);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            tarefas.add(threads.submit(() -> {
+                largada.await();
+                try {
+                    emprestimoService.devolver(emprestimoId);
+                    devolvidas.incrementAndGet();
+                } catch (ExcecaoNegocioException jaDevolvido) {
+                    recusadas.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        for (Future<?> tarefa : tarefas) {
+            tarefa.get(1, TimeUnit.MINUTES);
+        }
+        threads.shutdown();
+
+        assertThat(devolvidas.get()).isEqualTo(1);
+        assertThat(recusadas.get()).isEqualTo(1);
+        assertThat(livroService.buscarPorId(livroId).getCopiasDisponiveis()).isEqualTo(2);
+        assertThat(ledgerDisponibilidade.consultar(livroId)).isEqualTo(2);
+        assertThat(emprestimosEmAberto(livroId)).isZero();
+    }
+
+    @Test
+    void consultaDevolveAVersaoAtualMesmoComOLivroEmCache() {
+        Long livroId = criarLivro(3);
+        LivroResposta antes = livroService.consultarPorId(livroId);
+
+        emprestimoService.criar(EmprestimoDTO.builder().usuarioId(criarUsuario()).livroId(livroId).build());
+        LivroResposta depois = livroService.consultarPorId(livroId);
+
+        assertThat(depois.versao()).isGreaterThan(antes.versao());
+        assertThat(depois.copiasDisponiveis()).isEqualTo(2);
+        Livro livro = livroService.buscarPorId(livroId);
+        LivroDTO edicao = paraDTO(livro, depois.copiasDisponiveis(), depois.copiasTotais());
+        edicao.setVersao(depois.versao());
+        edicao.setTitulo("Título revisado");
+        assertThat(livroService.atualizar(livroId, edicao).getTitulo()).isEqualTo("Título revisado");
+    }
+
+    private int emprestimosEmAberto(Long livroId) {
+        return jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM emprestimos WHERE livro_id = ? AND status IN ('ATIVO', 'ATRASADO')",
+                Integer.class, livroId);
+    }
+
+    private static LivroDTO paraDTO(Livro livro, int disponiveis, int totais) {
+        return LivroDTO.builder()
+                .titulo(livro.getTitulo())
+                .autor(livro.getAutor())
+                .isbn(livro.getIsbn())
+                .descricao(livro.getDescricao())
+                .categoria(livro.getCategoria())
+                .copiasDisponiveis(disponiveis)
+                .copiasTotais(totais)
+                .versao(livro.getVersao())
+                .build();
+    }
+}
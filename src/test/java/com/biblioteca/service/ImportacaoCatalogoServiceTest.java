@@ -0,0 +1,154 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.EmprestimoDTO;
+import com.biblioteca.dto.LivroDTO;
+import com.biblioteca.dto.ResultadoImportacaoCatalogo;
+import com.biblioteca.dto.UsuarioDTO;
+import com.biblioteca.entity.Livro;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Reimportação de livros já cadastrados enquanto há empréstimos em andamento
+ */
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:importacao-catalogo")
+class ImportacaoCatalogoServiceTest {
+
+    private static final int LIVROS_CONCORRENTES = 300;
+    private static final int COPIAS = 5;
+    private static final int THREADS_EMPRESTIMO = 8;
+    private static final int RODADAS_IMPORTACAO = 10;
+
+    @Autowired
+    private ImportacaoCatalogoService importacaoCatalogoService;
+
+    @Autowired
+    private LivroService livroService;
+
+    @Autowired
+    private UsuarioService usuarioService;
+
+    @Autowired
+    private EmprestimoService emprestimoService;
+
+    @Autowired
+    private LedgerDisponibilidade ledgerDisponibilidade;
+
+    @Test
+    void reimportacaoAtualizaOCatalogoSemTocarNasCopias() {
+        Livro livro = livroService.criar(LivroDTO.builder()
+                .titulo("Título original")
+                .autor("Autor original")
+                .isbn("978-3-0000001")
+                .categoria("Importação")
+                .copiasDisponiveis(3)
+                .copiasTotais(3)
+                .build());
+        Long usuarioId = usuarioService.criar(UsuarioDTO.builder()
+                .nome("Leitor da importação")
+                .email("leitor@importacao.test")
+                .tipoUsuario("ALUNO")
+                .ativo(true)
+                .limiteEmprestimos(5)
+                .build()).getId();
+        // Checkout depois do cadastro: a versão e o saldo no banco já não são os da criação
+        emprestimoService.criar(EmprestimoDTO.builder().usuarioId(usuarioId).livroId(livro.getId()).build());
+
+        String csv = """
+                titulo,autor,isbn,descricao,categoria,copiasDisponiveis,copiasTotais
+                Título revisado,Autor revisado,978-3-0000001,Nova descrição,Reimportação,3,3
+                """;
+        ResultadoImportacaoCatalogo resultado = importacaoCatalogoService.importar(
+                new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), ImportacaoCatalogoService.Formato.CSV);
+
+        assertThat(resultado.atualizados()).isEqualTo(1);
+        assertThat(resultado.rejeitados()).isZero();
+        Livro atualizado = livroService.buscarPorId(livro.getId());
+        assertThat(atualizado.getTitulo()).isEqualTo("Título revisado");
+        assertThat(atualizado.getCategoria()).isEqualTo("Reimportação");
+        assertThat(atualizado.getCopiasDisponiveis()).isEqualTo(2);
+        assertThat(ledgerDisponibilidade.consultar(livro.getId())).isEqualTo(2);
+        assertThat(livroService.consultarPorId(livro.getId()).titulo()).isEqualTo("Título revisado");
+    }
+
+    @Test
+    void reimportacaoNaoPerdeLotesParaCheckoutsConcorrentes() throws Exception {
+        List<Long> livros = new ArrayList<>();
+        StringBuilder csv = new StringBuilder("titulo,autor,isbn,categoria,copiasDisponiveis,copiasTotais\n");
+        for (int i = 0; i < LIVROS_CONCORRENTES; i++) {
+            String isbn = String.format("978-4-%07d", i);
+            livros.add(livroService.criar(LivroDTO.builder()
+                    .titulo("Título " + i)
+                    .autor("Autor " + i)
+                    .isbn(isbn)
+                    .categoria("Importação")
+                    .copiasDisponiveis(COPIAS)
+                    .copiasTotais(COPIAS)
+                    .build()).getId());
+            csv.append("Título revisado ").append(i).append(",Autor ").append(i).append(',').append(isbn)
+                    .append(",Reimportação,").append(COPIAS).append(',').append(COPIAS).append('\n');
+        }
+        List<Long> usuarios = new ArrayList<>();
+        for (int i = 0; i < THREADS_EMPRESTIMO; i++) {
+            usuarios.add(usuarioService.criar(UsuarioDTO.builder()
+                    .nome("Leitor concorrente " + i)
+                    .email("concorrente" + i + "@importacao.test")
+                    .tipoUsuario("ALUNO")
+                    .ativo(true)
+                    .limiteEmprestimos(5)
+                    .build()).getId());
+        }
+
+        AtomicBoolean importando = new AtomicBoolean(true);
+        ExecutorService threads = Executors.newFixedThreadPool(THREADS_EMPRESTIMO);
+        List<Future<?>> tarefas = new ArrayList<>();
+        for (Long usuarioId : usuarios) {
+            tarefas.add(threads.submit(() -> {
+                while (importando.get()) {
+                    Long livroId = livros.get(ThreadLocalRandom.current().nextInt(livros.size()));
+                    emprestimoService.devolver(emprestimoService.criar(EmprestimoDTO.builder()
+                            .usuarioId(usuarioId).livroId(livroId).build()).getId());
+                }
+                return null;
+            }));
+        }
+        long rejeitados = 0;
+        try {
+            for (int rodada = 0; rodada < RODADAS_IMPORTACAO; rodada++) {
+                ResultadoImportacaoCatalogo resultado = importacaoCatalogoService.importar(
+                        new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)),
+                        ImportacaoCatalogoService.Formato.CSV);
+                rejeitados += resultado.rejeitados();
+                assertThat(resultado.atualizados() + resultado.rejeitados()).isEqualTo(LIVROS_CONCORRENTES);
+            }
+        } finally {
+            importando.set(false);
+            for (Future<?> tarefa : tarefas) {
+                tarefa.get(1, TimeUnit.MINUTES);
+            }
+            threads.shutdown();
+        }
+
+        assertThat(rejeitados).isZero();
+        for (Long livroId : livros) {
+            Livro livro = livroService.buscarPorId(livroId);
+            assertThat(livro.getTitulo()).startsWith("Título revisado");
+            assertThat(livro.getCopiasDisponiveis()).isEqualTo(COPIAS);
+            assertThat(ledgerDisponibilidade.consultar(livroId)).isEqualTo(COPIAS);
+        }
+    }
+}
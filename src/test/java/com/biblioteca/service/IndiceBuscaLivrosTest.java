@@ -0,0 +1,87 @@
+package com.biblioteca.service;
+
+import com.biblioteca.entity.Livro;
+import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.repository.projecao.LivroTextoLinha;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Recarga do índice de busca com livros alterados enquanto a tabela é lida
+ */
+class IndiceBuscaLivrosTest {
+
+    private final LivroRepository livroRepository = mock(LivroRepository.class);
+    private final IndiceBuscaLivros indice = new IndiceBuscaLivros(livroRepository, "memoria", 10000);
+
+    @Test
+    void alteracoesConfirmadasDuranteARecargaNaoSePerdem() {
+        when(livroRepository.listarTextos()).thenReturn(List.of(linha(1L, "Dom Casmurro"), linha(2L, "Memórias Póstumas")));
+        indice.carregar();
+
+        // Os commits chegam depois de a leitura da tabela ter visto o estado anterior
+        when(livroRepository.listarTextos()).thenAnswer(chamada -> {
+            indice.removerAposCommit(1L);
+            indice.indexarAposCommit(livro(2L, "Quincas Borba"));
+            indice.indexarAposCommit(livro(3L, "Helena"));
+            return List.of(linha(1L, "Dom Casmurro"), linha(2L, "Memórias Póstumas"));
+        });
+        indice.carregar();
+
+        assertThat(indice.buscar(null, "casmurro", null, null, null)).isEmpty();
+        assertThat(indice.buscar(null, "memorias", null, null, null)).isEmpty();
+        assertThat(indice.buscar(null, "quincas", null, null, null)).containsExactly(2L);
+        assertThat(indice.buscar(null, "helena", null, null, null)).containsExactly(3L);
+
+        // Fora da recarga, as alterações seguem indo direto ao índice em uso
+        indice.removerAposCommit(3L);
+        assertThat(indice.buscar(null, "helena", null, null, null)).isEmpty();
+    }
+
+    private static Livro livro(Long id, String titulo) {
+        Livro livro = new Livro();
+        livro.setId(id);
+        livro.setTitulo(titulo);
+        livro.setAutor("Machado de Assis");
+        return livro;
+    }
+
+    private static LivroTextoLinha linha(Long id, String titulo) {
+        return new LivroTextoLinha() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getTitulo() {
+                return titulo;
+            }
+
+            @Override
+            public String getAutor() {
+                return "Machado de Assis";
+            }
+
+            @Override
+            public String getDescricao() {
+                return null;
+            }
+
+            @Override
+            public String getCategoria() {
+                return "Romance";
+            }
+
+            @Override
+            public String getIsbn() {
+                return null;
+            }
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package com.biblioteca.service;
+
+import com.biblioteca.IntegracaoBase;
+import com.biblioteca.dto.EmprestimoDTO;
+import com.biblioteca.dto.ResultadoLoteEmprestimos.Item;
+import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.exception.CheckoutRejeitadoException;
+import com.biblioteca.exception.MotivoRejeicao;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Limite de empréstimos do usuário conferido pelo índice em memória e pelo banco
+ */
+class MotorCheckoutTest extends IntegracaoBase {
+
+    @Test
+    void contadorDoUsuarioAcompanhaCheckoutsEDevolucoes() {
+        Long usuarioId = criarUsuario(2);
+        Emprestimo primeiro = emprestar(criarLivro(1), usuarioId);
+        emprestar(criarLivro(1), usuarioId);
+        assertThat(emprestimosEmAberto(usuarioId)).isEqualTo(2);
+
+        assertThatThrownBy(() -> emprestar(criarLivro(1), usuarioId))
+                .isInstanceOfSatisfying(CheckoutRejeitadoException.class,
+                        recusa -> assertThat(recusa.getMotivo()).isEqualTo(MotivoRejeicao.LIMITE_ATINGIDO));
+
+        // Os dois empréstimos vencem no mesmo dia: a devolução libera só o que foi devolvido
+        emprestimoService.devolver(primeiro.getId());
+        assertThat(emprestimosEmAberto(usuarioId)).isEqualTo(1);
+        emprestar(criarLivro(1), usuarioId);
+        assertThatThrownBy(() -> emprestar(criarLivro(1), usuarioId))
+                .isInstanceOf(CheckoutRejeitadoException.class);
+        assertThat(emprestimosEmAberto(usuarioId)).isEqualTo(2);
+    }
+
+    @Test
+    void bancoRecusaCheckoutQueOIndiceDestaInstanciaAindaPermite() {
+        Long usuarioId = criarUsuario(2);
+        Long livroId = criarLivro(1);
+        emprestar(criarLivro(1), usuarioId);
+
+        // Outra instância emprestou ao mesmo usuário: o índice desta ainda conta um empréstimo
+        emprestadoPorOutraInstancia(criarLivro(1), usuarioId);
+
+        assertThatThrownBy(() -> emprestar(livroId, usuarioId))
+                .isInstanceOfSatisfying(CheckoutRejeitadoException.class,
+                        recusa -> assertThat(recusa.getMotivo()).isEqualTo(MotivoRejeicao.LIMITE_ATINGIDO));
+        assertThat(emprestimosEmAberto(usuarioId)).isEqualTo(2);
+        assertThat(livroService.buscarPorId(livroId).getCopiasDisponiveis()).isEqualTo(1);
+    }
+
+    @Test
+    void loteRecusaOsPedidosDoUsuarioQueOBancoRecusou() {
+        Long usuarioId = criarUsuario(2);
+        Long livroId = criarLivro(2);
+        Long outroUsuario = criarUsuario(2);
+        emprestar(criarLivro(1), usuarioId);
+        emprestadoPorOutraInstancia(criarLivro(1), usuarioId);
+
+        List<Item> itens = emprestimoService.criarLote(List.of(
+                EmprestimoDTO.builder().usuarioId(usuarioId).livroId(livroId).build(),
+                EmprestimoDTO.builder().usuarioId(outroUsuario).livroId(livroId).build())).itens();
+
+        assertThat(itens.get(0).motivo()).isEqualTo(MotivoRejeicao.LIMITE_ATINGIDO);
+        assertThat(itens.get(1).emprestimoId()).isNotNull();
+        assertThat(emprestimosEmAberto(usuarioId)).isEqualTo(2);
+        assertThat(emprestimosEmAberto(outroUsuario)).isEqualTo(1);
+        // A cópia reservada para o pedido recusado volta ao estoque
+        assertThat(livroService.buscarPorId(livroId).getCopiasDisponiveis()).isEqualTo(1);
+    }
+
+    private void emprestadoPorOutraInstancia(Long livroId, Long usuarioId) {
+        jdbcTemplate.update("UPDATE livros SET cópias_disponíveis = cópias_disponíveis - 1 WHERE id = ?", livroId);
+        jdbcTemplate.update("INSERT INTO emprestimos (id, livro_id, usuario_id, data_emprestimo, data_devolucao_prevista, " +
+                "status, data_criacao, data_atualizacao) VALUES (NEXT VALUE FOR emprestimos_seq, ?, ?, CURRENT_DATE, " +
+                "DATEADD('DAY', 14, CURRENT_DATE), 'ATIVO', CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)", livroId, usuarioId);
+        jdbcTemplate.update("UPDATE usuarios SET emprestimos_em_aberto = emprestimos_em_aberto + 1 WHERE id = ?", usuarioId);
+    }
+
+    private int emprestimosEmAberto(Long usuarioId) {
+        return jdbcTemplate.queryForObject("SELECT emprestimos_em_aberto FROM usuarios WHERE id = ?", Integer.class, usuarioId);
+    }
+}
@@ -0,0 +1,63 @@
+package com.biblioteca.service;
+
+import com.biblioteca.evento.EmprestimoCriadoEvento;
+import com.biblioteca.repository.EmprestimoRepository;
+import com.biblioteca.repository.projecao.ContagemEmprestimosLivro;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Recarga do ranking com empréstimos criados enquanto as consultas rodam
+ */
+class RankingEmprestimosTest {
+
+    private static final Long LIVRO = 1L;
+
+    private final EmprestimoRepository emprestimoRepository = mock(EmprestimoRepository.class);
+    private final RankingEmprestimos ranking = new RankingEmprestimos(emprestimoRepository, 365);
+
+    @Test
+    void emprestimoConfirmadoDuranteARecargaNaoSePerde() {
+        LocalDate hoje = LocalDate.now();
+        // O commit chega depois de o banco contar os três empréstimos anteriores
+        when(emprestimoRepository.contarEmprestimosPorLivro()).thenAnswer(chamada -> {
+            ranking.aoCriarEmprestimo(new EmprestimoCriadoEvento(99L, LIVRO, 10L, hoje));
+            return List.of(contagem(null, 3));
+        });
+        when(emprestimoRepository.contarEmprestimosPorLivroEDia(any())).thenReturn(List.of(contagem(hoje, 3)));
+
+        ranking.carregar();
+
+        assertThat(ranking.top(10, null)).containsExactly(new RankingEmprestimos.Posicao(LIVRO, 4));
+        assertThat(ranking.top(10, 7)).containsExactly(new RankingEmprestimos.Posicao(LIVRO, 4));
+
+        ranking.aoCriarEmprestimo(new EmprestimoCriadoEvento(100L, LIVRO, 10L, hoje));
+        assertThat(ranking.top(10, null)).containsExactly(new RankingEmprestimos.Posicao(LIVRO, 5));
+    }
+
+    private static ContagemEmprestimosLivro contagem(LocalDate dia, long quantidade) {
+        return new ContagemEmprestimosLivro() {
+            @Override
+            public Long getLivroId() {
+                return LIVRO;
+            }
+
+            @Override
+            public LocalDate getDia() {
+                return dia;
+            }
+
+            @Override
+            public Long getQuantidade() {
+                return quantidade;
+            }
+        };
+    }
+}
@@ -0,0 +1,115 @@
+package com.biblioteca.service;
+
+import com.biblioteca.dto.SolicitacaoRelatorio;
+import com.biblioteca.dto.SolicitacaoRelatorio.Tipo;
+import com.biblioteca.dto.TrabalhoRelatorio;
+import com.biblioteca.dto.TrabalhoRelatorio.Situacao;
+import com.biblioteca.repository.EstatisticaCategoriaRepository;
+import com.biblioteca.repository.LivroRepository;
+import com.biblioteca.repository.projecao.CategoriaDoLivro;
+import com.biblioteca.service.VersaoDados.Dominio;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Trabalhos de relatório sujeitos ao limite de linhas do cache de resultados
+ */
+class RelatorioTrabalhoServiceTest {
+
+    private static final long LINHAS_EM_CACHE = 2;
+
+    private final RelatorioService relatorioService = mock(RelatorioService.class);
+    private final VersaoDados versaoDados = new VersaoDados();
+    private final RelatorioTrabalhoService service = new RelatorioTrabalhoService(
+            relatorioService, versaoDados, 1, 10, LINHAS_EM_CACHE, 30);
+
+    @AfterEach
+    void encerrar() {
+        service.encerrar();
+    }
+
+    @Test
+    void trabalhoConcluidoDevolveOResultadoGuardado() throws Exception {
+        when(relatorioService.relatorioLivrosEmprestados()).thenReturn(List.of(linha(1L)));
+
+        TrabalhoRelatorio trabalho = aguardarConclusao(service.submeter(new SolicitacaoRelatorio(Tipo.LIVROS_EMPRESTADOS, Map.of())));
+
+        assertThat(trabalho.situacao()).isEqualTo(Situacao.CONCLUIDO);
+        assertThat(trabalho.resultado()).isEqualTo(List.of(linha(1L)));
+    }
+
+    @Test
+    void resultadoAcimaDoLimiteNaoFicaPresoNoTrabalho() throws Exception {
+        when(relatorioService.relatorioLivrosEmprestados()).thenReturn(List.of(linha(1L), linha(2L), linha(3L)));
+
+        TrabalhoRelatorio trabalho = aguardarConclusao(service.submeter(new SolicitacaoRelatorio(Tipo.LIVROS_EMPRESTADOS, Map.of())));
+
+        // Três linhas não cabem no cache de duas; o trabalho não segura o resultado por fora do limite
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (trabalho.situacao() != Situacao.DESCARTADO && System.nanoTime() < limite) {
+            Thread.sleep(10);
+            trabalho = service.consultar(trabalho.id());
+        }
+        assertThat(trabalho.situacao()).isEqualTo(Situacao.DESCARTADO);
+        assertThat(trabalho.resultado()).isNull();
+        assertThat(trabalho.erro()).isNotBlank();
+    }
+
+    @Test
+    void consolidacaoDoEstoqueRenovaORelatorioPorCategoriaEmCache() {
+        AtomicLong copiasNaTabela = new AtomicLong(3);
+        EstatisticaCategoriaRepository estatisticaRepository = mock(EstatisticaCategoriaRepository.class);
+        when(estatisticaRepository.somar(eq("Romance"), anyLong(), anyLong(), anyLong(), any())).thenAnswer(chamada -> {
+            copiasNaTabela.addAndGet(chamada.getArgument(3));
+            return 1;
+        });
+        CategoriaDoLivro livro = mock(CategoriaDoLivro.class);
+        when(livro.getId()).thenReturn(1L);
+        when(livro.getCategoria()).thenReturn("Romance");
+        LivroRepository livroRepository = mock(LivroRepository.class);
+        when(livroRepository.buscarCategorias(any())).thenReturn(List.of(livro));
+        EstatisticaCategoriaService estatisticas = new EstatisticaCategoriaService(
+                estatisticaRepository, livroRepository, versaoDados, mock(PlatformTransactionManager.class), "jdbc:h2:mem:teste");
+        when(relatorioService.relatorioLivrosPorCategoria(false)).thenAnswer(chamada -> List.of(
+                RelatorioService.LivroPorCategoriaDTO.builder().categoria("Romance").copiasDisponiveis(copiasNaTabela.get()).build()));
+
+        // Checkout: a versão dos livros muda no commit, e a variação de estoque fica pendente
+        estatisticas.registrarVariacaoEstoqueAposCommit(1L, -1);
+        versaoDados.registrarAlteracaoAposCommit(Dominio.LIVROS);
+        assertThat(service.livrosPorCategoria(false).get(0).getCopiasDisponiveis()).isEqualTo(3);
+
+        estatisticas.consolidarPendentes();
+
+        assertThat(service.livrosPorCategoria(false).get(0).getCopiasDisponiveis()).isEqualTo(2);
+    }
+
+    private TrabalhoRelatorio aguardarConclusao(TrabalhoRelatorio trabalho) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (trabalho.situacao() == Situacao.EM_ANDAMENTO && System.nanoTime() < limite) {
+            Thread.sleep(10);
+            trabalho = service.consultar(trabalho.id());
+        }
+        return trabalho;
+    }
+
+    private static RelatorioService.LivroEmprestadoDTO linha(Long emprestimoId) {
+        return RelatorioService.LivroEmprestadoDTO.builder()
+                .emprestimoId(emprestimoId)
+                .dataDeVolucaoPrevista(LocalDate.now().plusDays(7))
+                .build();
+    }
+}
@@ -0,0 +1,73 @@
+package com.biblioteca.service;
+
+import com.biblioteca.IntegracaoBase;
+import com.biblioteca.dto.ReservaDTO;
+import com.biblioteca.entity.Emprestimo;
+import com.biblioteca.entity.Reserva;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Entrega de cópias à fila de reservas quando devolução e reserva se cruzam
+ */
+class ReservaServiceTest extends IntegracaoBase {
+
+    @Autowired
+    private ReservaService reservaService;
+
+    @Autowired
+    private LedgerDisponibilidade ledgerDisponibilidade;
+
+    @Test
+    void devolucaoComReservaNaFilaEntregaACopiaAoPrimeiro() {
+        Long livroId = criarLivro(1);
+        Emprestimo emprestimo = emprestar(livroId, criarUsuario());
+        Reserva reserva = reservaService.reservar(new ReservaDTO(livroId, criarUsuario()));
+
+        emprestimoService.devolver(emprestimo.getId());
+
+        Reserva atendida = reservaService.buscarPorId(reserva.getId());
+        assertThat(atendida.getStatus()).isEqualTo("ATENDIDA");
+        assertThat(atendida.getEmprestimoId()).isNotNull();
+        assertThat(livroService.buscarPorId(livroId).getCopiasDisponiveis()).isZero();
+    }
+
+    @Test
+    void copiaQueFoiAoEstoqueSemVerAReservaEhEntregueAFila() {
+        Long livroId = criarLivro(1);
+        Emprestimo emprestimo = emprestar(livroId, criarUsuario());
+        Reserva reserva = reservaService.reservar(new ReservaDTO(livroId, criarUsuario()));
+
+        // Devolução que conferiu a fila antes de a reserva chegar a ela: a cópia foi ao estoque
+        jdbcTemplate.update("UPDATE emprestimos SET status = 'DEVOLVIDO' WHERE id = ?", emprestimo.getId());
+        livroService.liberarCopia(livroId);
+        assertThat(ledgerDisponibilidade.consultar(livroId)).isEqualTo(1);
+
+        reservaService.atenderComEstoque(livroId);
+
+        Reserva atendida = reservaService.buscarPorId(reserva.getId());
+        assertThat(atendida.getStatus()).isEqualTo("ATENDIDA");
+        assertThat(atendida.getEmprestimoId()).isNotNull();
+        assertThat(livroService.buscarPorId(livroId).getCopiasDisponiveis()).isZero();
+        assertThat(ledgerDisponibilidade.consultar(livroId)).isZero();
+    }
+
+    @Test
+    void copiaRecusadaPorTodaAFilaVoltaAoEstoque() {
+        Long livroId = criarLivro(1);
+        Emprestimo emprestimo = emprestar(livroId, criarUsuario());
+        Long inativo = criarUsuario();
+        Reserva reserva = reservaService.reservar(new ReservaDTO(livroId, inativo));
+        usuarioService.desativar(inativo);
+        jdbcTemplate.update("UPDATE emprestimos SET status = 'DEVOLVIDO' WHERE id = ?", emprestimo.getId());
+        livroService.liberarCopia(livroId);
+
+        reservaService.atenderComEstoque(livroId);
+
+        assertThat(reservaService.buscarPorId(reserva.getId()).getStatus()).isEqualTo("RECUSADA");
+        assertThat(livroService.buscarPorId(livroId).getCopiasDisponiveis()).isEqualTo(1);
+        assertThat(ledgerDisponibilidade.consultar(livroId)).isEqualTo(1);
+    }
+}
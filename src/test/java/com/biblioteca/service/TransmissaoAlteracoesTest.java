@@ -0,0 +1,191 @@
+package com.biblioteca.service;
+
+import com.biblioteca.controller.AlteracaoController;
+import com.biblioteca.evento.EmprestimoCriadoEvento;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.Filter;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Assinante lento descartado sem atrasar os demais assinantes do fluxo de alterações
+ */
+class TransmissaoAlteracoesTest {
+
+    private static final int BUFFER = 4;
+    private static final String CABECALHO_LENTO = "X-Cliente-Lento";
+    private static final Pattern ID_EVENTO = Pattern.compile("(?m)^id:(\\d+)$");
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final TransmissaoAlteracoes transmissao = new TransmissaoAlteracoes(
+            JsonMapper.builder().findAndAddModules().build(), mock(LedgerDisponibilidade.class), meterRegistry,
+            BUFFER, 10, 60_000, 3, 60_000);
+
+    /**
+     * Prende as escritas do pool de envio na resposta do cliente lento até ser liberada
+     */
+    private final CountDownLatch liberarClienteLento = new CountDownLatch(1);
+
+    private final MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new AlteracaoController(transmissao))
+            .addFilters(filtroClienteLento())
+            .build();
+
+    @AfterEach
+    void encerrar() {
+        liberarClienteLento.countDown();
+        transmissao.encerrarTodos();
+    }
+
+    @Test
+    void assinanteQueEncheOBufferEhDescartadoSemAtrasarOsDemais() throws Exception {
+        MvcResult lento = mockMvc.perform(get("/alteracoes").header(CABECALHO_LENTO, "sim"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MvcResult rapido = mockMvc.perform(get("/alteracoes"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Cada alteração só é publicada depois de o assinante rápido recebê-la: o buffer dele nunca
+        // enche, enquanto o do lento, com a escrita presa, transborda
+        int alteracoes = BUFFER + 4;
+        for (long emprestimoId = 1; emprestimoId <= alteracoes; emprestimoId++) {
+            transmissao.aoCriarEmprestimo(new EmprestimoCriadoEvento(emprestimoId, 10L, 20L, null));
+            int recebidas = (int) emprestimoId;
+            esperarAte(() -> ids(rapido.getResponse()).size() == recebidas);
+        }
+
+        assertThat(meterRegistry.counter("biblioteca.alteracoes.descartes").count()).isEqualTo(1);
+        assertThat(meterRegistry.get("biblioteca.alteracoes.assinantes").gauge().value()).isEqualTo(1);
+        assertThat(ids(rapido.getResponse())).containsExactly(1L, 2L, 3L, 4L, 5L, 6L, 7L, 8L);
+        assertThat(conteudo(rapido.getResponse())).startsWith("id:0\nevent:CONECTADO").doesNotContain("DESCARTADO");
+
+        liberarClienteLento.countDown();
+        lento.getAsyncResult(TimeUnit.SECONDS.toMillis(10));
+        assertThat(conteudo(lento.getResponse())).contains("event:DESCARTADO");
+
+        // O descartado não recebe mais nada; o outro continua na sequência
+        transmissao.aoCriarEmprestimo(new EmprestimoCriadoEvento(9L, 10L, 20L, null));
+        esperarAte(() -> ids(rapido.getResponse()).size() == alteracoes + 1);
+        assertThat(ids(rapido.getResponse())).endsWith(8L, 9L);
+        assertThat(conteudo(lento.getResponse())).doesNotContain("id:9");
+    }
+
+    private Filter filtroClienteLento() {
+        return (requisicao, resposta, cadeia) -> {
+            if (((HttpServletRequest) requisicao).getHeader(CABECALHO_LENTO) == null) {
+                cadeia.doFilter(requisicao, resposta);
+                return;
+            }
+            cadeia.doFilter(requisicao, new HttpServletResponseWrapper((HttpServletResponse) resposta) {
+                @Override
+                public ServletOutputStream getOutputStream() throws IOException {
+                    return new SaidaPresa(super.getOutputStream());
+                }
+            });
+        };
+    }
+
+    /**
+     * Saída que, nas threads do pool de envio, espera a liberação antes de escrever
+     */
+    private final class SaidaPresa extends ServletOutputStream {
+
+        private final ServletOutputStream saida;
+
+        private SaidaPresa(ServletOutputStream saida) {
+            this.saida = saida;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            esperarLiberacao();
+            saida.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            esperarLiberacao();
+            saida.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            saida.flush();
+        }
+
+        @Override
+        public boolean isReady() {
+            return saida.isReady();
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+            saida.setWriteListener(writeListener);
+        }
+
+        private void esperarLiberacao() throws IOException {
+            if (!Thread.currentThread().getName().startsWith("alteracoes-")) {
+                return;
+            }
+            try {
+                liberarClienteLento.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+
+    private static List<Long> ids(MockHttpServletResponse resposta) {
+        List<Long> ids = new ArrayList<>();
+        Matcher matcher = ID_EVENTO.matcher(conteudo(resposta));
+        while (matcher.find()) {
+            long id = Long.parseLong(matcher.group(1));
+            if (id > 0) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static String conteudo(MockHttpServletResponse resposta) {
+        try {
+            return resposta.getContentAsString();
+        } catch (UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void esperarAte(BooleanSupplier condicao) throws InterruptedException {
+        long limite = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (!condicao.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("tempo de espera esgotado").isLessThan(limite);
+            Thread.sleep(5);
+        }
+    }
+}